@@ -27,9 +27,10 @@ import org.aopalliance.intercept.MethodInvocation;
 public class InvokerInterceptor implements MethodInterceptor, ProxyInterceptor {
 
     /**
-     * Target invoked using reflection
+     * Target invoked using reflection. Volatile as the
+     * target may be replaced while the proxy is in use.
      */
-    private Object target;
+    private volatile Object target;
 
     public InvokerInterceptor() {
     }
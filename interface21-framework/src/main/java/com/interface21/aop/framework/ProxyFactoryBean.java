@@ -22,6 +22,7 @@ import com.interface21.beans.factory.BeanFactory;
 import com.interface21.beans.factory.BeanFactoryAware;
 import com.interface21.beans.factory.FactoryBean;
 import com.interface21.beans.factory.ListableBeanFactory;
+import com.interface21.beans.factory.RefreshableTargetSource;
 import com.interface21.beans.factory.support.BeanFactoryUtils;
 import com.interface21.core.OrderComparator;
 import org.aopalliance.intercept.AspectException;
@@ -55,7 +56,8 @@ import com.interface21.beans.BeansException;
  * @see #setInterceptorNames
  * @see #setProxyInterfaces
  */
-public class ProxyFactoryBean extends DefaultProxyConfig implements FactoryBean, BeanFactoryAware {
+public class ProxyFactoryBean extends DefaultProxyConfig
+        implements FactoryBean, BeanFactoryAware, RefreshableTargetSource {
 
     /**
      * This suffix in a value in an interceptor list indicates to expand globals.
@@ -83,6 +85,13 @@ public class ProxyFactoryBean extends DefaultProxyConfig implements FactoryBean,
      */
     private Map sourceMap = new HashMap();
 
+    /**
+     * Map from bean name to the InvokerInterceptor wrapping the target
+     * obtained from that bean, for targets that aren't interceptors or
+     * pointcuts themselves.
+     */
+    private Map targetInvokers = new HashMap();
+
     /**
      * Names of interceptor and pointcut beans in the factory.
      * Default is for globals expansion only.
@@ -250,6 +259,7 @@ public class ProxyFactoryBean extends DefaultProxyConfig implements FactoryBean,
             // TODO how do these get refreshed
             InvokerInterceptor ii = new InvokerInterceptor(next);
             addInterceptor(ii);
+            this.targetInvokers.put(name, ii);
             //throw new AopConfigException("Illegal type: bean '" + name + "' must be of type MethodPointcut or Interceptor");
         }
 
@@ -261,6 +271,26 @@ public class ProxyFactoryBean extends DefaultProxyConfig implements FactoryBean,
         this.sourceMap.put(next, name);
     }
 
+    /**
+     * Switch proxies created by this factory to a fresh instance of the
+     * target bean with the given name, e.g. after its bean definition has
+     * been reloaded. Callers holding a proxy reference don't notice.
+     *
+     * @see RefreshableTargetSource#refreshTarget(String)
+     */
+    public boolean refreshTarget(String beanName) throws BeansException {
+        InvokerInterceptor ii = (InvokerInterceptor) this.targetInvokers.get(beanName);
+        if (ii == null) {
+            return false;
+        }
+        Object target = this.beanFactory.getBean(beanName);
+        logger.info("Refreshing target bean named '" + beanName + "'");
+        this.sourceMap.remove(ii.getTarget());
+        this.sourceMap.put(target, beanName);
+        ii.setTarget(target);
+        return true;
+    }
+
     /**
      * Return a proxy. Invoked when clients obtain beans
      * from this factory bean.
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.beans;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Saves and restores the metadata that BeanWrapperImpl discovers at runtime:
+ * JavaBeans introspection results and the property editors found via
+ * PropertyEditorManager's search path. Restoring this metadata on startup
+ * avoids the cost of introspection and of editor class lookups.
+ * <p>
+ * <p>Only the metadata of the given bean classes is saved. Each class is saved
+ * with a fingerprint of its public methods, and validated against it on restore:
+ * Classes that can't be loaded any more, whose methods have changed, or that
+ * have gained an explicit BeanInfo class are simply skipped, and will be
+ * introspected as usual when needed. Classes with an explicit BeanInfo are
+ * never saved. Restored editors are only used by BeanWrapperImpl, and not
+ * registered with the JVM-wide PropertyEditorManager.
+ * <p>
+ * <p>Format: number of classes, followed by each class name, its fingerprint and
+ * its property descriptors as names of accessor methods and types; then number
+ * of editors, followed by pairs of property type and editor class name. Strings
+ * are stored as length-prefixed UTF-8.
+ *
+ * @see com.interface21.context.support.ContextSnapshot
+ */
+public abstract class BeanMetadataSnapshot {
+
+    private static final Log logger = LogFactory.getLog(BeanMetadataSnapshot.class);
+
+    private static final byte PLAIN_PROPERTY = 1;
+
+    private static final byte INDEXED_PROPERTY = 2;
+
+    private static final Map primitiveTypes = new HashMap();
+
+    static {
+        primitiveTypes.put("boolean", boolean.class);
+        primitiveTypes.put("byte", byte.class);
+        primitiveTypes.put("char", char.class);
+        primitiveTypes.put("short", short.class);
+        primitiveTypes.put("int", int.class);
+        primitiveTypes.put("long", long.class);
+        primitiveTypes.put("float", float.class);
+        primitiveTypes.put("double", double.class);
+    }
+
+
+    /**
+     * Write the introspection results of the given classes, and the editor
+     * choices for their property types, as far as they have been determined
+     * in this JVM.
+     *
+     * @param out         stream to write to
+     * @param beanClasses Collection of the Class objects to write metadata for
+     * @throws IOException if writing failed
+     */
+    public static void write(DataOutputStream out, Collection beanClasses) throws IOException {
+        List results = new ArrayList();
+        for (Iterator it = beanClasses.iterator(); it.hasNext(); ) {
+            Class clazz = (Class) it.next();
+            CachedIntrospectionResults cir = CachedIntrospectionResults.getCachedResults(clazz);
+            if (cir != null && !hasExplicitBeanInfo(clazz)) {
+                results.add(cir);
+            }
+        }
+
+        Set propertyTypes = new HashSet();
+        out.writeInt(results.size());
+        for (Iterator it = results.iterator(); it.hasNext(); ) {
+            CachedIntrospectionResults cir = (CachedIntrospectionResults) it.next();
+            writeString(out, cir.getBeanClass().getName());
+            out.writeLong(fingerprint(cir.getBeanClass()));
+            PropertyDescriptor[] pds = cir.getPropertyDescriptors();
+            out.writeInt(pds.length);
+            for (int i = 0; i < pds.length; i++) {
+                writePropertyDescriptor(out, pds[i]);
+                propertyTypes.add(pds[i].getPropertyType());
+            }
+        }
+
+        Map editors = BeanWrapperImpl.getFoundEditorClasses();
+        editors.keySet().retainAll(propertyTypes);
+        out.writeInt(editors.size());
+        for (Iterator it = editors.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            writeString(out, ((Class) entry.getKey()).getName());
+            writeString(out, ((Class) entry.getValue()).getName());
+        }
+    }
+
+    /**
+     * Restore introspection results and editor choices from the given buffer,
+     * as written by <code>write</code>. Classes that have been introspected
+     * already are left alone.
+     *
+     * @param buf buffer positioned at the start of the metadata; will be
+     *            positioned after the metadata on return
+     * @return the number of classes whose introspection results were restored
+     * @throws java.nio.BufferUnderflowException if the buffer ends prematurely,
+     *                                           or holds invalid lengths
+     */
+    public static int restore(ByteBuffer buf) {
+        int restored = 0;
+        int classCount = readCount(buf);
+        for (int i = 0; i < classCount; i++) {
+            String className = readString(buf);
+            long fingerprint = buf.getLong();
+            int pdCount = readCount(buf);
+            PropertyDescriptor[] pds = new PropertyDescriptor[pdCount];
+            Class clazz = resolveClass(className);
+            boolean valid = (clazz != null && !hasExplicitBeanInfo(clazz) && fingerprint(clazz) == fingerprint);
+            for (int j = 0; j < pdCount; j++) {
+                // always read the descriptor, to get to the next one
+                pds[j] = readPropertyDescriptor(buf, valid ? clazz : null);
+                valid = valid && (pds[j] != null);
+            }
+            if (valid && CachedIntrospectionResults.restore(clazz, pds)) {
+                restored++;
+            } else if (!valid) {
+                logger.debug("Not restoring introspection results for class '" + className + "': class has changed");
+            }
+        }
+
+        int editorCount = readCount(buf);
+        for (int i = 0; i < editorCount; i++) {
+            Class type = resolveClass(readString(buf));
+            Class editorClass = resolveClass(readString(buf));
+            if (type != null && editorClass != null) {
+                BeanWrapperImpl.restoreEditorClass(type, editorClass);
+            }
+        }
+        logger.info("Restored introspection results for " + restored + " classes and " + editorCount + " property editors");
+        return restored;
+    }
+
+
+    //---------------------------------------------------------------------
+    // Class validation
+    //---------------------------------------------------------------------
+
+    /**
+     * Compute a fingerprint of the public methods of the given class,
+     * including inherited ones, which determine its JavaBeans properties.
+     */
+    static long fingerprint(Class clazz) {
+        Method[] methods = clazz.getMethods();
+        String[] signatures = new String[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            signatures[i] = methods[i].toString();
+        }
+        Arrays.sort(signatures);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < signatures.length; i++) {
+            crc.update(signatures[i].getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Return whether the Introspector would find an explicit BeanInfo class
+     * for the given class or any of its superclasses, next to the class
+     * or on the BeanInfo search path.
+     */
+    static boolean hasExplicitBeanInfo(Class clazz) {
+        String[] searchPath = Introspector.getBeanInfoSearchPath();
+        for (Class c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            ClassLoader cl = (c.getClassLoader() != null ? c.getClassLoader() : ClassLoader.getSystemClassLoader());
+            if (isLoadable(c.getName() + "BeanInfo", cl)) {
+                return true;
+            }
+            String shortName = c.getName().substring(c.getName().lastIndexOf('.') + 1);
+            for (int i = 0; i < searchPath.length; i++) {
+                if (isLoadable(searchPath[i] + "." + shortName + "BeanInfo", cl)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLoadable(String className, ClassLoader cl) {
+        try {
+            Class.forName(className, false, cl);
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        } catch (LinkageError err) {
+            return false;
+        }
+    }
+
+
+    //---------------------------------------------------------------------
+    // Property descriptors
+    //---------------------------------------------------------------------
+
+    private static void writePropertyDescriptor(DataOutputStream out, PropertyDescriptor pd) throws IOException {
+        boolean indexed = (pd instanceof IndexedPropertyDescriptor);
+        out.writeByte(indexed ? INDEXED_PROPERTY : PLAIN_PROPERTY);
+        writeString(out, pd.getName());
+        writeString(out, pd.getReadMethod() != null ? pd.getReadMethod().getName() : null);
+        writeString(out, pd.getWriteMethod() != null ? pd.getWriteMethod().getName() : null);
+        writeString(out, pd.getPropertyType() != null ? pd.getPropertyType().getName() : null);
+        if (indexed) {
+            IndexedPropertyDescriptor ipd = (IndexedPropertyDescriptor) pd;
+            writeString(out, ipd.getIndexedReadMethod() != null ? ipd.getIndexedReadMethod().getName() : null);
+            writeString(out, ipd.getIndexedWriteMethod() != null ? ipd.getIndexedWriteMethod().getName() : null);
+            writeString(out, ipd.getIndexedPropertyType().getName());
+        }
+        writeString(out, pd.getPropertyEditorClass() != null ? pd.getPropertyEditorClass().getName() : null);
+    }
+
+    /**
+     * Read a property descriptor and resolve its methods against the given class.
+     *
+     * @param clazz class to resolve methods against, or null to just skip the descriptor
+     * @return the descriptor, or null if clazz was null or the methods couldn't be resolved
+     */
+    private static PropertyDescriptor readPropertyDescriptor(ByteBuffer buf, Class clazz) {
+        byte kind = buf.get();
+        String name = readString(buf);
+        String readMethodName = readString(buf);
+        String writeMethodName = readString(buf);
+        String typeName = readString(buf);
+        String indexedReadMethodName = null;
+        String indexedWriteMethodName = null;
+        String indexedTypeName = null;
+        if (kind == INDEXED_PROPERTY) {
+            indexedReadMethodName = readString(buf);
+            indexedWriteMethodName = readString(buf);
+            indexedTypeName = readString(buf);
+        }
+        String editorClassName = readString(buf);
+        if (clazz == null) {
+            return null;
+        }
+
+        try {
+            Class type = (typeName != null ? resolveClass(typeName) : null);
+            if (typeName != null && type == null) {
+                return null;
+            }
+            Method readMethod = (readMethodName != null ? clazz.getMethod(readMethodName, new Class[0]) : null);
+            Method writeMethod = (writeMethodName != null ? clazz.getMethod(writeMethodName, new Class[]{type}) : null);
+            PropertyDescriptor pd;
+            if (kind == INDEXED_PROPERTY) {
+                Class indexedType = resolveClass(indexedTypeName);
+                if (indexedType == null) {
+                    return null;
+                }
+                Method indexedReadMethod = (indexedReadMethodName != null ?
+                        clazz.getMethod(indexedReadMethodName, new Class[]{int.class}) : null);
+                Method indexedWriteMethod = (indexedWriteMethodName != null ?
+                        clazz.getMethod(indexedWriteMethodName, new Class[]{int.class, indexedType}) : null);
+                pd = new IndexedPropertyDescriptor(name, readMethod, writeMethod, indexedReadMethod, indexedWriteMethod);
+            } else {
+                pd = new PropertyDescriptor(name, readMethod, writeMethod);
+            }
+            if (editorClassName != null) {
+                Class editorClass = resolveClass(editorClassName);
+                if (editorClass == null) {
+                    return null;
+                }
+                pd.setPropertyEditorClass(editorClass);
+            }
+            return pd;
+        } catch (NoSuchMethodException ex) {
+            return null;
+        } catch (IntrospectionException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Load the given class via the thread context class loader.
+     *
+     * @return the class, or null if it couldn't be loaded
+     */
+    private static Class resolveClass(String className) {
+        Class primitive = (Class) primitiveTypes.get(className);
+        if (primitive != null) {
+            return primitive;
+        }
+        try {
+            return Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+        } catch (ClassNotFoundException ex) {
+            return null;
+        } catch (LinkageError err) {
+            return null;
+        }
+    }
+
+
+    //---------------------------------------------------------------------
+    // Strings
+    //---------------------------------------------------------------------
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read a count of elements, each of which takes at least four bytes.
+     *
+     * @throws BufferUnderflowException if the remaining data can't hold them
+     */
+    private static int readCount(ByteBuffer buf) {
+        int count = buf.getInt();
+        if (count < 0 || (long) count * 4 > buf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -86,6 +87,19 @@ public class BeanWrapperImpl implements BeanWrapper {
 
     private static final Map defaultEditors = new HashMap();
 
+    /**
+     * Editor classes found via PropertyEditorManager, keyed by property type:
+     * for BeanMetadataSnapshot, to restore them on later startups
+     */
+    private static final Map foundEditorClasses = new ConcurrentHashMap();
+
+    /**
+     * Editor classes restored by BeanMetadataSnapshot, keyed by property type:
+     * used instead of searching PropertyEditorManager, without registering
+     * them with the JVM-wide PropertyEditorManager
+     */
+    private static final Map restoredEditorClasses = new ConcurrentHashMap();
+
     static {
         // install default property editors
         try {
@@ -111,6 +125,44 @@ public class BeanWrapperImpl implements BeanWrapper {
         defaultEditors.put(Locale.class, new LocaleEditor());
     }
 
+    /**
+     * Return the editor classes found via PropertyEditorManager so far.
+     *
+     * @return Map from property type to editor class
+     */
+    static Map getFoundEditorClasses() {
+        return new HashMap(foundEditorClasses);
+    }
+
+    /**
+     * Use the given editor class for the given property type, instead of
+     * searching PropertyEditorManager. Only affects BeanWrapperImpl.
+     */
+    static void restoreEditorClass(Class type, Class editorClass) {
+        restoredEditorClasses.put(type, editorClass);
+    }
+
+    /**
+     * Instantiate the restored editor class for the given type, if any.
+     * Editor classes that can't be instantiated directly, like JDK editors
+     * in non-exported packages, are forgotten, to search for them again.
+     *
+     * @return the editor, or null if none has been restored for this type
+     */
+    private static PropertyEditor instantiateRestoredEditor(Class type) {
+        Class editorClass = (Class) restoredEditorClasses.get(type);
+        if (editorClass == null) {
+            return null;
+        }
+        try {
+            return (PropertyEditor) BeanUtils.instantiateClass(editorClass);
+        } catch (BeansException ex) {
+            logger.debug("Cannot instantiate restored property editor [" + editorClass.getName() + "]", ex);
+            restoredEditorClasses.remove(type);
+            return null;
+        }
+    }
+
 
     //---------------------------------------------------------------------
     // Instance data
@@ -353,7 +405,12 @@ public class BeanWrapperImpl implements BeanWrapper {
                     pe = (PropertyEditor) defaultEditors.get(requiredType);
                     if (pe == null) {
                         // no BeanWrapper default editor -> check standard editors
-                        pe = PropertyEditorManager.findEditor(requiredType);
+                        pe = instantiateRestoredEditor(requiredType);
+                        if (pe == null) {
+                            pe = PropertyEditorManager.findEditor(requiredType);
+                        }
+                        if (pe != null)
+                            foundEditorClasses.put(requiredType, pe.getClass());
                     }
                 }
                 if (logger.isDebugEnabled())
@@ -667,7 +724,7 @@ public class BeanWrapperImpl implements BeanWrapper {
      * @throws BeansException if property descriptors cannot be obtained
      */
     public PropertyDescriptor[] getProperties() throws BeansException {
-        return this.cachedIntrospectionResults.getBeanInfo().getPropertyDescriptors();
+        return this.cachedIntrospectionResults.getPropertyDescriptors();
     }
 
     public PropertyDescriptor getPropertyDescriptor(String propertyName) throws BeansException {
@@ -717,7 +774,7 @@ public class BeanWrapperImpl implements BeanWrapper {
     }
 
     public PropertyDescriptor[] getPropertyDescriptors() {
-        return cachedIntrospectionResults.getBeanInfo().getPropertyDescriptors();
+        return cachedIntrospectionResults.getPropertyDescriptors();
     }
 
     //---------------------------------------------------------------------
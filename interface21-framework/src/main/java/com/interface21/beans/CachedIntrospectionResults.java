@@ -11,6 +11,8 @@ import java.beans.MethodDescriptor;
 import java.beans.PropertyDescriptor;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -32,6 +34,9 @@ import org.apache.commons.logging.LogFactory;
  * implements the factory design pattern, using a private constructor
  * and a public static forClass() method to obtain instances.
  * 信息是静态缓存的，因此我们不需要为我们处理的每个JavaBean创建此类的新对象。因此，此类使用私有构造函数和公共静态forClass（）方法来获取实例，从而实现工厂设计模式。
+ * <p>
+ * <p>Results can also be restored from property descriptors saved in an
+ * earlier run, avoiding introspection: see BeanMetadataSnapshot.
  *
  * @author Rod Johnson
  * @version $Revision$
@@ -43,9 +48,10 @@ final class CachedIntrospectionResults {
 
     /**
      * Map keyed by class containing CachedIntrospectionResults or ReflectionException
-     * class -> CachedIntrospectionResults / ReflectionException
+     * class -> CachedIntrospectionResults / ReflectionException.
+     * Concurrent so that it can be iterated while beans are being created.
      */
-    private static Map $cache = new HashMap();
+    private static final ConcurrentMap $cache = new ConcurrentHashMap();
 
     /**
      * We might use this from the EJB tier, so we don't want to use
@@ -74,7 +80,35 @@ final class CachedIntrospectionResults {
         return (CachedIntrospectionResults) o;
     }
 
-    private BeanInfo beanInfo;
+    /**
+     * Return the cached introspection results for the given class,
+     * without introspecting it.
+     *
+     * @return the results, or null if the class hasn't been
+     * introspected yet or couldn't be introspected
+     */
+    static CachedIntrospectionResults getCachedResults(Class clazz) {
+        Object o = $cache.get(clazz);
+        return (o instanceof CachedIntrospectionResults ? (CachedIntrospectionResults) o : null);
+    }
+
+    /**
+     * Cache the given property descriptors for the given class, unless
+     * the class has already been introspected. Method descriptors will
+     * only be determined via introspection if required.
+     *
+     * @return whether the descriptors have been cached
+     */
+    static boolean restore(Class clazz, PropertyDescriptor[] pds) {
+        if ($cache.containsKey(clazz)) {
+            return false;
+        }
+        return ($cache.putIfAbsent(clazz, new CachedIntrospectionResults(clazz, pds)) == null);
+    }
+
+    private final Class beanClass;
+
+    private final PropertyDescriptor[] propertyDescriptors;
 
     /**
      * Property descriptors keyed by property name
@@ -84,9 +118,10 @@ final class CachedIntrospectionResults {
 
     /**
      * method descriptors keyed by method name
-     * methodName -> method descriptors
+     * methodName -> method descriptors.
+     * Null if restored until required.
      */
-    private Map methodDescriptorMap;
+    private volatile Map methodDescriptorMap;
 
     /**
      * Create new CachedIntrospectionResults instance fot the given class.
@@ -95,36 +130,57 @@ final class CachedIntrospectionResults {
     private CachedIntrospectionResults(Class clazz) throws BeansException {
         try {
             logger.debug("Getting BeanInfo for class '" + clazz.getName() + "'");
-            beanInfo = Introspector.getBeanInfo(clazz);
+            BeanInfo beanInfo = Introspector.getBeanInfo(clazz);
+            this.beanClass = clazz;
 
             logger.debug("Caching PropertyDescriptors for class '" + clazz.getName() + "'");
-            propertyDescriptorMap = new HashMap();
-            // This call is slow so we do it once
-            PropertyDescriptor[] pds = beanInfo.getPropertyDescriptors();
-            for (int i = 0; i < pds.length; i++) {
-                logger.debug("Found property [" + pds[i].getName() + "] of type [" + pds[i].getPropertyType() + "]; editor=[" + pds[i].getPropertyEditorClass() + "]");
-                propertyDescriptorMap.put(pds[i].getName(), pds[i]);
-            }
-
-            logger.debug("Caching MethodDescriptors for class '" + clazz.getName() + "'");
-            methodDescriptorMap = new HashMap();
             // This call is slow so we do it once
-            MethodDescriptor[] mds = beanInfo.getMethodDescriptors();
-            for (int i = 0; i < mds.length; i++) {
-                logger.debug("Found method [" + mds[i].getName() + "] of type [" + mds[i].getMethod().getReturnType() + "]");
-                methodDescriptorMap.put(mds[i].getName(), mds[i]);
-            }
+            this.propertyDescriptors = beanInfo.getPropertyDescriptors();
+            this.propertyDescriptorMap = createPropertyDescriptorMap(this.propertyDescriptors);
+            this.methodDescriptorMap = createMethodDescriptorMap(beanInfo);
         } catch (IntrospectionException ex) {
             throw new FatalBeanException("Cannot get BeanInfo for object of class '" + clazz.getName() + "'", ex);
         }
     }
 
-    protected BeanInfo getBeanInfo() {
-        return beanInfo;
+    /**
+     * Create new CachedIntrospectionResults instance for the given class,
+     * from previously determined property descriptors.
+     */
+    private CachedIntrospectionResults(Class clazz, PropertyDescriptor[] pds) {
+        logger.debug("Restoring PropertyDescriptors for class '" + clazz.getName() + "'");
+        this.beanClass = clazz;
+        this.propertyDescriptors = pds;
+        this.propertyDescriptorMap = createPropertyDescriptorMap(pds);
+    }
+
+    private Map createPropertyDescriptorMap(PropertyDescriptor[] pds) {
+        Map map = new HashMap();
+        for (int i = 0; i < pds.length; i++) {
+            logger.debug("Found property [" + pds[i].getName() + "] of type [" + pds[i].getPropertyType() + "]; editor=[" + pds[i].getPropertyEditorClass() + "]");
+            map.put(pds[i].getName(), pds[i]);
+        }
+        return map;
+    }
+
+    private Map createMethodDescriptorMap(BeanInfo beanInfo) {
+        logger.debug("Caching MethodDescriptors for class '" + this.beanClass.getName() + "'");
+        Map map = new HashMap();
+        // This call is slow so we do it once
+        MethodDescriptor[] mds = beanInfo.getMethodDescriptors();
+        for (int i = 0; i < mds.length; i++) {
+            logger.debug("Found method [" + mds[i].getName() + "] of type [" + mds[i].getMethod().getReturnType() + "]");
+            map.put(mds[i].getName(), mds[i]);
+        }
+        return map;
     }
 
     protected Class getBeanClass() {
-        return beanInfo.getBeanDescriptor().getBeanClass();
+        return beanClass;
+    }
+
+    protected PropertyDescriptor[] getPropertyDescriptors() {
+        return propertyDescriptors;
     }
 
     protected PropertyDescriptor getPropertyDescriptor(String propertyName) throws BeansException {
@@ -135,7 +191,17 @@ final class CachedIntrospectionResults {
     }
 
     protected MethodDescriptor getMethodDescriptor(String methodName) throws BeansException {
-        MethodDescriptor md = (MethodDescriptor) methodDescriptorMap.get(methodName);
+        Map mdMap = this.methodDescriptorMap;
+        if (mdMap == null) {
+            // restored without method descriptors: introspect now
+            try {
+                mdMap = createMethodDescriptorMap(Introspector.getBeanInfo(this.beanClass));
+                this.methodDescriptorMap = mdMap;
+            } catch (IntrospectionException ex) {
+                throw new FatalBeanException("Cannot get BeanInfo for object of class '" + this.beanClass.getName() + "'", ex);
+            }
+        }
+        MethodDescriptor md = (MethodDescriptor) mdMap.get(methodName);
         if (md == null)
             throw new FatalBeanException("No method [" + methodName + "] in class [" + getBeanClass() + "]", null);
         return md;
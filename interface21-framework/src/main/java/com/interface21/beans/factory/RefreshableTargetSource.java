@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.beans.factory;
+
+import com.interface21.beans.BeansException;
+
+/**
+ * Interface to be implemented by FactoryBeans whose objects delegate to
+ * target beans from the owning bean factory, and that are able to switch
+ * to a new instance of such a target bean without replacing the objects
+ * that they have already handed out.
+ * <p>
+ * <p>Used when reloading changed bean definitions: References to the
+ * factory's objects stay valid, but calls get routed to the new target.
+ *
+ * @see com.interface21.aop.framework.ProxyFactoryBean
+ */
+public interface RefreshableTargetSource {
+
+    /**
+     * Fetch a fresh instance of the target bean with the given name from
+     * the owning bean factory, if this factory uses such a target.
+     *
+     * @param beanName name of the target bean that has been reloaded
+     * @return whether this factory uses a target with the given name
+     * @throws BeansException if the target bean couldn't be obtained
+     */
+    boolean refreshTarget(String beanName) throws BeansException;
+
+}
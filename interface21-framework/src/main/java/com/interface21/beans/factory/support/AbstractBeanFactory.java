@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -96,9 +97,15 @@ public abstract class AbstractBeanFactory implements HierarchicalBeanFactory {
     private Map singletonCache = new HashMap();
 
     /**
-     * Map from alias to canonical bean name
+     * Map from alias to canonical bean name. Concurrent, as aliases
+     * may be registered while beans are reloaded.
      */
-    private Map aliasMap = new HashMap();
+    private Map aliasMap = new ConcurrentHashMap();
+
+    /**
+     * Profiler recording bean creation steps, or null if not profiling
+     */
+    private volatile BeanCreationProfiler profiler;
 
 
     //---------------------------------------------------------------------
@@ -125,6 +132,23 @@ public abstract class AbstractBeanFactory implements HierarchicalBeanFactory {
         return parentBeanFactory;
     }
 
+    /**
+     * Set a profiler to record bean creation steps with,
+     * or null to stop profiling. Default is none.
+     *
+     * @see BeanCreationProfiler
+     */
+    public void setProfiler(BeanCreationProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Return the profiler that records bean creation steps, if any.
+     */
+    public BeanCreationProfiler getProfiler() {
+        return profiler;
+    }
+
 
     //---------------------------------------------------------------------
     // Implementation of BeanFactory interface
@@ -272,7 +296,12 @@ public abstract class AbstractBeanFactory implements HierarchicalBeanFactory {
                 // Configure and return new bean instance from factory
                 FactoryBean factory = (FactoryBean) beanInstance;
                 logger.debug("Bean with name '" + name + "' is a factory bean");
-                beanInstance = factory.getObject();
+                BeanCreationProfiler.Step step = startProfiling(BeanCreationProfiler.GET_OBJECT, name);
+                try {
+                    beanInstance = factory.getObject();
+                } finally {
+                    stopProfiling(step);
+                }
 
                 // Set pass-through properties
                 if (factory.getPropertyValues() != null) {
@@ -310,6 +339,18 @@ public abstract class AbstractBeanFactory implements HierarchicalBeanFactory {
      * @return a new instance of this bean
      */
     private Object createBean(String name, Map newlyCreatedBeans) throws BeansException {
+        BeanCreationProfiler.Step step = startProfiling(BeanCreationProfiler.CREATE, name);
+        try {
+            return doCreateBean(name, newlyCreatedBeans);
+        } finally {
+            stopProfiling(step);
+        }
+    }
+
+    /**
+     * Actually create a bean instance, see createBean.
+     */
+    private Object doCreateBean(String name, Map newlyCreatedBeans) throws BeansException {
         RootBeanDefinition mergedBeanDefinition = getMergedBeanDefinition(name);
         logger.debug("Creating instance of bean '" + name + "' with merged definition [" + mergedBeanDefinition + "]");
         BeanWrapper instanceWrapper = new BeanWrapperImpl(mergedBeanDefinition.getBeanClass());
@@ -326,10 +367,37 @@ public abstract class AbstractBeanFactory implements HierarchicalBeanFactory {
 
         PropertyValues pvs = mergedBeanDefinition.getPropertyValues();
         applyPropertyValues(instanceWrapper, pvs, name, newlyCreatedBeans);
-        callLifecycleMethodsIfNecessary(bean, name, mergedBeanDefinition, instanceWrapper);
+        BeanCreationProfiler.Step step = startProfiling(BeanCreationProfiler.INIT, name);
+        try {
+            callLifecycleMethodsIfNecessary(bean, name, mergedBeanDefinition, instanceWrapper);
+        } finally {
+            stopProfiling(step);
+        }
         return bean;
     }
 
+    /**
+     * Begin a profiling step if a profiler is set.
+     *
+     * @return the step, or null if not profiling
+     * @see #setProfiler
+     */
+    protected final BeanCreationProfiler.Step startProfiling(String kind, String name) {
+        BeanCreationProfiler profiler = this.profiler;
+        return (profiler != null ? profiler.start(kind, name) : null);
+    }
+
+    /**
+     * End the given profiling step, if any.
+     *
+     * @param step the step returned by startProfiling, may be null
+     */
+    protected final void stopProfiling(BeanCreationProfiler.Step step) {
+        if (step != null) {
+            step.getProfiler().stop(step);
+        }
+    }
+
     /**
      * Apply the given property values, resolving any runtime references
      * to other beans in this bean factory.
@@ -437,34 +505,41 @@ public abstract class AbstractBeanFactory implements HierarchicalBeanFactory {
 
     /**
      * For each element in the ManagedMap, resolve references if necessary.
-     * Allow ManagedLists as map entries.
+     * Allow ManagedLists as map entries. Returns a new ManagedMap, leaving
+     * the one in the bean definition untouched.
      */
     private ManagedMap resolveManagedMap(String name, ManagedMap mm, Map newlyCreatedBeans) {
+        ManagedMap resolved = new ManagedMap();
         Iterator keys = mm.keySet().iterator();
         while (keys.hasNext()) {
             Object key = keys.next();
             Object value = mm.get(key);
             if (value instanceof RuntimeBeanReference) {
-                mm.put(key, resolveReference(name, (RuntimeBeanReference) value, newlyCreatedBeans));
+                value = resolveReference(name, (RuntimeBeanReference) value, newlyCreatedBeans);
             } else if (value instanceof ManagedList) {
                 // An entry may be a ManagedList, in which case we may need to
                 // resolve references
-                mm.put(key, resolveManagedList(name, (ManagedList) value, newlyCreatedBeans));
+                value = resolveManagedList(name, (ManagedList) value, newlyCreatedBeans);
             }
+            resolved.put(key, value);
         }    // for each key in the managed map
-        return mm;
+        return resolved;
     }
 
     /**
      * For each element in the ManagedList, resolve reference if necessary.
+     * Returns a new ManagedList, leaving the one in the bean definition untouched.
      */
     private ManagedList resolveManagedList(String name, ManagedList l, Map newlyCreatedBeans) {
+        ManagedList resolved = new ManagedList();
         for (int j = 0; j < l.size(); j++) {
             if (l.get(j) instanceof RuntimeBeanReference) {
-                l.set(j, resolveReference(name, (RuntimeBeanReference) l.get(j), newlyCreatedBeans));
+                resolved.add(resolveReference(name, (RuntimeBeanReference) l.get(j), newlyCreatedBeans));
+            } else {
+                resolved.add(l.get(j));
             }
         }
-        return l;
+        return resolved;
     }
 
     private Object managedListToArray(BeanWrapper bw, PropertyValue pv, Object val, Class componentType, List l)
@@ -586,32 +661,72 @@ public abstract class AbstractBeanFactory implements HierarchicalBeanFactory {
     public final void destroySingletons() {
         logger.info("Destroying singletons in factory {" + this + "}");
 
-        for (Iterator it = this.singletonCache.keySet().iterator(); it.hasNext(); ) {
-            String name = (String) it.next();
-            Object bean = this.singletonCache.get(name);
-            RootBeanDefinition bd = getMergedBeanDefinition(name);
+        String[] names;
+        synchronized (this) {
+            names = (String[]) this.singletonCache.keySet().toArray(new String[this.singletonCache.size()]);
+        }
+        for (int i = 0; i < names.length; i++) {
+            destroySingleton(names[i]);
+        }
+    }
 
-            if (bean instanceof DisposableBean) {
-                logger.debug("Calling destroy() on bean with name '" + name + "'");
-                try {
-                    ((DisposableBean) bean).destroy();
-                } catch (Exception ex) {
-                    logger.error("destroy() on bean with name '" + name + "' threw an exception", ex);
-                }
-            }
+    /**
+     * Destroy the cached singleton with the given name, if any,
+     * and remove it from the cache. The next request for the bean
+     * will create a new instance from the current bean definition.
+     *
+     * @param name canonical name of the bean
+     */
+    protected final void destroySingleton(String name) {
+        Object bean = removeSingleton(name);
+        if (bean != null) {
+            destroyBean(name, bean, getMergedBeanDefinition(name));
+        }
+    }
 
-            if (bd.getDestroyMethodName() != null) {
-                logger.debug("Calling custom destroy method '" + bd.getDestroyMethodName() + "' on bean with name '" + name + "'");
-                BeanWrapper bw = new BeanWrapperImpl(bean);
-                try {
-                    bw.invoke(bd.getDestroyMethodName(), null);
-                } catch (MethodInvocationException ex) {
-                    logger.error(ex.getMessage(), ex.getRootCause());
-                }
+    /**
+     * Remove the cached singleton with the given name from the cache,
+     * without destroying it. The next request for the bean will create
+     * a new instance from the current bean definition.
+     * <p>Subclasses can hold this factory's monitor while removing singletons
+     * and changing bean definitions, so that no singleton can be created
+     * from the old definitions in between.
+     *
+     * @param name canonical name of the bean
+     * @return the removed instance, or null if none was cached
+     * @see #destroyBean
+     */
+    protected final synchronized Object removeSingleton(String name) {
+        return this.singletonCache.remove(name);
+    }
+
+    /**
+     * Invoke the destroy callbacks on the given bean instance:
+     * DisposableBean's destroy method and the custom destroy method, if any.
+     *
+     * @param name name of the bean
+     * @param bean the bean instance to destroy
+     * @param bd   the definition that the instance has been created from
+     */
+    protected final void destroyBean(String name, Object bean, RootBeanDefinition bd) {
+        if (bean instanceof DisposableBean) {
+            logger.debug("Calling destroy() on bean with name '" + name + "'");
+            try {
+                ((DisposableBean) bean).destroy();
+            } catch (Exception ex) {
+                logger.error("destroy() on bean with name '" + name + "' threw an exception", ex);
             }
         }
 
-        this.singletonCache.clear();
+        if (bd.getDestroyMethodName() != null) {
+            logger.debug("Calling custom destroy method '" + bd.getDestroyMethodName() + "' on bean with name '" + name + "'");
+            BeanWrapper bw = new BeanWrapperImpl(bean);
+            try {
+                bw.invoke(bd.getDestroyMethodName(), null);
+            } catch (MethodInvocationException ex) {
+                logger.error(ex.getMessage(), ex.getRootCause());
+            }
+        }
     }
 
 
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.beans.factory.support;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records where a bean factory spends its time: parsing bean definitions,
+ * creating beans, calling their lifecycle methods, and obtaining objects
+ * from FactoryBeans. Each such step is recorded with wall time, the memory
+ * allocated by the current thread (where the JVM supports measuring it),
+ * and the path of steps that led to it, i.e. which bean needed which.
+ * <p>
+ * <p>A bean factory only records steps while a profiler is set, so there's
+ * no overhead beyond a null check when profiling is disabled. Application
+ * contexts set their startup profiler for the duration of refresh.
+ * <p>
+ * <p>Results are available as a report of the slowest steps, and in the
+ * collapsed stack format understood by common flame graph tools: one line
+ * per path of steps, followed by the self time in microseconds.
+ *
+ * @see AbstractBeanFactory#setProfiler
+ * @see com.interface21.context.support.AbstractApplicationContext#setStartupProfiler
+ */
+public class BeanCreationProfiler {
+
+    /**
+     * Kind of step: instantiating a bean and applying its properties
+     */
+    public static final String CREATE = "create";
+
+    /**
+     * Kind of step: calling lifecycle methods after properties have been set
+     */
+    public static final String INIT = "init";
+
+    /**
+     * Kind of step: obtaining an object from a FactoryBean
+     */
+    public static final String GET_OBJECT = "getObject";
+
+    /**
+     * Kind of step: parsing bean definitions
+     */
+    public static final String PARSE = "parse";
+
+
+    /**
+     * ThreadMXBean able to measure allocation, or null if not supported
+     */
+    private static final ThreadMXBean allocationBean;
+
+    private static final Method getThreadAllocatedBytesMethod;
+
+    static {
+        ThreadMXBean bean = null;
+        Method method = null;
+        try {
+            // HotSpot-specific extension: avoid a hard dependency
+            Class extendedInterface = Class.forName("com.sun.management.ThreadMXBean");
+            ThreadMXBean candidate = ManagementFactory.getThreadMXBean();
+            if (extendedInterface.isInstance(candidate)) {
+                method = extendedInterface.getMethod("getThreadAllocatedBytes", new Class[]{long.class});
+                bean = candidate;
+            }
+        } catch (Exception ex) {
+            // allocation won't be measured
+        } catch (LinkageError err) {
+            // allocation won't be measured
+        }
+        allocationBean = bean;
+        getThreadAllocatedBytesMethod = method;
+    }
+
+
+    private final ThreadLocal currentStep = new ThreadLocal();
+
+    /**
+     * List of completed Steps, in completion order
+     */
+    private final List steps = Collections.synchronizedList(new ArrayList());
+
+    /**
+     * Begin a step, nested within the step currently open in this thread, if any.
+     *
+     * @param kind kind of step, for example CREATE
+     * @param name name of the bean or resource the step is about
+     * @return the step, to be passed to stop
+     */
+    public Step start(String kind, String name) {
+        Step parent = (Step) this.currentStep.get();
+        Step step = new Step(this, parent, kind, name, System.nanoTime(), currentThreadAllocatedBytes());
+        this.currentStep.set(step);
+        return step;
+    }
+
+    /**
+     * End the given step, which must be the one most recently started
+     * in this thread. Call this in a finally block.
+     *
+     * @param step step returned by start
+     */
+    public void stop(Step step) {
+        step.stop(System.nanoTime(), currentThreadAllocatedBytes());
+        this.currentStep.set(step.parent);
+        this.steps.add(step);
+    }
+
+    /**
+     * Return all completed steps, in completion order.
+     *
+     * @return List of Step objects
+     */
+    public List getSteps() {
+        synchronized (this.steps) {
+            return new ArrayList(this.steps);
+        }
+    }
+
+    /**
+     * Discard all recorded steps.
+     */
+    public void reset() {
+        this.steps.clear();
+    }
+
+    /**
+     * Return whether allocated memory is measured on this JVM.
+     */
+    public boolean isAllocationMeasured() {
+        return (allocationBean != null);
+    }
+
+    /**
+     * Write the recorded steps in collapsed stack format: for each distinct
+     * path of steps, a line with the step labels separated by semicolons,
+     * a space, and the total self time of that path in microseconds.
+     *
+     * @param out writer to write to
+     * @throws IOException if writing failed
+     */
+    public void writeFlameGraph(Writer out) throws IOException {
+        Map selfTimes = new TreeMap();
+        for (Iterator it = getSteps().iterator(); it.hasNext(); ) {
+            Step step = (Step) it.next();
+            String path = step.getPath(";");
+            Long time = (Long) selfTimes.get(path);
+            long micros = step.getSelfTime() / 1000;
+            selfTimes.put(path, new Long(time != null ? time.longValue() + micros : micros));
+        }
+        for (Iterator it = selfTimes.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            out.write(entry.getKey() + " " + entry.getValue() + "\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * Return a report of the slowest steps, sorted by wall time.
+     *
+     * @param maxSteps maximum number of steps to include
+     * @return the report, one line per step
+     */
+    public String getTopReport(int maxSteps) {
+        List sorted = getSteps();
+        Collections.sort(sorted, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                long t1 = ((Step) o1).getTime();
+                long t2 = ((Step) o2).getTime();
+                return (t1 > t2 ? -1 : (t1 == t2 ? 0 : 1));
+            }
+        });
+        int count = Math.min(maxSteps, sorted.size());
+        StringBuffer sb = new StringBuffer("Top " + count + " of " + sorted.size() + " steps by wall time:");
+        for (int i = 0; i < count; i++) {
+            Step step = (Step) sorted.get(i);
+            sb.append("\n  ").append(formatMillis(step.getTime())).append(" ms total, ");
+            sb.append(formatMillis(step.getSelfTime())).append(" ms self");
+            if (step.getAllocatedBytes() >= 0) {
+                sb.append(", ").append(step.getAllocatedBytes() / 1024).append(" KB allocated");
+            }
+            sb.append(": ").append(step.getLabel());
+            if (step.parent != null) {
+                sb.append(" [").append(step.getPath(" > ")).append("]");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        long micros = nanos / 1000;
+        String fraction = String.valueOf(1000 + micros % 1000).substring(1);
+        return (micros / 1000) + "." + fraction;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (allocationBean == null) {
+            return -1;
+        }
+        try {
+            Object bytes = getThreadAllocatedBytesMethod.invoke(allocationBean,
+                    new Object[]{new Long(Thread.currentThread().getId())});
+            return ((Long) bytes).longValue();
+        } catch (Exception ex) {
+            return -1;
+        }
+    }
+
+
+    /**
+     * A single recorded step. Time and memory include nested steps.
+     */
+    public static class Step {
+
+        private final BeanCreationProfiler profiler;
+
+        private final Step parent;
+
+        private final String kind;
+
+        private final String name;
+
+        private final long startTime;
+
+        private final long startBytes;
+
+        private long time;
+
+        private long allocatedBytes = -1;
+
+        private long nestedTime;
+
+        private Step(BeanCreationProfiler profiler, Step parent, String kind, String name,
+                     long startTime, long startBytes) {
+            this.profiler = profiler;
+            this.parent = parent;
+            this.kind = kind;
+            this.name = name;
+            this.startTime = startTime;
+            this.startBytes = startBytes;
+        }
+
+        private void stop(long endTime, long endBytes) {
+            this.time = endTime - this.startTime;
+            if (this.startBytes >= 0 && endBytes >= 0) {
+                this.allocatedBytes = endBytes - this.startBytes;
+            }
+            if (this.parent != null) {
+                this.parent.nestedTime += this.time;
+            }
+        }
+
+        /**
+         * Return the profiler that recorded this step.
+         */
+        public BeanCreationProfiler getProfiler() {
+            return profiler;
+        }
+
+        /**
+         * Return the kind of step, for example CREATE.
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        /**
+         * Return the name of the bean or resource the step is about.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Return kind and name, for example "create myBean".
+         */
+        public String getLabel() {
+            // semicolons separate steps in collapsed stack format
+            return this.kind + " " + this.name.replace(';', ',');
+        }
+
+        /**
+         * Return the labels of the steps leading to this one,
+         * including this one, separated by the given delimiter.
+         */
+        public String getPath(String delimiter) {
+            LinkedList labels = new LinkedList();
+            for (Step step = this; step != null; step = step.parent) {
+                labels.addFirst(step.getLabel());
+            }
+            StringBuffer sb = new StringBuffer();
+            for (Iterator it = labels.iterator(); it.hasNext(); ) {
+                sb.append(it.next());
+                if (it.hasNext()) {
+                    sb.append(delimiter);
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Return the wall time in nanoseconds, including nested steps.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Return the wall time in nanoseconds, excluding nested steps.
+         */
+        public long getSelfTime() {
+            return this.time - this.nestedTime;
+        }
+
+        /**
+         * Return the bytes allocated by the thread during this step,
+         * including nested steps, or -1 if not measured.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public String toString() {
+            return getPath(" > ") + ": " + formatMillis(this.time) + " ms";
+        }
+    }
+
+}
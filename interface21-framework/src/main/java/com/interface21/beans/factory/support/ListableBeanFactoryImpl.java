@@ -13,6 +13,7 @@ import com.interface21.beans.BeansException;
 import com.interface21.beans.FatalBeanException;
 import com.interface21.beans.MutablePropertyValues;
 import com.interface21.beans.PropertyValue;
+import com.interface21.beans.PropertyValues;
 import com.interface21.beans.factory.BeanFactory;
 import com.interface21.beans.factory.ListableBeanFactory;
 import com.interface21.beans.factory.NoSuchBeanDefinitionException;
@@ -81,9 +82,11 @@ public class ListableBeanFactoryImpl extends AbstractBeanFactory implements List
     //---------------------------------------------------------------------
 
     /**
-     * Map of BeanDefinition objects, keyed by prototype name
+     * Map of BeanDefinition objects, keyed by prototype name.
+     * Replaced as a whole by updateBeanDefinitions, so that concurrent
+     * lookups never see a map that is being modified.
      */
-    private Map beanDefinitionMap = new HashMap();
+    private volatile Map beanDefinitionMap = new HashMap();
 
     /**
      * Name of default parent bean
@@ -184,6 +187,175 @@ public class ListableBeanFactoryImpl extends AbstractBeanFactory implements List
         beanDefinitionMap.put(prototypeName, beanDefinition);
     }
 
+    /**
+     * Determine which beans would have to be reloaded to switch this factory
+     * to the bean definitions in the given factory: beans that have been added,
+     * removed or changed, plus all beans that depend on those, either directly
+     * or transitively, via bean references or parent definitions.
+     *
+     * @param newDefinitions factory holding the new bean definitions,
+     *                       typically freshly parsed from the same source
+     * @return names of the beans to reload
+     * @see #updateBeanDefinitions
+     */
+    public String[] getChangedBeanNames(ListableBeanFactoryImpl newDefinitions) {
+        Set changed = new HashSet();
+        for (Iterator it = newDefinitions.beanDefinitionMap.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            AbstractBeanDefinition oldBd = (AbstractBeanDefinition) this.beanDefinitionMap.get(entry.getKey());
+            if (oldBd == null || !isSameDefinition(oldBd, (AbstractBeanDefinition) entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (Iterator it = this.beanDefinitionMap.keySet().iterator(); it.hasNext(); ) {
+            Object name = it.next();
+            if (!newDefinitions.beanDefinitionMap.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+
+        // Add dependent beans until there are no more
+        boolean added = !changed.isEmpty();
+        while (added) {
+            added = false;
+            for (Iterator it = newDefinitions.beanDefinitionMap.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                if (!changed.contains(entry.getKey()) &&
+                        dependsOnAny((AbstractBeanDefinition) entry.getValue(), changed)) {
+                    changed.add(entry.getKey());
+                    added = true;
+                }
+            }
+        }
+        return (String[]) changed.toArray(new String[changed.size()]);
+    }
+
+    /**
+     * Replace the definitions of the given beans with the ones in the given factory,
+     * destroying cached singleton instances of those beans. Definitions of beans
+     * that aren't defined in the given factory get removed. Other beans and their
+     * singleton instances are left untouched.
+     * <p>Unlike registerBeanDefinition, this method is threadsafe with respect to
+     * concurrent bean lookups: The old singletons are removed and the new definitions
+     * swapped in while holding the singleton lock, so that no lookup can re-create
+     * a singleton from an old definition. The old instances are destroyed afterwards,
+     * with their old definitions.
+     *
+     * @param newDefinitions factory holding the new bean definitions
+     * @param beanNames      names of the beans to update, as returned by
+     *                       getChangedBeanNames
+     * @see #getChangedBeanNames
+     */
+    public void updateBeanDefinitions(ListableBeanFactoryImpl newDefinitions, String[] beanNames) {
+        List removedNames = new ArrayList();
+        List removedBeans = new ArrayList();
+        List removedDefinitions = new ArrayList();
+        synchronized (this) {
+            for (int i = 0; i < beanNames.length; i++) {
+                Object bean = removeSingleton(beanNames[i]);
+                if (bean != null) {
+                    // Keep the old definition, to invoke the old destroy methods
+                    removedNames.add(beanNames[i]);
+                    removedBeans.add(bean);
+                    removedDefinitions.add(getMergedBeanDefinition(beanNames[i]));
+                }
+            }
+            Map definitions = new HashMap(this.beanDefinitionMap);
+            for (int i = 0; i < beanNames.length; i++) {
+                AbstractBeanDefinition bd = (AbstractBeanDefinition) newDefinitions.beanDefinitionMap.get(beanNames[i]);
+                if (bd != null) {
+                    logger.info("Updating definition of bean '" + beanNames[i] + "'");
+                    definitions.put(beanNames[i], bd);
+                    String[] aliases = newDefinitions.getAliases(beanNames[i]);
+                    for (int j = 0; j < aliases.length; j++) {
+                        registerAlias(beanNames[i], aliases[j]);
+                    }
+                } else {
+                    logger.info("Removing definition of bean '" + beanNames[i] + "'");
+                    definitions.remove(beanNames[i]);
+                }
+            }
+            this.beanDefinitionMap = definitions;
+        }
+        for (int i = 0; i < removedNames.size(); i++) {
+            destroyBean((String) removedNames.get(i), removedBeans.get(i),
+                    (RootBeanDefinition) removedDefinitions.get(i));
+        }
+    }
+
+    /**
+     * Return whether the given definitions describe the same bean:
+     * same type, class or parent, lifecycle methods and property values.
+     */
+    private boolean isSameDefinition(AbstractBeanDefinition oldBd, AbstractBeanDefinition newBd) {
+        if (oldBd.getClass() != newBd.getClass() || oldBd.isSingleton() != newBd.isSingleton()) {
+            return false;
+        }
+        if (oldBd instanceof RootBeanDefinition) {
+            RootBeanDefinition oldRbd = (RootBeanDefinition) oldBd;
+            RootBeanDefinition newRbd = (RootBeanDefinition) newBd;
+            if (!oldRbd.getBeanClass().getName().equals(newRbd.getBeanClass().getName()) ||
+                    !nullSafeEquals(oldRbd.getInitMethodName(), newRbd.getInitMethodName()) ||
+                    !nullSafeEquals(oldRbd.getDestroyMethodName(), newRbd.getDestroyMethodName())) {
+                return false;
+            }
+        } else if (oldBd instanceof ChildBeanDefinition) {
+            if (!((ChildBeanDefinition) oldBd).getParentName().equals(((ChildBeanDefinition) newBd).getParentName())) {
+                return false;
+            }
+        }
+        PropertyValue[] oldPvs = oldBd.getPropertyValues().getPropertyValues();
+        PropertyValues newPvs = newBd.getPropertyValues();
+        if (oldPvs.length != newPvs.getPropertyValues().length) {
+            return false;
+        }
+        for (int i = 0; i < oldPvs.length; i++) {
+            PropertyValue newPv = newPvs.getPropertyValue(oldPvs[i].getName());
+            if (newPv == null || !nullSafeEquals(oldPvs[i].getValue(), newPv.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return whether the given definition refers to any of the given beans,
+     * as parent definition or via bean references in its property values.
+     */
+    private boolean dependsOnAny(AbstractBeanDefinition bd, Set beanNames) {
+        if (bd instanceof ChildBeanDefinition && beanNames.contains(((ChildBeanDefinition) bd).getParentName())) {
+            return true;
+        }
+        PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+        for (int i = 0; i < pvs.length; i++) {
+            if (refersToAny(pvs[i].getValue(), beanNames)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean nullSafeEquals(Object o1, Object o2) {
+        return (o1 == null ? o2 == null : o1.equals(o2));
+    }
+
+    private boolean refersToAny(Object value, Set beanNames) {
+        if (value instanceof RuntimeBeanReference) {
+            return beanNames.contains(((RuntimeBeanReference) value).getBeanName());
+        } else if (value instanceof ManagedList) {
+            for (Iterator it = ((List) value).iterator(); it.hasNext(); ) {
+                if (refersToAny(it.next(), beanNames))
+                    return true;
+            }
+        } else if (value instanceof ManagedMap) {
+            for (Iterator it = ((Map) value).values().iterator(); it.hasNext(); ) {
+                if (refersToAny(it.next(), beanNames))
+                    return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Ensure that even potentially unreferenced singletons are instantiated.
      * Subclasses or callers should invoke this if they want this behavior.
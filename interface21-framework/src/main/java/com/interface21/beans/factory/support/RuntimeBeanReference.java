@@ -32,4 +32,18 @@ public class RuntimeBeanReference {
     public String getBeanName() {
         return beanName;
     }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof RuntimeBeanReference))
+            return false;
+        return this.beanName.equals(((RuntimeBeanReference) other).beanName);
+    }
+
+    public int hashCode() {
+        return this.beanName.hashCode();
+    }
+
+    public String toString() {
+        return "<" + this.beanName + ">";
+    }
 }
\ No newline at end of file
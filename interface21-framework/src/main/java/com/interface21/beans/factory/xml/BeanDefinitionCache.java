@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.beans.factory.xml;
+
+import com.interface21.beans.FatalBeanException;
+import com.interface21.beans.MutablePropertyValues;
+import com.interface21.beans.PropertyValue;
+import com.interface21.beans.PropertyValues;
+import com.interface21.beans.factory.support.AbstractBeanDefinition;
+import com.interface21.beans.factory.support.ChildBeanDefinition;
+import com.interface21.beans.factory.support.ManagedList;
+import com.interface21.beans.factory.support.ManagedMap;
+import com.interface21.beans.factory.support.RootBeanDefinition;
+import com.interface21.beans.factory.support.RuntimeBeanReference;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Binary cache file for parsed bean definitions, written next to a bean
+ * definition XML file. Allows XmlBeanFactory to skip XML parsing on
+ * subsequent startups, as long as the XML file is unchanged.
+ * <p>
+ * <p>The cache file is keyed by a checksum of the XML file content:
+ * If the checksum doesn't match, the cache file is considered stale
+ * and ignored. Cache files are read into a heap buffer rather than
+ * memory-mapped, as a mapped file couldn't be replaced on all platforms
+ * until the mapping is garbage-collected.
+ * <p>
+ * <p>All lengths and counts read are checked against the remaining data,
+ * so that a truncated or corrupt cache file is rejected as such instead
+ * of causing huge allocations.
+ * <p>
+ * <p>File layout: magic number, format version, XML checksum, number of
+ * bean definitions, followed by the definitions themselves. Strings are
+ * stored as length-prefixed UTF-8. Bean classes are stored by name
+ * and loaded via the thread context class loader on decoding.
+ *
+ * @see XmlBeanFactory#setDefinitionCacheEnabled
+ */
+class BeanDefinitionCache {
+
+    /**
+     * Suffix appended to the XML file name to build the cache file name
+     */
+    public static final String CACHE_FILE_SUFFIX = ".defs";
+
+    private static final int MAGIC = 0x49324244;
+
+    private static final int VERSION = 1;
+
+    private static final byte ROOT_DEFINITION = 1;
+
+    private static final byte CHILD_DEFINITION = 2;
+
+    private static final byte NULL_VALUE = 0;
+
+    private static final byte STRING_VALUE = 1;
+
+    private static final byte REF_VALUE = 2;
+
+    private static final byte LIST_VALUE = 3;
+
+    private static final byte MAP_VALUE = 4;
+
+    private static final byte PROPS_VALUE = 5;
+
+    /**
+     * Minimum encoded sizes, for checking counts read against the remaining data
+     */
+    private static final int MIN_STRING_SIZE = 4;
+
+    private static final int MIN_VALUE_SIZE = 1;
+
+    private static final int MIN_PROPERTY_SIZE = MIN_STRING_SIZE + MIN_VALUE_SIZE;
+
+    private static final int MIN_DEFINITION_SIZE = 2 * MIN_STRING_SIZE + 1 + MIN_STRING_SIZE + 1 + 4;
+
+
+    private final File cacheFile;
+
+    /**
+     * Create a new BeanDefinitionCache for the given XML file.
+     *
+     * @param xmlFile the bean definition XML file
+     */
+    BeanDefinitionCache(File xmlFile) {
+        this.cacheFile = new File(xmlFile.getPath() + CACHE_FILE_SUFFIX);
+    }
+
+    /**
+     * Return the cache file that this object reads and writes.
+     */
+    public File getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Read cached bean definitions, if the cache file exists and
+     * has been written for XML content with the given checksum.
+     *
+     * @param checksum checksum of the current XML file content
+     * @return List of BeanDefinitionHolders, or null if there
+     * is no valid cache file for this checksum
+     * @throws IOException if the cache file couldn't be read
+     */
+    public List read(long checksum) throws IOException {
+        if (!this.cacheFile.isFile()) {
+            return null;
+        }
+        ByteBuffer buf = readFile(this.cacheFile);
+        if (buf == null || buf.remaining() < 20 ||
+                buf.getInt() != MAGIC || buf.getInt() != VERSION || buf.getLong() != checksum) {
+            return null;
+        }
+        return readBeanDefinitions(buf);
+    }
+
+    /**
+     * Read the given file into a heap buffer.
+     *
+     * @param file the file to read
+     * @return the buffer, or null if the file is too large to be a cache file
+     * @throws IOException if the file couldn't be read
+     */
+    static ByteBuffer readFile(File file) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            int read = 0;
+            while (buf.hasRemaining() && read != -1) {
+                read = channel.read(buf);
+            }
+            buf.flip();
+            return buf;
+        } finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * Write the given bean definitions to the cache file,
+     * replacing any existing cache file.
+     *
+     * @param checksum        checksum of the XML file content the
+     *                        definitions have been parsed from
+     * @param beanDefinitions List of BeanDefinitionHolders
+     * @throws IOException if the cache file couldn't be written
+     */
+    public void write(long checksum, List beanDefinitions) throws IOException {
+        // Write to a temporary file first, to never leave a partially written cache file
+        File tempFile = new File(this.cacheFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checksum);
+            writeBeanDefinitions(out, beanDefinitions);
+        } finally {
+            out.close();
+        }
+        if (this.cacheFile.exists() && !this.cacheFile.delete()) {
+            tempFile.delete();
+            throw new IOException("Could not replace cache file [" + this.cacheFile + "]");
+        }
+        if (!tempFile.renameTo(this.cacheFile)) {
+            tempFile.delete();
+            throw new IOException("Could not rename [" + tempFile + "] to [" + this.cacheFile + "]");
+        }
+    }
+
+
+    //---------------------------------------------------------------------
+    // Encoding
+    //---------------------------------------------------------------------
+
+    /**
+     * Write the given bean definitions, without any header.
+     * Also used for context snapshots.
+     *
+     * @param out             stream to write to
+     * @param beanDefinitions List of BeanDefinitionHolders
+     */
+    static void writeBeanDefinitions(DataOutputStream out, List beanDefinitions) throws IOException {
+        out.writeInt(beanDefinitions.size());
+        for (Iterator it = beanDefinitions.iterator(); it.hasNext(); ) {
+            writeBeanDefinition(out, (BeanDefinitionHolder) it.next());
+        }
+    }
+
+    private static void writeBeanDefinition(DataOutputStream out, BeanDefinitionHolder holder) throws IOException {
+        writeString(out, holder.getBeanName());
+        writeString(out, holder.getAlias());
+        AbstractBeanDefinition bd = holder.getBeanDefinition();
+        if (bd instanceof RootBeanDefinition) {
+            RootBeanDefinition rbd = (RootBeanDefinition) bd;
+            out.writeByte(ROOT_DEFINITION);
+            writeString(out, rbd.getBeanClass().getName());
+            writeString(out, rbd.getInitMethodName());
+            writeString(out, rbd.getDestroyMethodName());
+        } else {
+            out.writeByte(CHILD_DEFINITION);
+            writeString(out, ((ChildBeanDefinition) bd).getParentName());
+        }
+        out.writeBoolean(bd.isSingleton());
+        PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+        out.writeInt(pvs.length);
+        for (int i = 0; i < pvs.length; i++) {
+            writeString(out, pvs[i].getName());
+            writeValue(out, pvs[i].getValue());
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_VALUE);
+        } else if (value instanceof String) {
+            out.writeByte(STRING_VALUE);
+            writeString(out, (String) value);
+        } else if (value instanceof RuntimeBeanReference) {
+            out.writeByte(REF_VALUE);
+            writeString(out, ((RuntimeBeanReference) value).getBeanName());
+        } else if (value instanceof ManagedList) {
+            List list = (List) value;
+            out.writeByte(LIST_VALUE);
+            out.writeInt(list.size());
+            for (Iterator it = list.iterator(); it.hasNext(); ) {
+                writeValue(out, it.next());
+            }
+        } else if (value instanceof ManagedMap) {
+            Map map = (Map) value;
+            out.writeByte(MAP_VALUE);
+            out.writeInt(map.size());
+            for (Iterator it = map.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                writeString(out, (String) entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Properties) {
+            Properties props = (Properties) value;
+            out.writeByte(PROPS_VALUE);
+            out.writeInt(props.size());
+            for (Iterator it = props.keySet().iterator(); it.hasNext(); ) {
+                String key = (String) it.next();
+                writeString(out, key);
+                writeString(out, props.getProperty(key));
+            }
+        } else {
+            throw new IOException("Cannot cache property value of type [" + value.getClass().getName() + "]");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+
+    //---------------------------------------------------------------------
+    // Decoding
+    //---------------------------------------------------------------------
+
+    /**
+     * Read bean definitions as written by writeBeanDefinitions.
+     *
+     * @param buf buffer positioned at the start of the definitions
+     * @return List of BeanDefinitionHolders
+     * @throws IOException if the data is corrupt or truncated
+     */
+    static List readBeanDefinitions(ByteBuffer buf) throws IOException {
+        try {
+            int count = readCount(buf, MIN_DEFINITION_SIZE);
+            List holders = new ArrayList(count);
+            for (int i = 0; i < count; i++) {
+                holders.add(readBeanDefinition(buf));
+            }
+            return holders;
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Corrupt bean definition data: unexpected end of data");
+        }
+    }
+
+    private static BeanDefinitionHolder readBeanDefinition(ByteBuffer buf) throws IOException {
+        String beanName = readString(buf);
+        String alias = readString(buf);
+        byte type = buf.get();
+        String className = null;
+        String initMethodName = null;
+        String destroyMethodName = null;
+        String parentName = null;
+        if (type == ROOT_DEFINITION) {
+            className = readString(buf);
+            initMethodName = readString(buf);
+            destroyMethodName = readString(buf);
+        } else if (type == CHILD_DEFINITION) {
+            parentName = readString(buf);
+        } else {
+            throw new IOException("Corrupt bean definition data: unknown definition type " + type);
+        }
+        boolean singleton = (buf.get() != 0);
+        int count = readCount(buf, MIN_PROPERTY_SIZE);
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        for (int i = 0; i < count; i++) {
+            String name = readString(buf);
+            pvs.addPropertyValue(new PropertyValue(name, readValue(buf)));
+        }
+        return new BeanDefinitionHolder(beanName, alias,
+                createBeanDefinition(beanName, className, parentName, pvs, singleton, initMethodName, destroyMethodName));
+    }
+
+    private static AbstractBeanDefinition createBeanDefinition(String beanName, String className, String parentName,
+                                                        PropertyValues pvs, boolean singleton,
+                                                        String initMethodName, String destroyMethodName) {
+        if (className == null) {
+            return new ChildBeanDefinition(parentName, pvs, singleton);
+        }
+        try {
+            ClassLoader cl = Thread.currentThread().getContextClassLoader();
+            return new RootBeanDefinition(Class.forName(className, true, cl),
+                    pvs, singleton, initMethodName, destroyMethodName);
+        } catch (ClassNotFoundException ex) {
+            throw new FatalBeanException("Error creating bean with name [" + beanName + "]: class '" + className + "' not found", ex);
+        }
+    }
+
+    private static Object readValue(ByteBuffer buf) throws IOException {
+        byte type = buf.get();
+        switch (type) {
+            case NULL_VALUE:
+                return null;
+            case STRING_VALUE:
+                return readString(buf);
+            case REF_VALUE:
+                return new RuntimeBeanReference(readString(buf));
+            case LIST_VALUE: {
+                int size = readCount(buf, MIN_VALUE_SIZE);
+                ManagedList list = new ManagedList();
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(buf));
+                }
+                return list;
+            }
+            case MAP_VALUE: {
+                int size = readCount(buf, MIN_STRING_SIZE + MIN_VALUE_SIZE);
+                ManagedMap map = new ManagedMap();
+                for (int i = 0; i < size; i++) {
+                    String key = readString(buf);
+                    map.put(key, readValue(buf));
+                }
+                return map;
+            }
+            case PROPS_VALUE: {
+                int size = readCount(buf, 2 * MIN_STRING_SIZE);
+                Properties props = new Properties();
+                for (int i = 0; i < size; i++) {
+                    String key = readString(buf);
+                    props.setProperty(key, readString(buf));
+                }
+                return props;
+            }
+            default:
+                throw new IOException("Corrupt bean definition data: unknown value type " + type);
+        }
+    }
+
+    /**
+     * Read a count of elements, checking that the remaining data
+     * could actually hold that many elements of the given minimum size.
+     */
+    private static int readCount(ByteBuffer buf, int minElementSize) throws IOException {
+        int count = buf.getInt();
+        if (count < 0 || (long) count * minElementSize > buf.remaining()) {
+            throw new IOException("Corrupt bean definition data: invalid element count " + count);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buf) throws IOException {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buf.remaining()) {
+            throw new IOException("Corrupt bean definition data: invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.beans.factory.xml;
+
+import com.interface21.beans.factory.support.AbstractBeanDefinition;
+
+/**
+ * Holder for a parsed bean definition together with its id and
+ * optional alias, as found in a bean definition XML document.
+ * Used to hand over parse results from XmlBeanDefinitionHandler and
+ * BeanDefinitionCache to XmlBeanFactory.
+ *
+ * @see XmlBeanFactory
+ */
+class BeanDefinitionHolder {
+
+    private final String beanName;
+
+    private final String alias;
+
+    private final AbstractBeanDefinition beanDefinition;
+
+    /**
+     * Create a new BeanDefinitionHolder.
+     *
+     * @param beanName       id of the bean
+     * @param alias          value of the name attribute, or null if none
+     * @param beanDefinition the parsed bean definition
+     */
+    BeanDefinitionHolder(String beanName, String alias, AbstractBeanDefinition beanDefinition) {
+        this.beanName = beanName;
+        this.alias = alias;
+        this.beanDefinition = beanDefinition;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    /**
+     * Return the alias for this bean, or null if none.
+     */
+    public String getAlias() {
+        return alias;
+    }
+
+    public AbstractBeanDefinition getBeanDefinition() {
+        return beanDefinition;
+    }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.beans.factory.xml;
+
+import com.interface21.beans.FatalBeanException;
+import com.interface21.beans.MutablePropertyValues;
+import com.interface21.beans.PropertyValue;
+import com.interface21.beans.factory.BeanDefinitionStoreException;
+import com.interface21.beans.factory.support.AbstractBeanDefinition;
+import com.interface21.beans.factory.support.ChildBeanDefinition;
+import com.interface21.beans.factory.support.ManagedList;
+import com.interface21.beans.factory.support.ManagedMap;
+import com.interface21.beans.factory.support.RootBeanDefinition;
+import com.interface21.beans.factory.support.RuntimeBeanReference;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * SAX handler that builds bean definitions while streaming through
+ * a bean definition XML document, without building a DOM tree first.
+ * Understands the same elements and attributes as the DOM-based
+ * parsing code in XmlBeanFactory, as defined by spring-beans.dtd.
+ * <p>
+ * <p>Parsed definitions are collected as BeanDefinitionHolders,
+ * in document order. Registration is up to the caller.
+ *
+ * @see XmlBeanFactory#loadBeanDefinitions(java.io.InputStream)
+ */
+class XmlBeanDefinitionHandler extends DefaultHandler {
+
+    private static final String TRUE_ATTRIBUTE_VALUE = "true";
+
+    private static final String BEAN_ELEMENT = "bean";
+
+    private static final String CLASS_ATTRIBUTE = "class";
+
+    private static final String PARENT_ATTRIBUTE = "parent";
+
+    private static final String ID_ATTRIBUTE = "id";
+
+    private static final String NAME_ATTRIBUTE = "name";
+
+    private static final String SINGLETON_ATTRIBUTE = "singleton";
+
+    private static final String DISTINGUISHED_VALUE_ATTRIBUTE = "distinguishedValue";
+
+    private static final String NULL_DISTINGUISHED_VALUE = "null";
+
+    private static final String PROPERTY_ELEMENT = "property";
+
+    private static final String REF_ELEMENT = "ref";
+
+    private static final String LIST_ELEMENT = "list";
+
+    private static final String MAP_ELEMENT = "map";
+
+    private static final String KEY_ATTRIBUTE = "key";
+
+    private static final String ENTRY_ELEMENT = "entry";
+
+    private static final String INIT_METHOD_ATTRIBUTE = "init-method";
+
+    private static final String DESTROY_METHOD_ATTRIBUTE = "destroy-method";
+
+    private static final String BEAN_REF_ATTRIBUTE = "bean";
+
+    private static final String EXTERNAL_REF_ATTRIBUTE = "external";
+
+    private static final String VALUE_ELEMENT = "value";
+
+    private static final String PROPS_ELEMENT = "props";
+
+    private static final String PROP_ELEMENT = "prop";
+
+
+    private final Log logger = LogFactory.getLog(XmlBeanFactory.class);
+
+    private final EntityResolver entityResolver;
+
+    private final List beanDefinitions = new LinkedList();
+
+    /**
+     * Attributes of the current bean element, copied as the
+     * SAX Attributes object is only valid during startElement
+     */
+    private String beanId;
+
+    private String beanName;
+
+    private String className;
+
+    private String parent;
+
+    private String singletonValue;
+
+    private String initMethodName;
+
+    private String destroyMethodName;
+
+    private MutablePropertyValues pvs;
+
+    private String propertyName;
+
+    private boolean propertyIsNull;
+
+    /**
+     * Value of the current property element, once parsed
+     */
+    private Object propertyValue;
+
+    /**
+     * Open list, map or props containers, innermost last
+     */
+    private final LinkedList containers = new LinkedList();
+
+    /**
+     * Keys of open map entries, innermost last
+     */
+    private final LinkedList entryKeys = new LinkedList();
+
+    /**
+     * First value found in the current map entry, per open entry
+     */
+    private final LinkedList entryValues = new LinkedList();
+
+    private String propKey;
+
+    /**
+     * Buffer for character data of value and prop elements,
+     * or null if we're not inside such an element
+     */
+    private StringBuffer text;
+
+
+    /**
+     * Create a new XmlBeanDefinitionHandler.
+     *
+     * @param entityResolver entity resolver to use for the DTD
+     */
+    XmlBeanDefinitionHandler(EntityResolver entityResolver) {
+        this.entityResolver = entityResolver;
+    }
+
+    /**
+     * Return the BeanDefinitionHolders found so far, in document order.
+     */
+    public List getBeanDefinitions() {
+        return beanDefinitions;
+    }
+
+
+    public void startElement(String uri, String localName, String qName, Attributes atts) {
+        if (BEAN_ELEMENT.equals(qName)) {
+            // The DTD guarantees an id attribute is present
+            this.beanId = atts.getValue(ID_ATTRIBUTE);
+            logger.debug("Parsing bean definition with id '" + this.beanId + "'");
+            this.beanName = atts.getValue(NAME_ATTRIBUTE);
+            this.className = atts.getValue(CLASS_ATTRIBUTE);
+            this.parent = atts.getValue(PARENT_ATTRIBUTE);
+            this.singletonValue = atts.getValue(SINGLETON_ATTRIBUTE);
+            this.initMethodName = emptyToNull(atts.getValue(INIT_METHOD_ATTRIBUTE));
+            this.destroyMethodName = emptyToNull(atts.getValue(DESTROY_METHOD_ATTRIBUTE));
+            this.pvs = new MutablePropertyValues();
+        } else if (PROPERTY_ELEMENT.equals(qName)) {
+            this.propertyName = atts.getValue(NAME_ATTRIBUTE);
+            if (this.propertyName == null || "".equals(this.propertyName))
+                throw new BeanDefinitionStoreException("Property without a name", null);
+            this.propertyIsNull = NULL_DISTINGUISHED_VALUE.equals(atts.getValue(DISTINGUISHED_VALUE_ATTRIBUTE));
+            this.propertyValue = null;
+        } else if (REF_ELEMENT.equals(qName)) {
+            // a reference to another bean in this factory?
+            String refName = atts.getValue(BEAN_REF_ATTRIBUTE);
+            if (refName == null || "".equals(refName)) {
+                // a reference to an external bean (in a parent factory)?
+                refName = atts.getValue(EXTERNAL_REF_ATTRIBUTE);
+                if (refName == null || "".equals(refName)) {
+                    throw new FatalBeanException("Either 'bean' or 'external' is required for a reference");
+                }
+            }
+            addValue(new RuntimeBeanReference(refName));
+        } else if (VALUE_ELEMENT.equals(qName)) {
+            this.text = new StringBuffer();
+        } else if (LIST_ELEMENT.equals(qName)) {
+            this.containers.addLast(new ManagedList());
+        } else if (MAP_ELEMENT.equals(qName)) {
+            this.containers.addLast(new ManagedMap());
+        } else if (ENTRY_ELEMENT.equals(qName)) {
+            this.entryKeys.addLast(atts.getValue(KEY_ATTRIBUTE));
+            this.entryValues.addLast(null);
+        } else if (PROPS_ELEMENT.equals(qName)) {
+            this.containers.addLast(new Properties());
+        } else if (PROP_ELEMENT.equals(qName)) {
+            this.propKey = atts.getValue(KEY_ATTRIBUTE);
+            this.text = new StringBuffer();
+        }
+    }
+
+    public void characters(char[] ch, int start, int length) {
+        if (this.text != null) {
+            this.text.append(ch, start, length);
+        }
+    }
+
+    public void endElement(String uri, String localName, String qName) {
+        if (BEAN_ELEMENT.equals(qName)) {
+            AbstractBeanDefinition bd = createBeanDefinition();
+            String alias = ("".equals(this.beanName) ? null : this.beanName);
+            this.beanDefinitions.add(new BeanDefinitionHolder(this.beanId, alias, bd));
+            this.pvs = null;
+        } else if (PROPERTY_ELEMENT.equals(qName)) {
+            Object val = (this.propertyIsNull ? null : this.propertyValue);
+            this.pvs.addPropertyValue(new PropertyValue(this.propertyName, val));
+            this.propertyName = null;
+        } else if (VALUE_ELEMENT.equals(qName)) {
+            String value = this.text.toString();
+            this.text = null;
+            addValue(value);
+        } else if (LIST_ELEMENT.equals(qName) || MAP_ELEMENT.equals(qName) || PROPS_ELEMENT.equals(qName)) {
+            addValue(this.containers.removeLast());
+        } else if (ENTRY_ELEMENT.equals(qName)) {
+            String key = (String) this.entryKeys.removeLast();
+            Object value = this.entryValues.removeLast();
+            ((ManagedMap) this.containers.getLast()).put(key, value);
+        } else if (PROP_ELEMENT.equals(qName)) {
+            ((Properties) this.containers.getLast()).setProperty(this.propKey, this.text.toString());
+            this.text = null;
+        }
+    }
+
+    /**
+     * Add a parsed value to the innermost open entry or list,
+     * or use it as value of the current property.
+     */
+    private void addValue(Object value) {
+        if (!this.entryKeys.isEmpty() && this.containers.getLast() instanceof ManagedMap) {
+            // Only the first element within an entry counts
+            if (this.entryValues.getLast() == null) {
+                this.entryValues.set(this.entryValues.size() - 1, value);
+            }
+        } else if (!this.containers.isEmpty()) {
+            ((List) this.containers.getLast()).add(value);
+        } else {
+            if (this.propertyValue != null)
+                throw new BeanDefinitionStoreException("<property> element can have only one child element", null);
+            this.propertyValue = value;
+        }
+    }
+
+    /**
+     * Create a bean definition from the attributes of the current bean element.
+     */
+    private AbstractBeanDefinition createBeanDefinition() {
+        // Default is singleton
+        // Can override by making non-singleton if desired
+        boolean singleton = (this.singletonValue == null || TRUE_ATTRIBUTE_VALUE.equals(this.singletonValue));
+        if (this.className == null && this.parent == null)
+            throw new FatalBeanException("No className or parent in bean definition [" + this.beanId + "]", null);
+        if (this.className != null) {
+            try {
+                ClassLoader cl = Thread.currentThread().getContextClassLoader();
+                return new RootBeanDefinition(Class.forName(this.className, true, cl),
+                        this.pvs, singleton, this.initMethodName, this.destroyMethodName);
+            } catch (ClassNotFoundException ex) {
+                throw new FatalBeanException("Error creating bean with name [" + this.beanId + "]: class '" + this.className + "' not found", ex);
+            }
+        } else {
+            return new ChildBeanDefinition(this.parent, this.pvs, singleton);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return ("".equals(value) ? null : value);
+    }
+
+
+    //---------------------------------------------------------------------
+    // Entity resolution and validation errors
+    //---------------------------------------------------------------------
+
+    public InputSource resolveEntity(String publicId, String systemId) throws IOException, SAXException {
+        return this.entityResolver.resolveEntity(publicId, systemId);
+    }
+
+    public void error(SAXParseException ex) throws SAXException {
+        throw ex;
+    }
+
+    public void fatalError(SAXParseException ex) throws SAXException {
+        throw ex;
+    }
+
+    public void warning(SAXParseException ex) {
+        logger.warn("Ignored XML validation warning: " + ex);
+    }
+
+}
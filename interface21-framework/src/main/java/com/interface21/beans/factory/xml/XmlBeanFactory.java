@@ -13,30 +13,40 @@ import com.interface21.beans.*;
 import com.interface21.beans.factory.BeanDefinitionStoreException;
 import com.interface21.beans.factory.BeanFactory;
 import com.interface21.beans.factory.support.*;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 import org.w3c.dom.*;
 import org.xml.sax.EntityResolver;
-import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
  * Extension of ListableBeanFactoryImpl that reads bean definitions in an XML
- * document using DOM. The structure, element and attribute names of the
- * required XML document are hard-coded in this class.
+ * document using SAX, without building a DOM tree. The structure, element and
+ * attribute names of the required XML document are hard-coded in this class.
  * (Of course a transform could be run if necessary to produce this format.)
  * <p>
+ * <p>When loading from a file, parsed definitions can optionally be cached
+ * in a binary file next to the XML file, to skip XML parsing on subsequent
+ * startups as long as the XML file is unchanged.
+ * <p>
  * <p>"beans" doesn't need to be the root element of the XML document:
  * This class will parse all bean definition elements in the XML file.
  * <p>
@@ -102,6 +112,8 @@ public class XmlBeanFactory extends ListableBeanFactoryImpl {
 
     private EntityResolver entityResolver;
 
+    private boolean definitionCacheEnabled = false;
+
 
     //---------------------------------------------------------------------
     // Constructors
@@ -186,6 +198,29 @@ public class XmlBeanFactory extends ListableBeanFactoryImpl {
         this.entityResolver = entityResolver;
     }
 
+    /**
+     * Set whether to cache parsed bean definitions in a binary file
+     * next to the XML file, named like the XML file plus ".defs".
+     * Default is false.
+     * <p>The cache file is keyed by a checksum of the XML content and
+     * rewritten whenever the XML file changes. Only applies to bean
+     * definitions loaded from a file, not from an arbitrary InputStream.
+     * <p>Note that property values are stored as parsed, so the cache
+     * just saves XML parsing: Bean classes still get loaded on startup.
+     *
+     * @see #loadBeanDefinitions(String)
+     */
+    public void setDefinitionCacheEnabled(boolean definitionCacheEnabled) {
+        this.definitionCacheEnabled = definitionCacheEnabled;
+    }
+
+    /**
+     * Return whether parsed bean definitions get cached in a binary file.
+     */
+    public boolean isDefinitionCacheEnabled() {
+        return definitionCacheEnabled;
+    }
+
 
     //---------------------------------------------------------------------
     // Implementation methods
@@ -193,15 +228,24 @@ public class XmlBeanFactory extends ListableBeanFactoryImpl {
 
     /**
      * Load definitions from the given file.
+     * Uses the binary definition cache if enabled.
      *
      * @param filename name of the file containing the XML document
+     * @see #setDefinitionCacheEnabled
      */
     public void loadBeanDefinitions(String filename) throws BeansException {
+        BeanCreationProfiler.Step step = startProfiling(BeanCreationProfiler.PARSE, filename);
         try {
             logger.info("Loading XmlBeanFactory from file '" + filename + "'");
-            loadBeanDefinitions(new FileInputStream(filename));
+            if (this.definitionCacheEnabled) {
+                loadCachedBeanDefinitions(new File(filename));
+            } else {
+                doLoadBeanDefinitions(new FileInputStream(filename));
+            }
         } catch (IOException ex) {
             throw new BeanDefinitionStoreException("Can't open file [" + filename + "]", ex);
+        } finally {
+            stopProfiling(step);
         }
     }
 
@@ -214,34 +258,188 @@ public class XmlBeanFactory extends ListableBeanFactoryImpl {
         if (is == null)
             throw new BeanDefinitionStoreException("InputStream cannot be null: expected an XML file", null);
 
+        BeanCreationProfiler.Step step = startProfiling(BeanCreationProfiler.PARSE, "XML InputStream");
+        try {
+            doLoadBeanDefinitions(is);
+        } finally {
+            stopProfiling(step);
+        }
+    }
+
+    /**
+     * Load definitions previously written by writeBeanDefinitions, for example
+     * as part of a context snapshot. Avoids XML parsing altogether.
+     *
+     * @param buf buffer positioned at the start of the definitions; will be
+     *            positioned after the definitions on return
+     * @throws BeanDefinitionStoreException if the data is corrupt
+     * @see #writeBeanDefinitions
+     */
+    public void loadBeanDefinitions(ByteBuffer buf) throws BeansException {
+        BeanCreationProfiler.Step step = startProfiling(BeanCreationProfiler.PARSE, "binary definitions");
+        try {
+            List beanDefinitions = BeanDefinitionCache.readBeanDefinitions(buf);
+            logger.info("Loaded " + beanDefinitions.size() + " bean definitions from binary data");
+            registerBeanDefinitions(beanDefinitions);
+        } catch (IOException ex) {
+            throw new BeanDefinitionStoreException("Invalid binary bean definitions", ex);
+        } finally {
+            stopProfiling(step);
+        }
+    }
+
+    /**
+     * Write the current bean definitions of this factory in binary form,
+     * as understood by loadBeanDefinitions(ByteBuffer). Reflects reloaded
+     * definitions too. Only the first alias of each bean is written.
+     *
+     * @param out stream to write to
+     * @throws IOException if writing failed, or a property value
+     *                     cannot be represented in binary form
+     */
+    public void writeBeanDefinitions(DataOutputStream out) throws IOException {
+        String[] beanNames = getBeanDefinitionNames();
+        List beanDefinitions = new ArrayList(beanNames.length);
+        for (int i = 0; i < beanNames.length; i++) {
+            String[] aliases = getAliases(beanNames[i]);
+            beanDefinitions.add(new BeanDefinitionHolder(beanNames[i], (aliases.length > 0 ? aliases[0] : null),
+                    getBeanDefinition(beanNames[i])));
+        }
+        BeanDefinitionCache.writeBeanDefinitions(out, beanDefinitions);
+    }
+
+    /**
+     * Return the classes of all beans defined in this factory,
+     * resolving child definitions to their parents' classes.
+     *
+     * @return Set of Class objects
+     */
+    public Set getBeanClasses() {
+        String[] beanNames = getBeanDefinitionNames();
+        Set beanClasses = new HashSet();
+        for (int i = 0; i < beanNames.length; i++) {
+            beanClasses.add(getMergedBeanDefinition(beanNames[i]).getBeanClass());
+        }
+        return beanClasses;
+    }
+
+    /**
+     * Load definitions from the given input stream and close it.
+     */
+    private void doLoadBeanDefinitions(InputStream is) throws BeansException {
         try {
             logger.info("Loading XmlBeanFactory from InputStream [" + is + "]");
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            registerBeanDefinitions(parseBeanDefinitions(is));
+        } finally {
+            try {
+                is.close();
+            } catch (IOException ex) {
+                throw new FatalBeanException("IOException closing stream for XML document", ex);
+            }
+        }
+    }
+
+    /**
+     * Load definitions from the given file, using the binary cache file next
+     * to it if that has been written for the current content of the XML file.
+     * Else parse the XML file and (re)write the cache file.
+     */
+    private void loadCachedBeanDefinitions(File file) throws IOException {
+        byte[] content = readFully(file);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        long checksum = crc.getValue();
+        BeanDefinitionCache cache = new BeanDefinitionCache(file);
+
+        List beanDefinitions = null;
+        try {
+            beanDefinitions = cache.read(checksum);
+        } catch (IOException ex) {
+            logger.warn("Could not read bean definition cache file [" + cache.getCacheFile() + "]: parsing XML", ex);
+        }
+        if (beanDefinitions != null) {
+            logger.info("Loaded " + beanDefinitions.size() + " bean definitions from cache file [" + cache.getCacheFile() + "]");
+            registerBeanDefinitions(beanDefinitions);
+            return;
+        }
+
+        beanDefinitions = parseBeanDefinitions(new ByteArrayInputStream(content));
+        registerBeanDefinitions(beanDefinitions);
+        try {
+            cache.write(checksum, beanDefinitions);
+            logger.info("Wrote bean definition cache file [" + cache.getCacheFile() + "]");
+        } catch (IOException ex) {
+            // Not fatal: we'll just have to parse again on next startup
+            logger.warn("Could not write bean definition cache file [" + cache.getCacheFile() + "]", ex);
+        }
+    }
+
+    private byte[] readFully(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] content = new byte[(int) file.length()];
+            int offset = 0;
+            int read;
+            while (offset < content.length && (read = is.read(content, offset, content.length - offset)) != -1) {
+                offset += read;
+            }
+            if (offset < content.length)
+                throw new IOException("File [" + file + "] was truncated while reading");
+            return content;
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Parse the given XML stream with a validating SAX parser,
+     * without registering the definitions found.
+     *
+     * @param is InputStream containing XML
+     * @return List of BeanDefinitionHolders, in document order
+     */
+    private List parseBeanDefinitions(InputStream is) throws BeansException {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
             logger.debug("Using JAXP implementation [" + factory + "]");
             factory.setValidating(true);
-            DocumentBuilder db = factory.newDocumentBuilder();
-            db.setErrorHandler(new BeansErrorHandler());
-            db.setEntityResolver(this.entityResolver != null ? this.entityResolver : new BeansDtdResolver());
-            Document doc = db.parse(is);
-            loadBeanDefinitions(doc);
+            SAXParser parser = factory.newSAXParser();
+            XmlBeanDefinitionHandler handler = new XmlBeanDefinitionHandler(
+                    this.entityResolver != null ? this.entityResolver : new BeansDtdResolver());
+            parser.parse(new InputSource(is), handler);
+            List beanDefinitions = handler.getBeanDefinitions();
+            logger.debug("Found " + beanDefinitions.size() + " <" + BEAN_ELEMENT + "> elements defining beans");
+            return beanDefinitions;
         } catch (ParserConfigurationException ex) {
             throw new BeanDefinitionStoreException("ParserConfiguration exception parsing XML", ex);
         } catch (SAXException ex) {
             throw new BeanDefinitionStoreException("XML document is invalid", ex);
         } catch (IOException ex) {
             throw new BeanDefinitionStoreException("IOException parsing XML document", ex);
-        } finally {
-            try {
-                is.close();
-            } catch (IOException ex) {
-                throw new FatalBeanException("IOException closing stream for XML document", ex);
+        }
+    }
+
+    /**
+     * Register the given parsed bean definitions, including aliases.
+     *
+     * @param beanDefinitions List of BeanDefinitionHolders
+     */
+    private void registerBeanDefinitions(List beanDefinitions) {
+        for (Iterator it = beanDefinitions.iterator(); it.hasNext(); ) {
+            BeanDefinitionHolder holder = (BeanDefinitionHolder) it.next();
+            registerBeanDefinition(holder.getBeanName(), holder.getBeanDefinition());
+            if (holder.getAlias() != null) {
+                // Automatically create this alias. Used for
+                // names that aren't legal in id attributes
+                registerAlias(holder.getBeanName(), holder.getAlias());
             }
         }
     }
 
     /**
      * Load bean definitions from the given DOM document.
-     * All calls go through this.
+     * For callers that already hold a DOM document: Files and
+     * streams get parsed via SAX instead.
      *
      * @param doc the DOM document
      */
@@ -450,28 +648,4 @@ public class XmlBeanFactory extends ListableBeanFactoryImpl {
         return t.getData();
     }
 
-
-    /**
-     * Private implementation of SAX ErrorHandler used when validating XML.
-     */
-    private static class BeansErrorHandler implements ErrorHandler {
-
-        /**
-         * We can't use the enclosing class' logger as it's protected and inherited.
-         */
-        private final static Log logger = LogFactory.getLog(XmlBeanFactory.class);
-
-        public void error(SAXParseException ex) throws SAXException {
-            throw ex;
-        }
-
-        public void fatalError(SAXParseException ex) throws SAXException {
-            throw ex;
-        }
-
-        public void warning(SAXParseException ex) throws SAXException {
-            logger.warn("Ignored XML validation warning: " + ex);
-        }
-    }
-
 }
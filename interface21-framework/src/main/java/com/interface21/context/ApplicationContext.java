@@ -137,10 +137,9 @@ public interface ApplicationContext extends MessageSource, ListableBeanFactory,
     String getResourceBasePath();
 
     /**
-     * Put an object available for sharing. Note that this
-     * method is not synchronized. As with Java 2 collections,
-     * it's up to calling code to ensure thread safety.
-     * Also, this doesn't work in a cluster. It's
+     * Put an object available for sharing. Implementations must be threadsafe,
+     * without serializing concurrent access to different keys.
+     * Note that this doesn't work in a cluster. It's
      * analogous to putting something in a ServletContext.
      *
      * @param key object key
@@ -148,6 +147,18 @@ public interface ApplicationContext extends MessageSource, ListableBeanFactory,
      */
     void shareObject(String key, Object o);
 
+    /**
+     * Put an object available for sharing for a limited time.
+     * After that, it will be treated as if it had been removed.
+     *
+     * @param key        object key
+     * @param o          object to put
+     * @param timeToLive time in milliseconds the object will be available,
+     *                   or 0 for no expiry
+     * @see #shareObject(String, Object)
+     */
+    void shareObject(String key, Object o, long timeToLive);
+
     /**
      * Retrieve a shared object added with a call to shareObject().
      *
@@ -156,6 +167,21 @@ public interface ApplicationContext extends MessageSource, ListableBeanFactory,
      */
     Object sharedObject(String key);
 
+    /**
+     * Retrieve a shared object, creating and sharing it via the given
+     * factory if no object is known under this name. Concurrent calls
+     * for the same key will only invoke the factory once.
+     *
+     * @param key        object key
+     * @param factory    factory to create the object if necessary
+     * @param timeToLive time in milliseconds a newly created object
+     *                   will be available, or 0 for no expiry
+     * @return the shared object
+     * @throws ApplicationContextException if the factory failed
+     * @see SharedObjectFactory
+     */
+    Object sharedObject(String key, SharedObjectFactory factory, long timeToLive) throws ApplicationContextException;
+
     /**
      * Remove a shared object added with a call to shareObject().
      * Does nothing if the object was null.
@@ -14,6 +14,10 @@ public class ContextOptions {
 
     private boolean reloadable = true;
 
+    private long reloadCheckInterval = 0;
+
+    private int maxSharedObjects = 0;
+
     public ContextOptions() {
     }
 
@@ -39,8 +43,53 @@ public class ContextOptions {
         this.reloadable = reloadable;
     }
 
+    /**
+     * Return the interval in milliseconds at which to check whether the
+     * configuration has been modified, reloading changed beans if so.
+     *
+     * @return the check interval, or 0 if the configuration isn't watched
+     */
+    public long getReloadCheckInterval() {
+        return reloadCheckInterval;
+    }
+
+    /**
+     * Set the interval in milliseconds at which to check whether the
+     * configuration has been modified. Default is 0, for no checks.
+     * <p>Only supported by contexts that can determine the modification
+     * date of their configuration, and only effective if reloadable.
+     *
+     * @param reloadCheckInterval the check interval in milliseconds
+     * @see #setReloadable
+     */
+    public void setReloadCheckInterval(long reloadCheckInterval) {
+        this.reloadCheckInterval = reloadCheckInterval;
+    }
+
+    /**
+     * Return the maximum number of shared objects the context keeps.
+     *
+     * @return the maximum number, or 0 for no limit
+     */
+    public int getMaxSharedObjects() {
+        return maxSharedObjects;
+    }
+
+    /**
+     * Set the maximum number of shared objects the context keeps.
+     * When exceeded, the least recently used objects are discarded.
+     * Default is 0, for no limit.
+     *
+     * @param maxSharedObjects the maximum number of shared objects
+     * @see com.interface21.context.ApplicationContext#shareObject
+     */
+    public void setMaxSharedObjects(int maxSharedObjects) {
+        this.maxSharedObjects = maxSharedObjects;
+    }
+
     public String toString() {
-        return getClass().getName() + ": reloadable=" + reloadable;
+        return getClass().getName() + ": reloadable=" + reloadable + "; reloadCheckInterval=" + reloadCheckInterval +
+                "; maxSharedObjects=" + maxSharedObjects;
     }
 
 }
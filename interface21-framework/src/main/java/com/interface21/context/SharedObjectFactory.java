@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.context;
+
+/**
+ * Callback interface for creating a shared object on demand,
+ * if no object is currently shared under the requested key.
+ * <p>
+ * <p>The application context guarantees that concurrent requests for
+ * the same key result in a single invocation of this factory: Other
+ * callers wait for the object to be created, and then share it.
+ *
+ * @see ApplicationContext#sharedObject(String, SharedObjectFactory, long)
+ */
+public interface SharedObjectFactory {
+
+    /**
+     * Create the object to share under the given key.
+     *
+     * @param key key the object will be shared under
+     * @return the object to share
+     * @throws Exception in case of creation errors. Will be propagated
+     *                   wrapped in an ApplicationContextException, unless
+     *                   it's a runtime exception.
+     */
+    Object createSharedObject(String key) throws Exception;
+
+}
@@ -21,19 +21,23 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 
 import com.interface21.beans.factory.BeanFactory;
+import com.interface21.beans.factory.RefreshableTargetSource;
+import com.interface21.beans.factory.support.AbstractBeanFactory;
+import com.interface21.beans.factory.support.BeanCreationProfiler;
 import com.interface21.beans.factory.support.BeanFactoryUtils;
 import com.interface21.context.ApplicationContextAware;
 import com.interface21.context.MessageSource;
 import com.interface21.context.NestingMessageSource;
+import com.interface21.context.SharedObjectFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -92,6 +96,13 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
      */
     public static final String MESSAGE_SOURCE_BEAN_NAME = "messageSource";
 
+    /**
+     * Number of steps to include in the startup profile report.
+     *
+     * @see #setStartupProfiler
+     */
+    public static final int STARTUP_REPORT_SIZE = 20;
+
 
     //---------------------------------------------------------------------
     // Instance data
@@ -135,15 +146,21 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
     private ApplicationEventMulticaster eventMulticaster = new ApplicationEventMulticasterImpl();
 
     /**
-     * Set of ApplicationContextAware objects that have already received the context
+     * Set of ApplicationContextAware singletons that have already received the context
      * reference, to be able to avoid double initialization of managed objects.
+     * Compares by identity, as beans may override equals.
      */
-    private Set managedSingletons = new HashSet();
+    private final Set managedSingletons = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap()));
 
     /**
-     * Map of shared objects, keyed by String
+     * Shared objects, keyed by String
      */
-    private Map sharedObjects = new HashMap();
+    private final SharedObjectRegistry sharedObjects = new SharedObjectRegistry(this);
+
+    /**
+     * Profiler for bean factory work during refresh, or null
+     */
+    private BeanCreationProfiler startupProfiler;
 
 
     //---------------------------------------------------------------------
@@ -218,6 +235,28 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
         return startupTime;
     }
 
+    /**
+     * Set a profiler to record parsing, bean creation and initialization
+     * during refresh. A report of the slowest steps gets logged at the end
+     * of each refresh; the full profile remains available from the profiler.
+     * Default is none, for no profiling overhead.
+     * <p>Must be set before refresh to include parsing bean definitions.
+     *
+     * @param startupProfiler the profiler, or null to stop profiling
+     * @see BeanCreationProfiler#getTopReport
+     * @see BeanCreationProfiler#writeFlameGraph
+     */
+    public void setStartupProfiler(BeanCreationProfiler startupProfiler) {
+        this.startupProfiler = startupProfiler;
+    }
+
+    /**
+     * Return the profiler for refresh, if any.
+     */
+    public BeanCreationProfiler getStartupProfiler() {
+        return startupProfiler;
+    }
+
     /**
      * Return context options. These control reloading etc.
      *
@@ -239,7 +278,34 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
 
         this.startupTime = System.currentTimeMillis();
 
+        BeanCreationProfiler profiler = this.startupProfiler;
+        if (profiler != null) {
+            profiler.reset();
+        }
         refreshBeanFactory();
+        if (profiler != null) {
+            getBeanFactory().setProfiler(profiler);
+        }
+        try {
+            refreshContext();
+        } finally {
+            if (profiler != null) {
+                // only profile startup, not beans created on demand later on
+                getBeanFactory().setProfiler(null);
+                logger.info("Startup profile of ApplicationContext [" + getDisplayName() + "]: " +
+                        profiler.getTopReport(STARTUP_REPORT_SIZE));
+            }
+        }
+
+        // last step: publish respective event
+        publishEvent(new ContextRefreshedEvent(this));
+    }
+
+    /**
+     * Initialize the context once its bean factory has been refreshed:
+     * Everything refresh does apart from loading and publishing the event.
+     */
+    private void refreshContext() throws ApplicationContextException {
 
         if (getBeanDefinitionCount() == 0)
             logger.warn("No beans defined in ApplicationContext [" + getDisplayName() + "]");
@@ -263,9 +329,96 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
 
         // instantiate singletons this late to allow them to access the message source
         preInstantiateSingletons();
+    }
 
-        // last step: publish respective event
-        publishEvent(new ContextRefreshedEvent(this));
+    /**
+     * Reload the beans whose definitions differ between this context's bean
+     * factory and the given bean factory, plus all beans that depend on them,
+     * without a full refresh. Other singletons and their state are kept.
+     * <p>Reloaded singletons are instantiated and configured right away.
+     * FactoryBeans implementing RefreshableTargetSource get the chance to
+     * switch to new targets, so that references to their objects stay valid.
+     * Finally, a BeansReloadedEvent gets published.
+     * <p>Concurrent bean lookups may continue: The bean factory replaces the
+     * changed definitions and discards the old singletons in one step, so a
+     * lookup sees either all old or all new definitions. Callers that looked
+     * up a bean before the switch keep the old instance.
+     *
+     * @param newDefinitions bean factory holding the new bean definitions,
+     *                       typically freshly loaded from the same source
+     * @return names of the beans that have been reloaded
+     * @throws ApplicationContextException if reloading is forbidden
+     * @see RefreshableTargetSource
+     * @see BeansReloadedEvent
+     */
+    protected String[] reloadBeans(ListableBeanFactoryImpl newDefinitions) throws ApplicationContextException {
+        if (this.contextOptions != null && !this.contextOptions.isReloadable())
+            throw new ApplicationContextException("Forbidden to reload config");
+
+        // Apply the same overrides as to the current definitions, to compare like with like
+        String[] configurerNames = getBeanDefinitionNames(BeanFactoryPostProcessor.class);
+        for (int i = 0; i < configurerNames.length; i++) {
+            BeanFactoryPostProcessor configurer = (BeanFactoryPostProcessor) getBean(configurerNames[i]);
+            configurer.postProcessBeanFactory(newDefinitions);
+        }
+
+        ListableBeanFactoryImpl beanFactory = getBeanFactory();
+        String[] beanNames = beanFactory.getChangedBeanNames(newDefinitions);
+        if (beanNames.length == 0) {
+            logger.info("No changed bean definitions in ApplicationContext [" + getDisplayName() + "]");
+            return beanNames;
+        }
+        logger.info("Reloading beans [" + StringUtils.arrayToDelimitedString(beanNames, ",") +
+                "] in ApplicationContext [" + getDisplayName() + "]");
+
+        // Old instances must neither receive events nor block reconfiguration
+        Set definedNames = new HashSet(Arrays.asList(getBeanDefinitionNames()));
+        for (int i = 0; i < beanNames.length; i++) {
+            Object oldBean = (definedNames.contains(beanNames[i]) ? getSingletonIfAny(beanNames[i]) : null);
+            if (oldBean != null) {
+                this.managedSingletons.remove(oldBean);
+                if (oldBean instanceof ApplicationListener) {
+                    this.eventMulticaster.removeApplicationListener((ApplicationListener) oldBean);
+                }
+            }
+        }
+
+        beanFactory.updateBeanDefinitions(newDefinitions, beanNames);
+
+        Set reloaded = new HashSet(Arrays.asList(beanNames));
+        definedNames = new HashSet(Arrays.asList(getBeanDefinitionNames()));
+        for (int i = 0; i < beanNames.length; i++) {
+            Object newBean = (definedNames.contains(beanNames[i]) ? getSingletonIfAny(beanNames[i]) : null);
+            if (newBean != null) {
+                configureManagedObject(beanNames[i], newBean);
+                if (newBean instanceof ApplicationListener) {
+                    addListener((ApplicationListener) newBean);
+                }
+            }
+        }
+
+        // Switch surviving proxies to the new targets
+        String[] refreshableNames = getBeanDefinitionNames(RefreshableTargetSource.class);
+        for (int i = 0; i < refreshableNames.length; i++) {
+            if (!reloaded.contains(refreshableNames[i]) && isSingleton(refreshableNames[i])) {
+                RefreshableTargetSource targetSource = (RefreshableTargetSource)
+                        beanFactory.getBean(AbstractBeanFactory.FACTORY_BEAN_PREFIX + refreshableNames[i]);
+                for (int j = 0; j < beanNames.length; j++) {
+                    targetSource.refreshTarget(beanNames[j]);
+                }
+            }
+        }
+
+        publishEvent(new BeansReloadedEvent(this, beanNames));
+        return beanNames;
+    }
+
+    /**
+     * Return the singleton with the given name from the bean factory,
+     * instantiating it if necessary, or null if the bean is a prototype.
+     */
+    private Object getSingletonIfAny(String beanName) {
+        return (isSingleton(beanName) ? getBeanFactory().getBean(beanName) : null);
     }
 
     /**
@@ -301,6 +454,7 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
             logger.info("No options bean (\"" + OPTIONS_BEAN_NAME + "\") found: using default");
             this.contextOptions = new ContextOptions();
         }
+        this.sharedObjects.setMaxSize(this.contextOptions.getMaxSharedObjects());
     }
 
     /**
@@ -349,12 +503,13 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
      *             if it implements the ApplicationContextAware interface
      */
     private void configureManagedObject(String name, Object bean) {
+        // prototypes get configured on every retrieval, and must not be kept in the set;
+        // for singletons, adding to the set decides atomically which thread configures
         if (bean instanceof ApplicationContextAware &&
-                (!isSingleton(name) || !this.managedSingletons.contains(bean))) {
+                (!isSingleton(name) || this.managedSingletons.add(bean))) {
             logger.debug("Setting application context on ApplicationContextAware object [" + bean + "]");
             ApplicationContextAware aca = (ApplicationContextAware) bean;
             aca.setApplicationContext(this);
-            this.managedSingletons.add(bean);
         }
     }
 
@@ -461,17 +616,24 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
         return (new File("")).getAbsolutePath() + File.separatorChar;
     }
 
-    public synchronized Object sharedObject(String key) {
+    public Object sharedObject(String key) {
         return this.sharedObjects.get(key);
     }
 
-    public synchronized void shareObject(String key, Object o) {
-        logger.info("Set shared object '" + key + "'");
-        this.sharedObjects.put(key, o);
+    public Object sharedObject(String key, SharedObjectFactory factory, long timeToLive)
+            throws ApplicationContextException {
+        return this.sharedObjects.get(key, factory, timeToLive);
     }
 
-    public synchronized Object removeSharedObject(String key) {
-        logger.info("Removing shared object '" + key + "'");
+    public void shareObject(String key, Object o) {
+        this.sharedObjects.put(key, o, 0);
+    }
+
+    public void shareObject(String key, Object o, long timeToLive) {
+        this.sharedObjects.put(key, o, timeToLive);
+    }
+
+    public Object removeSharedObject(String key) {
         Object o = this.sharedObjects.remove(key);
         if (o == null) {
             logger.warn("Shared object '" + key + "' not present; could not be removed");
@@ -481,6 +643,14 @@ public abstract class AbstractApplicationContext implements ApplicationContext {
         return o;
     }
 
+    /**
+     * Return the store holding this context's shared objects,
+     * for example to discard expired objects periodically.
+     */
+    protected final SharedObjectRegistry getSharedObjectRegistry() {
+        return sharedObjects;
+    }
+
 
     //---------------------------------------------------------------------
     // Implementation of MessageSource
@@ -5,20 +5,36 @@
 
 package com.interface21.context.support;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import com.interface21.beans.BeansException;
 import com.interface21.beans.factory.NoSuchBeanDefinitionException;
 import com.interface21.beans.factory.xml.XmlBeanFactory;
 import com.interface21.context.ApplicationContext;
 import com.interface21.context.ApplicationContextException;
+import com.interface21.context.ApplicationEvent;
+import com.interface21.context.ApplicationListener;
+import com.interface21.beans.factory.support.BeanCreationProfiler;
 import com.interface21.beans.factory.support.ListableBeanFactoryImpl;
 
 /**
  * Convenient abstract superclass for ApplicationContext implementations
  * drawing their configuration from XML documents containing bean definitions
  * understood by an XMLBeanFactory.
+ * <p>
+ * <p>Supports reloading just the beans whose definitions have changed, via
+ * <code>reload</code>. If the context options specify a reload check interval
+ * and the subclass can determine the modification date of its configuration,
+ * the configuration gets watched and changes are reloaded automatically.
+ * <p>
+ * <p>Can start from a snapshot of the bean definitions and bean metadata
+ * written on an earlier startup, see <code>setSnapshotFile</code>.
  *
  * @author Rod Johnson
  * @version $Revision$
@@ -31,6 +47,31 @@ public abstract class AbstractXmlApplicationContext extends AbstractApplicationC
      */
     private XmlBeanFactory xmlBeanFactory;
 
+    /**
+     * Modification date of the configuration when last loaded
+     */
+    private long lastModified;
+
+    /**
+     * Timer checking for configuration changes, or null if not watching
+     */
+    private Timer reloadTimer;
+
+    private final Object reloadMonitor = new Object();
+
+    private final ApplicationListener refreshListener = new RefreshListener();
+
+    /**
+     * Snapshot to start from, or null if none
+     */
+    private ContextSnapshot snapshot;
+
+    /**
+     * Checksum of the configuration to write a snapshot for once refreshed,
+     * or null if the snapshot has been restored or isn't used
+     */
+    private Long pendingSnapshotChecksum;
+
     /**
      * Create a new AbstractXmlApplicationContext with no parent.
      */
@@ -46,18 +87,133 @@ public abstract class AbstractXmlApplicationContext extends AbstractApplicationC
         super(parent);
     }
 
+    /**
+     * Set a file to keep a snapshot of this context's configuration in.
+     * If the file holds a snapshot of the current configuration, refresh
+     * restores bean definitions and bean metadata from it, instead of parsing
+     * the configuration and introspecting bean classes. Else the snapshot is
+     * (re)written once the context has been refreshed. Default is none.
+     * <p>Must be set before refresh. Useful for short-lived processes that
+     * start the same context over and over again.
+     *
+     * @param snapshotFile the snapshot file, or null for none
+     * @see ContextSnapshot
+     */
+    public void setSnapshotFile(File snapshotFile) {
+        this.snapshot = (snapshotFile != null ? new ContextSnapshot(snapshotFile) : null);
+    }
+
+    /**
+     * Return the snapshot file, if any.
+     */
+    public File getSnapshotFile() {
+        return (this.snapshot != null ? this.snapshot.getFile() : null);
+    }
+
     protected void refreshBeanFactory() throws ApplicationContextException {
+        synchronized (this.reloadMonitor) {
+            stopReloadTimer();
+            this.lastModified = getLastModifiedForBeanFactory();
+            this.xmlBeanFactory = loadBeanFactory(getStartupProfiler(), this.snapshot);
+        }
+        // Start watching once the options have been loaded
+        addListener(this.refreshListener);
+    }
+
+    /**
+     * Writes the snapshot if necessary, once the context has been refreshed:
+     * Only then have all singletons been introspected.
+     */
+    private void writeSnapshotIfNecessary() {
+        Long checksum;
+        synchronized (this.reloadMonitor) {
+            checksum = this.pendingSnapshotChecksum;
+            this.pendingSnapshotChecksum = null;
+        }
+        if (checksum != null) {
+            try {
+                this.snapshot.write(checksum.longValue(), this.xmlBeanFactory);
+            } catch (IOException ex) {
+                // Not fatal: we'll just have to do the work again on next startup
+                logger.warn("Could not write context snapshot [" + this.snapshot.getFile() + "]", ex);
+            }
+        }
+    }
+
+    /**
+     * Reload the beans whose definitions have changed since the
+     * configuration has been loaded, and the beans depending on them.
+     *
+     * @return names of the beans that have been reloaded
+     * @throws ApplicationContextException if the configuration
+     *                                     is invalid, or reloading is forbidden
+     * @see AbstractApplicationContext#reloadBeans
+     */
+    public String[] reload() throws ApplicationContextException {
+        synchronized (this.reloadMonitor) {
+            this.lastModified = getLastModifiedForBeanFactory();
+            return reloadBeans(loadBeanFactory(null, null));
+        }
+    }
+
+    /**
+     * Reload changed beans if the configuration has been modified since it
+     * has been loaded. Does nothing if the modification date is unknown.
+     *
+     * @return whether the configuration has been reloaded
+     * @throws ApplicationContextException if the configuration
+     *                                     is invalid, or reloading is forbidden
+     * @see #getLastModifiedForBeanFactory
+     */
+    public boolean reloadIfModified() throws ApplicationContextException {
+        synchronized (this.reloadMonitor) {
+            long currentLastModified = getLastModifiedForBeanFactory();
+            if (currentLastModified <= 0 || currentLastModified == this.lastModified) {
+                return false;
+            }
+            logger.info("Configuration of application context [" + getDisplayName() + "] has been modified");
+            reload();
+            return true;
+        }
+    }
+
+    public void close() {
+        synchronized (this.reloadMonitor) {
+            stopReloadTimer();
+        }
+        super.close();
+    }
+
+    /**
+     * Load a new XmlBeanFactory from the configuration.
+     *
+     * @param profiler profiler to record parsing with, or null
+     * @param snapshot snapshot to restore from, or null
+     */
+    private XmlBeanFactory loadBeanFactory(BeanCreationProfiler profiler, ContextSnapshot snapshot)
+            throws ApplicationContextException {
         String identifier = "application context with display name [" + getDisplayName() + "]";
         InputStream is = null;
         try {
             // Supports remote as well as local URLs
             is = getInputStreamForBeanFactory();
-            this.xmlBeanFactory = new XmlBeanFactory(getParent());
-            this.xmlBeanFactory.setEntityResolver(new ResourceBaseEntityResolver(this));
-            this.xmlBeanFactory.loadBeanDefinitions(is);
+            XmlBeanFactory beanFactory = new XmlBeanFactory(getParent());
+            beanFactory.setEntityResolver(new ResourceBaseEntityResolver(this));
+            beanFactory.setProfiler(profiler);
+            if (snapshot != null) {
+                byte[] content = readFully(is);
+                long checksum = ContextSnapshot.checksum(content);
+                if (!restoreSnapshot(snapshot, checksum, beanFactory)) {
+                    beanFactory.loadBeanDefinitions(new ByteArrayInputStream(content));
+                    this.pendingSnapshotChecksum = new Long(checksum);
+                }
+            } else {
+                beanFactory.loadBeanDefinitions(is);
+            }
             if (logger.isInfoEnabled()) {
-                logger.info("BeanFactory for application context: " + this.xmlBeanFactory);
+                logger.info("BeanFactory for application context: " + beanFactory);
             }
+            return beanFactory;
         } catch (IOException ex) {
             throw new ApplicationContextException("IOException parsing XML document for " + identifier, ex);
         } catch (NoSuchBeanDefinitionException ex) {
@@ -74,6 +230,48 @@ public abstract class AbstractXmlApplicationContext extends AbstractApplicationC
         }
     }
 
+    private boolean restoreSnapshot(ContextSnapshot snapshot, long checksum, XmlBeanFactory beanFactory) {
+        try {
+            return snapshot.restore(checksum, beanFactory);
+        } catch (IOException ex) {
+            logger.warn("Could not restore context snapshot [" + snapshot.getFile() + "]: parsing XML", ex);
+            return false;
+        }
+    }
+
+    private byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            content.write(buffer, 0, read);
+        }
+        return content.toByteArray();
+    }
+
+    private void startReloadTimer(long interval) {
+        logger.info("Checking configuration of application context [" + getDisplayName() +
+                "] for modifications every " + interval + " ms");
+        this.reloadTimer = new Timer(true);
+        this.reloadTimer.schedule(new TimerTask() {
+            public void run() {
+                try {
+                    reloadIfModified();
+                } catch (RuntimeException ex) {
+                    // Keep the current beans and try again on next modification
+                    logger.error("Could not reload application context [" + getDisplayName() + "]", ex);
+                }
+            }
+        }, interval, interval);
+    }
+
+    private void stopReloadTimer() {
+        if (this.reloadTimer != null) {
+            this.reloadTimer.cancel();
+            this.reloadTimer = null;
+        }
+    }
+
     /**
      * Return the default BeanFactory for this context
      */
@@ -89,5 +287,39 @@ public abstract class AbstractXmlApplicationContext extends AbstractApplicationC
      */
     protected abstract InputStream getInputStreamForBeanFactory() throws IOException;
 
+    /**
+     * Return the modification date of the configuration, used to detect
+     * changes. Default implementation returns 0, i.e. unknown, which
+     * means that the configuration cannot be watched for changes.
+     *
+     * @return the modification date in milliseconds, or 0 if unknown
+     * @see #reloadIfModified
+     */
+    protected long getLastModifiedForBeanFactory() {
+        return 0;
+    }
+
+
+    /**
+     * Starts the reload timer, if configured, and writes a pending snapshot
+     * once this context has been refreshed: The context options aren't
+     * available before.
+     */
+    private class RefreshListener implements ApplicationListener {
+
+        public void onApplicationEvent(ApplicationEvent e) {
+            if (e instanceof ContextRefreshedEvent && e.getSource() == AbstractXmlApplicationContext.this) {
+                writeSnapshotIfNecessary();
+                long interval = getOptions().getReloadCheckInterval();
+                if (interval > 0 && getOptions().isReloadable()) {
+                    synchronized (reloadMonitor) {
+                        stopReloadTimer();
+                        startReloadTimer(interval);
+                    }
+                }
+            }
+        }
+    }
+
 }
  
\ No newline at end of file
@@ -4,9 +4,9 @@
 
 package com.interface21.context.support;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import com.interface21.context.ApplicationEvent;
 import com.interface21.context.ApplicationListener;
@@ -17,11 +17,12 @@ import com.interface21.context.ApplicationEventMulticaster;
  * Concrete implementation of ApplicationEventMulticaster
  * Doesn't permit multiple instances of the same listener.
  * <p>
- * <p>Note that this class doesn't try to do anything clever to ensure thread
- * safety if listeners are added or removed at runtime. A technique such as
- * Copy-on-Write (Lea:137) could be used to ensure this, but the assumption in
- * this version of this framework is that listeners will be added at application
- * configuration time and not added or removed as the application runs.
+ * <p>Listeners are held in a Copy-on-Write set (Lea:137), so events can be
+ * published concurrently, for example shared object events from request
+ * threads, while listeners are added or removed when reloading beans.
+ * Each publication sees a consistent snapshot of the listeners, without
+ * locking. Adding and removing is comparatively expensive, which fits
+ * listeners being mostly registered at application configuration time.
  * <p>
  * <p>All listeners are invoked in the calling thread. This allows the danger of
  * a rogue listener blocking the entire application, but adds minimal overhead.
@@ -35,7 +36,7 @@ public class ApplicationEventMulticasterImpl implements ApplicationEventMulticas
     /**
      * Set of listeners
      */
-    private Set eventListeners = new HashSet();
+    private Set eventListeners = new CopyOnWriteArraySet();
 
     public void addApplicationListener(ApplicationListener l) {
         eventListeners.add(l);
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.context.support;
+
+import com.interface21.context.ApplicationContext;
+import com.interface21.context.ApplicationEvent;
+import com.interface21.util.StringUtils;
+
+/**
+ * Event raised when an ApplicationContext has reloaded some of its beans
+ * after a change in its bean definitions, without a full refresh.
+ * Listeners can use the bean names to invalidate caches selectively.
+ *
+ * @see AbstractXmlApplicationContext#reload
+ */
+public class BeansReloadedEvent extends ApplicationEvent {
+
+    private final String[] beanNames;
+
+    /**
+     * Creates a new BeansReloadedEvent.
+     *
+     * @param source    the ApplicationContext
+     * @param beanNames names of the beans that have been added, changed
+     *                  or removed, or depend on such beans
+     */
+    public BeansReloadedEvent(ApplicationContext source, String[] beanNames) {
+        super(source);
+        this.beanNames = beanNames;
+    }
+
+    public ApplicationContext getApplicationContext() {
+        return (ApplicationContext) getSource();
+    }
+
+    /**
+     * Return the names of the beans that have been reloaded.
+     */
+    public String[] getBeanNames() {
+        return beanNames;
+    }
+
+    /**
+     * Return whether the bean with the given name has been reloaded.
+     */
+    public boolean isReloaded(String beanName) {
+        for (int i = 0; i < this.beanNames.length; i++) {
+            if (this.beanNames[i].equals(beanName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String toString() {
+        return getClass().getName() + ": beans [" + StringUtils.arrayToDelimitedString(this.beanNames, ",") + "]";
+    }
+
+}
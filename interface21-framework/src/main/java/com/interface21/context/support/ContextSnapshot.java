@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.context.support;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.interface21.beans.BeanMetadataSnapshot;
+import com.interface21.beans.BeansException;
+import com.interface21.beans.factory.xml.XmlBeanFactory;
+
+/**
+ * Versioned binary file capturing what an XML application context discovers
+ * on startup: its bean definitions, the JavaBeans introspection results of the
+ * bean classes, and the property editors found for their property types.
+ * Restoring a snapshot skips XML parsing, introspection and editor lookup,
+ * which dominate the startup time of short-lived processes.
+ * <p>
+ * <p>A snapshot is keyed by a checksum of the XML configuration it has been
+ * written for: If the configuration has changed, the snapshot is ignored and
+ * rewritten once the context has been refreshed. Introspection results are
+ * validated against the current classes on restore. Only the metadata of the
+ * context's bean classes is included.
+ * <p>
+ * <p>File layout: magic number, format version, configuration checksum,
+ * length-prefixed bean definitions as written by XmlBeanFactory, and bean
+ * metadata as written by BeanMetadataSnapshot. The file is read into a heap
+ * buffer rather than memory-mapped, so that it can be replaced right away.
+ *
+ * @see AbstractXmlApplicationContext#setSnapshotFile
+ * @see XmlBeanFactory#writeBeanDefinitions
+ * @see BeanMetadataSnapshot
+ */
+public class ContextSnapshot {
+
+    private static final int MAGIC = 0x49324353;
+
+    private static final int VERSION = 2;
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final File file;
+
+    /**
+     * Create a new ContextSnapshot for the given file.
+     *
+     * @param file file to read the snapshot from, and write it to
+     */
+    public ContextSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Return the snapshot file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Compute the checksum that identifies the given configuration.
+     *
+     * @param content content of the XML configuration
+     */
+    public static long checksum(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    /**
+     * Restore bean definitions into the given bean factory, and bean
+     * metadata into this JVM, if the snapshot file exists and has been
+     * written for the configuration with the given checksum.
+     *
+     * @param checksum    checksum of the current XML configuration
+     * @param beanFactory bean factory to register the definitions with
+     * @return whether the snapshot has been restored. If false,
+     * the bean factory hasn't been modified.
+     * @throws IOException if the snapshot file couldn't be read or is corrupt
+     */
+    public boolean restore(long checksum, XmlBeanFactory beanFactory) throws IOException {
+        if (!this.file.isFile()) {
+            return false;
+        }
+        ByteBuffer buf = readFile();
+        try {
+            if (buf.remaining() < 16 || buf.getInt() != MAGIC || buf.getInt() != VERSION || buf.getLong() != checksum) {
+                logger.info("Context snapshot [" + this.file + "] is outdated");
+                return false;
+            }
+            // Restore metadata first: it doesn't affect the bean factory if corrupt
+            int definitionsLength = buf.getInt();
+            if (definitionsLength < 0 || definitionsLength > buf.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            ByteBuffer definitions = buf.slice();
+            definitions.limit(definitionsLength);
+            buf.position(buf.position() + definitionsLength);
+            BeanMetadataSnapshot.restore(buf);
+            beanFactory.loadBeanDefinitions(definitions);
+            logger.info("Restored context snapshot [" + this.file + "]");
+            return true;
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Corrupt context snapshot [" + this.file + "]: unexpected end of file");
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Corrupt context snapshot [" + this.file + "]: " + ex.getMessage());
+        } catch (BeansException ex) {
+            throw new IOException("Corrupt context snapshot [" + this.file + "]: " + ex.getMessage());
+        }
+    }
+
+    private ByteBuffer readFile() throws IOException {
+        FileInputStream fis = new FileInputStream(this.file);
+        try {
+            FileChannel channel = fis.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Context snapshot [" + this.file + "] is too large");
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            int read = 0;
+            while (buf.hasRemaining() && read != -1) {
+                read = channel.read(buf);
+            }
+            buf.flip();
+            return buf;
+        } finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * Write the bean definitions of the given bean factory, and the metadata
+     * of its bean classes discovered so far, replacing any existing snapshot.
+     *
+     * @param checksum    checksum of the XML configuration
+     *                    the bean factory has been loaded from
+     * @param beanFactory bean factory to write the definitions of
+     * @throws IOException if the snapshot couldn't be written
+     */
+    public void write(long checksum, XmlBeanFactory beanFactory) throws IOException {
+        // Write to a temporary file first, to never leave a partially written snapshot
+        File tempFile = new File(this.file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checksum);
+            // Definitions are prefixed with their length, to allow for reading them last
+            ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+            beanFactory.writeBeanDefinitions(new DataOutputStream(definitions));
+            out.writeInt(definitions.size());
+            definitions.writeTo(out);
+            BeanMetadataSnapshot.write(out, beanFactory.getBeanClasses());
+        } finally {
+            out.close();
+        }
+        if (this.file.exists() && !this.file.delete()) {
+            tempFile.delete();
+            throw new IOException("Could not replace context snapshot [" + this.file + "]");
+        }
+        if (!tempFile.renameTo(this.file)) {
+            tempFile.delete();
+            throw new IOException("Could not rename [" + tempFile + "] to [" + this.file + "]");
+        }
+        logger.info("Wrote context snapshot [" + this.file + "]");
+    }
+
+}
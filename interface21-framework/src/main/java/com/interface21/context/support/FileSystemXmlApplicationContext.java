@@ -4,6 +4,7 @@
 
 package com.interface21.context.support;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -44,6 +45,20 @@ public class FileSystemXmlApplicationContext extends AbstractXmlApplicationConte
      */
     public FileSystemXmlApplicationContext(String[] locations)
             throws ApplicationContextException, IOException {
+        this(locations, null);
+    }
+
+    /**
+     * Create a new FileSystemXmlApplicationContext with the given locations,
+     * starting from the snapshot in the given file if it's up to date, and
+     * writing a snapshot to it else. Parent contexts don't use the snapshot.
+     *
+     * @param locations    String array consisting of locations
+     * @param snapshotFile file holding a snapshot of this context, or null
+     * @see #setSnapshotFile
+     */
+    public FileSystemXmlApplicationContext(String[] locations, File snapshotFile)
+            throws ApplicationContextException, IOException {
         if (locations.length == 0) {
             throw new ApplicationContextException("At least 1 config location required");
         }
@@ -65,6 +80,7 @@ public class FileSystemXmlApplicationContext extends AbstractXmlApplicationConte
         }
 
         // initialize this context
+        setSnapshotFile(snapshotFile);
         refresh();
     }
 
@@ -76,4 +92,12 @@ public class FileSystemXmlApplicationContext extends AbstractXmlApplicationConte
         return getResourceAsStream(this.configLocation);
     }
 
+    /**
+     * This implementation returns the modification date of the
+     * config file, or 0 if the config location isn't a file path.
+     */
+    protected long getLastModifiedForBeanFactory() {
+        return new File(this.configLocation).lastModified();
+    }
+
 }
\ No newline at end of file
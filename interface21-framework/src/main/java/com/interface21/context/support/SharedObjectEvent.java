@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.context.support;
+
+import com.interface21.context.ApplicationContext;
+import com.interface21.context.ApplicationEvent;
+
+/**
+ * Event raised when an object has been shared in an ApplicationContext,
+ * or is no longer shared because it has been removed, has expired or
+ * has been evicted to stay within the configured limit.
+ * Allows listeners to keep derived state in sync with shared objects.
+ *
+ * @see ApplicationContext#shareObject
+ * @see SharedObjectRegistry
+ */
+public class SharedObjectEvent extends ApplicationEvent {
+
+    /**
+     * The object has been shared, possibly replacing another one
+     */
+    public static final int SHARED = 1;
+
+    /**
+     * The object has been removed explicitly
+     */
+    public static final int REMOVED = 2;
+
+    /**
+     * The object has been discarded because its time to live has passed
+     */
+    public static final int EXPIRED = 3;
+
+    /**
+     * The object has been discarded because the limit of shared objects
+     * has been exceeded, and it was the least recently used one
+     */
+    public static final int EVICTED = 4;
+
+
+    private final String key;
+
+    private final Object object;
+
+    private final int action;
+
+    /**
+     * Creates a new SharedObjectEvent.
+     *
+     * @param source the ApplicationContext
+     * @param key    key of the shared object
+     * @param object the shared object
+     * @param action one of the action constants of this class
+     */
+    public SharedObjectEvent(ApplicationContext source, String key, Object object, int action) {
+        super(source);
+        this.key = key;
+        this.object = object;
+        this.action = action;
+    }
+
+    public ApplicationContext getApplicationContext() {
+        return (ApplicationContext) getSource();
+    }
+
+    /**
+     * Return the key of the shared object.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Return the object that has been shared or discarded.
+     */
+    public Object getObject() {
+        return object;
+    }
+
+    /**
+     * Return what happened to the object: SHARED, REMOVED, EXPIRED or EVICTED.
+     */
+    public int getAction() {
+        return action;
+    }
+
+    public String toString() {
+        String[] actions = {"shared", "removed", "expired", "evicted"};
+        return getClass().getName() + ": key '" + this.key + "' " + actions[this.action - 1];
+    }
+
+}
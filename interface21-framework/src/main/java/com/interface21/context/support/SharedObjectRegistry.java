@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.context.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.interface21.context.ApplicationContext;
+import com.interface21.context.ApplicationContextException;
+import com.interface21.context.SharedObjectFactory;
+
+/**
+ * Threadsafe store for the shared objects of an ApplicationContext.
+ * Entries are kept in a ConcurrentHashMap, so lookups and updates don't
+ * block each other: Objects are created by factories and events are
+ * published outside of any lock, so the store can serve as a lightweight
+ * in-process cache for web tiers.
+ * <p>
+ * <p>Objects can be shared with a time to live, after which they're
+ * discarded lazily, on access or when the store is trimmed. If a maximum
+ * size is set, the least recently used objects are evicted when the store
+ * grows beyond it. Recency is approximate: Each access stamps the entry
+ * from a counter, and a store that has grown too large is swept by one
+ * thread at a time, evicting the entries with the oldest stamps; threads
+ * arriving during a sweep don't wait for it. Objects that are still being
+ * created by a factory are never evicted, so the store may exceed its
+ * maximum size while their creation is in progress.
+ * <p>
+ * <p>Every change is published as SharedObjectEvent via the context.
+ * Listeners are invoked synchronously by the thread that caused the change.
+ *
+ * @see AbstractApplicationContext#shareObject
+ * @see SharedObjectEvent
+ */
+public class SharedObjectRegistry {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final ApplicationContext applicationContext;
+
+    /**
+     * Map from String key to Entry
+     */
+    private final ConcurrentHashMap entries = new ConcurrentHashMap();
+
+    /**
+     * Source of access stamps, for approximate least recently used eviction
+     */
+    private final AtomicLong accessClock = new AtomicLong();
+
+    /**
+     * Whether a thread is currently sweeping the store for eviction
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private volatile int maxSize = 0;
+
+    /**
+     * Create a new SharedObjectRegistry for the given context.
+     *
+     * @param applicationContext context to publish events with
+     */
+    public SharedObjectRegistry(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * Set the maximum number of shared objects. Default is 0, for no limit.
+     * Reducing the limit evicts surplus objects immediately.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evictIfNecessary();
+    }
+
+    /**
+     * Return the maximum number of shared objects, or 0 for no limit.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return the number of currently shared objects,
+     * including ones that have expired but not yet been discarded.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Return the object shared under the given key, or null if none.
+     * Waits if the object is currently being created by a factory.
+     *
+     * @throws ApplicationContextException if called by the factory
+     *                                     currently creating the object
+     */
+    public Object get(String key) throws ApplicationContextException {
+        Entry entry = getEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.checkNotCreator(key);
+        return entry.getValue();
+    }
+
+    /**
+     * Share the given object under the given key, replacing any object
+     * currently shared under this key.
+     *
+     * @param timeToLive time in milliseconds the object will be available,
+     *                   or 0 for no expiry
+     */
+    public void put(String key, Object value, long timeToLive) {
+        Entry entry = new Entry(value, expiryTime(timeToLive));
+        entry.touch(this.accessClock.incrementAndGet());
+        this.entries.put(key, entry);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Set shared object '" + key + "'");
+        }
+        publish(key, value, SharedObjectEvent.SHARED);
+        evictIfNecessary();
+    }
+
+    /**
+     * Return the object shared under the given key, creating and sharing
+     * one via the given factory if none is available. Concurrent calls for
+     * the same key will only invoke the factory once; the other callers
+     * wait for the result. Calls for other keys don't wait.
+     *
+     * @param timeToLive time in milliseconds a newly created object
+     *                   will be available, or 0 for no expiry
+     * @throws ApplicationContextException if the factory failed, or
+     *                                     requested the object it is creating
+     */
+    public Object get(final String key, final SharedObjectFactory factory, long timeToLive)
+            throws ApplicationContextException {
+        Entry entry = getEntry(key);
+        if (entry != null) {
+            return entry.awaitValue(key);
+        }
+        FutureTask task = new FutureTask(new Callable() {
+            public Object call() throws Exception {
+                return factory.createSharedObject(key);
+            }
+        });
+        Entry newEntry = new Entry(task, expiryTime(timeToLive));
+        newEntry.touch(this.accessClock.incrementAndGet());
+        while (this.entries.putIfAbsent(key, newEntry) != null) {
+            // another thread got there first, unless its entry has expired
+            entry = getEntry(key);
+            if (entry != null) {
+                return entry.awaitValue(key);
+            }
+        }
+
+        // We won: create the object in this thread, outside of any lock
+        newEntry.create();
+        Object value = null;
+        boolean created = false;
+        try {
+            value = newEntry.awaitValue(key);
+            created = true;
+        } finally {
+            if (!created) {
+                // don't share the failure: let the next caller try again
+                this.entries.remove(key, newEntry);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Created shared object '" + key + "'");
+        }
+        publish(key, value, SharedObjectEvent.SHARED);
+        evictIfNecessary();
+        return value;
+    }
+
+    /**
+     * Remove the object shared under the given key.
+     *
+     * @return the removed object, or null if none was shared under the key
+     */
+    public Object remove(String key) {
+        Entry entry = (Entry) this.entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        Object value = entry.getValue();
+        publish(key, value, SharedObjectEvent.REMOVED);
+        return value;
+    }
+
+    /**
+     * Discard all objects whose time to live has passed.
+     */
+    public void removeExpired() {
+        long now = System.currentTimeMillis();
+        Map expired = new LinkedHashMap();
+        for (Iterator it = this.entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry mapEntry = (Map.Entry) it.next();
+            Entry entry = (Entry) mapEntry.getValue();
+            if (entry.isExpired(now) && this.entries.remove(mapEntry.getKey(), entry)) {
+                expired.put(mapEntry.getKey(), entry);
+            }
+        }
+        publishDiscarded(expired, SharedObjectEvent.EXPIRED);
+    }
+
+    /**
+     * Return the entry for the given key, discarding it if expired.
+     * The lookup counts as access for eviction purposes.
+     */
+    private Entry getEntry(String key) {
+        Entry entry = (Entry) this.entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isExpired(System.currentTimeMillis())) {
+            entry.touch(this.accessClock.incrementAndGet());
+            return entry;
+        }
+        if (this.entries.remove(key, entry)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Discarded shared object '" + key + "' (action " + SharedObjectEvent.EXPIRED + ")");
+            }
+            publish(key, entry.getValue(), SharedObjectEvent.EXPIRED);
+        }
+        return null;
+    }
+
+    /**
+     * Evict the least recently used objects if the store has grown beyond
+     * the maximum size. Expired objects are discarded first. Only one thread
+     * sweeps at a time: Others return immediately, leaving their surplus to
+     * the sweeping thread, which checks the size again before it finishes.
+     */
+    private void evictIfNecessary() {
+        int max;
+        while ((max = this.maxSize) > 0 && size() > max && this.evicting.compareAndSet(false, true)) {
+            Map evicted;
+            try {
+                removeExpired();
+                evicted = evictLeastRecentlyUsed(max);
+            } finally {
+                this.evicting.set(false);
+            }
+            publishDiscarded(evicted, SharedObjectEvent.EVICTED);
+            if (evicted.isEmpty()) {
+                // only objects still being created are left over
+                break;
+            }
+        }
+    }
+
+    /**
+     * Remove the entries with the oldest access stamps until the store
+     * doesn't exceed the given size, leaving objects that are still being
+     * created to their creators.
+     *
+     * @return Map from String key to evicted Entry
+     */
+    private Map evictLeastRecentlyUsed(int max) {
+        Map evicted = new LinkedHashMap();
+        int surplus = size() - max;
+        if (surplus <= 0) {
+            return evicted;
+        }
+        List candidates = new ArrayList(this.entries.entrySet());
+        Collections.sort(candidates, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                long stamp1 = ((Entry) ((Map.Entry) o1).getValue()).getAccessStamp();
+                long stamp2 = ((Entry) ((Map.Entry) o2).getValue()).getAccessStamp();
+                return (stamp1 < stamp2 ? -1 : (stamp1 == stamp2 ? 0 : 1));
+            }
+        });
+        for (Iterator it = candidates.iterator(); it.hasNext() && evicted.size() < surplus; ) {
+            Map.Entry mapEntry = (Map.Entry) it.next();
+            Entry entry = (Entry) mapEntry.getValue();
+            if (entry.isDone() && this.entries.remove(mapEntry.getKey(), entry)) {
+                evicted.put(mapEntry.getKey(), entry);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Publish the given action for all of the given entries,
+     * which have already been removed from the store.
+     *
+     * @param discarded Map from String key to Entry
+     */
+    private void publishDiscarded(Map discarded, int action) {
+        for (Iterator it = discarded.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry mapEntry = (Map.Entry) it.next();
+            String key = (String) mapEntry.getKey();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Discarded shared object '" + key + "' (action " + action + ")");
+            }
+            publish(key, ((Entry) mapEntry.getValue()).getValue(), action);
+        }
+    }
+
+    private void publish(String key, Object value, int action) {
+        this.applicationContext.publishEvent(new SharedObjectEvent(this.applicationContext, key, value, action));
+    }
+
+    private static long expiryTime(long timeToLive) {
+        return (timeToLive > 0 ? System.currentTimeMillis() + timeToLive : 0);
+    }
+
+
+    /**
+     * Shared object plus expiry information. Holds either
+     * the object itself or a task that creates it.
+     */
+    private static class Entry {
+
+        private final Object value;
+
+        private final FutureTask task;
+
+        private final long expiryTime;
+
+        /**
+         * Stamp of the last access, for approximate least recently used eviction
+         */
+        private volatile long accessStamp;
+
+        /**
+         * Thread running the task, to detect factories requesting their own object
+         */
+        private volatile Thread creator;
+
+        public Entry(Object value, long expiryTime) {
+            this.value = value;
+            this.task = null;
+            this.expiryTime = expiryTime;
+        }
+
+        public Entry(FutureTask task, long expiryTime) {
+            this.value = null;
+            this.task = task;
+            this.expiryTime = expiryTime;
+        }
+
+        public boolean isExpired(long now) {
+            return (this.expiryTime != 0 && now >= this.expiryTime);
+        }
+
+        public void touch(long accessStamp) {
+            this.accessStamp = accessStamp;
+        }
+
+        public long getAccessStamp() {
+            return this.accessStamp;
+        }
+
+        public boolean isDone() {
+            return (this.task == null || this.task.isDone());
+        }
+
+        /**
+         * Create the object in the current thread.
+         */
+        public void create() {
+            this.creator = Thread.currentThread();
+            try {
+                this.task.run();
+            } finally {
+                this.creator = null;
+            }
+        }
+
+        /**
+         * Throw an exception if called by the thread creating the object,
+         * which would otherwise wait for itself forever.
+         */
+        public void checkNotCreator(String key) throws ApplicationContextException {
+            if (this.creator == Thread.currentThread()) {
+                throw new ApplicationContextException("Factory for shared object '" + key +
+                        "' requested the object it is creating");
+            }
+        }
+
+        /**
+         * Return the object, or null if its creation failed.
+         */
+        public Object getValue() {
+            if (this.task == null) {
+                return this.value;
+            }
+            try {
+                return awaitValue(null);
+            } catch (RuntimeException ex) {
+                return null;
+            }
+        }
+
+        /**
+         * Return the object, waiting for its creation if necessary,
+         * and propagating creation errors.
+         */
+        public Object awaitValue(String key) throws ApplicationContextException {
+            if (this.task == null) {
+                return this.value;
+            }
+            checkNotCreator(key);
+            try {
+                return this.task.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ApplicationContextException("Interrupted while waiting for shared object '" + key + "'", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ApplicationContextException("Could not create shared object '" + key + "'", cause);
+            }
+        }
+    }
+
+}
@@ -4,16 +4,53 @@
 
 package com.interface21.ejb.access;
 
+import java.net.UnknownHostException;
+import java.rmi.ConnectException;
+import java.rmi.ConnectIOException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.StubNotFoundException;
+
 import javax.ejb.EJBObject;
+import javax.naming.NamingException;
+
+import org.aopalliance.intercept.AspectException;
+import org.aopalliance.intercept.MethodInvocation;
 
 /**
  * Superclass for interceptors proxying remote EJBs.
+ * <p>
+ * <p>If refreshHomeOnConnectFailure is set, an invocation that fails
+ * because the server cannot be reached is retried once after looking
+ * up the home again, e.g. after the server has been restarted or the
+ * EJB has been redeployed.
  *
  * @author Rod Johnson
  * @version $Revision$
  */
 public abstract class AbstractRemoteSlsbInvokerInterceptor extends AbstractSlsbInvokerInterceptor {
 
+    private boolean refreshHomeOnConnectFailure = false;
+
+    /**
+     * Set if the home should be looked up again on connect failure.
+     * Default is false.
+     * <p>Most useful with lookupOnStartup turned off, so that the
+     * interceptor can also be created while the server is down.
+     *
+     * @see #isConnectFailure
+     * @see #setLookupOnStartup
+     */
+    public void setRefreshHomeOnConnectFailure(boolean refreshHomeOnConnectFailure) {
+        this.refreshHomeOnConnectFailure = refreshHomeOnConnectFailure;
+    }
+
+    /**
+     * Return if the home gets looked up again on connect failure.
+     */
+    public boolean isRefreshHomeOnConnectFailure() {
+        return refreshHomeOnConnectFailure;
+    }
+
     /**
      * Return a new instance of the stateless session bean.
      * Can be overridden to change the algorithm.
@@ -24,13 +61,62 @@ public abstract class AbstractRemoteSlsbInvokerInterceptor extends AbstractSlsbI
         if (logger.isDebugEnabled())
             logger.debug("Trying to create EJB");
 
-        EJBObject session = (EJBObject) getHomeBeanWrapper().invoke(CREATE_METHOD, null);
-
-        // if it throws remote exception (wrapped in bean exception, retry?)
+        EJBObject session = (EJBObject) createSessionBean();
 
         if (logger.isDebugEnabled())
             logger.debug("EJB created OK [" + session + "]");
         return session;
     }
 
+    /**
+     * Delegates to doInvoke, refreshing the home and retrying
+     * once on connect failure if refreshHomeOnConnectFailure is set.
+     *
+     * @see #doInvoke
+     */
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        try {
+            return doInvoke(invocation);
+        } catch (Throwable ex) {
+            if (!this.refreshHomeOnConnectFailure || !isConnectFailure(ex)) {
+                throw ex;
+            }
+            logger.info("Could not connect to remote EJB with JNDI name '" + getJndiName() +
+                    "': refreshing home and retrying [" + ex + "]");
+            try {
+                refresh();
+            } catch (NamingException nex) {
+                throw new AspectException("Could not refresh EJB home with JNDI name '" + getJndiName() + "'", nex);
+            }
+            return doInvoke(invocation);
+        }
+    }
+
+    /**
+     * Determine if the given exception, or its cause in case of an
+     * AspectException thrown by create, indicates a connect failure.
+     * The default implementation checks for RMI connect exceptions,
+     * unknown hosts and objects no longer exported.
+     *
+     * @param ex the exception thrown by the invocation
+     * @return if the home should be refreshed
+     */
+    protected boolean isConnectFailure(Throwable ex) {
+        if (ex instanceof AspectException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return (ex instanceof ConnectException || ex instanceof ConnectIOException ||
+                ex instanceof UnknownHostException || ex instanceof NoSuchObjectException ||
+                ex instanceof StubNotFoundException);
+    }
+
+    /**
+     * Perform the invocation on the remote EJB.
+     *
+     * @param invocation the AOP method invocation
+     * @return the return value of the invocation
+     * @throws Throwable thrown by the EJB or the create call
+     */
+    protected abstract Object doInvoke(MethodInvocation invocation) throws Throwable;
+
 }
@@ -9,6 +9,15 @@
 
 package com.interface21.ejb.access;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.naming.NamingException;
+
+import org.aopalliance.intercept.AspectException;
 import org.aopalliance.intercept.MethodInterceptor;
 
 import com.interface21.beans.BeanWrapper;
@@ -18,6 +27,12 @@ import com.interface21.jndi.AbstractJndiLocator;
 
 /**
  * Superclass for all AOP interceptors invoking EJBs.
+ * <p>
+ * <p>The home's create method is resolved once, when the home has been
+ * located. Created EJB objects can be kept in a bounded pool for reuse,
+ * instead of calling create on every invocation: see sessionBeanPoolSize.
+ * The home gets looked up again before creating an EJB object if
+ * lookupOnStartup is off or the timeToLive has expired.
  *
  * @author Rod Johnson
  * @version $Id$
@@ -30,7 +45,35 @@ public abstract class AbstractSlsbInvokerInterceptor extends AbstractJndiLocator
      */
     protected static final String CREATE_METHOD = "create";
 
-    private BeanWrapper homeBeanWrapper;
+    /**
+     * Home wrapper and its create method, replaced together on each lookup
+     */
+    private volatile LocatedHome locatedHome;
+
+    private int sessionBeanPoolSize = 0;
+
+    private BlockingQueue sessionBeanPool;
+
+    /**
+     * Set the maximum number of created EJB objects to keep for reuse.
+     * Default is 0: create a new EJB object for each invocation.
+     * <p>An EJB object is taken out of the pool for the duration of an
+     * invocation. EJB objects that failed with a system exception are
+     * discarded, so that the next invocation creates a fresh one.
+     *
+     * @param sessionBeanPoolSize the maximum number of idle EJB objects
+     */
+    public void setSessionBeanPoolSize(int sessionBeanPoolSize) {
+        this.sessionBeanPoolSize = sessionBeanPoolSize;
+        this.sessionBeanPool = (sessionBeanPoolSize > 0 ? new ArrayBlockingQueue(sessionBeanPoolSize) : null);
+    }
+
+    /**
+     * Return the maximum number of created EJB objects kept for reuse.
+     */
+    public int getSessionBeanPoolSize() {
+        return sessionBeanPoolSize;
+    }
 
 
     /**
@@ -40,7 +83,8 @@ public abstract class AbstractSlsbInvokerInterceptor extends AbstractJndiLocator
      * may be a local or remote home.
      */
     protected BeanWrapper getHomeBeanWrapper() {
-        return this.homeBeanWrapper;
+        LocatedHome home = this.locatedHome;
+        return (home != null ? home.beanWrapper : null);
     }
 
 
@@ -51,10 +95,64 @@ public abstract class AbstractSlsbInvokerInterceptor extends AbstractJndiLocator
      * @see #afterLocated
      */
     protected void located(Object o) {
-        this.homeBeanWrapper = new BeanWrapperImpl(o);
+        try {
+            Method method = o.getClass().getMethod(CREATE_METHOD, new Class[0]);
+            if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            this.locatedHome = new LocatedHome(new BeanWrapperImpl(o), method);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("EJB home [" + o + "] has no no-arg create method");
+        }
+        if (this.sessionBeanPool != null) {
+            this.sessionBeanPool.clear();
+        }
         afterLocated();
     }
 
+    /**
+     * Invoke the home's create method, looking up the home first if necessary.
+     *
+     * @return the new EJBObject or EJBLocalObject
+     * @throws AspectException if the home lookup failed or
+     *                         the create method threw an exception
+     * @see #lookupIfNecessary
+     */
+    protected Object createSessionBean() throws AspectException {
+        try {
+            lookupIfNecessary();
+        } catch (NamingException ex) {
+            throw new AspectException("Could not look up EJB home with JNDI name '" + getJndiName() + "'", ex);
+        }
+        LocatedHome home = this.locatedHome;
+        try {
+            return home.createMethod.invoke(home.beanWrapper.getWrappedInstance(), (Object[]) null);
+        } catch (InvocationTargetException ex) {
+            throw new AspectException("Could not create EJB with JNDI name '" + getJndiName() + "'", ex.getTargetException());
+        } catch (IllegalAccessException ex) {
+            throw new AspectException("Could not access create method of EJB home with JNDI name '" + getJndiName() + "'", ex);
+        }
+    }
+
+    /**
+     * Take an EJB object out of the pool.
+     *
+     * @return the EJB object, or null if none is available
+     */
+    protected Object pollSessionBean() {
+        return (this.sessionBeanPool != null ? this.sessionBeanPool.poll() : null);
+    }
+
+    /**
+     * Return the given EJB object to the pool, after a successful
+     * invocation or an application exception. Dropped if the pool is full.
+     */
+    protected void releaseSessionBean(Object sessionBean) {
+        if (this.sessionBeanPool != null) {
+            this.sessionBeanPool.offer(sessionBean);
+        }
+    }
+
     /**
      * Initialization hook after the AbstractJndiLocator's located callback.
      *
@@ -63,4 +161,17 @@ public abstract class AbstractSlsbInvokerInterceptor extends AbstractJndiLocator
     protected void afterLocated() {
     }
 
+
+    private static class LocatedHome {
+
+        private final BeanWrapper beanWrapper;
+
+        private final Method createMethod;
+
+        private LocatedHome(BeanWrapper beanWrapper, Method createMethod) {
+            this.beanWrapper = beanWrapper;
+            this.createMethod = createMethod;
+        }
+    }
+
 }
@@ -6,6 +6,7 @@ package com.interface21.ejb.access;
 
 import java.lang.reflect.InvocationTargetException;
 
+import javax.ejb.EJBException;
 import javax.ejb.EJBLocalObject;
 
 import org.aopalliance.intercept.AspectException;
@@ -24,7 +25,7 @@ public class LocalSlsbInvokerInterceptor extends AbstractSlsbInvokerInterceptor
         if (logger.isDebugEnabled())
             logger.debug("Trying to create EJB");
 
-        EJBLocalObject session = (EJBLocalObject) getHomeBeanWrapper().invoke(CREATE_METHOD, null);
+        EJBLocalObject session = (EJBLocalObject) createSessionBean();
 
         if (logger.isDebugEnabled())
             logger.debug("EJB created OK [" + session + "]");
@@ -37,11 +38,20 @@ public class LocalSlsbInvokerInterceptor extends AbstractSlsbInvokerInterceptor
      * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
      */
     public Object invoke(MethodInvocation invocation) throws Throwable {
-        EJBLocalObject ejb = newSessionBeanInstance();
+        EJBLocalObject ejb = (EJBLocalObject) pollSessionBean();
+        if (ejb == null) {
+            ejb = newSessionBeanInstance();
+        }
         try {
-            return invocation.getMethod().invoke(ejb, invocation.getArguments());
+            Object retVal = invocation.getMethod().invoke(ejb, invocation.getArguments());
+            releaseSessionBean(ejb);
+            return retVal;
         } catch (InvocationTargetException ex) {
             logger.warn(ex + " thrown invoking remote EJB method " + invocation.getMethod());
+            // discard EJB objects after system exceptions
+            if (!(ex.getTargetException() instanceof EJBException)) {
+                releaseSessionBean(ejb);
+            }
             throw ex.getTargetException();
         } catch (Throwable t) {
             throw new AspectException("Failed to invoke remote EJB", t);
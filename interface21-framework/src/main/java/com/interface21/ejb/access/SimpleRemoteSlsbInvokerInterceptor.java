@@ -5,6 +5,8 @@
 package com.interface21.ejb.access;
 
 import java.lang.reflect.InvocationTargetException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
 
 import javax.ejb.EJBObject;
 
@@ -13,7 +15,11 @@ import org.aopalliance.intercept.MethodInvocation;
 
 /**
  * Basic remote invoker for EJBs.
- * "Creates" a new EJB instance for each invocation.
+ * "Creates" a new EJB instance for each invocation, unless
+ * sessionBeanPoolSize is set: Then EJB objects get reused.
+ * Pooled EJB objects that throw a RemoteException are discarded.
+ * If a pooled one throws NoSuchObjectException, the invocation
+ * is retried once with a newly created EJB object.
  *
  * @version $Revision$
  */
@@ -45,14 +51,32 @@ public class SimpleRemoteSlsbInvokerInterceptor extends AbstractRemoteSlsbInvoke
     /**
      * This is the last invoker in the chain
      *
-     * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
+     * @see AbstractRemoteSlsbInvokerInterceptor#invoke
      */
-    public Object invoke(MethodInvocation invocation) throws Throwable {
-        EJBObject ejb = newSessionBeanInstance();
+    protected Object doInvoke(MethodInvocation invocation) throws Throwable {
+        EJBObject ejb = (EJBObject) pollSessionBean();
+        if (ejb != null) {
+            try {
+                return invokeSessionBean(ejb, invocation);
+            } catch (NoSuchObjectException ex) {
+                // stale pooled EJB object: the invocation didn't reach an instance
+                logger.info("Discarding stale EJB object [" + ejb + "]: " + ex.getMessage());
+            }
+        }
+        return invokeSessionBean(newSessionBeanInstance(), invocation);
+    }
+
+    private Object invokeSessionBean(EJBObject ejb, MethodInvocation invocation) throws Throwable {
         try {
-            return invocation.getMethod().invoke(ejb, invocation.getArguments());
+            Object retVal = invocation.getMethod().invoke(ejb, invocation.getArguments());
+            releaseSessionBean(ejb);
+            return retVal;
         } catch (InvocationTargetException ex) {
             logger.warn(ex + " thrown invoking remote EJB method " + invocation.getMethod());
+            // discard EJB objects after remote exceptions
+            if (!(ex.getTargetException() instanceof RemoteException)) {
+                releaseSessionBean(ejb);
+            }
             throw ex.getTargetException();
         } catch (Throwable t) {
             throw new AspectException("Failed to invoke remote EJB", t);
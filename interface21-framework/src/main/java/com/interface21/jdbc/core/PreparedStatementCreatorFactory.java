@@ -8,7 +8,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -18,6 +18,10 @@ import com.interface21.dao.InvalidDataAccessApiUsageException;
  * Helper class that can efficiently create multiple
  * PreparedStatementCreator objects with different
  * parameters based on a SQL statement and a single set of parameter declarations.
+ * <p>
+ * <p>The parameter declarations are compiled into an array of SQL types and
+ * an array of setters, one per parameter, each specialized for its SQL type.
+ * Creators for single int or long parameters bind them without boxing.
  *
  * @author Rod Johnson
  * @version $Id$
@@ -82,6 +86,16 @@ public class PreparedStatementCreatorFactory {
      */
     private String sql;
 
+    /**
+     * SQL type of each declared parameter, as defined in java.sql.Types
+     */
+    private int[] sqlTypes;
+
+    /**
+     * ParameterSetter for each declared parameter
+     */
+    private ParameterSetter[] setters;
+
     //---------------------------------------------------------------------
     // Constructors
     //---------------------------------------------------------------------
@@ -113,6 +127,7 @@ public class PreparedStatementCreatorFactory {
     public PreparedStatementCreatorFactory(String sql, List declaredParameters) {
         this.sql = sql;
         this.declaredParameters = declaredParameters;
+        compileParameters();
     }
 
 
@@ -122,6 +137,22 @@ public class PreparedStatementCreatorFactory {
      */
     public void addParameter(SqlParameter p) {
         declaredParameters.add(p);
+        compileParameters();
+    }
+
+    /**
+     * Build the SQL type and setter arrays from the declared parameters.
+     */
+    private void compileParameters() {
+        int[] types = new int[declaredParameters.size()];
+        ParameterSetter[] parameterSetters = new ParameterSetter[types.length];
+        int i = 0;
+        for (Iterator it = declaredParameters.iterator(); it.hasNext(); i++) {
+            types[i] = ((SqlParameter) it.next()).getSqlType();
+            parameterSetters[i] = ParameterSetter.forSqlType(types[i]);
+        }
+        this.sqlTypes = types;
+        this.setters = parameterSetters;
     }
 
 
@@ -135,7 +166,7 @@ public class PreparedStatementCreatorFactory {
      * @param params parameter array. May be null.
      */
     public PreparedStatementCreator newPreparedStatementCreator(Object[] params) {
-        return new PreparedStatementCreatorImpl((params != null) ? Arrays.asList(params) : new LinkedList());
+        return new PreparedStatementCreatorImpl(params != null ? params : new Object[0]);
     }
 
     /**
@@ -144,7 +175,36 @@ public class PreparedStatementCreatorFactory {
      * @param params List of parameters. May be null.
      */
     public PreparedStatementCreator newPreparedStatementCreator(List params) {
-        return new PreparedStatementCreatorImpl(params != null ? params : new LinkedList());
+        return new PreparedStatementCreatorImpl(params != null ? params.toArray() : new Object[0]);
+    }
+
+    /**
+     * Return a new PreparedStatementCreator for a single int parameter.
+     * Binds it without boxing if declared as numeric SQL type.
+     */
+    public PreparedStatementCreator newPreparedStatementCreator(int p1) {
+        return new IntPreparedStatementCreator(1, p1, 0);
+    }
+
+    /**
+     * Return a new PreparedStatementCreator for two int parameters.
+     * Binds them without boxing if declared as numeric SQL types.
+     */
+    public PreparedStatementCreator newPreparedStatementCreator(int p1, int p2) {
+        return new IntPreparedStatementCreator(2, p1, p2);
+    }
+
+    /**
+     * Return a new PreparedStatementCreator for a single long parameter.
+     * Binds it without boxing if declared as BIGINT.
+     */
+    public PreparedStatementCreator newPreparedStatementCreator(long p1) {
+        return new LongPreparedStatementCreator(p1);
+    }
+
+    private void validateParameterCount(int count) throws InvalidDataAccessApiUsageException {
+        if (count != sqlTypes.length)
+            throw new InvalidDataAccessApiUsageException("SQL='" + sql + "': given " + count + " parameter but expected " + sqlTypes.length);
     }
 
 
@@ -156,41 +216,26 @@ public class PreparedStatementCreatorFactory {
      * PreparedStatementCreator implementation returned by this class
      */
     private class PreparedStatementCreatorImpl implements PreparedStatementCreator {
-        private List parameters;
+        private Object[] parameters;
 
         /**
-         * @param params list of SqlParameter objects. May not be null
+         * @param params array of parameter values. May not be null
          */
-        private PreparedStatementCreatorImpl(List params) {
+        private PreparedStatementCreatorImpl(Object[] params) {
             this.parameters = params;
-            if (parameters.size() != declaredParameters.size())
-                throw new InvalidDataAccessApiUsageException("SQL='" + sql + "': given " + parameters.size() + " parameter but expected " + declaredParameters.size());
+            validateParameterCount(parameters.length);
         }
 
         public PreparedStatement createPreparedStatement(Connection conn) throws SQLException {
             PreparedStatement ps = conn.prepareStatement(sql);
 
             // Set arguments: does nothing if there are no parameters
-            for (int i = 0; i < parameters.size(); i++) {
-                SqlParameter declaredParameter = (SqlParameter) PreparedStatementCreatorFactory.this.declaredParameters.get(i);
+            for (int i = 0; i < parameters.length; i++) {
                 // We need SQL type to be able to set null
-                if (parameters.get(i) == null) {
-                    ps.setNull(i + 1, declaredParameter.getSqlType());
+                if (parameters[i] == null) {
+                    ps.setNull(i + 1, sqlTypes[i]);
                 } else {
-                    // Documentation?
-
-                    // PARAMETERIZE THIS TO A TYPE MAP INTERFACE?
-                    switch (declaredParameter.getSqlType()) {
-                        case Types.VARCHAR:
-                            ps.setString(i + 1, (String) parameters.get(i));
-                            break;
-                        //case Types. :
-                        //	ps.setString(i + 1, (String) parameters.get(i));
-                        //	break;
-                        default:
-                            ps.setObject(i + 1, parameters.get(i), declaredParameter.getSqlType());
-                            break;
-                    }
+                    setters[i].setValue(ps, i + 1, parameters[i], sqlTypes[i]);
                 }
             }
             return ps;
@@ -202,13 +247,162 @@ public class PreparedStatementCreatorFactory {
 
         public String toString() {
             StringBuffer sbuf = new StringBuffer("PreparedStatementCreatorFactory.PreparedStatementCreatorImpl: sql={" + sql + "}: params={");
-            for (int i = 0; i < parameters.size(); i++) {
+            for (int i = 0; i < parameters.length; i++) {
                 if (i > 0)
                     sbuf.append(",");
-                sbuf.append(parameters.get(i));
+                sbuf.append(parameters[i]);
             }
             return sbuf.toString() + "}";
         }
     }
 
+
+    /**
+     * PreparedStatementCreator for one or two int parameters
+     */
+    private class IntPreparedStatementCreator implements PreparedStatementCreator {
+        private int count;
+
+        private int p1;
+
+        private int p2;
+
+        private IntPreparedStatementCreator(int count, int p1, int p2) {
+            validateParameterCount(count);
+            this.count = count;
+            this.p1 = p1;
+            this.p2 = p2;
+        }
+
+        public PreparedStatement createPreparedStatement(Connection conn) throws SQLException {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            setters[0].setInt(ps, 1, p1, sqlTypes[0]);
+            if (count > 1) {
+                setters[1].setInt(ps, 2, p2, sqlTypes[1]);
+            }
+            return ps;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String toString() {
+            return "PreparedStatementCreatorFactory.IntPreparedStatementCreator: sql={" + sql + "}: params={" +
+                    p1 + (count > 1 ? "," + p2 : "") + "}";
+        }
+    }
+
+
+    /**
+     * PreparedStatementCreator for a single long parameter
+     */
+    private class LongPreparedStatementCreator implements PreparedStatementCreator {
+        private long p1;
+
+        private LongPreparedStatementCreator(long p1) {
+            validateParameterCount(1);
+            this.p1 = p1;
+        }
+
+        public PreparedStatement createPreparedStatement(Connection conn) throws SQLException {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            setters[0].setLong(ps, 1, p1, sqlTypes[0]);
+            return ps;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String toString() {
+            return "PreparedStatementCreatorFactory.LongPreparedStatementCreator: sql={" + sql + "}: params={" + p1 + "}";
+        }
+    }
+
+
+    /**
+     * Binds a non-null parameter value to a PreparedStatement, using the
+     * most specific setter for the declared SQL type. Shared instances
+     * are stateless.
+     */
+    private static class ParameterSetter {
+
+        private static final ParameterSetter OBJECT = new ParameterSetter();
+
+        private static final ParameterSetter STRING = new ParameterSetter() {
+            public void setValue(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+                if (value instanceof String) {
+                    ps.setString(index, (String) value);
+                } else {
+                    super.setValue(ps, index, value, sqlType);
+                }
+            }
+        };
+
+        private static final ParameterSetter INT = new ParameterSetter() {
+            public void setValue(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+                if (value instanceof Integer) {
+                    ps.setInt(index, ((Integer) value).intValue());
+                } else {
+                    super.setValue(ps, index, value, sqlType);
+                }
+            }
+
+            public void setInt(PreparedStatement ps, int index, int value, int sqlType) throws SQLException {
+                ps.setInt(index, value);
+            }
+        };
+
+        private static final ParameterSetter LONG = new ParameterSetter() {
+            public void setValue(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+                if (value instanceof Long) {
+                    ps.setLong(index, ((Long) value).longValue());
+                } else {
+                    super.setValue(ps, index, value, sqlType);
+                }
+            }
+
+            public void setInt(PreparedStatement ps, int index, int value, int sqlType) throws SQLException {
+                ps.setLong(index, value);
+            }
+
+            public void setLong(PreparedStatement ps, int index, long value, int sqlType) throws SQLException {
+                ps.setLong(index, value);
+            }
+        };
+
+        /**
+         * Return the setter for the given SQL type, as defined in java.sql.Types
+         */
+        public static ParameterSetter forSqlType(int sqlType) {
+            switch (sqlType) {
+                case Types.VARCHAR:
+                case Types.CHAR:
+                case Types.LONGVARCHAR:
+                    return STRING;
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                    return INT;
+                case Types.BIGINT:
+                    return LONG;
+                default:
+                    return OBJECT;
+            }
+        }
+
+        public void setValue(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+            ps.setObject(index, value, sqlType);
+        }
+
+        public void setInt(PreparedStatement ps, int index, int value, int sqlType) throws SQLException {
+            setValue(ps, index, new Integer(value), sqlType);
+        }
+
+        public void setLong(PreparedStatement ps, int index, long value, int sqlType) throws SQLException {
+            setValue(ps, index, new Long(value), sqlType);
+        }
+    }
+
 }
\ No newline at end of file
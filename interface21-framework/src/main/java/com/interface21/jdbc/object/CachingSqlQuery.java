@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jdbc.object;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.interface21.beans.factory.InitializingBean;
+import com.interface21.dao.DataAccessException;
+import com.interface21.dao.InvalidDataAccessApiUsageException;
+
+/**
+ * Caching decorator for a SqlQuery, for reference data like lookup tables
+ * that is read often and changes rarely. Results are cached per SQL string
+ * and parameter values, in a bounded LRU map with an optional time to live,
+ * and returned as unmodifiable lists. The target query's mapRow() method
+ * is thus invoked once per cache miss, not once per execution.
+ * <p>
+ * <p>Concurrent misses for the same parameters cause a single execution
+ * of the target query; the other callers wait for its result.
+ * <p>
+ * <p>Cached results get discarded on invalidate(), or when the cache region
+ * gets invalidated, typically by a SqlUpdate declaring the same region.
+ * Note that invalidation happens when the update is executed, not when its
+ * transaction commits: A concurrent reader may still cache the old state.
+ * Use a time to live to bound the staleness in such scenarios.
+ * <p>
+ * <p>The execute methods taking a context map are not offered, as
+ * the context would need to be part of the cache key.
+ *
+ * @see QueryCacheRegion
+ * @see SqlUpdate#setCacheRegion
+ */
+public class CachingSqlQuery implements InitializingBean {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private SqlQuery query;
+
+    private int maxSize = 100;
+
+    private long timeToLive = 0;
+
+    private QueryCacheRegion cacheRegion;
+
+    /**
+     * CacheKey --> CacheEntry, in access order
+     */
+    private final Map cache = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Create a new CachingSqlQuery, for use as a bean.
+     * The query must be set before use.
+     */
+    public CachingSqlQuery() {
+    }
+
+    /**
+     * Create a new CachingSqlQuery for the given query.
+     *
+     * @param query the query whose results to cache
+     */
+    public CachingSqlQuery(SqlQuery query) {
+        this.query = query;
+    }
+
+    /**
+     * Set the query whose results to cache.
+     */
+    public void setQuery(SqlQuery query) {
+        this.query = query;
+    }
+
+    /**
+     * Return the query whose results are cached.
+     */
+    public SqlQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Set the maximum number of results to cache, one per distinct
+     * parameter values. The least recently used result gets evicted
+     * when the cache is full. Default is 100.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the maximum number of results to cache.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the time in milliseconds a result stays valid after execution
+     * of the query. Default is 0: until invalidated or evicted.
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Return the time in milliseconds a result stays valid.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Set the cache region whose invalidation discards the cached results.
+     * Default is none: only an explicit invalidate() discards them.
+     */
+    public void setCacheRegion(QueryCacheRegion cacheRegion) {
+        this.cacheRegion = cacheRegion;
+    }
+
+    /**
+     * Return the cache region of this query, if any.
+     */
+    public QueryCacheRegion getCacheRegion() {
+        return cacheRegion;
+    }
+
+    public void afterPropertiesSet() {
+        if (this.query == null) {
+            throw new IllegalArgumentException("query is required");
+        }
+        if (this.maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+    }
+
+
+    //-------------------------------------------------------------------------
+    // Execute methods, analogous to SqlQuery's
+    //-------------------------------------------------------------------------
+
+    /**
+     * Return the cached result for the given parameters, executing
+     * the query on a miss.
+     *
+     * @param parameters parameters, as to SqlQuery's execute(Object[]) method
+     * @return an unmodifiable list of objects, one per row of the ResultSet
+     * @see SqlQuery#execute(Object[])
+     */
+    public List execute(final Object[] parameters) throws DataAccessException {
+        CacheKey key = new CacheKey(this.query.getSql(), parameters);
+        long generation = (this.cacheRegion != null ? this.cacheRegion.getGeneration() : 0);
+        CacheEntry entry;
+        boolean miss = false;
+        synchronized (this.cache) {
+            entry = (CacheEntry) this.cache.get(key);
+            if (entry == null || !entry.isValid(generation)) {
+                entry = new CacheEntry(new FutureTask(new Callable() {
+                    public Object call() {
+                        return Collections.unmodifiableList(new ArrayList(query.execute(parameters)));
+                    }
+                }), generation);
+                this.cache.put(key, entry);
+                miss = true;
+            }
+        }
+        if (miss) {
+            this.missCount.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Cache miss for query [" + key + "]");
+            }
+            entry.result.run();
+        } else {
+            this.hitCount.incrementAndGet();
+        }
+        try {
+            return getResult(entry.result);
+        } catch (RuntimeException ex) {
+            synchronized (this.cache) {
+                if (this.cache.get(key) == entry) {
+                    this.cache.remove(key);
+                }
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Wait for the given result, even if interrupted, unwrapping the exception
+     * thrown by the query. Preserves the interrupt status.
+     */
+    private List getResult(FutureTask result) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return (List) result.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw (RuntimeException) ex.getCause();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Convenient method to execute without parameters
+     */
+    public List execute() throws DataAccessException {
+        return execute((Object[]) null);
+    }
+
+    /**
+     * Convenient method to execute with a single int parameter
+     */
+    public List execute(int p1) throws DataAccessException {
+        return execute(new Object[]{new Integer(p1)});
+    }
+
+    /**
+     * Convenient method to execute with two int parameters
+     */
+    public List execute(int p1, int p2) throws DataAccessException {
+        return execute(new Object[]{new Integer(p1), new Integer(p2)});
+    }
+
+    /**
+     * Convenient method to execute with a single long parameter
+     */
+    public List execute(long p1) throws DataAccessException {
+        return execute(new Object[]{new Long(p1)});
+    }
+
+    /**
+     * Convenient method to execute with a single String parameter
+     */
+    public List execute(String p1) throws DataAccessException {
+        return execute(new Object[]{p1});
+    }
+
+    /**
+     * Return the single cached object for the given parameters.
+     *
+     * @return null if not found
+     * @see SqlQuery#findObject(Object[])
+     */
+    public Object findObject(Object[] parameters) throws DataAccessException {
+        List l = execute(parameters);
+        if (l.size() == 0)
+            return null;
+        if (l.size() > 1)
+            throw new InvalidDataAccessApiUsageException("Result is not unique. Found " + l.size());
+        return l.get(0);
+    }
+
+    /**
+     * Convenience method to find a single object given a single int parameter
+     */
+    public Object findObject(int p1) throws DataAccessException {
+        return findObject(new Object[]{new Integer(p1)});
+    }
+
+    /**
+     * Convenience method to find a single object given a single long parameter
+     */
+    public Object findObject(long p1) throws DataAccessException {
+        return findObject(new Object[]{new Long(p1)});
+    }
+
+    /**
+     * Convenience method to find a single object given a single String parameter
+     */
+    public Object findObject(String p1) throws DataAccessException {
+        return findObject(new Object[]{p1});
+    }
+
+
+    //-------------------------------------------------------------------------
+    // Cache management and statistics
+    //-------------------------------------------------------------------------
+
+    /**
+     * Discard all cached results of this query.
+     * Doesn't affect other queries in the same cache region.
+     */
+    public void invalidate() {
+        synchronized (this.cache) {
+            this.cache.clear();
+        }
+        logger.info("Invalidated cached results of query [" + this.query.getSql() + "]");
+    }
+
+    /**
+     * Return the number of results currently cached,
+     * including expired ones not yet discarded.
+     */
+    public int getCacheSize() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    /**
+     * Return the number of executions answered from the cache.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Return the number of executions of the target query.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    public String toString() {
+        return "CachingSqlQuery for [" + this.query.getSql() + "]: " + getHitCount() + " hits, " +
+                getMissCount() + " misses";
+    }
+
+
+    /**
+     * Cache key: SQL string and parameter values.
+     */
+    private static class CacheKey {
+
+        private final String sql;
+
+        private final Object[] parameters;
+
+        private final int hashCode;
+
+        private CacheKey(String sql, Object[] parameters) {
+            this.sql = sql;
+            // copy, so that callers may reuse their parameter arrays
+            this.parameters = (parameters != null ? (Object[]) parameters.clone() : null);
+            this.hashCode = 29 * (sql != null ? sql.hashCode() : 0) + Arrays.hashCode(parameters);
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey otherKey = (CacheKey) other;
+            return (this.hashCode == otherKey.hashCode &&
+                    (this.sql != null ? this.sql.equals(otherKey.sql) : otherKey.sql == null) &&
+                    Arrays.equals(this.parameters, otherKey.parameters));
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public String toString() {
+            return this.sql + " with parameters " + (this.parameters != null ? Arrays.asList(this.parameters) : null);
+        }
+    }
+
+
+    /**
+     * Result of one execution, possibly still in progress.
+     */
+    private class CacheEntry {
+
+        private final FutureTask result;
+
+        private final long generation;
+
+        private final long creationTime = System.currentTimeMillis();
+
+        private CacheEntry(FutureTask result, long generation) {
+            this.result = result;
+            this.generation = generation;
+        }
+
+        private boolean isValid(long currentGeneration) {
+            return (this.generation == currentGeneration &&
+                    (timeToLive <= 0 || System.currentTimeMillis() - this.creationTime < timeToLive));
+        }
+    }
+
+}
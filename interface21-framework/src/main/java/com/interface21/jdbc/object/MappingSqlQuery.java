@@ -53,6 +53,16 @@ public abstract class MappingSqlQuery extends MappingSqlQueryWithParameters {
         super(ds, sql);
     }
 
+    /**
+     * Parameters are ignored, so the int and long execute methods
+     * don't need to create a parameter array.
+     *
+     * @see SqlQuery#isParameterArrayRequired
+     */
+    protected final boolean isParameterArrayRequired() {
+        return false;
+    }
+
     /**
      * This method is implemented to invoke the protected abstract
      * mapRow() method, ignoring parameters.
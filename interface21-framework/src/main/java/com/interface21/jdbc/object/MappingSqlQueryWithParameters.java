@@ -25,6 +25,7 @@ import java.util.Map;
 import javax.sql.DataSource;
 
 import com.interface21.jdbc.core.ResultReader;
+import com.interface21.jdbc.core.RowCallbackHandler;
 
 /**
  * Reusable RDBMS query in which concrete subclasses must
@@ -76,6 +77,22 @@ public abstract class MappingSqlQueryWithParameters extends SqlQuery {
         return new ResultReaderImpl(rowsExpected, parameters, context);
     }
 
+    /**
+     * Implementation of protected method, invoking the subclass's
+     * implementation of the mapRow() method and passing each
+     * mapped object to the given callback.
+     */
+    protected final RowCallbackHandler newRowCallbackHandler(final Object[] parameters, final Map context,
+                                                             final RowCallback callback) {
+        return new RowCallbackHandler() {
+            private int rowNum = 0;
+
+            public void processRow(ResultSet rs) throws SQLException {
+                callback.processRow(mapRow(rs, rowNum++, parameters, context));
+            }
+        };
+    }
+
     /**
      * Subclasses must implement this method to convert each row
      * of the ResultSet into an object of the result type.
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jdbc.object;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared invalidation point for CachingSqlQuery objects and the SqlUpdate
+ * objects modifying the data they cache: for example, all queries and updates
+ * on a lookup table. Define a region as a bean and pass it to both.
+ * <p>
+ * <p>Invalidating a region increments its generation; caching queries discard
+ * results loaded in an earlier generation on their next access. Thus regions
+ * don't need to keep track of the queries using them.
+ *
+ * @see CachingSqlQuery#setCacheRegion
+ * @see SqlUpdate#setCacheRegion
+ */
+public class QueryCacheRegion {
+
+    private String name;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a new QueryCacheRegion, for use as a bean.
+     */
+    public QueryCacheRegion() {
+    }
+
+    /**
+     * Create a new QueryCacheRegion with the given name.
+     */
+    public QueryCacheRegion(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Set the name of this region, for logging.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return the name of this region.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Invalidate the results of all queries using this region.
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Return the current generation, incremented on every invalidation.
+     */
+    public long getGeneration() {
+        return this.generation.get();
+    }
+
+    public String toString() {
+        return "QueryCacheRegion '" + this.name + "': generation " + getGeneration();
+    }
+
+}
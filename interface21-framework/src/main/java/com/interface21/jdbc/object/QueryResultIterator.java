@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jdbc.object;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.interface21.dao.DataAccessException;
+import com.interface21.jdbc.core.PreparedStatementCreator;
+import com.interface21.jdbc.core.ReadOnlyResultSet;
+import com.interface21.jdbc.core.RowCallbackHandler;
+import com.interface21.jdbc.core.SQLExceptionTranslater;
+import com.interface21.jdbc.datasource.DataSourceUtils;
+
+/**
+ * Lazy iterator over the objects mapped from the rows of a query,
+ * returned by SqlQuery's iterate methods. Each row is read and mapped
+ * when requested, so the objects don't need to fit into memory together.
+ * <p>
+ * <p>Holds the ResultSet, PreparedStatement and Connection open until it is
+ * exhausted or closed: Callers must invoke close() in a finally block if
+ * they might not iterate to the end. Uses the Connection bound to the
+ * current thread, if any, like JdbcTemplate; such a Connection is not
+ * closed by this iterator. Not thread-safe.
+ * <p>
+ * <p>SQLExceptions are translated into DataAccessExceptions, after which
+ * the iterator is closed.
+ *
+ * @see SqlQuery#iterate(Object[], java.util.Map)
+ */
+public class QueryResultIterator implements Iterator {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final DataSource dataSource;
+
+    private final SQLExceptionTranslater exceptionTranslater;
+
+    private final PreparedStatementCreator psc;
+
+    private RowCallbackHandler rowHandler;
+
+    private Connection con;
+
+    private PreparedStatement ps;
+
+    private ResultSet rs;
+
+    private ResultSet readOnlyResultSet;
+
+    private boolean closed;
+
+    private boolean hasCurrent;
+
+    private Object current;
+
+    /**
+     * Create a new QueryResultIterator, to be opened by the query.
+     */
+    QueryResultIterator(DataSource dataSource, SQLExceptionTranslater exceptionTranslater,
+                        PreparedStatementCreator psc) {
+        this.dataSource = dataSource;
+        this.exceptionTranslater = exceptionTranslater;
+        this.psc = psc;
+    }
+
+    /**
+     * Return the callback receiving the mapped object of the current row.
+     */
+    RowCallback getRowCallback() {
+        return new RowCallback() {
+            public void processRow(Object rowObject) {
+                current = rowObject;
+                hasCurrent = true;
+            }
+        };
+    }
+
+    /**
+     * Execute the query, using the given handler to map rows.
+     * The handler must pass mapped objects to the callback
+     * returned by getRowCallback(), at most one per row:
+     * Rows it doesn't pass an object for are skipped.
+     */
+    void open(RowCallbackHandler rowHandler) throws DataAccessException {
+        this.rowHandler = rowHandler;
+        this.con = DataSourceUtils.getConnection(this.dataSource);
+        try {
+            this.ps = this.psc.createPreparedStatement(this.con);
+            this.rs = this.ps.executeQuery();
+            this.readOnlyResultSet = new ReadOnlyResultSet(this.rs);
+        } catch (SQLException ex) {
+            throw translate("SqlQuery.iterate with PreparedStatementCreator [" + this.psc + "]", ex);
+        } catch (RuntimeException ex) {
+            closeAfterException();
+            throw ex;
+        } catch (Error err) {
+            closeAfterException();
+            throw err;
+        }
+    }
+
+    public boolean hasNext() throws DataAccessException {
+        try {
+            // read on until a row is mapped to an object, or the rows run out
+            while (!this.hasCurrent && !this.closed) {
+                if (this.rs.next()) {
+                    this.rowHandler.processRow(this.readOnlyResultSet);
+                } else {
+                    close();
+                }
+            }
+        } catch (SQLException ex) {
+            throw translate("SqlQuery.iterate reading row", ex);
+        } catch (RuntimeException ex) {
+            closeAfterException();
+            throw ex;
+        }
+        return this.hasCurrent;
+    }
+
+    public Object next() throws DataAccessException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more rows");
+        }
+        Object rowObject = this.current;
+        this.current = null;
+        this.hasCurrent = false;
+        return rowObject;
+    }
+
+    /**
+     * Not supported: the ResultSet is read-only.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("Cannot remove rows via QueryResultIterator");
+    }
+
+    /**
+     * Return whether this iterator has been closed,
+     * explicitly or because all rows were read.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close the ResultSet and PreparedStatement, and the Connection if not
+     * bound to the thread. Can be called multiple times. Each resource is
+     * closed even if closing the previous one failed.
+     *
+     * @throws DataAccessException if closing the ResultSet or PreparedStatement
+     *                             failed, translated from the first failure
+     */
+    public void close() throws DataAccessException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.hasCurrent = false;
+        this.current = null;
+        SQLException closeEx = null;
+        try {
+            try {
+                if (this.rs != null) {
+                    this.rs.close();
+                }
+            } catch (SQLException ex) {
+                closeEx = ex;
+            } finally {
+                this.rs = null;
+                try {
+                    if (this.ps != null) {
+                        this.ps.close();
+                    }
+                } catch (SQLException ex) {
+                    if (closeEx == null) {
+                        closeEx = ex;
+                    }
+                } finally {
+                    this.ps = null;
+                }
+            }
+        } finally {
+            DataSourceUtils.closeConnectionIfNecessary(this.con, this.dataSource);
+            this.con = null;
+        }
+        if (closeEx != null) {
+            throw this.exceptionTranslater.translate(
+                    "SqlQuery.iterate closing statement", this.psc.getSql(), closeEx);
+        }
+    }
+
+    /**
+     * Close this iterator, and translate the given exception.
+     */
+    private DataAccessException translate(String task, SQLException ex) {
+        closeAfterException();
+        return this.exceptionTranslater.translate(task, this.psc.getSql(), ex);
+    }
+
+    /**
+     * Close this iterator after an exception, logging rather than
+     * throwing a failure to close, so that the original exception wins.
+     */
+    private void closeAfterException() {
+        try {
+            close();
+        } catch (DataAccessException closeEx) {
+            logger.warn("Could not close QueryResultIterator after exception", closeEx);
+        }
+    }
+
+}
@@ -15,6 +15,7 @@
 
 package com.interface21.jdbc.object;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -59,7 +60,8 @@ public abstract class RdbmsOperation implements InitializingBean {
     private DataSource dataSource;
 
     /**
-     * List of SqlParameter objects
+     * List of SqlParameter objects. Switched to an ArrayList on compilation,
+     * for indexed access by the execute methods.
      */
     private List declaredParameters = new LinkedList();
 
@@ -196,6 +198,7 @@ public abstract class RdbmsOperation implements InitializingBean {
                 throw new InvalidDataAccessApiUsageException("Sql must be set in class " + getClass().getName());
             if (this.dataSource == null)
                 throw new InvalidDataAccessApiUsageException("DataSource must be set in class " + getClass().getName());
+            this.declaredParameters = new ArrayList(this.declaredParameters);
             // Invoke subclass compile
             compileInternal();
             this.compiled = true;
@@ -222,18 +225,26 @@ public abstract class RdbmsOperation implements InitializingBean {
      * @throws InvalidDataAccessApiUsageException if the parameters are invalid
      */
     protected final void validateParameters(Object[] parameters) throws InvalidDataAccessApiUsageException {
+        validateParameterCount(parameters != null ? parameters.length : 0);
+    }
+
+    /**
+     * Validate the number of parameters passed to an execute method based on
+     * declared parameters. For execute methods taking primitive parameters,
+     * which don't create a parameter array.
+     *
+     * @param count number of parameters supplied
+     * @throws InvalidDataAccessApiUsageException if the parameters are invalid
+     * @see #validateParameters
+     */
+    protected final void validateParameterCount(int count) throws InvalidDataAccessApiUsageException {
         if (!compiled)
             throw new InvalidDataAccessApiUsageException("SQL operation must be compiled before execution");
 
-        if (parameters != null) {
-            if (declaredParameters == null)
-                throw new InvalidDataAccessApiUsageException("Didn't expect any parameters: none was declared");
-            if (parameters.length != declaredParameters.size())
-                throw new InvalidDataAccessApiUsageException(parameters.length + " parameters were supplied, but none was declared in class " + getClass().getName());
-        } else {
-            // No parameters were supplied
-            if (!declaredParameters.isEmpty())
+        if (count != declaredParameters.size()) {
+            if (count == 0)
                 throw new InvalidDataAccessApiUsageException(declaredParameters.size() + " parameters must be supplied");
+            throw new InvalidDataAccessApiUsageException(count + " parameters were supplied, but " + declaredParameters.size() + " were declared in class " + getClass().getName());
         }
     }
 
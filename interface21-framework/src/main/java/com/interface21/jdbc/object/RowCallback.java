@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jdbc.object;
+
+/**
+ * Callback interface for streaming query results: receives the object
+ * mapped from each row as soon as it is mapped, instead of a List of
+ * all of them. Used with SqlQuery's execute methods taking a RowCallback.
+ *
+ * @see SqlQuery#execute(Object[], java.util.Map, RowCallback)
+ */
+public interface RowCallback {
+
+    /**
+     * Process the object mapped from the current row.
+     * Unchecked exceptions abort the query.
+     *
+     * @param rowObject the object mapped from the row
+     */
+    void processRow(Object rowObject);
+
+}
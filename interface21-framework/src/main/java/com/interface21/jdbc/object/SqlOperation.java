@@ -20,6 +20,8 @@ import com.interface21.jdbc.core.PreparedStatementCreator;
 import com.interface21.jdbc.util.JdbcUtils;
 import com.interface21.dao.InvalidDataAccessApiUsageException;
 import com.interface21.jdbc.core.PreparedStatementCreatorFactory;
+import com.interface21.jdbc.core.SQLExceptionTranslater;
+import com.interface21.jdbc.core.SQLExceptionTranslaterFactory;
 
 /**
  * RdbmsOperation using a JdbcTemplate and representing a SQL-based
@@ -44,6 +46,11 @@ public abstract class SqlOperation extends RdbmsOperation {
      */
     private PreparedStatementCreatorFactory preparedStatementFactory;
 
+    /**
+     * Translater for SQLExceptions thrown outside the JdbcTemplate
+     */
+    private SQLExceptionTranslater exceptionTranslater;
+
     /**
      * Create a new SqlOperation.
      */
@@ -57,6 +64,18 @@ public abstract class SqlOperation extends RdbmsOperation {
         return jdbcTemplate;
     }
 
+    /**
+     * Return the exception translater for SQLExceptions thrown
+     * outside the JdbcTemplate, like when iterating over query results.
+     * Creates a default one for the DataSource if none set.
+     */
+    protected synchronized SQLExceptionTranslater getExceptionTranslater() {
+        if (this.exceptionTranslater == null) {
+            this.exceptionTranslater = SQLExceptionTranslaterFactory.getInstance().getDefaultTranslater(getDataSource());
+        }
+        return this.exceptionTranslater;
+    }
+
     /**
      * Return a PreparedStatementCreator to perform an operation
      * with this parameters
@@ -67,6 +86,30 @@ public abstract class SqlOperation extends RdbmsOperation {
         return this.preparedStatementFactory.newPreparedStatementCreator(params);
     }
 
+    /**
+     * Return a PreparedStatementCreator to perform an operation
+     * with a single int parameter, without boxing it
+     */
+    protected final PreparedStatementCreator newPreparedStatementCreator(int p1) {
+        return this.preparedStatementFactory.newPreparedStatementCreator(p1);
+    }
+
+    /**
+     * Return a PreparedStatementCreator to perform an operation
+     * with two int parameters, without boxing them
+     */
+    protected final PreparedStatementCreator newPreparedStatementCreator(int p1, int p2) {
+        return this.preparedStatementFactory.newPreparedStatementCreator(p1, p2);
+    }
+
+    /**
+     * Return a PreparedStatementCreator to perform an operation
+     * with a single long parameter, without boxing it
+     */
+    protected final PreparedStatementCreator newPreparedStatementCreator(long p1) {
+        return this.preparedStatementFactory.newPreparedStatementCreator(p1);
+    }
+
     /**
      * Overriden method to configure the PreparedStatementCreatorFactory
      * based on our declared parameters.
@@ -15,6 +15,9 @@
 
 package com.interface21.jdbc.object;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 
@@ -22,7 +25,9 @@ import javax.sql.DataSource;
 
 import com.interface21.dao.DataAccessException;
 import com.interface21.dao.InvalidDataAccessApiUsageException;
+import com.interface21.jdbc.core.PreparedStatementCreator;
 import com.interface21.jdbc.core.ResultReader;
+import com.interface21.jdbc.core.RowCallbackHandler;
 
 /**
  * Reusable threadsafe object to represent a SQL query. Subclasses must
@@ -34,6 +39,13 @@ import com.interface21.jdbc.core.ResultReader;
  * can either rely on one of these inherited methods, or can add their own
  * custom execution methods, with meaningful names and typed parameters. Each
  * custom query method will invoke one of this class's untype query methods.
+ * <p>
+ * <p>The execute and findObject methods taking int or long parameters bind them
+ * without boxing, unless the result reader needs the parameter array.
+ * <p>
+ * <p>For large results, the execute methods taking a RowCallback and the
+ * iterate methods hand over each mapped object as soon as its row is read,
+ * instead of collecting all of them in a List.
  *
  * @author Rod Johnson
  * @author Jean-Pierre Pawlak
@@ -46,6 +58,16 @@ public abstract class SqlQuery extends SqlOperation {
      */
     private int rowsExpected;
 
+    /**
+     * JDBC fetch size hint. If 0, the driver's default.
+     */
+    private int fetchSize;
+
+    /**
+     * Maximum number of rows to read. If 0, unlimited.
+     */
+    private int maxRows;
+
 
     //-------------------------------------------------------------------------
     // Constructors
@@ -94,6 +116,41 @@ public abstract class SqlQuery extends SqlOperation {
         this.rowsExpected = rowsExpected;
     }
 
+    /**
+     * Set the number of rows the JDBC driver should fetch per round trip.
+     * Default is 0: the driver's default. Drivers reading the whole result
+     * by default need a fetch size to stream large results.
+     *
+     * @see java.sql.Statement#setFetchSize
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Return the number of rows to fetch per round trip.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Set the maximum number of rows to read; further rows are silently
+     * dropped by the driver. Default is 0: unlimited.
+     *
+     * @see java.sql.Statement#setMaxRows
+     */
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Return the maximum number of rows to read.
+     */
+    public int getMaxRows() {
+        return maxRows;
+    }
+
     //-------------------------------------------------------------------------
     // Execute methods
     //-------------------------------------------------------------------------
@@ -111,6 +168,37 @@ public abstract class SqlQuery extends SqlOperation {
      */
     protected abstract ResultReader newResultReader(int rowsExpected, Object[] parameters, Map context);
 
+    /**
+     * Return whether newResultReader() needs the parameters. If not, the execute
+     * and findObject methods taking int or long parameters pass null to it,
+     * binding the parameters without creating a parameter array.
+     * <p>This implementation returns true. Subclasses ignoring the parameters
+     * may override it.
+     *
+     * @see #newResultReader
+     */
+    protected boolean isParameterArrayRequired() {
+        return true;
+    }
+
+    /**
+     * Subclasses supporting streaming must implement this method to map each
+     * row and pass the result to the given callback, without keeping it.
+     * At most one object may be passed per row; rows may be skipped.
+     * This implementation throws InvalidDataAccessApiUsageException.
+     *
+     * @param parameters parameters to the execute() method, in case subclass is interested.
+     *                   May be null if there were no parameters.
+     * @param context    contextual information passed to the execute() method
+     * @param callback   the callback to pass each mapped object to
+     * @see #execute(Object[], Map, RowCallback)
+     * @see #iterate(Object[], Map)
+     */
+    protected RowCallbackHandler newRowCallbackHandler(Object[] parameters, Map context, RowCallback callback) {
+        throw new InvalidDataAccessApiUsageException("Streaming results is not supported by query class " +
+                getClass().getName());
+    }
+
     /**
      * All execution goes through this method
      *
@@ -125,12 +213,45 @@ public abstract class SqlQuery extends SqlOperation {
      */
     public final List execute(final Object[] parameters, Map context) throws DataAccessException {
         validateParameters(parameters);
+        return executeQuery(newPreparedStatementCreator(parameters), parameters, context);
+    }
 
+    private List executeQuery(PreparedStatementCreator psc, Object[] parameters, Map context) {
         ResultReader rr = newResultReader(this.rowsExpected, parameters, context);
-        getJdbcTemplate().query(newPreparedStatementCreator(parameters), rr);
+        getJdbcTemplate().query(applyStatementSettings(psc), rr);
         return rr.getResults();
     }
 
+    /**
+     * Apply fetch size and maximum rows, if set, to the statements
+     * created by the given creator.
+     */
+    private PreparedStatementCreator applyStatementSettings(final PreparedStatementCreator psc) {
+        if (this.fetchSize == 0 && this.maxRows == 0) {
+            return psc;
+        }
+        return new PreparedStatementCreator() {
+            public PreparedStatement createPreparedStatement(Connection conn) throws SQLException {
+                PreparedStatement ps = psc.createPreparedStatement(conn);
+                if (fetchSize != 0) {
+                    ps.setFetchSize(fetchSize);
+                }
+                if (maxRows != 0) {
+                    ps.setMaxRows(maxRows);
+                }
+                return ps;
+            }
+
+            public String getSql() {
+                return psc.getSql();
+            }
+
+            public String toString() {
+                return psc.toString();
+            }
+        };
+    }
+
     /**
      * Convenient method to execute without context
      *
@@ -139,8 +260,6 @@ public abstract class SqlQuery extends SqlOperation {
      *                   significant.
      */
     public final List execute(final Object[] parameters) throws DataAccessException {
-        validateParameters(parameters);
-
         return execute(parameters, null);
     }
 
@@ -167,7 +286,11 @@ public abstract class SqlQuery extends SqlOperation {
      * @param context The contextual information for object creation
      */
     public final List execute(int p1, Map context) throws DataAccessException {
-        return execute(new Object[]{new Integer(p1)}, context);
+        if (isParameterArrayRequired()) {
+            return execute(new Object[]{new Integer(p1)}, context);
+        }
+        validateParameterCount(1);
+        return executeQuery(newPreparedStatementCreator(p1), null, context);
     }
 
     /**
@@ -187,7 +310,11 @@ public abstract class SqlQuery extends SqlOperation {
      * @param context The contextual information for object creation
      */
     public final List execute(int p1, int p2, Map context) throws DataAccessException {
-        return execute(new Object[]{new Integer(p1), new Integer(p2)}, context);
+        if (isParameterArrayRequired()) {
+            return execute(new Object[]{new Integer(p1), new Integer(p2)}, context);
+        }
+        validateParameterCount(2);
+        return executeQuery(newPreparedStatementCreator(p1, p2), null, context);
     }
 
     /**
@@ -207,7 +334,11 @@ public abstract class SqlQuery extends SqlOperation {
      * @param context The contextual information for object creation
      */
     public final List execute(long p1, Map context) throws DataAccessException {
-        return execute(new Object[]{new Long(p1)}, context);
+        if (isParameterArrayRequired()) {
+            return execute(new Object[]{new Long(p1)}, context);
+        }
+        validateParameterCount(1);
+        return executeQuery(newPreparedStatementCreator(p1), null, context);
     }
 
     /**
@@ -238,6 +369,63 @@ public abstract class SqlQuery extends SqlOperation {
         return execute(p1, null);
     }
 
+    /**
+     * Execute the query, passing the object mapped from each row to the given
+     * callback as soon as it is read, instead of returning a List. Memory use
+     * thus doesn't grow with the number of rows.
+     *
+     * @param parameters parameters, as to the execute(Object[], Map) method
+     * @param context    contextual information for object creation
+     * @param callback   the callback to pass each mapped object to
+     * @throws InvalidDataAccessApiUsageException if this query doesn't support streaming
+     * @see #setFetchSize
+     */
+    public final void execute(Object[] parameters, Map context, RowCallback callback) throws DataAccessException {
+        validateParameters(parameters);
+        RowCallbackHandler rch = newRowCallbackHandler(parameters, context, callback);
+        getJdbcTemplate().query(applyStatementSettings(newPreparedStatementCreator(parameters)), rch);
+    }
+
+    /**
+     * Convenient method to stream results without parameters nor context
+     */
+    public final void execute(RowCallback callback) throws DataAccessException {
+        execute((Object[]) null, null, callback);
+    }
+
+    /**
+     * Execute the query, returning a lazy iterator over the objects mapped
+     * from the rows. The iterator holds a Connection, the thread-bound one if
+     * any, until exhausted or closed: Call close() in a finally block.
+     *
+     * @param parameters parameters, as to the execute(Object[], Map) method
+     * @param context    contextual information for object creation
+     * @return the iterator over the mapped objects
+     * @throws InvalidDataAccessApiUsageException if this query doesn't support streaming
+     * @see QueryResultIterator#close
+     */
+    public final QueryResultIterator iterate(Object[] parameters, Map context) throws DataAccessException {
+        validateParameters(parameters);
+        QueryResultIterator it = new QueryResultIterator(getDataSource(), getExceptionTranslater(),
+                applyStatementSettings(newPreparedStatementCreator(parameters)));
+        it.open(newRowCallbackHandler(parameters, context, it.getRowCallback()));
+        return it;
+    }
+
+    /**
+     * Convenient method to iterate without context
+     */
+    public final QueryResultIterator iterate(Object[] parameters) throws DataAccessException {
+        return iterate(parameters, null);
+    }
+
+    /**
+     * Convenient method to iterate without parameters nor context
+     */
+    public final QueryResultIterator iterate() throws DataAccessException {
+        return iterate(null, null);
+    }
+
     /**
      * Generic findObject method, used by all other findObject() methods.
      * findObject() methods are like EJB entity bean finders, in that it is
@@ -247,7 +435,10 @@ public abstract class SqlQuery extends SqlOperation {
      * as an error and throw an exception.
      */
     public final Object findObject(Object[] parameters, Map context) throws DataAccessException {
-        List l = execute(parameters, context);
+        return uniqueResult(execute(parameters, context));
+    }
+
+    private Object uniqueResult(List l) throws InvalidDataAccessApiUsageException {
         if (l.size() == 0)
             return null;
         if (l.size() > 1)
@@ -266,7 +457,7 @@ public abstract class SqlQuery extends SqlOperation {
      * Convenience method to find a single object given a single int parameter and a context
      */
     public final Object findObject(int p1, Map context) throws DataAccessException {
-        return findObject(new Object[]{new Integer(p1)}, context);
+        return uniqueResult(execute(p1, context));
     }
 
     /**
@@ -280,7 +471,7 @@ public abstract class SqlQuery extends SqlOperation {
      * Convenience method to find a single object given two int parameters and a context
      */
     public final Object findObject(int p1, int p2, Map context) throws DataAccessException {
-        return findObject(new Object[]{new Integer(p1), new Integer(p2)}, context);
+        return uniqueResult(execute(p1, p2, context));
     }
 
     /**
@@ -308,7 +499,7 @@ public abstract class SqlQuery extends SqlOperation {
      * Convenience method to find a single object given a single long parameter and a context
      */
     public final Object findObject(long p1, Map context) throws DataAccessException {
-        return findObject(new Object[]{new Long(p1)}, context);
+        return uniqueResult(execute(p1, context));
     }
 
     /**
@@ -18,6 +18,7 @@ package com.interface21.jdbc.object;
 import javax.sql.DataSource;
 
 import com.interface21.jdbc.core.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import com.interface21.jdbc.core.PreparedStatementCreator;
 import com.interface21.dao.InvalidDataAccessApiUsageException;
 
 /**
@@ -49,6 +50,11 @@ public class SqlUpdate extends SqlOperation {
      */
     private int requiredRowsAffected;
 
+    /**
+     * Region of the cached queries to invalidate on updates
+     */
+    private QueryCacheRegion cacheRegion;
+
 
     /**
      * Constructor to allow use as a JavaBean. DataSource,
@@ -127,6 +133,26 @@ public class SqlUpdate extends SqlOperation {
     }
 
 
+    /**
+     * Set the cache region to invalidate when this update affects rows,
+     * discarding the results of the CachingSqlQuery objects in that region.
+     *
+     * @param cacheRegion the region shared with the caching queries
+     *                    reading the data this update modifies
+     * @see CachingSqlQuery#setCacheRegion
+     */
+    public void setCacheRegion(QueryCacheRegion cacheRegion) {
+        this.cacheRegion = cacheRegion;
+    }
+
+    /**
+     * Return the cache region invalidated by this update, if any.
+     */
+    public QueryCacheRegion getCacheRegion() {
+        return cacheRegion;
+    }
+
+
     /**
      * Generic method to execute the update given arguments.
      * All other update() methods invoke this method.
@@ -136,9 +162,18 @@ public class SqlUpdate extends SqlOperation {
      */
     public int update(Object[] args) throws InvalidDataAccessApiUsageException {
         validateParameters(args);
+        return doUpdate(newPreparedStatementCreator(args));
+    }
 
-        //PreparedStatementCreator psc = new DefaultPreparedStatementCreator(getSql(), getDeclaredParameters(), args);
-        int rowsAffected = getJdbcTemplate().update(newPreparedStatementCreator(args));
+    /**
+     * Execute the update with the given PreparedStatementCreator,
+     * checking the number of rows affected.
+     */
+    private int doUpdate(PreparedStatementCreator psc) {
+        int rowsAffected = getJdbcTemplate().update(psc);
+        if (cacheRegion != null && rowsAffected > 0) {
+            cacheRegion.invalidate();
+        }
         logger.debug("Executing update statement: " + getSql());
 
         if (maxRowsAffected != 0 && rowsAffected > maxRowsAffected) {
@@ -161,16 +196,20 @@ public class SqlUpdate extends SqlOperation {
 
     /**
      * Convenient method to execute an update given one int arg.
+     * Binds it without boxing.
      */
     public int update(int p1) {
-        return update(new Object[]{new Integer(p1)});
+        validateParameterCount(1);
+        return doUpdate(newPreparedStatementCreator(p1));
     }
 
     /**
      * Convenient method to execute an update given two int args.
+     * Binds them without boxing.
      */
     public int update(int p1, int p2) {
-        return update(new Object[]{new Integer(p1), new Integer(p2)});
+        validateParameterCount(2);
+        return doUpdate(newPreparedStatementCreator(p1, p2));
     }
 
     /**
@@ -9,6 +9,11 @@
 
 package com.interface21.jndi;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
 import javax.naming.NamingException;
 
 import org.apache.commons.logging.Log;
@@ -26,6 +31,14 @@ import com.interface21.beans.factory.InitializingBean;
  * of the JNDI lookup. They don't need to worry about error handling.
  * <p>
  * <p><b>Assumptions: </b>The resource obtained from JNDI can be cached.
+ * <p>
+ * <p>By default, the lookup happens once, in afterPropertiesSet. Setting
+ * lookupOnStartup to false defers it to the first lookupIfNecessary call,
+ * and a timeToLive makes lookupIfNecessary repeat the lookup once the
+ * cached object has expired. Subclasses can force a new lookup via refresh,
+ * e.g. after a failure caused by a stale object. Concurrent callers share
+ * a single lookup while one is in progress; located gets called again
+ * with the new object.
  *
  * @author Rod Johnson
  * @version $Id$
@@ -45,6 +58,20 @@ public abstract class AbstractJndiLocator implements InitializingBean {
 
     private boolean inContainer = true;
 
+    private boolean lookupOnStartup = true;
+
+    private long timeToLive = 0;
+
+    /**
+     * Time of the last successful lookup, or -1 if none yet
+     */
+    private volatile long lookupTime = -1;
+
+    /**
+     * Lookup in progress, or null if none
+     */
+    private final AtomicReference pendingLookup = new AtomicReference();
+
     /**
      * Create a new JNDI locator. The jndiName property must be set,
      * and afterPropertiesSet be called to perform the JNDI lookup.
@@ -114,6 +141,42 @@ public abstract class AbstractJndiLocator implements InitializingBean {
         return inContainer;
     }
 
+    /**
+     * Set if the JNDI lookup should happen in afterPropertiesSet.
+     * Default is true. Turn this off to look up the object on first use,
+     * e.g. if the JNDI server might not be available on startup.
+     *
+     * @see #lookupIfNecessary
+     */
+    public final void setLookupOnStartup(boolean lookupOnStartup) {
+        this.lookupOnStartup = lookupOnStartup;
+    }
+
+    /**
+     * Return if the JNDI lookup happens in afterPropertiesSet.
+     */
+    public final boolean isLookupOnStartup() {
+        return lookupOnStartup;
+    }
+
+    /**
+     * Set the number of milliseconds that the looked up object may be cached,
+     * after which lookupIfNecessary repeats the lookup. Default is 0:
+     * cache the object forever.
+     *
+     * @see #lookupIfNecessary
+     */
+    public final void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Return the number of milliseconds that the looked up object may be cached.
+     */
+    public final long getTimeToLive() {
+        return timeToLive;
+    }
+
     public final void afterPropertiesSet() throws NamingException, IllegalArgumentException {
         if (this.jndiName == null || this.jndiName.equals("")) {
             throw new IllegalArgumentException("Property 'jndiName' must be set on " + getClass().getName());
@@ -121,8 +184,80 @@ public abstract class AbstractJndiLocator implements InitializingBean {
         if (this.inContainer && !this.jndiName.startsWith(CONTAINER_PREFIX)) {
             this.jndiName = CONTAINER_PREFIX + this.jndiName;
         }
-        Object o = lookup(this.jndiName);
-        located(o);
+        if (this.lookupOnStartup) {
+            refresh();
+        }
+    }
+
+    /**
+     * Look up the object if this hasn't happened yet,
+     * or if the cached object has outlived the timeToLive.
+     * Subclasses should call this before using the cached object
+     * if lookupOnStartup or timeToLive may be customized.
+     *
+     * @throws NamingException if the lookup failed
+     * @see #setLookupOnStartup
+     * @see #setTimeToLive
+     */
+    protected final void lookupIfNecessary() throws NamingException {
+        long lastLookup = this.lookupTime;
+        if (lastLookup == -1 ||
+                (this.timeToLive > 0 && System.currentTimeMillis() - lastLookup >= this.timeToLive)) {
+            refresh();
+        }
+    }
+
+    /**
+     * Look up the object again and pass it to located.
+     * If another thread is already performing a lookup,
+     * wait for that one instead of starting a new one.
+     *
+     * @throws NamingException if the lookup failed
+     */
+    protected final void refresh() throws NamingException {
+        FutureTask task = new FutureTask(new Callable() {
+            public Object call() throws NamingException {
+                if (lookupTime != -1 && jndiTemplate instanceof CachingJndiTemplate) {
+                    // don't get the stale object back from the lookup cache
+                    ((CachingJndiTemplate) jndiTemplate).evict(jndiName);
+                }
+                Object o = lookup(jndiName);
+                located(o);
+                lookupTime = System.currentTimeMillis();
+                return o;
+            }
+        });
+        FutureTask lookup = (FutureTask) this.pendingLookup.get();
+        while (lookup == null) {
+            if (this.pendingLookup.compareAndSet(null, task)) {
+                lookup = task;
+                try {
+                    task.run();
+                } finally {
+                    this.pendingLookup.compareAndSet(task, null);
+                }
+            } else {
+                lookup = (FutureTask) this.pendingLookup.get();
+            }
+        }
+        try {
+            lookup.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new NamingException("Interrupted while waiting for lookup of JNDI object with name '" + jndiName + "'");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof NamingException) {
+                throw (NamingException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Unexpected exception looking up JNDI object: " + cause);
+        }
     }
 
     private Object lookup(String jndiName) throws NamingException {
@@ -133,7 +268,7 @@ public abstract class AbstractJndiLocator implements InitializingBean {
 
     /**
      * Subclasses must implement this to cache the object this class has obtained
-     * from JNDI.
+     * from JNDI. Called again whenever the object has been looked up anew.
      *
      * @param o object successfully retrieved from JNDI
      */
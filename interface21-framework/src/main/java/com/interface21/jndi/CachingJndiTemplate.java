@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jndi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.naming.Context;
+import javax.naming.NameAlreadyBoundException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+
+import com.interface21.beans.factory.DisposableBean;
+
+/**
+ * JndiTemplate variant that reuses JNDI contexts and caches lookup results.
+ * <p>
+ * <p>Instead of creating and closing an InitialContext for each operation,
+ * contexts are kept in a bounded pool: see contextPoolSize. A context that
+ * failed with anything else than a missing or already bound name gets closed
+ * rather than reused.
+ * <p>
+ * <p>Looked up objects can be cached by name, which is only suitable for
+ * entries that don't change, like java:comp/env entries. Caching is opt-in:
+ * Only names starting with one of the cachedNamePrefixes are cached, and
+ * there are none by default. The cache holds at most maxCacheSize entries,
+ * evicting the least recently used one if full. Cache entries are evicted
+ * on bind, rebind and unbind via this template, and can be evicted
+ * explicitly via evict and clear.
+ *
+ * @see #setContextPoolSize
+ * @see #setCachedNamePrefixes
+ * @see #setMaxCacheSize
+ */
+public class CachingJndiTemplate extends JndiTemplate implements DisposableBean {
+
+    public static final int DEFAULT_CONTEXT_POOL_SIZE = 4;
+
+    public static final int DEFAULT_MAX_CACHE_SIZE = 256;
+
+    /**
+     * JNDI name --> looked up object, in access order.
+     * Guarded by synchronization on the map itself.
+     */
+    private final Map lookupCache = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > maxCacheSize;
+        }
+    };
+
+    /**
+     * Incremented on each change of bindings via this template,
+     * so that lookups racing with it don't cache the old object.
+     * Guarded by synchronization on the lookup cache.
+     */
+    private long bindingGeneration;
+
+    private volatile int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+    private volatile BlockingQueue contextPool = new ArrayBlockingQueue(DEFAULT_CONTEXT_POOL_SIZE);
+
+    private String[] cachedNamePrefixes;
+
+    /**
+     * Create a new CachingJndiTemplate instance.
+     */
+    public CachingJndiTemplate() {
+    }
+
+    /**
+     * Create a new CachingJndiTemplate instance, using the given environment.
+     */
+    public CachingJndiTemplate(Properties environment) {
+        super(environment);
+    }
+
+    /**
+     * Set the environment for the InitialContext.
+     * Closes pooled contexts and clears the lookup cache.
+     */
+    public void setEnvironment(Properties environment) {
+        super.setEnvironment(environment);
+        closeContexts();
+        clear();
+    }
+
+    /**
+     * Set the maximum number of idle contexts to keep for reuse.
+     * Default is 4. A value of 0 closes each context after use,
+     * like a plain JndiTemplate.
+     */
+    public void setContextPoolSize(int contextPoolSize) {
+        BlockingQueue oldPool = this.contextPool;
+        this.contextPool = (contextPoolSize > 0 ? new ArrayBlockingQueue(contextPoolSize) : null);
+        closeContexts(oldPool);
+    }
+
+    /**
+     * Return the maximum number of idle contexts kept for reuse.
+     */
+    public int getContextPoolSize() {
+        BlockingQueue pool = this.contextPool;
+        return (pool != null ? pool.size() + pool.remainingCapacity() : 0);
+    }
+
+    /**
+     * Set the prefixes of JNDI names whose lookup results may be cached,
+     * e.g. "java:comp/env/". Default is null: don't cache any lookups.
+     */
+    public void setCachedNamePrefixes(String[] cachedNamePrefixes) {
+        this.cachedNamePrefixes = cachedNamePrefixes;
+    }
+
+    /**
+     * Return the prefixes of JNDI names whose lookup results may be cached.
+     */
+    public String[] getCachedNamePrefixes() {
+        return cachedNamePrefixes;
+    }
+
+    /**
+     * Set the maximum number of cached lookup results.
+     * Default is DEFAULT_MAX_CACHE_SIZE.
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Return the maximum number of cached lookup results.
+     */
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Lookup the object with the given name, returning a cached
+     * result if available.
+     *
+     * @see JndiTemplate#lookup
+     */
+    public Object lookup(String name) throws NamingException {
+        if (!isCacheable(name)) {
+            return super.lookup(name);
+        }
+        long generation;
+        synchronized (this.lookupCache) {
+            Object cached = this.lookupCache.get(name);
+            if (cached != null) {
+                return cached;
+            }
+            generation = this.bindingGeneration;
+        }
+        Object lookedUp = super.lookup(name);
+        synchronized (this.lookupCache) {
+            // don't cache a result that a concurrent bind might have made stale
+            if (generation == this.bindingGeneration) {
+                this.lookupCache.put(name, lookedUp);
+            }
+        }
+        return lookedUp;
+    }
+
+    /**
+     * Bind the given object, evicting any cached lookup result for the name.
+     *
+     * @see JndiTemplate#bind
+     */
+    public void bind(String name, Object object) throws NamingException {
+        try {
+            super.bind(name, object);
+        } finally {
+            evict(name);
+        }
+    }
+
+    /**
+     * Rebind the given object, evicting any cached lookup result for the name.
+     *
+     * @see JndiTemplate#rebind
+     */
+    public void rebind(String name, Object object) throws NamingException {
+        try {
+            super.rebind(name, object);
+        } finally {
+            evict(name);
+        }
+    }
+
+    /**
+     * Remove the binding, evicting any cached lookup result for the name.
+     *
+     * @see JndiTemplate#unbind
+     */
+    public void unbind(String name) throws NamingException {
+        try {
+            super.unbind(name);
+        } finally {
+            evict(name);
+        }
+    }
+
+    /**
+     * Evict the cached lookup result for the given name, if any.
+     * Lookups in progress won't cache their result.
+     *
+     * @param name the JNDI name
+     */
+    public void evict(String name) {
+        synchronized (this.lookupCache) {
+            this.bindingGeneration++;
+            this.lookupCache.remove(name);
+        }
+    }
+
+    /**
+     * Evict all cached lookup results.
+     * Lookups in progress won't cache their result.
+     */
+    public void clear() {
+        synchronized (this.lookupCache) {
+            this.bindingGeneration++;
+            this.lookupCache.clear();
+        }
+    }
+
+    /**
+     * Return the number of cached lookup results.
+     */
+    public int getCacheSize() {
+        synchronized (this.lookupCache) {
+            return this.lookupCache.size();
+        }
+    }
+
+    /**
+     * Determine if the lookup result for the given name may be cached.
+     * The default implementation checks the cachedNamePrefixes.
+     *
+     * @param name the JNDI name
+     */
+    protected boolean isCacheable(String name) {
+        if (this.cachedNamePrefixes == null) {
+            return false;
+        }
+        for (int i = 0; i < this.cachedNamePrefixes.length; i++) {
+            if (name.startsWith(this.cachedNamePrefixes[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Execute the given callback implementation with a pooled context,
+     * creating a new one if none is available.
+     *
+     * @param contextCallback ContextCallback implementation
+     * @return a result object returned by the callback, or null
+     * @throws NamingException thrown by the callback implementation.
+     */
+    public Object execute(ContextCallback contextCallback) throws NamingException {
+        BlockingQueue pool = this.contextPool;
+        Context ctx = (pool != null ? (Context) pool.poll() : null);
+        if (ctx == null) {
+            ctx = createInitialContext();
+        }
+        boolean reusable = false;
+        try {
+            Object result = contextCallback.doInContext(ctx);
+            reusable = true;
+            return result;
+        } catch (NameNotFoundException ex) {
+            reusable = true;
+            throw ex;
+        } catch (NameAlreadyBoundException ex) {
+            reusable = true;
+            throw ex;
+        } finally {
+            if (!reusable || pool == null || pool != this.contextPool || !pool.offer(ctx)) {
+                closeContext(ctx);
+            }
+        }
+    }
+
+    /**
+     * Close all pooled contexts.
+     */
+    public void destroy() {
+        closeContexts();
+    }
+
+    private void closeContexts() {
+        closeContexts(this.contextPool);
+    }
+
+    private void closeContexts(BlockingQueue pool) {
+        if (pool != null) {
+            Context ctx;
+            while ((ctx = (Context) pool.poll()) != null) {
+                closeContext(ctx);
+            }
+        }
+    }
+
+    private void closeContext(Context ctx) {
+        try {
+            ctx.close();
+        } catch (NamingException ex) {
+            logger.warn("InitialContext threw exception on close", ex);
+        }
+    }
+
+}
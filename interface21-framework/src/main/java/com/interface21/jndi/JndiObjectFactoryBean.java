@@ -4,6 +4,9 @@
 
 package com.interface21.jndi;
 
+import javax.naming.NamingException;
+
+import com.interface21.beans.FatalBeanException;
 import com.interface21.beans.PropertyValues;
 import com.interface21.beans.factory.FactoryBean;
 import com.interface21.jdbc.core.JdbcTemplate;
@@ -23,6 +26,10 @@ import com.interface21.jdbc.core.JdbcTemplate;
  * JNDI themselves, but this class enables central configuration of the
  * JNDI name, and easy switching to non-JNDI replacements. The latter can
  * be used for test setups, standalone clients, etc.
+ * <p>
+ * <p>With lookupOnStartup turned off or a timeToLive set, the JNDI object
+ * gets looked up on access to the bean, so that references should be
+ * obtained via the factory each time rather than held on to.
  *
  * @author Juergen Hoeller
  * @see JdbcTemplate#setDataSource
@@ -37,9 +44,16 @@ public class JndiObjectFactoryBean extends AbstractJndiLocator implements Factor
     }
 
     /**
-     * Return the singleton JNDI object.
+     * Return the JNDI object, looking it up first if necessary.
+     *
+     * @see #lookupIfNecessary
      */
     public Object getObject() {
+        try {
+            lookupIfNecessary();
+        } catch (NamingException ex) {
+            throw new FatalBeanException("Could not look up JNDI object with name '" + getJndiName() + "'", ex);
+        }
         return this.jndiObject;
     }
 
@@ -107,6 +107,24 @@ public class JndiTemplate {
         });
     }
 
+    /**
+     * Rebind the given object to the current JNDI context, using the given name.
+     * Overwrites any existing binding.
+     *
+     * @param name   JNDI name of the object
+     * @param object object to rebind
+     * @throws NamingException thrown by JNDI
+     */
+    public void rebind(final String name, final Object object) throws NamingException {
+        execute(new ContextCallback() {
+            public Object doInContext(Context ctx) throws NamingException {
+                logger.info("Rebinding JNDI object with name " + name);
+                ctx.rebind(name, object);
+                return null;
+            }
+        });
+    }
+
     /**
      * Remove the binding for the given name from the current JNDI context.
      *
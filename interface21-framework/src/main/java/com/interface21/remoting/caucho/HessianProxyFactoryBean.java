@@ -4,13 +4,19 @@
 
 package com.interface21.remoting.caucho;
 
+import java.io.IOException;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
 
 import com.caucho.hessian.client.HessianProxyFactory;
 import com.caucho.hessian.client.HessianRuntimeException;
 import com.interface21.aop.framework.ProxyFactory;
 import com.interface21.remoting.support.AuthorizableRemoteProxyFactoryBean;
+import com.interface21.remoting.support.BufferedHttpURLConnection;
+import com.interface21.remoting.support.RemoteStreamUtils;
 import org.aopalliance.intercept.MethodInvocation;
 import org.aopalliance.intercept.MethodInterceptor;
 
@@ -28,6 +34,11 @@ import com.interface21.remoting.RemoteAccessException;
  * <p>
  * <p>Note: Hessian services accessed with this proxy factory do not have to be
  * exported via HessianServiceExporter, as there isn't any special handling involved.
+ * <p>
+ * <p>Requests are buffered, to send them with an exact Content-Length where
+ * possible, and compressed responses are accepted. Requests get compressed
+ * if a compressionThreshold is set: only use this for servers that decode
+ * compressed requests, like HessianServiceExporter.
  *
  * @author Juergen Hoeller
  * @see HessianServiceExporter
@@ -35,8 +46,36 @@ import com.interface21.remoting.RemoteAccessException;
  */
 public class HessianProxyFactoryBean extends AuthorizableRemoteProxyFactoryBean {
 
+    private int bufferSize = RemoteStreamUtils.DEFAULT_BUFFER_SIZE;
+
+    private int compressionThreshold = -1;
+
+    /**
+     * Set the size of the request buffer. Default is 64 KB.
+     * Requests up to that size are sent with an exact Content-Length.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Set the minimum request size in bytes for gzip compression.
+     * Default is -1: never compress requests.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
     protected Object createProxy() throws MalformedURLException {
-        HessianProxyFactory proxyFactory = new HessianProxyFactory();
+        HessianProxyFactory proxyFactory = new HessianProxyFactory() {
+            protected URLConnection openConnection(URL url) throws IOException {
+                URLConnection con = super.openConnection(url);
+                if (con instanceof HttpURLConnection) {
+                    return new BufferedHttpURLConnection((HttpURLConnection) con, bufferSize, compressionThreshold);
+                }
+                return con;
+            }
+        };
         proxyFactory.setUser(getUsername());
         proxyFactory.setPassword(getPassword());
         Object source = proxyFactory.create(getServiceInterface(), getServiceUrl());
@@ -5,6 +5,7 @@
 package com.interface21.remoting.caucho;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -14,6 +15,8 @@ import com.caucho.hessian.io.HessianInput;
 import com.caucho.hessian.io.HessianOutput;
 import com.caucho.hessian.server.HessianSkeleton;
 
+import com.interface21.remoting.support.BufferedContentOutputStream;
+import com.interface21.remoting.support.RemoteStreamUtils;
 import com.interface21.web.servlet.ModelAndView;
 import com.interface21.web.servlet.mvc.Controller;
 
@@ -27,6 +30,12 @@ import com.interface21.web.servlet.mvc.Controller;
  * <p>
  * <p>Note: Hessian services exported with this class can be accessed by
  * any Hessian client, as there isn't any special handling involved.
+ * <p>
+ * <p>Requests and responses are buffered. Responses that fit into the
+ * buffer are sent with an exact Content-Length, larger ones are streamed.
+ * If a compressionThreshold is set, responses of at least that size get
+ * compressed for clients that accept gzip or deflate encoding, like
+ * HessianProxyFactoryBean. Compressed requests are decoded in any case.
  *
  * @author Juergen Hoeller
  * @see HessianProxyFactoryBean
@@ -36,6 +45,10 @@ public class HessianServiceExporter implements Controller {
 
     private HessianSkeleton skeleton;
 
+    private int bufferSize = RemoteStreamUtils.DEFAULT_BUFFER_SIZE;
+
+    private int compressionThreshold = -1;
+
     /**
      * Set the service to export via Hessian.
      * Typically populated via a bean reference.
@@ -44,16 +57,37 @@ public class HessianServiceExporter implements Controller {
         this.skeleton = new HessianSkeleton(service);
     }
 
+    /**
+     * Set the size of the buffers for requests and responses.
+     * Default is 64 KB. Responses up to that size are sent with
+     * an exact Content-Length.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Set the minimum response size in bytes for compression, if accepted
+     * by the client. Default is -1: never compress responses.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
     /**
      * Process the incoming Hessian request and create a Hessian response.
      */
     public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        HessianInput in = new HessianInput(request.getInputStream());
-        HessianOutput out = new HessianOutput(response.getOutputStream());
+        InputStream is = RemoteStreamUtils.getRequestInputStream(request, this.bufferSize);
+        BufferedContentOutputStream os = RemoteStreamUtils.getResponseOutputStream(
+                request, response, this.bufferSize, this.compressionThreshold);
         try {
-            this.skeleton.invoke(in, out);
+            this.skeleton.invoke(new HessianInput(is), new HessianOutput(os));
+            os.close();
         } catch (Throwable e) {
             throw new ServletException(e);
+        } finally {
+            os.discard();
         }
         return null;
     }
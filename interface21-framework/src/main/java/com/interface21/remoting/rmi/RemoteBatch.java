@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces calls on RMI proxies into one round trip per remote object.
+ * Calls made within the execute callback, on the current thread, are
+ * recorded instead of performed; they are sent as a batch when the
+ * callback returns. Results come back in the order of the calls:
+ * <p>
+ * <pre>
+ * List results = RemoteBatch.execute(new RemoteBatchCallback() {
+ *     public void doInBatch() {
+ *         service.setName("name");
+ *         service.getAge();
+ *     }
+ * });
+ * int age = ((Integer) ((RemoteInvocationResult) results.get(1)).getValue()).intValue();</pre>
+ * <p>
+ * <p>Only calls that don't depend on each other's results can be batched.
+ * Servers that don't support batches, i.e. of older versions of this
+ * framework, receive the calls one by one.
+ *
+ * @see RmiProxyFactoryBean
+ * @see RemoteInvocationResult
+ */
+public final class RemoteBatch {
+
+    private static final ThreadLocal currentBatch = new ThreadLocal();
+
+    /**
+     * Primitive type --> default return value
+     */
+    private static final Map primitiveDefaults = new HashMap();
+
+    static {
+        primitiveDefaults.put(boolean.class, Boolean.FALSE);
+        primitiveDefaults.put(char.class, new Character('\0'));
+        primitiveDefaults.put(byte.class, new Byte((byte) 0));
+        primitiveDefaults.put(short.class, new Short((short) 0));
+        primitiveDefaults.put(int.class, new Integer(0));
+        primitiveDefaults.put(long.class, new Long(0));
+        primitiveDefaults.put(float.class, new Float(0));
+        primitiveDefaults.put(double.class, new Double(0));
+    }
+
+    private final List handlers = new ArrayList();
+
+    private final List methods = new ArrayList();
+
+    private final List params = new ArrayList();
+
+    private RemoteBatch() {
+    }
+
+    /**
+     * Execute the given callback, recording calls on RMI proxies,
+     * and perform the recorded calls in one round trip per remote object.
+     *
+     * @param callback the callback making the calls
+     * @return a RemoteInvocationResult for each call, in the order of the calls
+     * @throws IllegalStateException if a batch is already active for this thread
+     */
+    public static List execute(RemoteBatchCallback callback) throws IllegalStateException {
+        if (currentBatch.get() != null) {
+            throw new IllegalStateException("RemoteBatch already active for this thread");
+        }
+        RemoteBatch batch = new RemoteBatch();
+        currentBatch.set(batch);
+        try {
+            callback.doInBatch();
+        } finally {
+            currentBatch.set(null);
+        }
+        return batch.flush();
+    }
+
+    /**
+     * Return the batch of the current thread, or null if none.
+     */
+    static RemoteBatch getCurrentBatch() {
+        return (RemoteBatch) currentBatch.get();
+    }
+
+    /**
+     * Record a call, returning a placeholder value for the given method.
+     */
+    Object addInvocation(StubInvocationHandler handler, Method method, Object[] args) {
+        this.handlers.add(handler);
+        this.methods.add(method);
+        this.params.add(args);
+        return primitiveDefaults.get(method.getReturnType());
+    }
+
+    private List flush() {
+        // StubInvocationHandler --> List of Integer positions
+        Map positionsByHandler = new LinkedHashMap();
+        for (int i = 0; i < this.handlers.size(); i++) {
+            List positions = (List) positionsByHandler.get(this.handlers.get(i));
+            if (positions == null) {
+                positions = new ArrayList();
+                positionsByHandler.put(this.handlers.get(i), positions);
+            }
+            positions.add(new Integer(i));
+        }
+        RemoteInvocationResult[] results = new RemoteInvocationResult[this.handlers.size()];
+        for (Iterator it = positionsByHandler.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            List positions = (List) entry.getValue();
+            Method[] batchMethods = new Method[positions.size()];
+            Object[][] batchParams = new Object[positions.size()][];
+            for (int i = 0; i < batchMethods.length; i++) {
+                int position = ((Integer) positions.get(i)).intValue();
+                batchMethods[i] = (Method) this.methods.get(position);
+                batchParams[i] = (Object[]) this.params.get(position);
+            }
+            RemoteInvocationResult[] handlerResults =
+                    ((StubInvocationHandler) entry.getKey()).invokeBatch(batchMethods, batchParams);
+            for (int i = 0; i < handlerResults.length; i++) {
+                results[((Integer) positions.get(i)).intValue()] = handlerResults[i];
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+}
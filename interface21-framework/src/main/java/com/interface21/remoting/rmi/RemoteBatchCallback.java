@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+/**
+ * Callback interface for code issuing calls to be batched.
+ * Used with RemoteBatch's execute method.
+ *
+ * @see RemoteBatch#execute
+ */
+public interface RemoteBatchCallback {
+
+    /**
+     * Call methods on RMI proxies. The calls are recorded rather than
+     * performed: they return null, or 0 or false for primitive return types.
+     *
+     * @throws RuntimeException to abort the batch without performing any call
+     */
+    void doInBatch() throws RuntimeException;
+
+}
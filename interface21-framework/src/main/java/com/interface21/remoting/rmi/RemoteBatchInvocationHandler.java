@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Extension of RemoteHashInvocationHandler for servers that accept batches
+ * of invocations. A separate interface, so that clients can detect older
+ * servers: Their stubs don't implement it.
+ *
+ * @see RemoteBatch
+ */
+interface RemoteBatchInvocationHandler extends RemoteHashInvocationHandler {
+
+    /**
+     * Called by the StubInvocationHandler when executing a RemoteBatch.
+     * Performs the given invocations in order on the actual object.
+     *
+     * @param invocations the RemoteInvocation objects
+     * @return a RemoteInvocationResult for each invocation, in the same order
+     * @throws RemoteException in case of communication errors
+     */
+    public List invokeRemoteBatch(List invocations) throws RemoteException;
+
+}
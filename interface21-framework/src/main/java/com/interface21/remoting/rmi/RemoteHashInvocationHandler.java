@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+/**
+ * Extension of RemoteInvocationHandler for servers that can identify methods
+ * by the hash of their signature. A separate interface, so that clients can
+ * detect older servers: Their stubs don't implement it, and calling a method
+ * they don't know would fail with an UnmarshalException.
+ *
+ * @see RemoteMethodTable
+ */
+interface RemoteHashInvocationHandler extends RemoteInvocationHandler {
+
+    /**
+     * Called by the StubInvocationHandler on each invocation.
+     * Invokes the method with the given hash with the given parameters
+     * on the actual object. Avoids sending the method signature.
+     *
+     * @param methodHash the hash of the invoked method's signature
+     * @param params     the method's parameters
+     * @return the object returned from the invoked method, if any
+     * @throws UnknownMethodHashException if the object doesn't have a method with
+     *                                    the given hash, e.g. in case of a hash collision
+     * @throws Exception                  in case of invocation or invocation target exceptions
+     * @see RemoteMethodTable#getMethodHash
+     */
+    public Object invokeRemote(long methodHash, Object[] params) throws Exception;
+
+}
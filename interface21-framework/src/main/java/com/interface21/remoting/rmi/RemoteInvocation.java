@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.io.Serializable;
+
+/**
+ * Serializable description of one invocation in a batch: the method,
+ * identified by hash or by signature, and the parameters.
+ *
+ * @see RemoteBatchInvocationHandler#invokeRemoteBatch
+ */
+class RemoteInvocation implements Serializable {
+
+    private final long methodHash;
+
+    private final String methodName;
+
+    private final Class[] paramTypes;
+
+    private final Object[] params;
+
+    /**
+     * Create an invocation identifying the method by hash.
+     */
+    public RemoteInvocation(long methodHash, Object[] params) {
+        this.methodHash = methodHash;
+        this.methodName = null;
+        this.paramTypes = null;
+        this.params = params;
+    }
+
+    /**
+     * Create an invocation identifying the method by signature.
+     */
+    public RemoteInvocation(String methodName, Class[] paramTypes, Object[] params) {
+        this.methodHash = 0;
+        this.methodName = methodName;
+        this.paramTypes = paramTypes;
+        this.params = params;
+    }
+
+    public long getMethodHash() {
+        return methodHash;
+    }
+
+    /**
+     * Return the method name, or null if identified by hash.
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Class[] getParamTypes() {
+        return paramTypes;
+    }
+
+    public Object[] getParams() {
+        return params;
+    }
+
+}
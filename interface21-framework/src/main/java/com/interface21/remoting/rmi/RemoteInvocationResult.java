@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.io.Serializable;
+
+import com.interface21.remoting.RemoteAccessException;
+
+/**
+ * Result of one invocation in a RemoteBatch:
+ * either the return value or the exception thrown.
+ *
+ * @see RemoteBatch#execute
+ */
+public class RemoteInvocationResult implements Serializable {
+
+    private final Object value;
+
+    private final Throwable exception;
+
+    /**
+     * Create a result for a successful invocation.
+     */
+    public RemoteInvocationResult(Object value) {
+        this.value = value;
+        this.exception = null;
+    }
+
+    /**
+     * Create a result for a failed invocation.
+     */
+    public RemoteInvocationResult(Throwable exception) {
+        this.value = null;
+        this.exception = exception;
+    }
+
+    /**
+     * Return whether the invocation failed.
+     */
+    public boolean hasException() {
+        return (this.exception != null);
+    }
+
+    /**
+     * Return the exception thrown by the invocation, or null.
+     */
+    public Throwable getException() {
+        return exception;
+    }
+
+    /**
+     * Return the value returned by the invocation, or throw its exception
+     * like a call through the proxy would have: Unchecked exceptions as-is,
+     * anything else as RemoteAccessException.
+     *
+     * @return the return value, or null for void methods
+     * @throws RemoteAccessException if the invocation failed
+     */
+    public Object getValue() throws RemoteAccessException {
+        if (this.exception instanceof RuntimeException) {
+            throw (RuntimeException) this.exception;
+        }
+        if (this.exception instanceof Error) {
+            throw (Error) this.exception;
+        }
+        if (this.exception != null) {
+            throw new RemoteAccessException("Error on remote access", this.exception);
+        }
+        return this.value;
+    }
+
+    public String toString() {
+        return (this.exception != null ? "RemoteInvocationResult: exception [" + this.exception + "]" :
+                "RemoteInvocationResult: value [" + this.value + "]");
+    }
+
+}
@@ -4,21 +4,28 @@
 
 package com.interface21.remoting.rmi;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * Server-side implementation of RemoteInvocationHandler.
  * An instance of this class exists for each remote object.
+ * Also accepts batches of invocations.
  *
  * @author Juergen Hoeller
  * @since 14.05.2003
  */
-class RemoteInvocationWrapper extends UnicastRemoteObject implements RemoteInvocationHandler {
+class RemoteInvocationWrapper extends UnicastRemoteObject implements RemoteBatchInvocationHandler {
 
     private Object wrappedObject;
 
+    private RemoteMethodTable methodTable;
+
     /**
      * Create a new RemoteInvocationWrapper.
      *
@@ -27,6 +34,7 @@ class RemoteInvocationWrapper extends UnicastRemoteObject implements RemoteInvoc
     public RemoteInvocationWrapper(Object wrappedObject) throws RemoteException {
         super();
         this.wrappedObject = wrappedObject;
+        this.methodTable = new RemoteMethodTable(wrappedObject.getClass());
     }
 
     public Object invokeRemote(String methodName, Class[] paramTypes, Object[] params) throws Exception {
@@ -34,4 +42,36 @@ class RemoteInvocationWrapper extends UnicastRemoteObject implements RemoteInvoc
         return method.invoke(wrappedObject, params);
     }
 
+    public Object invokeRemote(long methodHash, Object[] params) throws Exception {
+        Method method = this.methodTable.getMethod(methodHash);
+        if (method == null) {
+            throw new UnknownMethodHashException("No method with hash [" + methodHash + "] on class [" +
+                    this.wrappedObject.getClass().getName() + "]");
+        }
+        return method.invoke(this.wrappedObject, params);
+    }
+
+    /**
+     * Performs the invocations in order. An exception thrown by one
+     * invocation is returned as its result; it doesn't stop the batch.
+     * Exceptions thrown by the wrapped object are returned unwrapped.
+     */
+    public List invokeRemoteBatch(List invocations) {
+        List results = new ArrayList(invocations.size());
+        for (Iterator it = invocations.iterator(); it.hasNext();) {
+            RemoteInvocation invocation = (RemoteInvocation) it.next();
+            try {
+                Object value = (invocation.getMethodName() != null ?
+                        invokeRemote(invocation.getMethodName(), invocation.getParamTypes(), invocation.getParams()) :
+                        invokeRemote(invocation.getMethodHash(), invocation.getParams()));
+                results.add(new RemoteInvocationResult(value));
+            } catch (InvocationTargetException ex) {
+                results.add(new RemoteInvocationResult(ex.getTargetException()));
+            } catch (Exception ex) {
+                results.add(new RemoteInvocationResult(ex));
+            }
+        }
+        return results;
+    }
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Table of the public methods of a class, keyed by method hash.
+ * A method hash is computed from the method's signature only,
+ * so client and server agree on it without exchanging a table.
+ * Package-visible; used by RemoteInvocationWrapper and StubInvocationHandler.
+ *
+ * @see RemoteHashInvocationHandler#invokeRemote(long, Object[])
+ */
+final class RemoteMethodTable {
+
+    /**
+     * Long method hash --> Method
+     */
+    private final Map methods = new HashMap();
+
+    /**
+     * Build the method table for the given class.
+     * Methods with colliding hashes are left out.
+     */
+    public RemoteMethodTable(Class clazz) {
+        Set collisions = new HashSet();
+        Method[] candidates = clazz.getMethods();
+        for (int i = 0; i < candidates.length; i++) {
+            Long hash = new Long(getMethodHash(candidates[i]));
+            Method existing = (Method) this.methods.put(hash, candidates[i]);
+            if (existing != null && !sameSignature(existing, candidates[i])) {
+                collisions.add(hash);
+            }
+        }
+        this.methods.keySet().removeAll(collisions);
+    }
+
+    /**
+     * Return the method with the given hash, or null if none.
+     */
+    public Method getMethod(long methodHash) {
+        return (Method) this.methods.get(new Long(methodHash));
+    }
+
+    /**
+     * Compute the hash of the given method's signature: the first 8 bytes
+     * of the SHA-1 digest of its name and parameter type names.
+     */
+    public static long getMethodHash(Method method) {
+        StringBuffer signature = new StringBuffer(method.getName()).append('(');
+        Class[] paramTypes = method.getParameterTypes();
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(paramTypes[i].getName());
+        }
+        signature.append(')');
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(signature.toString().getBytes("UTF-8"));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-1 not available: " + ex.getMessage());
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException("UTF-8 not available: " + ex.getMessage());
+        }
+    }
+
+    private static boolean sameSignature(Method m1, Method m2) {
+        return m1.getName().equals(m2.getName()) &&
+                Arrays.equals(m1.getParameterTypes(), m2.getParameterTypes());
+    }
+
+}
@@ -9,10 +9,12 @@ import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.interface21.beans.factory.DisposableBean;
 import com.interface21.beans.factory.InitializingBean;
 
 /**
@@ -39,7 +41,7 @@ import com.interface21.beans.factory.InitializingBean;
  * @see RmiProxyFactoryBean
  * @since 13.05.2003
  */
-public class RmiServiceExporter implements InitializingBean {
+public class RmiServiceExporter implements InitializingBean, DisposableBean {
 
     protected final Log logger = LogFactory.getLog(getClass());
 
@@ -49,6 +51,12 @@ public class RmiServiceExporter implements InitializingBean {
 
     private int port = Registry.REGISTRY_PORT;
 
+    private Registry registry;
+
+    private boolean createdRegistry;
+
+    private Remote wrapper;
+
     /**
      * Set the service to export via RMI.
      * Typically populated via a bean reference.
@@ -90,11 +98,33 @@ public class RmiServiceExporter implements InitializingBean {
             logger.warn("Could not detect RMI registry - creating new one");
             // assume no registry found -> create new one
             registry = LocateRegistry.createRegistry(this.port);
+            this.createdRegistry = true;
         }
         // bind wrapper to registry
         logger.info("Binding RMI service [" + this.name + "] to registry at port [" + this.port + "]");
-        Remote wrapper = new RemoteInvocationWrapper(this.service);
-        registry.rebind(this.name, wrapper);
+        this.wrapper = new RemoteInvocationWrapper(this.service);
+        registry.rebind(this.name, this.wrapper);
+        this.registry = registry;
+    }
+
+    /**
+     * Unbind the RMI object from the registry and unexport it.
+     * Shuts down the registry if this exporter created it.
+     */
+    public void destroy() throws Exception {
+        if (this.wrapper == null) {
+            return;
+        }
+        logger.info("Unbinding RMI service [" + this.name + "] from registry at port [" + this.port + "]");
+        try {
+            this.registry.unbind(this.name);
+        } finally {
+            UnicastRemoteObject.unexportObject(this.wrapper, true);
+            if (this.createdRegistry) {
+                UnicastRemoteObject.unexportObject(this.registry, true);
+            }
+            this.wrapper = null;
+        }
     }
 
 }
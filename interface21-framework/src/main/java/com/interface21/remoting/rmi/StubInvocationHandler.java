@@ -6,11 +6,24 @@ package com.interface21.remoting.rmi;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Accepts invocations from the client and forwards them via the RemoteInvocationHandler
  * stub to the RemoteInvocationWrapper on the server, where they are executed.
+ * Methods are identified by the hash of their signature, computed once per method,
+ * if the server supports that. Methods that the server can't identify by hash,
+ * because of a collision, are sent with their full signature from then on,
+ * as are all methods for older servers.
+ * <p>
+ * <p>Within a RemoteBatch, invocations are recorded rather than sent,
+ * and later performed in one round trip if the server supports it.
  *
  * @author Juergen Hoeller
  * @since 14.05.2003
@@ -22,6 +35,13 @@ class StubInvocationHandler implements InvocationHandler, Serializable {
      */
     private RemoteInvocationHandler stub;
 
+    /**
+     * Method --> Long method hash, or NO_HASH if the server couldn't resolve it
+     */
+    private transient Map methodHashes;
+
+    private static final Long NO_HASH = new Long(0);
+
     /**
      * Create a new StubInvocationHandler.
      *
@@ -40,7 +60,95 @@ class StubInvocationHandler implements InvocationHandler, Serializable {
         if (method.getDeclaringClass().equals(Object.class)) {
             return method.invoke(this, params);
         }
+        RemoteBatch batch = RemoteBatch.getCurrentBatch();
+        if (batch != null) {
+            return batch.addInvocation(this, method, params);
+        }
+        return invokeRemote(method, params);
+    }
+
+    private Object invokeRemote(Method method, Object[] params) throws Exception {
+        Long methodHash = (this.stub instanceof RemoteHashInvocationHandler ? getMethodHash(method) : NO_HASH);
+        if (methodHash != NO_HASH) {
+            try {
+                return ((RemoteHashInvocationHandler) this.stub).invokeRemote(methodHash.longValue(), params);
+            } catch (UnknownMethodHashException ex) {
+                // hash collision on the server side: send the full signature instead
+                this.methodHashes.put(method, NO_HASH);
+            }
+        }
         return this.stub.invokeRemote(method.getName(), method.getParameterTypes(), params);
     }
 
+    /**
+     * Perform the given invocations, in one round trip if the server accepts
+     * batches, else one by one. Never throws: the exception of a failed
+     * invocation, or of a failed round trip, becomes its result.
+     *
+     * @param methods the invoked methods
+     * @param params  the parameters for each method
+     * @return the result of each invocation, in the same order
+     */
+    RemoteInvocationResult[] invokeBatch(Method[] methods, Object[][] params) {
+        RemoteInvocationResult[] results = new RemoteInvocationResult[methods.length];
+        if (this.stub instanceof RemoteBatchInvocationHandler) {
+            List invocations = new ArrayList(methods.length);
+            for (int i = 0; i < methods.length; i++) {
+                Long methodHash = getMethodHash(methods[i]);
+                invocations.add(methodHash != NO_HASH ? new RemoteInvocation(methodHash.longValue(), params[i]) :
+                        new RemoteInvocation(methods[i].getName(), methods[i].getParameterTypes(), params[i]));
+            }
+            List batchResults = null;
+            try {
+                batchResults = ((RemoteBatchInvocationHandler) this.stub).invokeRemoteBatch(invocations);
+            } catch (RemoteException ex) {
+                RemoteInvocationResult failure = new RemoteInvocationResult(ex);
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = failure;
+                }
+                return results;
+            }
+            for (int i = 0; i < results.length; i++) {
+                RemoteInvocationResult result = (RemoteInvocationResult) batchResults.get(i);
+                if (result.getException() instanceof UnknownMethodHashException) {
+                    // hash collision on the server side: resend with the full signature
+                    this.methodHashes.put(methods[i], NO_HASH);
+                    result = invokeSingle(methods[i], params[i]);
+                }
+                results[i] = result;
+            }
+        } else {
+            // server doesn't accept batches
+            for (int i = 0; i < methods.length; i++) {
+                results[i] = invokeSingle(methods[i], params[i]);
+            }
+        }
+        return results;
+    }
+
+    private RemoteInvocationResult invokeSingle(Method method, Object[] params) {
+        try {
+            return new RemoteInvocationResult(invokeRemote(method, params));
+        } catch (InvocationTargetException ex) {
+            return new RemoteInvocationResult(ex.getTargetException());
+        } catch (Exception ex) {
+            return new RemoteInvocationResult(ex);
+        }
+    }
+
+    private Long getMethodHash(Method method) {
+        Map hashes = this.methodHashes;
+        if (hashes == null) {
+            // lazily created, as not serialized along with this handler
+            hashes = new ConcurrentHashMap();
+            this.methodHashes = hashes;
+        }
+        Long methodHash = (Long) hashes.get(method);
+        if (methodHash == null) {
+            methodHash = new Long(RemoteMethodTable.getMethodHash(method));
+            hashes.put(method, methodHash);
+        }
+        return methodHash;
+    }
+
 }
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+/**
+ * Thrown by a RemoteInvocationWrapper that can't resolve a method hash,
+ * e.g. in case of a hash collision. Distinguishes such failures from a
+ * NoSuchMethodException thrown by the invoked method itself, so that
+ * clients only resend the former with the full method signature.
+ *
+ * @see RemoteHashInvocationHandler#invokeRemote(long, Object[])
+ */
+class UnknownMethodHashException extends NoSuchMethodException {
+
+    public UnknownMethodHashException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.interface21.remoting.RemoteAccessException;
+
+/**
+ * Invokes methods of a service proxy asynchronously on an Executor,
+ * returning a RemoteInvocationFuture for each call. Allows to issue
+ * several remote calls in parallel, paying the maximum instead of
+ * the sum of their latencies.
+ * <p>
+ * <p>Can also create a proxy for an "async companion interface": an
+ * interface with the same methods as the service interface, but returning
+ * java.util.concurrent.Future or RemoteInvocationFuture.
+ *
+ * @see RemoteProxyFactoryBean#setAsyncInterface
+ */
+public class AsyncInvoker {
+
+    private final Object target;
+
+    private final Executor executor;
+
+    private long timeout = 0;
+
+    /**
+     * Create a new AsyncInvoker.
+     *
+     * @param target   the (synchronous) service proxy to invoke
+     * @param executor the executor to dispatch invocations on,
+     *                 preferably with a bounded queue
+     */
+    public AsyncInvoker(Object target, Executor executor) {
+        this.target = target;
+        this.executor = executor;
+    }
+
+    /**
+     * Set the default timeout in milliseconds for
+     * RemoteInvocationFuture.getResult(). Default is 0: no timeout.
+     *
+     * @see RemoteInvocationFuture#getResult()
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Return the default timeout in milliseconds for results.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Invoke the given method of the service proxy asynchronously.
+     *
+     * @param method the service method
+     * @param args   the method arguments
+     * @return the handle for the result
+     * @throws RemoteAccessException if the executor rejected the invocation,
+     *                               e.g. because too many are pending
+     */
+    public RemoteInvocationFuture invoke(Method method, Object[] args) throws RemoteAccessException {
+        RemoteInvocationFuture future = new RemoteInvocationFuture(this.target, method, args, this.timeout);
+        try {
+            this.executor.execute(future);
+        } catch (RejectedExecutionException ex) {
+            throw new RemoteAccessException("Could not dispatch asynchronous invocation of method [" +
+                    method.getName() + "]", ex);
+        }
+        return future;
+    }
+
+    /**
+     * Create a proxy for the given async companion interface.
+     * Each of its methods must correspond to a public method of the
+     * service proxy with the same name and parameter types,
+     * and return Future or RemoteInvocationFuture.
+     *
+     * @param asyncInterface the async companion interface
+     * @return the proxy
+     * @throws IllegalArgumentException if the interface doesn't match the service
+     */
+    public Object createProxy(Class asyncInterface) throws IllegalArgumentException {
+        if (!asyncInterface.isInterface()) {
+            throw new IllegalArgumentException("asyncInterface must be an interface");
+        }
+        final Map methodMap = new HashMap();
+        Method[] asyncMethods = asyncInterface.getMethods();
+        for (int i = 0; i < asyncMethods.length; i++) {
+            Method asyncMethod = asyncMethods[i];
+            if (!asyncMethod.getReturnType().isAssignableFrom(RemoteInvocationFuture.class)) {
+                throw new IllegalArgumentException("Method [" + asyncMethod + "] of async interface must return " +
+                        "java.util.concurrent.Future or RemoteInvocationFuture");
+            }
+            try {
+                methodMap.put(asyncMethod,
+                        this.target.getClass().getMethod(asyncMethod.getName(), asyncMethod.getParameterTypes()));
+            } catch (NoSuchMethodException ex) {
+                throw new IllegalArgumentException("Method [" + asyncMethod + "] of async interface " +
+                        "has no counterpart in service [" + this.target + "]");
+            }
+        }
+        return Proxy.newProxyInstance(asyncInterface.getClassLoader(), new Class[]{asyncInterface},
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        Method targetMethod = (Method) methodMap.get(method);
+                        if (targetMethod != null) {
+                            return AsyncInvoker.this.invoke(targetMethod, args);
+                        }
+                        if (method.getName().equals("equals")) {
+                            return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+                        }
+                        if (method.getName().equals("hashCode")) {
+                            return new Integer(System.identityHashCode(proxy));
+                        }
+                        return "Async proxy for [" + target + "]";
+                    }
+                });
+    }
+
+}
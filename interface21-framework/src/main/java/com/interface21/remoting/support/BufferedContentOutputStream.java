@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * OutputStream for HTTP message bodies that buffers content in a per-thread
+ * array, so that a message fitting into the buffer can be sent with an exact
+ * Content-Length. Larger content is streamed once the buffer overflows.
+ * <p>
+ * <p>If a content encoding is given, content of at least compressionThreshold
+ * bytes gets compressed. Buffered content is only sent compressed if that
+ * actually makes it smaller. Content that overflows the buffer is streamed
+ * compressed only if the bytes written so far reach the threshold: With a
+ * threshold larger than the buffer, it may be sent uncompressed although
+ * its total size exceeds the threshold.
+ * <p>
+ * <p>Nothing is sent before the buffer overflows or the stream is closed.
+ * Call discard instead of close to drop buffered content, e.g. on failure.
+ * Not threadsafe: to be used by one thread for one message.
+ *
+ * @see RemoteStreamUtils#getResponseOutputStream
+ */
+public class BufferedContentOutputStream extends OutputStream {
+
+    /**
+     * Buffer of the current thread, or null while in use by a stream
+     */
+    private static final ThreadLocal threadBuffer = new ThreadLocal();
+
+    private final ContentTarget target;
+
+    private final String encoding;
+
+    private final int compressionThreshold;
+
+    private byte[] buffer;
+
+    private int count;
+
+    /**
+     * Stream to the target once the buffer has overflowed, else null
+     */
+    private OutputStream out;
+
+    private boolean closed;
+
+    /**
+     * Create a new BufferedContentOutputStream.
+     *
+     * @param target               the target to send the content to
+     * @param bufferSize           the size of the buffer
+     * @param encoding             "gzip", "deflate", or null for no compression
+     * @param compressionThreshold the minimum content size for compression,
+     *                             or -1 for no compression
+     */
+    public BufferedContentOutputStream(ContentTarget target, int bufferSize, String encoding, int compressionThreshold) {
+        this.target = target;
+        this.encoding = (compressionThreshold >= 0 ? encoding : null);
+        this.compressionThreshold = compressionThreshold;
+        byte[] buffer = (byte[]) threadBuffer.get();
+        if (buffer != null && buffer.length == bufferSize) {
+            // nested use on the same thread gets its own array
+            threadBuffer.set(null);
+        } else {
+            buffer = new byte[bufferSize];
+        }
+        this.buffer = buffer;
+    }
+
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (this.out == null && this.count == this.buffer.length) {
+            overflow(1);
+        }
+        if (this.out != null) {
+            this.out.write(b);
+        } else {
+            this.buffer[this.count++] = (byte) b;
+        }
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (this.out == null && this.count + len > this.buffer.length) {
+            overflow(len);
+        }
+        if (this.out != null) {
+            this.out.write(b, off, len);
+        } else {
+            System.arraycopy(b, off, this.buffer, this.count, len);
+            this.count += len;
+        }
+    }
+
+    /**
+     * Flushes nothing while buffering: the content length isn't known yet.
+     */
+    public void flush() throws IOException {
+        if (this.out != null) {
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Start streaming to the target, compressing if an encoding is set
+     * and the content written so far reaches the compression threshold.
+     *
+     * @param pending the number of bytes about to be written
+     */
+    private void overflow(int pending) throws IOException {
+        if (this.encoding != null && (long) this.count + pending >= this.compressionThreshold) {
+            this.target.setContentEncoding(this.encoding);
+            this.out = RemoteStreamUtils.getEncodingOutputStream(this.target.getOutputStream(), this.encoding);
+        } else {
+            this.out = this.target.getOutputStream();
+        }
+        this.out.write(this.buffer, 0, this.count);
+        releaseBuffer();
+    }
+
+    /**
+     * Send the content, with an exact Content-Length if it has been buffered.
+     */
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        if (this.out != null) {
+            this.closed = true;
+            this.out.close();
+            return;
+        }
+        try {
+            if (this.encoding != null && this.count >= this.compressionThreshold) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(this.count / 2 + 64);
+                OutputStream encoder = RemoteStreamUtils.getEncodingOutputStream(compressed, this.encoding);
+                encoder.write(this.buffer, 0, this.count);
+                encoder.close();
+                if (compressed.size() < this.count) {
+                    this.target.setContentEncoding(this.encoding);
+                    this.target.setContentLength(compressed.size());
+                    OutputStream targetStream = this.target.getOutputStream();
+                    compressed.writeTo(targetStream);
+                    targetStream.close();
+                    return;
+                }
+            }
+            this.target.setContentLength(this.count);
+            OutputStream targetStream = this.target.getOutputStream();
+            targetStream.write(this.buffer, 0, this.count);
+            targetStream.close();
+        } finally {
+            this.closed = true;
+            releaseBuffer();
+        }
+    }
+
+    /**
+     * Drop buffered content without sending it. Has no effect
+     * if the stream has been closed or has overflowed.
+     */
+    public void discard() {
+        if (this.out == null) {
+            this.closed = true;
+            releaseBuffer();
+        }
+    }
+
+    /**
+     * Return whether content has already been sent to the target.
+     */
+    public boolean isCommitted() {
+        return (this.out != null);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream already closed");
+        }
+    }
+
+    private void releaseBuffer() {
+        if (this.buffer != null) {
+            threadBuffer.set(this.buffer);
+            this.buffer = null;
+        }
+    }
+
+
+    /**
+     * Callback for the transport the content gets sent with,
+     * e.g. an HTTP response or an HTTP connection.
+     */
+    public interface ContentTarget {
+
+        /**
+         * Set the content encoding of the message.
+         * Called before getOutputStream, if at all.
+         */
+        void setContentEncoding(String contentEncoding);
+
+        /**
+         * Set the exact length of the message body.
+         * Called before getOutputStream, if at all.
+         */
+        void setContentLength(int contentLength);
+
+        /**
+         * Return the stream to send the message body to.
+         * Called once.
+         */
+        OutputStream getOutputStream() throws IOException;
+    }
+
+}
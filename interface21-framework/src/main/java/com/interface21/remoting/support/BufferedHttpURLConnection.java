@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.util.Map;
+
+/**
+ * HttpURLConnection decorator for remoting proxies: buffers the request body
+ * to send it with an exact Content-Length where possible, optionally
+ * compresses it, and decodes gzip or deflate compressed responses.
+ * <p>
+ * <p>The request body gets sent when it overflows the buffer, or when the
+ * response is first accessed. Compressed requests are only understood by
+ * servers decoding the Content-Encoding, like this framework's exporters.
+ *
+ * @see BufferedContentOutputStream
+ * @see RemoteStreamUtils#getDecodingInputStream
+ */
+public class BufferedHttpURLConnection extends HttpURLConnection {
+
+    private final HttpURLConnection connection;
+
+    private final int bufferSize;
+
+    private final int compressionThreshold;
+
+    private BufferedContentOutputStream requestStream;
+
+    private InputStream responseStream;
+
+    /**
+     * Create a new BufferedHttpURLConnection, accepting compressed responses.
+     *
+     * @param connection           the connection to decorate, not yet connected
+     * @param bufferSize           the size of the request buffer
+     * @param compressionThreshold the minimum request size for gzip compression,
+     *                             or -1 for uncompressed requests
+     */
+    public BufferedHttpURLConnection(HttpURLConnection connection, int bufferSize, int compressionThreshold) {
+        super(connection.getURL());
+        this.connection = connection;
+        this.bufferSize = bufferSize;
+        this.compressionThreshold = compressionThreshold;
+        connection.setRequestProperty(RemoteStreamUtils.HEADER_ACCEPT_ENCODING, RemoteStreamUtils.ACCEPTED_ENCODINGS);
+    }
+
+    public OutputStream getOutputStream() throws IOException {
+        if (this.requestStream == null) {
+            this.requestStream = new BufferedContentOutputStream(new BufferedContentOutputStream.ContentTarget() {
+                private boolean fixedLength;
+
+                public void setContentEncoding(String contentEncoding) {
+                    connection.setRequestProperty(RemoteStreamUtils.HEADER_CONTENT_ENCODING, contentEncoding);
+                }
+
+                public void setContentLength(int contentLength) {
+                    connection.setFixedLengthStreamingMode(contentLength);
+                    this.fixedLength = true;
+                }
+
+                public OutputStream getOutputStream() throws IOException {
+                    if (!this.fixedLength) {
+                        // buffer overflowed: stream the content in chunks
+                        connection.setChunkedStreamingMode(0);
+                    }
+                    return connection.getOutputStream();
+                }
+            }, this.bufferSize, RemoteStreamUtils.ENCODING_GZIP, this.compressionThreshold);
+        }
+        return this.requestStream;
+    }
+
+    /**
+     * Send the buffered request body, if not done yet.
+     */
+    private void sendRequest() throws IOException {
+        if (this.requestStream != null) {
+            this.requestStream.close();
+        }
+    }
+
+    public InputStream getInputStream() throws IOException {
+        sendRequest();
+        if (this.responseStream == null) {
+            this.responseStream = RemoteStreamUtils.getDecodingInputStream(
+                    this.connection.getInputStream(), this.connection.getContentEncoding(), this.bufferSize);
+        }
+        return this.responseStream;
+    }
+
+    public InputStream getErrorStream() {
+        InputStream errorStream = this.connection.getErrorStream();
+        if (errorStream == null) {
+            return null;
+        }
+        try {
+            return RemoteStreamUtils.getDecodingInputStream(
+                    errorStream, this.connection.getContentEncoding(), this.bufferSize);
+        } catch (IOException ex) {
+            return errorStream;
+        }
+    }
+
+    public int getResponseCode() throws IOException {
+        sendRequest();
+        return this.connection.getResponseCode();
+    }
+
+    public String getResponseMessage() throws IOException {
+        sendRequest();
+        return this.connection.getResponseMessage();
+    }
+
+    public void connect() throws IOException {
+        this.connection.connect();
+    }
+
+    public void disconnect() {
+        if (this.requestStream != null) {
+            this.requestStream.discard();
+        }
+        this.connection.disconnect();
+    }
+
+    public boolean usingProxy() {
+        return this.connection.usingProxy();
+    }
+
+    public String getHeaderField(String name) {
+        return this.connection.getHeaderField(name);
+    }
+
+    public String getHeaderField(int n) {
+        return this.connection.getHeaderField(n);
+    }
+
+    public String getHeaderFieldKey(int n) {
+        return this.connection.getHeaderFieldKey(n);
+    }
+
+    public Map getHeaderFields() {
+        return this.connection.getHeaderFields();
+    }
+
+    /**
+     * Return the length of the decoded content, if known.
+     */
+    public int getContentLength() {
+        return (this.connection.getContentEncoding() != null ? -1 : this.connection.getContentLength());
+    }
+
+    public String getContentType() {
+        return this.connection.getContentType();
+    }
+
+    public void setRequestMethod(String method) throws ProtocolException {
+        this.connection.setRequestMethod(method);
+    }
+
+    public String getRequestMethod() {
+        return this.connection.getRequestMethod();
+    }
+
+    public void setRequestProperty(String key, String value) {
+        this.connection.setRequestProperty(key, value);
+    }
+
+    public void addRequestProperty(String key, String value) {
+        this.connection.addRequestProperty(key, value);
+    }
+
+    public String getRequestProperty(String key) {
+        return this.connection.getRequestProperty(key);
+    }
+
+    public void setDoOutput(boolean doOutput) {
+        this.connection.setDoOutput(doOutput);
+    }
+
+    public boolean getDoOutput() {
+        return this.connection.getDoOutput();
+    }
+
+    public void setDoInput(boolean doInput) {
+        this.connection.setDoInput(doInput);
+    }
+
+    public boolean getDoInput() {
+        return this.connection.getDoInput();
+    }
+
+    public void setUseCaches(boolean useCaches) {
+        this.connection.setUseCaches(useCaches);
+    }
+
+    public boolean getUseCaches() {
+        return this.connection.getUseCaches();
+    }
+
+    public void setConnectTimeout(int timeout) {
+        this.connection.setConnectTimeout(timeout);
+    }
+
+    public int getConnectTimeout() {
+        return this.connection.getConnectTimeout();
+    }
+
+    public void setReadTimeout(int timeout) {
+        this.connection.setReadTimeout(timeout);
+    }
+
+    public int getReadTimeout() {
+        return this.connection.getReadTimeout();
+    }
+
+    public void setInstanceFollowRedirects(boolean followRedirects) {
+        this.connection.setInstanceFollowRedirects(followRedirects);
+    }
+
+    public boolean getInstanceFollowRedirects() {
+        return this.connection.getInstanceFollowRedirects();
+    }
+
+    public String toString() {
+        return "BufferedHttpURLConnection for [" + this.connection + "]";
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.support;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.interface21.remoting.RemoteAccessException;
+
+/**
+ * Handle for the result of an asynchronous remote invocation.
+ * Implements java.util.concurrent.Future, and adds getResult methods
+ * that wait with a timeout and throw unchecked exceptions only.
+ *
+ * @see AsyncInvoker
+ */
+public class RemoteInvocationFuture extends FutureTask {
+
+    private final Method method;
+
+    private final long defaultTimeout;
+
+    /**
+     * Create a new RemoteInvocationFuture for the given invocation.
+     *
+     * @param target         the service proxy to invoke
+     * @param method         the service method
+     * @param args           the method arguments
+     * @param defaultTimeout the timeout in milliseconds for getResult(),
+     *                       or 0 for none
+     */
+    public RemoteInvocationFuture(final Object target, final Method method, final Object[] args, long defaultTimeout) {
+        super(new Callable() {
+            public Object call() throws Exception {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException ex) {
+                    Throwable targetEx = ex.getTargetException();
+                    if (targetEx instanceof Exception) {
+                        throw (Exception) targetEx;
+                    }
+                    if (targetEx instanceof Error) {
+                        throw (Error) targetEx;
+                    }
+                    throw ex;
+                }
+            }
+        });
+        this.method = method;
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * Return the service method invoked.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Wait for the result, using the default timeout of the invoker.
+     *
+     * @see #getResult(long)
+     */
+    public Object getResult() throws RemoteAccessException {
+        return getResult(this.defaultTimeout);
+    }
+
+    /**
+     * Wait for the result, up to the given number of milliseconds.
+     * A timed out invocation gets cancelled. Unchecked exceptions thrown
+     * by the service proxy, like RemoteAccessException, are rethrown as-is;
+     * checked exceptions, timeouts and interrupts are translated to
+     * RemoteAccessException.
+     *
+     * @param timeout the timeout in milliseconds, or 0 to wait as long as necessary
+     * @return the return value of the service method
+     * @throws RemoteAccessException if the invocation failed or timed out
+     */
+    public Object getResult(long timeout) throws RemoteAccessException {
+        try {
+            return (timeout > 0 ? get(timeout, TimeUnit.MILLISECONDS) : get());
+        } catch (TimeoutException ex) {
+            cancel(true);
+            throw new RemoteAccessException("Remote invocation of method [" + this.method.getName() +
+                    "] timed out after " + timeout + " ms", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RemoteAccessException("Interrupted while waiting for remote invocation of method [" +
+                    this.method.getName() + "]", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RemoteAccessException("Remote invocation of method [" + this.method.getName() + "] failed", cause);
+        }
+    }
+
+}
@@ -5,7 +5,15 @@
 package com.interface21.remoting.support;
 
 import java.net.MalformedURLException;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.interface21.beans.factory.DisposableBean;
 import com.interface21.beans.factory.FactoryBean;
 import com.interface21.remoting.RemoteAccessException;
 import com.interface21.beans.PropertyValues;
@@ -24,13 +32,20 @@ import com.interface21.beans.factory.InitializingBean;
  * <p>Note that the service interface being used will show some signs of
  * remotability, like the granularity of method calls that it offers.
  * Furthermore, it has to require serializable arguments etc.
+ * <p>
+ * <p>If an asyncInterface is set, an async proxy is created too, for
+ * issuing several remote calls in parallel: see getAsyncObject. Its calls
+ * run on the asyncExecutor, or on a bounded thread pool of this factory.
+ * As bean references resolve to the service proxy, obtain the async proxy
+ * from the factory itself, e.g. for a bean named "orderService":
+ * <code>((RemoteProxyFactoryBean) beanFactory.getBean("&amp;orderService")).getAsyncObject()</code>
  *
  * @author Juergen Hoeller
  * @see #createProxy
  * @see RemoteAccessException
  * @since 13.05.2003
  */
-public abstract class RemoteProxyFactoryBean implements FactoryBean, InitializingBean {
+public abstract class RemoteProxyFactoryBean implements FactoryBean, InitializingBean, DisposableBean {
 
     private Class serviceInterface;
 
@@ -38,6 +53,25 @@ public abstract class RemoteProxyFactoryBean implements FactoryBean, Initializin
 
     private Object serviceProxy;
 
+    private Class asyncInterface;
+
+    private Executor asyncExecutor;
+
+    private int asyncPoolSize = 10;
+
+    private int asyncQueueCapacity = 100;
+
+    private long asyncTimeout = 0;
+
+    /**
+     * Thread pool created by this factory, if no asyncExecutor was given
+     */
+    private ExecutorService ownAsyncExecutor;
+
+    private AsyncInvoker asyncInvoker;
+
+    private Object asyncProxy;
+
     /**
      * Set the interface of the service that this factory should create a proxy for.
      */
@@ -63,9 +97,63 @@ public abstract class RemoteProxyFactoryBean implements FactoryBean, Initializin
         return serviceUrl;
     }
 
+    /**
+     * Set the async companion interface: the same methods as the service
+     * interface, but returning java.util.concurrent.Future or
+     * RemoteInvocationFuture. Default is none.
+     *
+     * @see AsyncInvoker#createProxy
+     */
+    public void setAsyncInterface(Class asyncInterface) {
+        if (!asyncInterface.isInterface()) {
+            throw new IllegalArgumentException("asyncInterface must be an interface");
+        }
+        this.asyncInterface = asyncInterface;
+    }
+
+    protected Class getAsyncInterface() {
+        return asyncInterface;
+    }
+
+    /**
+     * Set the executor for asynchronous invocations. Default is a thread pool
+     * of this factory, configured by asyncPoolSize and asyncQueueCapacity.
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * Set the number of threads for asynchronous invocations,
+     * if no asyncExecutor is given. Default is 10.
+     */
+    public void setAsyncPoolSize(int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    /**
+     * Set the maximum number of pending asynchronous invocations,
+     * if no asyncExecutor is given. Default is 100. Further invocations
+     * are rejected with a RemoteAccessException.
+     */
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    /**
+     * Set the default timeout in milliseconds for the results
+     * of asynchronous invocations. Default is 0: no timeout.
+     *
+     * @see RemoteInvocationFuture#getResult()
+     */
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
     /**
      * Creates and validates the proxy, and keeps the reference.
-     * Delegates to createProxy.
+     * Delegates to createProxy. Creates the async proxy too,
+     * if an asyncInterface is set.
      *
      * @see #createProxy
      */
@@ -74,6 +162,55 @@ public abstract class RemoteProxyFactoryBean implements FactoryBean, Initializin
         if (this.serviceInterface != null && !this.serviceInterface.isInstance(this.serviceProxy)) {
             throw new IllegalArgumentException("Service interface and proxy instance do not match");
         }
+        if (this.asyncInterface != null) {
+            this.asyncProxy = getAsyncInvoker().createProxy(this.asyncInterface);
+        }
+    }
+
+    /**
+     * Return an invoker for asynchronous calls on the service proxy,
+     * creating the thread pool of this factory on first access.
+     */
+    public synchronized AsyncInvoker getAsyncInvoker() {
+        if (this.serviceProxy == null) {
+            throw new IllegalStateException("Service proxy not created yet: call afterPropertiesSet first");
+        }
+        if (this.asyncInvoker == null) {
+            Executor executor = this.asyncExecutor;
+            if (executor == null) {
+                this.ownAsyncExecutor = new ThreadPoolExecutor(this.asyncPoolSize, this.asyncPoolSize,
+                        60, TimeUnit.SECONDS, new ArrayBlockingQueue(this.asyncQueueCapacity),
+                        new AsyncThreadFactory());
+                executor = this.ownAsyncExecutor;
+            }
+            this.asyncInvoker = new AsyncInvoker(this.serviceProxy, executor);
+            this.asyncInvoker.setTimeout(this.asyncTimeout);
+        }
+        return this.asyncInvoker;
+    }
+
+    /**
+     * Return the async proxy implementing the asyncInterface, or null if
+     * none is set. Not exposed as bean itself: Look up the factory via the
+     * "&" prefix in front of its bean name, and call this method on it.
+     *
+     * @see com.interface21.beans.factory.support.AbstractBeanFactory#FACTORY_BEAN_PREFIX
+     */
+    public Object getAsyncObject() {
+        return this.asyncProxy;
+    }
+
+    /**
+     * Shut down the thread pool for asynchronous invocations, if created.
+     */
+    public void destroy() {
+        synchronized (this) {
+            if (this.ownAsyncExecutor != null) {
+                this.ownAsyncExecutor.shutdownNow();
+                this.ownAsyncExecutor = null;
+                this.asyncInvoker = null;
+            }
+        }
     }
 
     /**
@@ -98,4 +235,19 @@ public abstract class RemoteProxyFactoryBean implements FactoryBean, Initializin
         return null;
     }
 
+
+    /**
+     * Creates daemon threads named after the service URL.
+     */
+    private class AsyncThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "remote-async-" + this.threadCount.incrementAndGet() + " [" + serviceUrl + "]");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.support;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.interface21.web.util.WebUtils;
+
+/**
+ * Helper methods for buffered and compressed HTTP streams of remoting
+ * protocols, shared by service exporters and proxies.
+ * <p>
+ * <p>Supports the "gzip" and "deflate" content encodings. Response
+ * compression is negotiated via the Accept-Encoding request header.
+ *
+ * @see BufferedContentOutputStream
+ */
+public abstract class RemoteStreamUtils {
+
+    public static final String HEADER_ACCEPT_ENCODING = WebUtils.HEADER_ACCEPT_ENCODING;
+
+    public static final String HEADER_CONTENT_ENCODING = WebUtils.HEADER_CONTENT_ENCODING;
+
+    public static final String ENCODING_GZIP = WebUtils.ENCODING_GZIP;
+
+    public static final String ENCODING_DEFLATE = WebUtils.ENCODING_DEFLATE;
+
+    /**
+     * Value for the Accept-Encoding header of clients
+     */
+    public static final String ACCEPTED_ENCODINGS = ENCODING_GZIP + ", " + ENCODING_DEFLATE;
+
+    public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    /**
+     * Choose the content encoding for a response,
+     * according to the given Accept-Encoding header.
+     *
+     * @param acceptEncoding the Accept-Encoding header value, or null
+     * @return "gzip", "deflate", or null if neither is accepted
+     * @see WebUtils#negotiateEncoding
+     */
+    public static String negotiateEncoding(String acceptEncoding) {
+        return WebUtils.negotiateEncoding(acceptEncoding);
+    }
+
+    /**
+     * Return a buffered stream that decodes the given stream
+     * according to the given content encoding.
+     *
+     * @param in              the raw stream
+     * @param contentEncoding the Content-Encoding header value, or null
+     * @param bufferSize      the size of the read buffer
+     * @return the decoding stream
+     * @throws IOException if the content encoding isn't supported,
+     *                     or the gzip header couldn't be read
+     */
+    public static InputStream getDecodingInputStream(InputStream in, String contentEncoding, int bufferSize)
+            throws IOException {
+        if (contentEncoding == null || contentEncoding.equalsIgnoreCase("identity")) {
+            return new BufferedInputStream(in, bufferSize);
+        }
+        if (ENCODING_GZIP.equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding)) {
+            return new GZIPInputStream(in, bufferSize);
+        }
+        if (ENCODING_DEFLATE.equalsIgnoreCase(contentEncoding)) {
+            return new InflaterInputStream(in, new Inflater(), bufferSize);
+        }
+        throw new IOException("Unsupported content encoding [" + contentEncoding + "]");
+    }
+
+    /**
+     * Return a stream that encodes to the given stream
+     * according to the given content encoding.
+     *
+     * @param out      the raw stream
+     * @param encoding "gzip" or "deflate"
+     * @return the encoding stream, to be closed when done
+     */
+    public static OutputStream getEncodingOutputStream(OutputStream out, String encoding) throws IOException {
+        if (ENCODING_GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, 8192);
+        }
+        if (ENCODING_DEFLATE.equals(encoding)) {
+            return new DeflaterOutputStream(out, new Deflater(), 8192);
+        }
+        throw new IllegalArgumentException("Unsupported content encoding [" + encoding + "]");
+    }
+
+    /**
+     * Return a buffered, decoding stream for the body of the given request.
+     *
+     * @see #getDecodingInputStream
+     */
+    public static InputStream getRequestInputStream(HttpServletRequest request, int bufferSize) throws IOException {
+        return getDecodingInputStream(request.getInputStream(), request.getHeader(HEADER_CONTENT_ENCODING), bufferSize);
+    }
+
+    /**
+     * Return a buffered stream for the body of the given response, compressing
+     * content of at least compressionThreshold bytes if the client accepts it.
+     * The stream must be closed to send the content.
+     *
+     * @param request              the current request, for the Accept-Encoding header
+     * @param response             the response to write to
+     * @param bufferSize           the size of the buffer: smaller content gets an
+     *                             exact Content-Length, larger content is streamed
+     * @param compressionThreshold the minimum content size for compression,
+     *                             or -1 for no compression
+     * @return the buffered stream
+     */
+    public static BufferedContentOutputStream getResponseOutputStream(
+            HttpServletRequest request, final HttpServletResponse response, int bufferSize, int compressionThreshold) {
+        String encoding = null;
+        if (compressionThreshold >= 0) {
+            response.setHeader("Vary", HEADER_ACCEPT_ENCODING);
+            encoding = negotiateEncoding(request.getHeader(HEADER_ACCEPT_ENCODING));
+        }
+        return new BufferedContentOutputStream(new BufferedContentOutputStream.ContentTarget() {
+            public void setContentEncoding(String contentEncoding) {
+                response.setHeader(HEADER_CONTENT_ENCODING, contentEncoding);
+            }
+
+            public void setContentLength(int contentLength) {
+                response.setContentLength(contentLength);
+            }
+
+            public OutputStream getOutputStream() throws IOException {
+                return response.getOutputStream();
+            }
+        }, bufferSize, encoding, compressionThreshold);
+    }
+
+}
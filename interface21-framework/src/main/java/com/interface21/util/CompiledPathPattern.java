@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Path pattern in PathMatcher syntax, compiled once into segment descriptors,
+ * for matching many paths against the same pattern. Matching scans the path
+ * in place: It doesn't tokenize the path or copy it, and doesn't allocate
+ * any objects, so it's suitable for filters that check every request.
+ * <p>
+ * <p>If URI template variables are enabled, a segment of the form
+ * <code>{name}</code> is a variable in addition to the PathMatcher wildcards:
+ * It matches any single segment, like '*', and the matched segment can be
+ * obtained via <code>extractVariables</code>. For example, "/users/{id}/orders"
+ * matches "/users/42/orders", with variable "id" bound to "42". Else braces
+ * are literal characters, as in PathMatcher patterns.
+ * <p>
+ * <p>Matching takes time linear in the path length times the pattern length,
+ * whatever the number of "**" segments: The segments before the first and
+ * after the last "**" are anchored at the start and end of the path, and each
+ * run of segments between "**" is matched at its leftmost possible position,
+ * which never needs to be revised.
+ * <p>
+ * <p>Instances are immutable and threadsafe.
+ *
+ * @see PathMatcher
+ * @see PathMatcher#matchFirst
+ */
+public final class CompiledPathPattern {
+
+    /**
+     * Segment without wildcards, compared character by character
+     */
+    private static final int LITERAL = 0;
+
+    /**
+     * Segment consisting of '*' only: matches any segment
+     */
+    private static final int ANY = 1;
+
+    /**
+     * Segment with '?' but no '*' wildcards: compared by length
+     * and character by character, skipping '?' positions
+     */
+    private static final int QUESTION_MASK = 2;
+
+    /**
+     * Segment with '*' wildcards, and possibly '?' ones
+     */
+    private static final int WILDCARD = 3;
+
+    /**
+     * "**": zero or more segments
+     */
+    private static final int DOUBLE_STAR = 4;
+
+    /**
+     * URI template variable: matches any segment, like ANY
+     */
+    private static final int VARIABLE = 5;
+
+
+    private final String pattern;
+
+    private final boolean templateVariables;
+
+    private final boolean absolute;
+
+    private final int[] segmentTypes;
+
+    /**
+     * Segment text; variable name for VARIABLE segments
+     */
+    private final String[] segments;
+
+    private final String[] variableNames;
+
+    /**
+     * Index of the first "**" segment, or -1 if none
+     */
+    private final int firstDoubleStar;
+
+    /**
+     * Index of the last "**" segment, or -1 if none
+     */
+    private final int lastDoubleStar;
+
+    /**
+     * Compile the given pattern, treating braces as literal characters.
+     *
+     * @param pattern the pattern, in PathMatcher syntax
+     */
+    public CompiledPathPattern(String pattern) {
+        this(pattern, false);
+    }
+
+    /**
+     * Compile the given pattern.
+     *
+     * @param pattern           the pattern, in PathMatcher syntax plus
+     *                          <code>{name}</code> variable segments if enabled
+     * @param templateVariables whether <code>{name}</code> segments are
+     *                          URI template variables rather than literals
+     */
+    public CompiledPathPattern(String pattern, boolean templateVariables) {
+        this.pattern = pattern;
+        this.templateVariables = templateVariables;
+        this.absolute = pattern.startsWith("/");
+        String[] tokens = (String[]) PathMatcher.tokenizePath(pattern).toArray(new String[0]);
+        this.segmentTypes = new int[tokens.length];
+        this.segments = new String[tokens.length];
+        int variableCount = 0;
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            int type = segmentType(token, templateVariables);
+            if (type == DOUBLE_STAR) {
+                if (first == -1) {
+                    first = i;
+                }
+                last = i;
+            } else if (type == VARIABLE) {
+                token = token.substring(1, token.length() - 1);
+                variableCount++;
+            }
+            this.segmentTypes[i] = type;
+            this.segments[i] = token;
+        }
+        this.firstDoubleStar = first;
+        this.lastDoubleStar = last;
+        this.variableNames = new String[variableCount];
+        for (int i = 0, v = 0; i < tokens.length; i++) {
+            if (this.segmentTypes[i] == VARIABLE) {
+                this.variableNames[v++] = this.segments[i];
+            }
+        }
+    }
+
+    private static int segmentType(String segment, boolean templateVariables) {
+        if (segment.equals("**")) {
+            return DOUBLE_STAR;
+        }
+        if (templateVariables && segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}') {
+            return VARIABLE;
+        }
+        if (segment.indexOf('*') != -1) {
+            for (int i = 0; i < segment.length(); i++) {
+                if (segment.charAt(i) != '*') {
+                    return WILDCARD;
+                }
+            }
+            return ANY;
+        }
+        return (segment.indexOf('?') != -1 ? QUESTION_MASK : LITERAL);
+    }
+
+    /**
+     * Return the pattern this object has been compiled from.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Return the names of the URI template variables, in pattern order.
+     */
+    public String[] getVariableNames() {
+        return (String[]) variableNames.clone();
+    }
+
+    /**
+     * Return whether the given path matches this pattern.
+     *
+     * @param path the path to test
+     */
+    public boolean matches(String path) {
+        if (path.startsWith("/") != this.absolute) {
+            return false;
+        }
+        return matchSegments(path, skipSlashes(path, 0), null);
+    }
+
+    /**
+     * Match the given path and return the values of the URI template variables.
+     *
+     * @param path the path to match
+     * @return Map from variable name to matched segment (empty if the pattern
+     * doesn't declare variables), or null if the path doesn't match
+     */
+    public Map extractVariables(String path) {
+        if (path.startsWith("/") != this.absolute) {
+            return null;
+        }
+        int[] bounds = new int[this.segments.length * 2];
+        if (!matchSegments(path, skipSlashes(path, 0), bounds)) {
+            return null;
+        }
+        Map variables = new HashMap();
+        for (int i = 0; i < this.segments.length; i++) {
+            if (this.segmentTypes[i] == VARIABLE) {
+                variables.put(this.segments[i], path.substring(bounds[2 * i], bounds[2 * i + 1]));
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Match all pattern segments against the path from the given position,
+     * which is never a slash.
+     *
+     * @param bounds array to record start and end of the path
+     *               segment matched by each pattern segment, or null
+     */
+    private boolean matchSegments(String path, int pos, int[] bounds) {
+        int prefixEnd = (this.firstDoubleStar != -1 ? this.firstDoubleStar : this.segments.length);
+        for (int i = 0; i < prefixEnd; i++) {
+            pos = matchSegmentAt(i, path, pos, path.length(), bounds);
+            if (pos == -1) {
+                return false;
+            }
+        }
+        if (this.firstDoubleStar == -1) {
+            return (pos == path.length());
+        }
+
+        // match the segments after the last "**" backwards from the end of the path
+        int end = path.length();
+        for (int i = this.segments.length - 1; i > this.lastDoubleStar; i--) {
+            while (end > pos && path.charAt(end - 1) == '/') {
+                end--;
+            }
+            if (end == pos) {
+                return false;
+            }
+            int start = path.lastIndexOf('/', end - 1) + 1;
+            if (!matchSegment(i, path, start, end)) {
+                return false;
+            }
+            if (bounds != null) {
+                bounds[2 * i] = start;
+                bounds[2 * i + 1] = end;
+            }
+            end = start;
+        }
+
+        // find each run of segments between "**" at its leftmost position
+        int i = this.firstDoubleStar + 1;
+        while (i < this.lastDoubleStar) {
+            if (this.segmentTypes[i] == DOUBLE_STAR) {
+                i++;
+                continue;
+            }
+            int runEnd = i;
+            while (this.segmentTypes[runEnd] != DOUBLE_STAR) {
+                runEnd++;
+            }
+            int next = -1;
+            for (int start = pos; next == -1; start = skipSlashes(path, segmentEnd(path, start))) {
+                if (start >= end) {
+                    return false;
+                }
+                next = matchRun(i, runEnd, path, start, end, bounds);
+            }
+            pos = next;
+            i = runEnd;
+        }
+        return true;
+    }
+
+    /**
+     * Match the pattern segments from index <code>from</code> (inclusive) to
+     * <code>to</code> (exclusive) against consecutive path segments.
+     *
+     * @return the position after the matched path segments, or -1 if they don't match
+     */
+    private int matchRun(int from, int to, String path, int pos, int limit, int[] bounds) {
+        for (int i = from; i < to && pos != -1; i++) {
+            pos = matchSegmentAt(i, path, pos, limit, bounds);
+        }
+        return pos;
+    }
+
+    /**
+     * Match the given pattern segment against the path segment at the given position.
+     *
+     * @return the position of the next path segment, or -1 if the segment doesn't match
+     */
+    private int matchSegmentAt(int index, String path, int pos, int limit, int[] bounds) {
+        if (pos >= limit) {
+            return -1;
+        }
+        int end = segmentEnd(path, pos);
+        if (!matchSegment(index, path, pos, end)) {
+            return -1;
+        }
+        if (bounds != null) {
+            bounds[2 * index] = pos;
+            bounds[2 * index + 1] = end;
+        }
+        return skipSlashes(path, end);
+    }
+
+    private boolean matchSegment(int index, String path, int start, int end) {
+        String segment = this.segments[index];
+        switch (this.segmentTypes[index]) {
+            case LITERAL:
+                return (end - start == segment.length() && path.regionMatches(start, segment, 0, segment.length()));
+            case ANY:
+            case VARIABLE:
+                return true;
+            case QUESTION_MASK:
+                if (end - start != segment.length()) {
+                    return false;
+                }
+                for (int i = 0; i < segment.length(); i++) {
+                    char c = segment.charAt(i);
+                    if (c != '?' && c != path.charAt(start + i)) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return PathMatcher.matchSegment(segment, path, start, end);
+        }
+    }
+
+    private static int skipSlashes(String path, int pos) {
+        while (pos < path.length() && path.charAt(pos) == '/') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int segmentEnd(String path, int pos) {
+        int end = path.indexOf('/', pos);
+        return (end != -1 ? end : path.length());
+    }
+
+    public boolean equals(Object other) {
+        if (!(other instanceof CompiledPathPattern)) {
+            return false;
+        }
+        CompiledPathPattern otherPattern = (CompiledPathPattern) other;
+        return (this.pattern.equals(otherPattern.pattern) && this.templateVariables == otherPattern.templateVariables);
+    }
+
+    public int hashCode() {
+        return this.pattern.hashCode();
+    }
+
+    public String toString() {
+        return this.pattern;
+    }
+
+}
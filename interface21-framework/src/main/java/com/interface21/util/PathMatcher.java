@@ -5,7 +5,10 @@
 package com.interface21.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 /**
@@ -29,277 +32,114 @@ import java.util.StringTokenizer;
  * <li>com/**\/servlet/bla.jsp - matches com/interface21/servlet/bla.jsp but
  * also com/interface21/testing/servlet/bla.jsp and com/servlet/bla.jsp</li>
  * </ul>
+ * <p>
+ * <p>Patterns that are matched repeatedly should be compiled once into a
+ * CompiledPathPattern, which matches without allocating any objects.
  *
  * @author Alef Arendsen
+ * @see CompiledPathPattern
  */
 public abstract class PathMatcher {
 
     /**
-     * Matches a strign agains the given pattern
+     * Maximum number of compiled patterns kept for <code>match</code>
+     */
+    private static final int MAX_CACHED_PATTERNS = 256;
+
+    /**
+     * Patterns compiled by <code>match</code>, least recently used first
+     */
+    private static final Map compiledPatterns = Collections.synchronizedMap(
+            new LinkedHashMap(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry eldest) {
+                    return size() > MAX_CACHED_PATTERNS;
+                }
+            });
+
+    /**
+     * Matches a strign agains the given pattern.
+     * Keeps the most recently used patterns compiled: Callers matching many
+     * different patterns should hold on to a CompiledPathPattern instead.
      *
      * @param pattern the pattern to match against
      * @param str     the string to test
      * @return <code>true</code> is the arguments matched, <code>false</code>
      * otherwise
+     * @see CompiledPathPattern#matches
      */
     public static boolean match(String pattern, String str) {
-        if (str.startsWith("/") !=
-                pattern.startsWith("/")) {
-            return false;
-        }
-
-        List patDirs = tokenizePath(pattern);
-        List strDirs = tokenizePath(str);
-
-        int patIdxStart = 0;
-        int patIdxEnd = patDirs.size() - 1;
-        int strIdxStart = 0;
-        int strIdxEnd = strDirs.size() - 1;
-
-        // match all elements up to the first **
-        while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
-            String patDir = (String) patDirs.get(patIdxStart);
-            if (patDir.equals("**")) {
-                break;
-            }
-            if (!matchStrings(patDir, (String) strDirs.get(strIdxStart))) {
-                return false;
-            }
-            patIdxStart++;
-            strIdxStart++;
-        }
-
-        if (strIdxStart > strIdxEnd) {
-            // String is exhausted, only match if rest of pattern is **'s
-            for (int i = patIdxStart; i <= patIdxEnd; i++) {
-                if (!patDirs.get(i).equals("**")) {
-                    return false;
-                }
-            }
-            return true;
-        } else {
-            if (patIdxStart > patIdxEnd) {
-                // String not exhausted, but pattern is. Failure.
-                return false;
-            }
-        }
-
-        // up to last '**'
-        while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
-            String patDir = (String) patDirs.get(patIdxEnd);
-            if (patDir.equals("**")) {
-                break;
-            }
-            if (!matchStrings(patDir, (String) strDirs.get(strIdxEnd))) {
-                return false;
-            }
-            patIdxEnd--;
-            strIdxEnd--;
-        }
-        if (strIdxStart > strIdxEnd) {
-            // String is exhausted
-            for (int i = patIdxStart; i <= patIdxEnd; i++) {
-                if (!patDirs.get(i).equals("**")) {
-                    return false;
-                }
-            }
-            return true;
-        }
-
-        while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
-            int patIdxTmp = -1;
-            for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
-                if (patDirs.get(i).equals("**")) {
-                    patIdxTmp = i;
-                    break;
-                }
-            }
-            if (patIdxTmp == patIdxStart + 1) {
-                // '**/**' situation, so skip one
-                patIdxStart++;
-                continue;
-            }
-            // Find the pattern between padIdxStart & padIdxTmp in str between
-            // strIdxStart & strIdxEnd
-            int patLength = (patIdxTmp - patIdxStart - 1);
-            int strLength = (strIdxEnd - strIdxStart + 1);
-            int foundIdx = -1;
-            strLoop:
-            for (int i = 0; i <= strLength - patLength; i++) {
-                for (int j = 0; j < patLength; j++) {
-                    String subPat = (String) patDirs.get(patIdxStart + j + 1);
-                    String subStr = (String) strDirs.get(strIdxStart + i + j);
-                    if (!matchStrings(subPat, subStr)) {
-                        continue strLoop;
-                    }
-                }
-
-                foundIdx = strIdxStart + i;
-                break;
-            }
-
-            if (foundIdx == -1) {
-                return false;
-            }
-
-            patIdxStart = patIdxTmp;
-            strIdxStart = foundIdx + patLength;
+        CompiledPathPattern compiled = (CompiledPathPattern) compiledPatterns.get(pattern);
+        if (compiled == null) {
+            compiled = new CompiledPathPattern(pattern);
+            compiledPatterns.put(pattern, compiled);
         }
+        return compiled.matches(str);
+    }
 
-        for (int i = patIdxStart; i <= patIdxEnd; i++) {
-            if (!patDirs.get(i).equals("**")) {
-                return false;
+    /**
+     * Match the given string against the given patterns in turn.
+     *
+     * @param patterns the patterns to match against
+     * @param str      the string to test
+     * @return the index of the first matching pattern, or -1 if none matches
+     */
+    public static int matchFirst(CompiledPathPattern[] patterns, String str) {
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].matches(str)) {
+                return i;
             }
         }
-
-        return true;
+        return -1;
     }
 
-
     /**
-     * Tests whether or not a string matches against a pattern.
+     * Tests whether or not a section of a string matches against a pattern
+     * for a single path element, without copying the string.
      * The pattern may contain two special characters:<br>
      * '*' means zero or more characters<br>
      * '?' means one and only one character
      *
      * @param pattern pattern to match against.
      *                Must not be <code>null</code>.
-     * @param str     string which must be matched against the pattern.
+     * @param str     string containing the section to match.
      *                Must not be <code>null</code>.
-     * @return <code>true</code> if the string matches against the
+     * @param start   start index of the section (inclusive)
+     * @param end     end index of the section (exclusive)
+     * @return <code>true</code> if the section matches against the
      * pattern, or <code>false</code> otherwise.
      */
-    private static boolean matchStrings(String pattern, String str) {
-        char[] patArr = pattern.toCharArray();
-        char[] strArr = str.toCharArray();
-        int patIdxStart = 0;
-        int patIdxEnd = patArr.length - 1;
-        int strIdxStart = 0;
-        int strIdxEnd = strArr.length - 1;
-        char ch;
-
-        boolean containsStar = false;
-        for (int i = 0; i < patArr.length; i++) {
-            if (patArr[i] == '*') {
-                containsStar = true;
-                break;
-            }
-        }
-
-        if (!containsStar) {
-            // No '*'s, so we make a shortcut
-            if (patIdxEnd != strIdxEnd) {
-                return false; // Pattern and string do not have the same size
-            }
-            for (int i = 0; i <= patIdxEnd; i++) {
-                ch = patArr[i];
-                if (ch != '?') {
-                    if (ch != strArr[i]) {
-                        return false;// Character mismatch
-                    }
-                }
-            }
-            return true; // String matches against pattern
-        }
-
-
-        if (patIdxEnd == 0) {
-            return true; // Pattern contains only '*', which matches anything
-        }
-
-        // Process characters before first star
-        while ((ch = patArr[patIdxStart]) != '*' && strIdxStart <= strIdxEnd) {
-            if (ch != '?') {
-                if (ch != strArr[strIdxStart]) {
-                    return false;// Character mismatch
+    public static boolean matchSegment(String pattern, String str, int start, int end) {
+        int patIdx = 0;
+        int strIdx = start;
+        // position of the last '*' seen, and of the string when we saw it
+        int starIdx = -1;
+        int starMatchIdx = start;
+        while (strIdx < end) {
+            if (patIdx < pattern.length()) {
+                char ch = pattern.charAt(patIdx);
+                if (ch == '*') {
+                    starIdx = patIdx++;
+                    starMatchIdx = strIdx;
+                    continue;
                 }
-            }
-            patIdxStart++;
-            strIdxStart++;
-        }
-        if (strIdxStart > strIdxEnd) {
-            // All characters in the string are used. Check if only '*'s are
-            // left in the pattern. If so, we succeeded. Otherwise failure.
-            for (int i = patIdxStart; i <= patIdxEnd; i++) {
-                if (patArr[i] != '*') {
-                    return false;
+                if (ch == '?' || ch == str.charAt(strIdx)) {
+                    patIdx++;
+                    strIdx++;
+                    continue;
                 }
             }
-            return true;
-        }
-
-        // Process characters after last star
-        while ((ch = patArr[patIdxEnd]) != '*' && strIdxStart <= strIdxEnd) {
-            if (ch != '?') {
-                if (ch != strArr[strIdxEnd]) {
-                    return false;// Character mismatch
-                }
-            }
-            patIdxEnd--;
-            strIdxEnd--;
-        }
-        if (strIdxStart > strIdxEnd) {
-            // All characters in the string are used. Check if only '*'s are
-            // left in the pattern. If so, we succeeded. Otherwise failure.
-            for (int i = patIdxStart; i <= patIdxEnd; i++) {
-                if (patArr[i] != '*') {
-                    return false;
-                }
-            }
-            return true;
-        }
-
-        // process pattern between stars. padIdxStart and patIdxEnd point
-        // always to a '*'.
-        while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
-            int patIdxTmp = -1;
-            for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
-                if (patArr[i] == '*') {
-                    patIdxTmp = i;
-                    break;
-                }
-            }
-            if (patIdxTmp == patIdxStart + 1) {
-                // Two stars next to each other, skip the first one.
-                patIdxStart++;
-                continue;
-            }
-            // Find the pattern between padIdxStart & padIdxTmp in str between
-            // strIdxStart & strIdxEnd
-            int patLength = (patIdxTmp - patIdxStart - 1);
-            int strLength = (strIdxEnd - strIdxStart + 1);
-            int foundIdx = -1;
-            strLoop:
-            for (int i = 0; i <= strLength - patLength; i++) {
-                for (int j = 0; j < patLength; j++) {
-                    ch = patArr[patIdxStart + j + 1];
-                    if (ch != '?') {
-                        if (ch != strArr[strIdxStart + i + j]) {
-                            continue strLoop;
-                        }
-                    }
-                }
-
-                foundIdx = strIdxStart + i;
-                break;
-            }
-
-            if (foundIdx == -1) {
+            if (starIdx == -1) {
                 return false;
             }
-
-            patIdxStart = patIdxTmp;
-            strIdxStart = foundIdx + patLength;
+            // mismatch: let the last '*' consume one more character
+            patIdx = starIdx + 1;
+            strIdx = ++starMatchIdx;
         }
-
-        // All characters in the string are used. Check if only '*'s are left
-        // in the pattern. If so, we succeeded. Otherwise failure.
-        for (int i = patIdxStart; i <= patIdxEnd; i++) {
-            if (patArr[i] != '*') {
-                return false;
-            }
+        // string is exhausted: only '*'s may be left in the pattern
+        while (patIdx < pattern.length() && pattern.charAt(patIdx) == '*') {
+            patIdx++;
         }
-        return true;
+        return (patIdx == pattern.length());
     }
 
     /**
@@ -308,7 +148,7 @@ public abstract class PathMatcher {
      * @param path Path to tokenize. Must not be <code>null</code>.
      * @return a List of path elements from the tokenized path
      */
-    private static List tokenizePath(String path) {
+    static List tokenizePath(String path) {
         List ret = new ArrayList();
         StringTokenizer st = new StringTokenizer(path, "/");
         while (st.hasMoreTokens()) {
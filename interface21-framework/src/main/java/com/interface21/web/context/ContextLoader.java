@@ -4,6 +4,8 @@
 
 package com.interface21.web.context;
 
+import java.io.File;
+
 import javax.servlet.ServletContext;
 
 import com.interface21.web.context.support.WebApplicationContextUtils;
@@ -11,7 +13,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.interface21.beans.BeansException;
+import com.interface21.beans.factory.support.BeanCreationProfiler;
 import com.interface21.context.ApplicationContextException;
+import com.interface21.context.support.AbstractApplicationContext;
+import com.interface21.context.support.AbstractXmlApplicationContext;
 import com.interface21.web.context.support.XmlWebApplicationContext;
 
 /**
@@ -20,6 +25,8 @@ import com.interface21.web.context.support.XmlWebApplicationContext;
  * <p>
  * <p>Regards a "contextClass" parameter at the servlet context resp. web.xml root level,
  * falling back to the default context class (XmlWebApplicationContext) if not found.
+ * A "profileStartup" parameter of "true" logs a startup profile of the root context,
+ * a "contextSnapshot" parameter specifies a file to snapshot its configuration in.
  *
  * @author Juergen Hoeller
  * @see ContextLoaderListener
@@ -35,6 +42,21 @@ public class ContextLoader {
 
     public static final Class DEFAULT_CONTEXT_CLASS = XmlWebApplicationContext.class;
 
+    /**
+     * Config param that enables a startup profile of the root context if "true".
+     *
+     * @see AbstractApplicationContext#setStartupProfiler
+     */
+    public static final String PROFILE_STARTUP_PARAM = "profileStartup";
+
+    /**
+     * Config param for the path of a file to keep a snapshot
+     * of the root context's configuration in.
+     *
+     * @see AbstractXmlApplicationContext#setSnapshotFile
+     */
+    public static final String CONTEXT_SNAPSHOT_PARAM = "contextSnapshot";
+
     private static final Log logger = LogFactory.getLog(ContextLoader.class);
 
     /**
@@ -60,6 +82,14 @@ public class ContextLoader {
             }
 
             WebApplicationContext webApplicationContext = (WebApplicationContext) clazz.newInstance();
+            if ("true".equals(servletContext.getInitParameter(PROFILE_STARTUP_PARAM)) &&
+                    webApplicationContext instanceof AbstractApplicationContext) {
+                ((AbstractApplicationContext) webApplicationContext).setStartupProfiler(new BeanCreationProfiler());
+            }
+            String snapshotPath = servletContext.getInitParameter(CONTEXT_SNAPSHOT_PARAM);
+            if (snapshotPath != null && webApplicationContext instanceof AbstractXmlApplicationContext) {
+                ((AbstractXmlApplicationContext) webApplicationContext).setSnapshotFile(new File(snapshotPath));
+            }
             webApplicationContext.setServletContext(servletContext);
             return webApplicationContext;
 
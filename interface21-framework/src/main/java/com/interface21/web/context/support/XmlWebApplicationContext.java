@@ -23,6 +23,7 @@ import com.interface21.web.context.WebApplicationContext;
 import com.interface21.web.servlet.FrameworkServlet;
 
 import javax.servlet.ServletContext;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -193,6 +194,17 @@ public class XmlWebApplicationContext extends AbstractXmlUiApplicationContext im
         return in;
     }
 
+    /**
+     * This implementation returns the modification date of the config file,
+     * if the config location is a path that the servlet container can
+     * resolve to a file, e.g. in an expanded WAR file. Else returns 0.
+     */
+    protected long getLastModifiedForBeanFactory() {
+        String path = (this.configLocation.startsWith("/") ? this.configLocation : "/" + this.configLocation);
+        String realPath = getServletContext().getRealPath(path);
+        return (realPath != null ? new File(realPath).lastModified() : 0);
+    }
+
     /**
      * This implementation supports file paths beneath the root
      * of the web application.
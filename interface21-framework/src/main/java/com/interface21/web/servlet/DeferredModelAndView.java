@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet;
+
+import java.util.concurrent.Callable;
+
+/**
+ * ModelAndView placeholder for a result that a handler will only provide later,
+ * typically after waiting for a slow remote service. Returning one detaches the
+ * request from the container thread on Servlet 3 containers: DispatcherServlet
+ * resumes interceptor post-processing, view rendering and event publication
+ * once the result is available, in a container dispatch.
+ * <p>
+ * <p>The result can either be computed by a Callable, which DispatcherServlet
+ * runs on its asynchronous executor, or be set by application code via
+ * setResult or setErrorResult, from any thread. Only the first result counts.
+ * <p>
+ * <p>If no result arrives within the servlet's asynchronous timeout, the
+ * request is answered with HTTP status 503 (service unavailable).
+ * On containers without asynchronous support, the container thread waits
+ * for the result.
+ *
+ * @see DispatcherServlet#setAsyncTimeout
+ * @see DispatcherServlet#ASYNC_EXECUTOR_BEAN_NAME
+ */
+public class DeferredModelAndView extends ModelAndView {
+
+    private final Callable task;
+
+    private ModelAndView result;
+
+    private Throwable errorResult;
+
+    private boolean timedOut;
+
+    private boolean done;
+
+    private Runnable completionCallback;
+
+    /**
+     * Handler execution chain of the request, for resuming it
+     */
+    private HandlerExecutionChain handlerExecutionChain;
+
+    /**
+     * Create a new DeferredModelAndView, to be completed
+     * via setResult or setErrorResult.
+     */
+    public DeferredModelAndView() {
+        this(null);
+    }
+
+    /**
+     * Create a new DeferredModelAndView for the given task.
+     *
+     * @param task Callable returning the ModelAndView to render,
+     *             to be run on the servlet's asynchronous executor
+     */
+    public DeferredModelAndView(Callable task) {
+        super((View) null);
+        this.task = task;
+    }
+
+    /**
+     * Return the task computing the result, or null if none.
+     */
+    public Callable getTask() {
+        return task;
+    }
+
+    /**
+     * Provide the ModelAndView to render.
+     *
+     * @param result the ModelAndView, or null if the response has
+     *               been written already
+     * @return whether the result has been accepted: false if this object
+     * has already been completed or has timed out
+     */
+    public boolean setResult(ModelAndView result) {
+        return complete(result, null, false);
+    }
+
+    /**
+     * Complete this object with the given error, to be thrown
+     * when the request gets resumed.
+     *
+     * @return whether the error has been accepted: false if this object
+     * has already been completed or has timed out
+     */
+    public boolean setErrorResult(Throwable errorResult) {
+        return complete(null, errorResult, false);
+    }
+
+    /**
+     * Return whether a result, an error or a timeout has been recorded.
+     */
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    synchronized ModelAndView getResult() {
+        return result;
+    }
+
+    synchronized Throwable getErrorResult() {
+        return errorResult;
+    }
+
+    synchronized boolean isTimedOut() {
+        return timedOut;
+    }
+
+    boolean setTimedOut() {
+        return complete(null, null, true);
+    }
+
+    void setHandlerExecutionChain(HandlerExecutionChain handlerExecutionChain) {
+        this.handlerExecutionChain = handlerExecutionChain;
+    }
+
+    HandlerExecutionChain getHandlerExecutionChain() {
+        return handlerExecutionChain;
+    }
+
+    /**
+     * Set the callback to run on completion. Runs it immediately
+     * if this object has already been completed.
+     */
+    void setCompletionCallback(Runnable completionCallback) {
+        synchronized (this) {
+            if (!this.done) {
+                this.completionCallback = completionCallback;
+                return;
+            }
+        }
+        completionCallback.run();
+    }
+
+    /**
+     * Wait for completion.
+     *
+     * @param timeout maximum time to wait in milliseconds
+     * @return whether this object has been completed in time
+     */
+    synchronized boolean await(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!this.done) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private boolean complete(ModelAndView result, Throwable errorResult, boolean timedOut) {
+        Runnable callback;
+        synchronized (this) {
+            if (this.done) {
+                return false;
+            }
+            this.result = result;
+            this.errorResult = errorResult;
+            this.timedOut = timedOut;
+            this.done = true;
+            notifyAll();
+            callback = this.completionCallback;
+        }
+        // run the callback outside of the lock: it dispatches the request
+        if (callback != null) {
+            callback.run();
+        }
+        return true;
+    }
+
+    public String toString() {
+        return "DeferredModelAndView: task=[" + this.task + "]; done=" + isDone();
+    }
+
+}
@@ -21,6 +21,15 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -32,6 +41,7 @@ import com.interface21.context.ApplicationContextException;
 import com.interface21.core.OrderComparator;
 import com.interface21.web.context.ContextLoaderListener;
 import com.interface21.web.context.WebApplicationContext;
+import com.interface21.web.servlet.handler.AbstractHandlerMapping;
 import com.interface21.web.servlet.handler.BeanNameUrlHandlerMapping;
 import com.interface21.web.servlet.i18n.AcceptHeaderLocaleResolver;
 import com.interface21.web.servlet.mvc.SimpleControllerHandlerAdapter;
@@ -66,6 +76,15 @@ import com.interface21.web.util.WebUtils;
  * Standard implementations work via HTTP accept header, cookie, or session.
  * </ul>
  * <p>
+ * <p>Handler resolutions are cached per HTTP method and request path, as long
+ * as the HandlerMappings involved are cacheable. See setHandlerCacheSize.
+ * <p>
+ * <p>Handlers waiting for slow services can return a DeferredModelAndView, to
+ * detach the request from the container thread on Servlet 3 containers.
+ * Interceptor post-processing and view rendering resume once the result
+ * is available. Deferred tasks run on the Executor bean "asyncExecutor",
+ * or on a pool of this servlet (see setAsyncPoolSize).
+ * <p>
  * <p>A web application can use any number of dispatcher servlets.
  * Each servlet will operate in its own namespace. Only the default name space,
  * and any config objects set for the application as a whole, will be shared.
@@ -120,6 +139,36 @@ public class DispatcherServlet extends FrameworkServlet {
      */
     public static final String THEME_RESOLVER_ATTRIBUTE = DispatcherServlet.class.getName() + ".THEME";
 
+    /**
+     * Default maximum number of cached handler resolutions
+     */
+    public static final int DEFAULT_HANDLER_CACHE_SIZE = 256;
+
+    /**
+     * Well-known name for the java.util.concurrent.Executor object in the bean
+     * factory for this namespace, for running the tasks of deferred results.
+     *
+     * @see DeferredModelAndView#getTask
+     */
+    public static final String ASYNC_EXECUTOR_BEAN_NAME = "asyncExecutor";
+
+    /**
+     * Default timeout for deferred results in milliseconds
+     */
+    public static final long DEFAULT_ASYNC_TIMEOUT = 30000;
+
+    /**
+     * Default number of threads for running the tasks of deferred results,
+     * if there's no "asyncExecutor" bean
+     */
+    public static final int DEFAULT_ASYNC_POOL_SIZE = 10;
+
+    /**
+     * Request attribute to hold a completed deferred result
+     * when dispatching the request for resumption
+     */
+    private static final String DEFERRED_RESULT_ATTRIBUTE = DispatcherServlet.class.getName() + ".DEFERRED_RESULT";
+
     /**
      * LocaleResolver used by this servlet
      */
@@ -145,6 +194,69 @@ public class DispatcherServlet extends FrameworkServlet {
      */
     private ViewResolver viewResolver;
 
+    private int handlerCacheSize = DEFAULT_HANDLER_CACHE_SIZE;
+
+    /**
+     * Cache of handler resolutions, or null if disabled
+     */
+    private HandlerResolutionCache handlerCache;
+
+    private long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+
+    private int asyncPoolSize = DEFAULT_ASYNC_POOL_SIZE;
+
+    /**
+     * Executor for the tasks of deferred results
+     */
+    private Executor asyncExecutor;
+
+    /**
+     * Thread pool created by this servlet, if no executor bean has been found
+     */
+    private ExecutorService ownAsyncExecutor;
+
+    /**
+     * Scheduler for timing out deferred results of detached requests
+     */
+    private ScheduledExecutorService asyncTimeoutScheduler;
+
+    /**
+     * Set the maximum number of handler resolutions to cache, keyed by
+     * HTTP method and request path. Only resolutions by cacheable
+     * HandlerMappings are cached. Default is 256; 0 disables the cache.
+     *
+     * @see com.interface21.web.servlet.handler.AbstractHandlerMapping#setCacheable
+     */
+    public final void setHandlerCacheSize(int handlerCacheSize) {
+        this.handlerCacheSize = handlerCacheSize;
+    }
+
+    /**
+     * Return the cache of handler resolutions, giving access to its hit
+     * statistics, or null if caching is disabled.
+     */
+    public final HandlerResolutionCache getHandlerCache() {
+        return handlerCache;
+    }
+
+    /**
+     * Set the time in milliseconds that a request waits for a deferred result.
+     * Requests without a result by then are answered with HTTP status 503.
+     * Default is 30 seconds.
+     *
+     * @see DeferredModelAndView
+     */
+    public final void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    /**
+     * Set the number of threads of the pool for running the tasks of deferred
+     * results, if no "asyncExecutor" bean is defined. Default is 10.
+     */
+    public final void setAsyncPoolSize(int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
 
     /**
      * Overridden method, invoked after any bean properties have been set and the
@@ -158,6 +270,24 @@ public class DispatcherServlet extends FrameworkServlet {
         initHandlerMappings();
         initHandlerAdapters();
         initViewResolver();
+        initAsyncExecutor();
+        if (this.handlerCacheSize > 0) {
+            this.handlerCache = new HandlerResolutionCache(this.handlerCacheSize);
+        }
+    }
+
+    public void destroy() {
+        if (this.handlerCache != null) {
+            logger.info("Handler cache of servlet '" + getServletName() + "': " + this.handlerCache.getHitCount() +
+                    " hits, " + this.handlerCache.getMissCount() + " misses");
+        }
+        if (this.ownAsyncExecutor != null) {
+            this.ownAsyncExecutor.shutdown();
+        }
+        if (this.asyncTimeoutScheduler != null) {
+            this.asyncTimeoutScheduler.shutdownNow();
+        }
+        super.destroy();
     }
 
     /**
@@ -333,6 +463,28 @@ public class DispatcherServlet extends FrameworkServlet {
     }
 
 
+    /**
+     * Initialize the Executor for the tasks of deferred results.
+     * If no bean is defined with the given name in the BeanFactory
+     * for this namespace, we create a fixed thread pool. Its threads
+     * only get started once tasks are submitted.
+     */
+    private void initAsyncExecutor() throws ServletException {
+        try {
+            this.asyncExecutor = (Executor) getWebApplicationContext().getBean(ASYNC_EXECUTOR_BEAN_NAME);
+            logger.info("Loaded async executor [" + this.asyncExecutor + "]");
+        } catch (NoSuchBeanDefinitionException ex) {
+            this.ownAsyncExecutor = Executors.newFixedThreadPool(this.asyncPoolSize, new AsyncThreadFactory("-async-"));
+            this.asyncExecutor = this.ownAsyncExecutor;
+            logger.info("Unable to locate async executor with name '" + ASYNC_EXECUTOR_BEAN_NAME + "': using pool of " +
+                    this.asyncPoolSize + " threads");
+        } catch (BeansException ex) {
+            throw new ServletException("Fatal error loading async executor with name '" + ASYNC_EXECUTOR_BEAN_NAME + "'", ex);
+        }
+        this.asyncTimeoutScheduler = Executors.newSingleThreadScheduledExecutor(new AsyncThreadFactory("-async-timeout-"));
+    }
+
+
     /**
      * Obtain and use the handler for this method.
      * The handler will be obtained by applying the servlet's HandlerMappings in order.
@@ -344,7 +496,17 @@ public class DispatcherServlet extends FrameworkServlet {
     protected void doService(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        logger.debug("DispatcherServlet with name '" + getServletName() + "' received request for [" + WebUtils.getRequestUri(request) + "]");
+        DeferredModelAndView deferred = (DeferredModelAndView) request.getAttribute(DEFERRED_RESULT_ATTRIBUTE);
+        if (deferred != null) {
+            // Dispatched by the container after the deferred result has arrived
+            request.removeAttribute(DEFERRED_RESULT_ATTRIBUTE);
+            resumeDeferred(request, response, deferred);
+            return;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("DispatcherServlet with name '" + getServletName() + "' received request for [" + WebUtils.getRequestUri(request) + "]");
+        }
 
         // Make web application context available
         request.setAttribute(WEB_APPLICATION_CONTEXT_ATTRIBUTE, getWebApplicationContext());
@@ -355,17 +517,17 @@ public class DispatcherServlet extends FrameworkServlet {
         // Make theme resolver available
         request.setAttribute(THEME_RESOLVER_ATTRIBUTE, this.themeResolver);
 
-        HandlerExecutionChain mappedHandler = getHandler(request);
+        HandlerResolutionCache.Resolution resolution = resolveHandler(request);
 
-        if (mappedHandler == null || mappedHandler.getHandler() == null) {
+        if (resolution == null) {
             // if we didn't find a handler
             logger.error("No mapping for [" + WebUtils.getRequestUri(request) + "] in DispatcherServlet with name '" + getServletName() + "'");
             response.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
 
-        // This will throw an exception if no adapter is found
-        HandlerAdapter ha = getHandlerAdapter(mappedHandler.getHandler());
+        HandlerExecutionChain mappedHandler = resolution.getHandlerExecutionChain();
+        HandlerAdapter ha = resolution.getHandlerAdapter();
 
         // Send not-modified header for cache control?
         if (wasRevalidated(request, response, ha, mappedHandler.getHandler())) {
@@ -385,6 +547,21 @@ public class DispatcherServlet extends FrameworkServlet {
         // Actually invoke the handler
         ModelAndView mv = ha.handle(request, response, mappedHandler.getHandler());
 
+        if (mv instanceof DeferredModelAndView) {
+            startDeferred(request, response, mappedHandler, (DeferredModelAndView) mv);
+            return;
+        }
+        processHandlerResult(request, response, mappedHandler, mv);
+    }
+
+    /**
+     * Apply the postHandle methods of the interceptors and render the
+     * ModelAndView returned by the handler, if any.
+     */
+    private void processHandlerResult(HttpServletRequest request, HttpServletResponse response,
+                                      HandlerExecutionChain mappedHandler, ModelAndView mv)
+            throws ServletException, IOException {
+
         // Apply postHandle methods of registered interceptors
         if (mappedHandler.getInterceptors() != null) {
             for (int i = mappedHandler.getInterceptors().length - 1; i >= 0; i--) {
@@ -395,15 +572,117 @@ public class DispatcherServlet extends FrameworkServlet {
 
         // Did the handler return a view to render?
         if (mv != null) {
-            logger.debug("Will render view in DispatcherServlet with name '" + getServletName() + "'");
+            if (logger.isDebugEnabled()) {
+                logger.debug("Will render view in DispatcherServlet with name '" + getServletName() + "'");
+            }
             Locale locale = this.localeResolver.resolveLocale(request);
             response.setLocale(locale);
             render(mv, request, response, locale);
-        } else {
+        } else if (logger.isDebugEnabled()) {
             logger.debug("Null ModelAndView returned to DispatcherServlet with name '" + getServletName() + "': assuming HandlerAdapter completed request handling");
         }
     }
 
+    /**
+     * Wait for the given deferred result: Detach the request from the current
+     * thread if the container supports it, else block the current thread.
+     * Submits the result's task, if any, to the async executor.
+     */
+    private void startDeferred(final HttpServletRequest request, HttpServletResponse response,
+                               HandlerExecutionChain mappedHandler, final DeferredModelAndView deferred)
+            throws ServletException, IOException {
+
+        deferred.setHandlerExecutionChain(mappedHandler);
+        final Object asyncContext = ServletAsyncSupport.startAsync(request);
+        if (asyncContext != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Detached request for [" + WebUtils.getRequestUri(request) + "] awaiting " + deferred);
+            }
+            request.setAttribute(ASYNC_STARTED_ATTRIBUTE, Boolean.TRUE);
+            final Future timeout = this.asyncTimeoutScheduler.schedule(new Runnable() {
+                public void run() {
+                    deferred.setTimedOut();
+                }
+            }, this.asyncTimeout, TimeUnit.MILLISECONDS);
+            deferred.setCompletionCallback(new Runnable() {
+                public void run() {
+                    timeout.cancel(false);
+                    request.setAttribute(DEFERRED_RESULT_ATTRIBUTE, deferred);
+                    try {
+                        ServletAsyncSupport.dispatch(asyncContext);
+                    } catch (ServletException ex) {
+                        logger.error("Could not dispatch request for [" + WebUtils.getRequestUri(request) + "] after deferred result", ex);
+                    }
+                }
+            });
+            submitDeferredTask(deferred);
+            return;
+        }
+
+        // No asynchronous support: wait in this thread
+        submitDeferredTask(deferred);
+        try {
+            if (!deferred.await(this.asyncTimeout)) {
+                deferred.setTimedOut();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            deferred.setErrorResult(new ServletException("Interrupted while waiting for deferred result", ex));
+        }
+        resumeDeferred(request, response, deferred);
+    }
+
+    /**
+     * Submit the task of the given deferred result, if any, to the async executor.
+     */
+    private void submitDeferredTask(final DeferredModelAndView deferred) {
+        if (deferred.getTask() == null) {
+            return;
+        }
+        try {
+            this.asyncExecutor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        deferred.setResult((ModelAndView) deferred.getTask().call());
+                    } catch (Throwable ex) {
+                        deferred.setErrorResult(ex);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            deferred.setErrorResult(new ServletException("Async executor rejected deferred task", ex));
+        }
+    }
+
+    /**
+     * Complete request processing with the outcome of the given deferred result.
+     */
+    private void resumeDeferred(HttpServletRequest request, HttpServletResponse response, DeferredModelAndView deferred)
+            throws ServletException, IOException {
+        if (deferred.isTimedOut()) {
+            logger.warn("No deferred result for [" + WebUtils.getRequestUri(request) + "] within " + this.asyncTimeout + " ms");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        Throwable ex = deferred.getErrorResult();
+        if (ex instanceof ServletException) {
+            throw (ServletException) ex;
+        }
+        if (ex instanceof IOException) {
+            throw (IOException) ex;
+        }
+        if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+        }
+        if (ex instanceof Error) {
+            throw (Error) ex;
+        }
+        if (ex != null) {
+            throw new ServletException("Deferred result failed", ex);
+        }
+        processHandlerResult(request, response, deferred.getHandlerExecutionChain(), deferred.getResult());
+    }
+
     /**
      * Implementation method to support HTTP cache control.
      * Was the request successfully revalidated? In this case we can return.
@@ -454,21 +733,44 @@ public class DispatcherServlet extends FrameworkServlet {
     }
 
     /**
-     * Return the handler for this request.
-     * Try all handler mappings in order.
+     * Return the handler and HandlerAdapter for this request, from the
+     * handler cache if possible.
      *
-     * @return the handler, or null if no handler could be found
+     * @return the resolution, or null if no handler could be found
+     * @throws ServletException if no HandlerAdapter can be found for the handler
      */
-    private HandlerExecutionChain getHandler(HttpServletRequest request) throws ServletException {
-        Iterator itr = this.handlerMappings.iterator();
-        while (itr.hasNext()) {
+    private HandlerResolutionCache.Resolution resolveHandler(HttpServletRequest request) throws ServletException {
+        String cacheKey = null;
+        if (this.handlerCache != null) {
+            cacheKey = HandlerResolutionCache.getCacheKey(request);
+            HandlerResolutionCache.Resolution resolution =
+                    this.handlerCache.get(cacheKey, getWebApplicationContext().getStartupDate());
+            if (resolution != null) {
+                return resolution;
+            }
+        }
+
+        // The result may only be cached if no mapping tried so far looks at other request state
+        boolean cacheable = true;
+        HandlerExecutionChain mappedHandler = null;
+        for (Iterator itr = this.handlerMappings.iterator(); itr.hasNext() && mappedHandler == null; ) {
             HandlerMapping hm = (HandlerMapping) itr.next();
-            logger.debug("Testing handler map [" + hm + "] in DispatcherServlet with name '" + getServletName() + "'");
-            HandlerExecutionChain handler = hm.getHandler(request);
-            if (handler != null)
-                return handler;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Testing handler map [" + hm + "] in DispatcherServlet with name '" + getServletName() + "'");
+            }
+            cacheable = cacheable && hm instanceof AbstractHandlerMapping && ((AbstractHandlerMapping) hm).isCacheable();
+            mappedHandler = hm.getHandler(request);
+        }
+        if (mappedHandler == null || mappedHandler.getHandler() == null) {
+            return null;
+        }
+
+        HandlerResolutionCache.Resolution resolution =
+                new HandlerResolutionCache.Resolution(mappedHandler, getHandlerAdapter(mappedHandler.getHandler()));
+        if (cacheKey != null && cacheable) {
+            this.handlerCache.put(cacheKey, resolution);
         }
-        return null;
+        return resolution;
     }
 
     /**
@@ -481,7 +783,9 @@ public class DispatcherServlet extends FrameworkServlet {
         Iterator itr = this.handlerAdapters.iterator();
         while (itr.hasNext()) {
             HandlerAdapter ha = (HandlerAdapter) itr.next();
-            logger.debug("Testing handler adapter [" + ha + "]");
+            if (logger.isDebugEnabled()) {
+                logger.debug("Testing handler adapter [" + ha + "]");
+            }
             if (ha.supports(handler)) {
                 return ha;
             }
@@ -512,4 +816,25 @@ public class DispatcherServlet extends FrameworkServlet {
         view.render(mv.getModel(), request, response);
     }
 
+
+    /**
+     * Creates daemon threads named after this servlet.
+     */
+    private class AsyncThreadFactory implements ThreadFactory {
+
+        private final String infix;
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private AsyncThreadFactory(String infix) {
+            this.infix = infix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, getServletName() + this.infix + this.threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
 }
@@ -24,7 +24,9 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.interface21.beans.factory.support.BeanCreationProfiler;
 import com.interface21.context.ApplicationContext;
+import com.interface21.context.support.AbstractApplicationContext;
 import com.interface21.web.context.WebApplicationContext;
 import com.interface21.web.context.support.RequestHandledEvent;
 import com.interface21.web.context.support.WebApplicationContextUtils;
@@ -41,7 +43,8 @@ import com.interface21.web.context.support.XmlWebApplicationContext;
  * configuration is determined by the beans in the namespace 'servlet-name'-servlet,
  * if not overridden via the namespace property.
  * <li>Publishes events on request processing, whether or not a request is
- * successfully handled.
+ * successfully handled. For requests that doService detaches from the container
+ * thread, the event gets published once the request has been resumed and completed.
  * </ul>
  * <p>
  * <p>Subclasses must implement doService() to handle requests. Because this extends
@@ -68,6 +71,20 @@ public abstract class FrameworkServlet extends HttpServletBean {
      */
     public static final String SERVLET_CONTEXT_PREFIX = FrameworkServlet.class.getName() + ".CONTEXT.";
 
+    /**
+     * Request attribute to be set by doService if it has started asynchronous
+     * processing of the request, so that request handling isn't considered
+     * complete when doService returns. The request is expected to be
+     * dispatched to this servlet again for completion.
+     */
+    public static final String ASYNC_STARTED_ATTRIBUTE = FrameworkServlet.class.getName() + ".ASYNC_STARTED";
+
+    /**
+     * Request attribute holding the start time of a request
+     * that is being processed asynchronously
+     */
+    private static final String START_TIME_ATTRIBUTE = FrameworkServlet.class.getName() + ".START_TIME";
+
 
     /**
      * Namespace for this servlet
@@ -84,6 +101,11 @@ public abstract class FrameworkServlet extends HttpServletBean {
      */
     private boolean publishContext = true;
 
+    /**
+     * Should we profile the startup of this servlet's context?
+     */
+    private boolean profileStartup = false;
+
     /**
      * WebApplicationContext for this servlet
      */
@@ -130,6 +152,19 @@ public abstract class FrameworkServlet extends HttpServletBean {
         this.publishContext = publishContext;
     }
 
+    /**
+     * Set whether to record a startup profile of this servlet's context:
+     * time and memory spent parsing bean definitions, creating beans and
+     * initializing them. A report of the slowest steps gets logged once the
+     * context has been loaded. Default is false.
+     *
+     * @param profileStartup whether to profile the context's startup
+     * @see AbstractApplicationContext#setStartupProfiler
+     */
+    public final void setProfileStartup(boolean profileStartup) {
+        this.profileStartup = profileStartup;
+    }
+
     /**
      * Return this servlet's WebApplicationContext.
      */
@@ -174,6 +209,9 @@ public abstract class FrameworkServlet extends HttpServletBean {
                 instantiateCustomWebApplicationContext(this.contextClass, parent, namespace) :
                 new XmlWebApplicationContext(parent, namespace);
         logger.info("Loading WebApplicationContext for servlet '" + getServletName() + "': using context class '" + waca.getClass().getName() + "'");
+        if (this.profileStartup && waca instanceof AbstractApplicationContext) {
+            ((AbstractApplicationContext) waca).setStartupProfiler(new BeanCreationProfiler());
+        }
         waca.setServletContext(sc);
 
         if (this.publishContext) {
@@ -239,7 +277,10 @@ public abstract class FrameworkServlet extends HttpServletBean {
      * Both doGet() and doPost() are handled by this method.
      */
     private void serviceWrapper(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        long startTime = System.currentTimeMillis();
+        // Resumed asynchronous requests count from their original start
+        Long originalStartTime = (Long) request.getAttribute(START_TIME_ATTRIBUTE);
+        long startTime = (originalStartTime != null ? originalStartTime.longValue() : System.currentTimeMillis());
+        request.removeAttribute(ASYNC_STARTED_ATTRIBUTE);
         Exception failureCause = null;
         try {
             doService(request, response);
@@ -253,22 +294,33 @@ public abstract class FrameworkServlet extends HttpServletBean {
             failureCause = ex;
             throw new ServletException("Unexpected runtime exception", ex);
         } finally {
-            long processingTime = System.currentTimeMillis() - startTime;
-            // Whether or not we succeeded, publish an event
-            if (failureCause != null) {
-                logger.error("Could not complete request", failureCause);
-                this.webApplicationContext.publishEvent(
-                        new RequestHandledEvent(this, WebUtils.getRequestUri(request), processingTime, request.getRemoteAddr(),
-                                request.getMethod(), getServletConfig().getServletName(), failureCause));
+            if (failureCause == null && request.getAttribute(ASYNC_STARTED_ATTRIBUTE) != null) {
+                // Not complete yet: publish the event once the request has been resumed
+                request.setAttribute(START_TIME_ATTRIBUTE, new Long(startTime));
             } else {
-                logger.debug("Successfully completed request");
-                this.webApplicationContext.publishEvent(
-                        new RequestHandledEvent(this, WebUtils.getRequestUri(request), processingTime, request.getRemoteAddr(),
-                                request.getMethod(), getServletConfig().getServletName()));
+                request.removeAttribute(START_TIME_ATTRIBUTE);
+                publishRequestHandledEvent(request, System.currentTimeMillis() - startTime, failureCause);
             }
         }
     }
 
+    /**
+     * Publish a RequestHandledEvent for the given request, whether or not we succeeded.
+     */
+    private void publishRequestHandledEvent(HttpServletRequest request, long processingTime, Exception failureCause) {
+        if (failureCause != null) {
+            logger.error("Could not complete request", failureCause);
+            this.webApplicationContext.publishEvent(
+                    new RequestHandledEvent(this, WebUtils.getRequestUri(request), processingTime, request.getRemoteAddr(),
+                            request.getMethod(), getServletConfig().getServletName(), failureCause));
+        } else {
+            logger.debug("Successfully completed request");
+            this.webApplicationContext.publishEvent(
+                    new RequestHandledEvent(this, WebUtils.getRequestUri(request), processingTime, request.getRemoteAddr(),
+                            request.getMethod(), getServletConfig().getServletName()));
+        }
+    }
+
 
     /**
      * Subclasses must implement this method to perform any initialization they require.
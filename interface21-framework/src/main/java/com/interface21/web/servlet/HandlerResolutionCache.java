@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.interface21.web.servlet.handler.AbstractHandlerMapping;
+import com.interface21.web.util.WebUtils;
+
+/**
+ * Bounded, threadsafe cache of handler resolutions, used by DispatcherServlet
+ * to skip querying its HandlerMappings and HandlerAdapters for request paths
+ * it has seen before. Keyed by HTTP method and path within the application.
+ * <p>
+ * <p>Entries are tagged with the startup date of the application context they
+ * have been resolved with: A refresh of the context invalidates all of them.
+ * <p>
+ * <p>Lookups go to a ConcurrentHashMap and don't lock, as this cache sits on
+ * the path of every request. A hit only records its time on the resolution.
+ * Eviction runs when a new resolution is added to a full cache: It samples
+ * a few resolutions and evicts the least recently used one among them. So
+ * eviction is approximate, and concurrent additions may briefly take the
+ * cache beyond its maximum size.
+ * <p>
+ * <p>Counts hits and misses, for monitoring the effectiveness of the cache.
+ *
+ * @see DispatcherServlet#setHandlerCacheSize
+ * @see AbstractHandlerMapping#setCacheable
+ */
+public class HandlerResolutionCache {
+
+    /**
+     * Number of resolutions to consider for eviction
+     */
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    /**
+     * Map from String key to Resolution
+     */
+    private final ConcurrentHashMap resolutions = new ConcurrentHashMap();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final int maxSize;
+
+    /**
+     * Startup date of the context the cached resolutions belong to.
+     * Only changed while holding this object's lock.
+     */
+    private volatile long contextStartupDate;
+
+    /**
+     * Create a new HandlerResolutionCache.
+     *
+     * @param maxSize the maximum number of cached resolutions
+     */
+    public HandlerResolutionCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the maximum number of cached resolutions.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return the number of currently cached resolutions.
+     */
+    public int size() {
+        return this.resolutions.size();
+    }
+
+    /**
+     * Return the number of lookups that found a cached resolution.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Return the number of lookups that didn't find a cached resolution.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Return the ratio of hits to all lookups, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long hits = this.hitCount.get();
+        long total = hits + this.missCount.get();
+        return (total > 0 ? (double) hits / total : 0);
+    }
+
+    /**
+     * Remove all cached resolutions. Statistics are kept.
+     */
+    public void clear() {
+        this.resolutions.clear();
+    }
+
+    /**
+     * Build the cache key for the given request.
+     */
+    public static String getCacheKey(HttpServletRequest request) {
+        return request.getMethod() + " " + WebUtils.getPathWithinApplication(request);
+    }
+
+    /**
+     * Return the cached resolution for the given key.
+     *
+     * @param key                cache key, as built by getCacheKey
+     * @param contextStartupDate startup date of the current application
+     *                           context: if it has changed, all cached resolutions are discarded
+     * @return the resolution, or null if none is cached
+     */
+    Resolution get(String key, long contextStartupDate) {
+        if (contextStartupDate != this.contextStartupDate) {
+            invalidate(contextStartupDate);
+        }
+        Resolution resolution = (Resolution) this.resolutions.get(key);
+        if (resolution == null) {
+            this.missCount.incrementAndGet();
+            return null;
+        }
+        this.hitCount.incrementAndGet();
+        resolution.lastAccess = System.nanoTime();
+        return resolution;
+    }
+
+    /**
+     * Cache the given resolution under the given key, evicting an
+     * approximately least recently used resolution if the cache is full.
+     */
+    void put(String key, Resolution resolution) {
+        resolution.lastAccess = System.nanoTime();
+        if (this.resolutions.size() >= this.maxSize && !this.resolutions.containsKey(key)) {
+            evictOne();
+        }
+        this.resolutions.put(key, resolution);
+    }
+
+    /**
+     * Discard all resolutions if they belong to another context than the given one.
+     */
+    private synchronized void invalidate(long contextStartupDate) {
+        if (contextStartupDate != this.contextStartupDate) {
+            this.resolutions.clear();
+            this.contextStartupDate = contextStartupDate;
+        }
+    }
+
+    /**
+     * Evict the least recently used among a sample of the cached resolutions.
+     */
+    private void evictOne() {
+        Map.Entry oldest = null;
+        Iterator it = this.resolutions.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE && it.hasNext(); i++) {
+            Map.Entry entry = (Map.Entry) it.next();
+            if (oldest == null ||
+                    ((Resolution) entry.getValue()).lastAccess - ((Resolution) oldest.getValue()).lastAccess < 0) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            this.resolutions.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    public String toString() {
+        return "HandlerResolutionCache: size=" + size() + "; maxSize=" + this.maxSize +
+                "; hits=" + getHitCount() + "; misses=" + getMissCount();
+    }
+
+
+    /**
+     * Handler execution chain plus the HandlerAdapter supporting its handler.
+     */
+    static class Resolution {
+
+        private final HandlerExecutionChain handlerExecutionChain;
+
+        private final HandlerAdapter handlerAdapter;
+
+        /**
+         * System.nanoTime() of the last access, for approximate least recently used eviction
+         */
+        private volatile long lastAccess;
+
+        public Resolution(HandlerExecutionChain handlerExecutionChain, HandlerAdapter handlerAdapter) {
+            this.handlerExecutionChain = handlerExecutionChain;
+            this.handlerAdapter = handlerAdapter;
+        }
+
+        public HandlerExecutionChain getHandlerExecutionChain() {
+            return handlerExecutionChain;
+        }
+
+        public HandlerAdapter getHandlerAdapter() {
+            return handlerAdapter;
+        }
+    }
+
+}
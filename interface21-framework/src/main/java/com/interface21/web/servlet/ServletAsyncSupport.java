@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+
+/**
+ * Access to the asynchronous processing API of Servlet 3 containers via
+ * reflection, as this framework builds against an older Servlet API.
+ * Package-visible; used by DispatcherServlet.
+ * <p>
+ * <p>On containers that don't provide the API, isAvailable returns false
+ * and startAsync always returns null.
+ *
+ * @see DeferredModelAndView
+ */
+final class ServletAsyncSupport {
+
+    private static final Method isAsyncSupportedMethod;
+
+    private static final Method startAsyncMethod;
+
+    private static final Method setTimeoutMethod;
+
+    private static final Method dispatchMethod;
+
+    static {
+        Method isAsyncSupported = null;
+        Method startAsync = null;
+        Method setTimeout = null;
+        Method dispatch = null;
+        try {
+            isAsyncSupported = ServletRequest.class.getMethod("isAsyncSupported", new Class[0]);
+            startAsync = ServletRequest.class.getMethod("startAsync", new Class[0]);
+            Class asyncContextClass = startAsync.getReturnType();
+            setTimeout = asyncContextClass.getMethod("setTimeout", new Class[]{long.class});
+            dispatch = asyncContextClass.getMethod("dispatch", new Class[0]);
+        } catch (NoSuchMethodException ex) {
+            // pre-Servlet 3 API
+            isAsyncSupported = null;
+        }
+        isAsyncSupportedMethod = isAsyncSupported;
+        startAsyncMethod = startAsync;
+        setTimeoutMethod = setTimeout;
+        dispatchMethod = dispatch;
+    }
+
+    private ServletAsyncSupport() {
+    }
+
+    /**
+     * Return whether the Servlet API in use supports asynchronous processing.
+     */
+    public static boolean isAvailable() {
+        return (isAsyncSupportedMethod != null);
+    }
+
+    /**
+     * Put the given request into asynchronous mode, if supported
+     * by the container and the servlet's configuration.
+     *
+     * @param request current HTTP request
+     * @return the container's AsyncContext, or null if asynchronous
+     * processing isn't supported for this request
+     * @throws ServletException if the container failed to start asynchronous processing
+     */
+    public static Object startAsync(ServletRequest request) throws ServletException {
+        if (!isAvailable() || !((Boolean) invoke(isAsyncSupportedMethod, request, new Object[0])).booleanValue()) {
+            return null;
+        }
+        Object asyncContext = invoke(startAsyncMethod, request, new Object[0]);
+        // We time out ourselves, to be able to render a response
+        invoke(setTimeoutMethod, asyncContext, new Object[]{new Long(0)});
+        return asyncContext;
+    }
+
+    /**
+     * Dispatch the request of the given AsyncContext to the servlet
+     * that started asynchronous processing, for completion.
+     */
+    public static void dispatch(Object asyncContext) throws ServletException {
+        invoke(dispatchMethod, asyncContext, new Object[0]);
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws ServletException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw new ServletException("Asynchronous processing failed: " + method.getName(), ex.getTargetException());
+        } catch (IllegalAccessException ex) {
+            throw new ServletException("Could not access Servlet 3 method " + method.getName(), ex);
+        }
+    }
+
+}
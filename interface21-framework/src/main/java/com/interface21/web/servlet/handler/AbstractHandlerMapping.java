@@ -37,6 +37,8 @@ public abstract class AbstractHandlerMapping extends ApplicationObjectSupport im
 
     private List interceptors;
 
+    private boolean cacheable = false;
+
     public void setOrder(int order) {
         this.order = order;
     }
@@ -68,6 +70,26 @@ public abstract class AbstractHandlerMapping extends ApplicationObjectSupport im
         this.interceptors = interceptors;
     }
 
+    /**
+     * Set whether the handlers returned by this mapping only depend on the
+     * HTTP method and path of the request, so that DispatcherServlet may cache
+     * them per path. Set this to false for mappings that choose handlers based
+     * on other request state, like parameters or session attributes.
+     * Default is false; URL-based mappings default to true.
+     *
+     * @see com.interface21.web.servlet.DispatcherServlet#setHandlerCacheSize
+     */
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Return whether the handlers returned by this mapping may be cached per path.
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
     /**
      * Lookup a handler for the given request, falling back to the default
      * handler if no specific one is found.
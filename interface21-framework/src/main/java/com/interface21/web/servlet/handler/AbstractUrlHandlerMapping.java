@@ -5,7 +5,6 @@
 package com.interface21.web.servlet.handler;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -23,6 +22,11 @@ import com.interface21.util.PathMatcher;
  * <p>Supports direct matches, e.g. a registered "/test" matches "/test",
  * and a various Ant-style pattern matches, e.g. a registered "/t*" matches
  * both "/test" and "/team". For details, see the PathMatcher class.
+ * Patterns are compiled into a trie on registration, so a lookup walks the
+ * request path once instead of trying each pattern in turn. If multiple
+ * patterns match, the most specific one wins.
+ * <p>
+ * <p>Handlers are chosen by path only, so this mapping is cacheable by default.
  *
  * @author Juergen Hoeller
  * @see #setAlwaysUseFullPath
@@ -36,6 +40,15 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 
     private Map handlerMap = new HashMap();
 
+    /**
+     * All registered paths as patterns, for lookups without exact match
+     */
+    private UrlPathTrie handlerTrie = new UrlPathTrie();
+
+    public AbstractUrlHandlerMapping() {
+        setCacheable(true);
+    }
+
     /**
      * Set if URL lookup should always use full path within current servlet
      * context. Else, the path within the current servlet mapping is used
@@ -46,6 +59,21 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
         this.alwaysUseFullPath = alwaysUseFullPath;
     }
 
+    /**
+     * Set if "{name}" segments of mapped URL paths should be treated as
+     * URI template variables matching any path segment, like '*'.
+     * Default is false: braces are literal characters, as in PathMatcher.
+     * Must be set before handlers are registered.
+     *
+     * @see com.interface21.util.CompiledPathPattern
+     */
+    public final void setUseTemplateVariables(boolean useTemplateVariables) {
+        if (!this.handlerMap.isEmpty()) {
+            throw new IllegalStateException("Cannot change template variable handling after handlers have been registered");
+        }
+        this.handlerTrie = new UrlPathTrie(useTemplateVariables);
+    }
+
     /**
      * Register the given handler instance for the given URL path.
      *
@@ -54,6 +82,7 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
      */
     protected final void registerHandler(String urlPath, Object handler) {
         this.handlerMap.put(urlPath, handler);
+        this.handlerTrie.add(urlPath, handler);
         logger.info("Mapped URL path [" + urlPath + "] onto handler [" + handler + "]");
     }
 
@@ -65,7 +94,9 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
      */
     protected Object getHandlerInternal(HttpServletRequest request) {
         String lookupPath = WebUtils.getLookupPathForRequest(request, this.alwaysUseFullPath);
-        logger.debug("Looking up handler for: " + lookupPath);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Looking up handler for: " + lookupPath);
+        }
         return lookupHandler(lookupPath);
     }
 
@@ -74,6 +105,9 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
      * <p>Supports direct matches, e.g. a registered "/test" matches "/test",
      * and a various Ant-style pattern matches, e.g. a registered "/t*" matches
      * both "/test" and "/team". For details, see the PathMatcher class.
+     * <p>If multiple patterns match, the most specific one wins: Path segments
+     * are compared from left to right, preferring literal segments over ones
+     * with wildcards, and those over "**".
      *
      * @param urlPath URL the bean is mapped to
      * @return the associated handler instance, or null if not found
@@ -84,14 +118,7 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
         if (handler != null) {
             return handler;
         }
-        for (Iterator it = this.handlerMap.keySet().iterator(); it.hasNext(); ) {
-            String registeredPath = (String) it.next();
-            if (PathMatcher.match(registeredPath, urlPath)) {
-                return this.handlerMap.get(registeredPath);
-            }
-        }
-        // no match found
-        return null;
+        return this.handlerTrie.match(urlPath);
     }
 
     /**
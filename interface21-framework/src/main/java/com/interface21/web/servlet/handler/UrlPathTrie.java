@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet.handler;
+
+import com.interface21.util.PathMatcher;
+
+/**
+ * Trie of URL path patterns, with one level per path segment. Used by
+ * AbstractUrlHandlerMapping to match a request path against all registered
+ * patterns in a single walk, instead of calling PathMatcher for each.
+ * Package-visible; not used by application code.
+ * <p>
+ * <p>Patterns follow the PathMatcher syntax: Segments are either literal,
+ * contain '*' and '?' wildcards, or are "**" for zero or more segments.
+ * If URI template variables are enabled, "{name}" segments are variables
+ * matching any segment, ranked like a single '*'; else braces are literal
+ * characters, as in PathMatcher and CompiledPathPattern by default.
+ * If multiple patterns match a path, the most specific one wins: At each
+ * segment, a literal segment is preferred over wildcard segments, which are
+ * preferred over "**". Wildcard segments are ranked by their number of
+ * literal characters, then by their number of '*', then alphabetically.
+ * <p>
+ * <p>Lookups don't allocate any objects, and don't modify the trie, so they can
+ * run concurrently. Patterns must not be added while lookups are running.
+ *
+ * @see PathMatcher
+ * @see com.interface21.util.CompiledPathPattern
+ * @see AbstractUrlHandlerMapping#lookupHandler
+ */
+final class UrlPathTrie {
+
+    private static final String DOUBLE_STAR = "**";
+
+    private final boolean templateVariables;
+
+    /**
+     * Root for patterns starting with a slash
+     */
+    private final Node absoluteRoot = new Node(null, false);
+
+    /**
+     * Root for patterns not starting with a slash: like PathMatcher,
+     * we never match those against paths starting with a slash
+     */
+    private final Node relativeRoot = new Node(null, false);
+
+    /**
+     * Create a new trie, treating braces as literal characters.
+     */
+    public UrlPathTrie() {
+        this(false);
+    }
+
+    /**
+     * Create a new trie.
+     *
+     * @param templateVariables whether "{name}" segments are
+     *                          URI template variables matching any segment
+     */
+    public UrlPathTrie(boolean templateVariables) {
+        this.templateVariables = templateVariables;
+    }
+
+    /**
+     * Add the given pattern, replacing the value for an identical pattern.
+     *
+     * @param pattern the pattern, in PathMatcher syntax
+     * @param value   the value to return for paths matching the pattern
+     */
+    public void add(String pattern, Object value) {
+        Node node = (pattern.startsWith("/") ? this.absoluteRoot : this.relativeRoot);
+        int pos = skipSlashes(pattern, 0);
+        while (pos < pattern.length()) {
+            int end = segmentEnd(pattern, pos);
+            String segment = pattern.substring(pos, end);
+            node = node.getOrAddChild(segment, this.templateVariables && isVariable(segment));
+            pos = skipSlashes(pattern, end);
+        }
+        node.value = value;
+    }
+
+    /**
+     * Return the value of the most specific pattern matching the given path.
+     *
+     * @param path the path to match
+     * @return the value, or null if no pattern matches
+     */
+    public Object match(String path) {
+        Node root = (path.startsWith("/") ? this.absoluteRoot : this.relativeRoot);
+        return match(root, path, skipSlashes(path, 0));
+    }
+
+    private static Object match(Node node, String path, int pos) {
+        if (pos == path.length()) {
+            if (node.value != null) {
+                return node.value;
+            }
+            // only "**" can match no more segments
+            return (node.doubleStarChild != null ? match(node.doubleStarChild, path, pos) : null);
+        }
+        int end = segmentEnd(path, pos);
+        int next = skipSlashes(path, end);
+
+        Node literal = node.findLiteralChild(path, pos, end);
+        if (literal != null) {
+            Object value = match(literal, path, next);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        for (int i = 0; i < node.wildcardChildren.length; i++) {
+            Node wildcard = node.wildcardChildren[i];
+            if (wildcard.variable || PathMatcher.matchSegment(wildcard.segment, path, pos, end)) {
+                Object value = match(wildcard, path, next);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+
+        if (node.doubleStarChild != null) {
+            // let "**" consume as few segments as possible
+            for (int start = pos; ; start = skipSlashes(path, segmentEnd(path, start))) {
+                Object value = match(node.doubleStarChild, path, start);
+                if (value != null) {
+                    return value;
+                }
+                if (start == path.length()) {
+                    break;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    //---------------------------------------------------------------------
+    // Segment helpers, working on index ranges to avoid substrings
+    //---------------------------------------------------------------------
+
+    private static int skipSlashes(String path, int pos) {
+        while (pos < path.length() && path.charAt(pos) == '/') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int segmentEnd(String path, int pos) {
+        int end = path.indexOf('/', pos);
+        return (end != -1 ? end : path.length());
+    }
+
+    private static boolean isWildcard(String segment) {
+        return (segment.indexOf('*') != -1 || segment.indexOf('?') != -1);
+    }
+
+    private static boolean isVariable(String segment) {
+        return (segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}');
+    }
+
+    /**
+     * Compare the given segment of the path to the given literal,
+     * in the same order as String.compareTo.
+     */
+    private static int compareSegment(String path, int start, int end, String literal) {
+        int length = Math.min(end - start, literal.length());
+        for (int i = 0; i < length; i++) {
+            char c1 = path.charAt(start + i);
+            char c2 = literal.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return (end - start) - literal.length();
+    }
+
+    /**
+     * Rank wildcard segments: negative if s1 is more specific than s2.
+     * Variables match like a single '*'.
+     */
+    private static int compareSpecificity(String s1, boolean variable1, String s2, boolean variable2) {
+        int literals1 = (variable1 ? 0 : countLiterals(s1));
+        int literals2 = (variable2 ? 0 : countLiterals(s2));
+        if (literals1 != literals2) {
+            return literals2 - literals1;
+        }
+        int stars1 = (variable1 ? 1 : count(s1, '*'));
+        int stars2 = (variable2 ? 1 : count(s2, '*'));
+        if (stars1 != stars2) {
+            return stars1 - stars2;
+        }
+        return s1.compareTo(s2);
+    }
+
+    private static int countLiterals(String segment) {
+        return segment.length() - count(segment, '*') - count(segment, '?');
+    }
+
+    private static int count(String str, char c) {
+        int count = 0;
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Trie node for one pattern segment. Children are kept in sorted arrays:
+     * literal ones alphabetically for binary search, wildcard ones by specificity.
+     */
+    private static final class Node {
+
+        private final String segment;
+
+        /**
+         * Whether the segment is a URI template variable, matching any segment
+         */
+        private final boolean variable;
+
+        private Object value;
+
+        private Node[] literalChildren = new Node[0];
+
+        private Node[] wildcardChildren = new Node[0];
+
+        private Node doubleStarChild;
+
+        private Node(String segment, boolean variable) {
+            this.segment = segment;
+            this.variable = variable;
+        }
+
+        private Node getOrAddChild(String segment, boolean variable) {
+            if (DOUBLE_STAR.equals(segment)) {
+                if (this.doubleStarChild == null) {
+                    this.doubleStarChild = new Node(segment, false);
+                }
+                return this.doubleStarChild;
+            }
+            if (variable || isWildcard(segment)) {
+                int i = 0;
+                while (i < this.wildcardChildren.length) {
+                    Node child = this.wildcardChildren[i];
+                    int cmp = compareSpecificity(segment, variable, child.segment, child.variable);
+                    if (cmp == 0) {
+                        return this.wildcardChildren[i];
+                    }
+                    if (cmp < 0) {
+                        break;
+                    }
+                    i++;
+                }
+                Node child = new Node(segment, variable);
+                this.wildcardChildren = insert(this.wildcardChildren, i, child);
+                return child;
+            }
+            int i = 0;
+            while (i < this.literalChildren.length) {
+                int cmp = segment.compareTo(this.literalChildren[i].segment);
+                if (cmp == 0) {
+                    return this.literalChildren[i];
+                }
+                if (cmp < 0) {
+                    break;
+                }
+                i++;
+            }
+            Node child = new Node(segment, false);
+            this.literalChildren = insert(this.literalChildren, i, child);
+            return child;
+        }
+
+        private Node findLiteralChild(String path, int start, int end) {
+            int low = 0;
+            int high = this.literalChildren.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compareSegment(path, start, end, this.literalChildren[mid].segment);
+                if (cmp == 0) {
+                    return this.literalChildren[mid];
+                }
+                if (cmp < 0) {
+                    high = mid - 1;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return null;
+        }
+
+        private static Node[] insert(Node[] nodes, int index, Node node) {
+            Node[] result = new Node[nodes.length + 1];
+            System.arraycopy(nodes, 0, result, 0, index);
+            result[index] = node;
+            System.arraycopy(nodes, index, result, index + 1, nodes.length - index);
+            return result;
+        }
+    }
+
+}
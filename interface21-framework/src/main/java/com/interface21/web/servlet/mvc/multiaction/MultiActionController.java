@@ -16,12 +16,12 @@
 package com.interface21.web.servlet.mvc.multiaction;
 
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
@@ -77,6 +77,10 @@ import com.interface21.web.servlet.mvc.SessionRequiredException;
  * is -1, meaning that content must always be regenerated.
  * <p>
  * <p>Note that method overloading isn't allowed.
+ * <p>
+ * <p>The signatures of handler methods are analyzed once, when the delegate is set:
+ * Requests only pass the prepared arguments to the cached method, and exception
+ * handlers are resolved once per exception class.
  *
  * @author Rod Johnson
  * @see MethodNameResolver
@@ -88,12 +92,30 @@ public class MultiActionController extends WebContentGenerator implements Contro
      */
     public static final String LAST_MODIFIED_METHOD_SUFFIX = "LastModified";
 
+    /**
+     * Kinds of handler method arguments
+     */
+    private static final int REQUEST_ARGUMENT = 0;
+
+    private static final int RESPONSE_ARGUMENT = 1;
+
+    private static final int SESSION_ARGUMENT = 2;
+
+    private static final int COMMAND_ARGUMENT = 3;
+
+    private static final int UNSUPPORTED_ARGUMENT = 4;
+
+    /**
+     * Marker for exception classes without handler in the exception handler cache
+     */
+    private static final Object NO_EXCEPTION_HANDLER = new Object();
+
     //---------------------------------------------------------------------
     // Instance data
     //---------------------------------------------------------------------
 
     /**
-     * Methods, keyed by name
+     * HandlerMethod descriptors, keyed by method name
      */
     private Map methodHash;
 
@@ -107,6 +129,17 @@ public class MultiActionController extends WebContentGenerator implements Contro
      */
     private Map exceptionHandlerHash;
 
+    /**
+     * Resolved exception handler methods, keyed by the class of the thrown
+     * exception, with NO_EXCEPTION_HANDLER for exceptions without handler
+     */
+    private Map resolvedExceptionHandlers;
+
+    /**
+     * No-arg constructors of command classes, keyed by class
+     */
+    private Map commandConstructors;
+
     /**
      * Helper object that knows how to return method names from incoming requests.
      * Can be overridden via the methodNameResolver bean property
@@ -193,6 +226,7 @@ public class MultiActionController extends WebContentGenerator implements Contro
 
         this.methodHash = new HashMap();
         this.lastModifiedMethodHash = new HashMap();
+        this.commandConstructors = null;
 
         // Look at all methods in the subclass, trying to find
         // methods that are validators according to our criteria
@@ -208,11 +242,16 @@ public class MultiActionController extends WebContentGenerator implements Contro
                 if (params.length >= 2 && params[0].equals(HttpServletRequest.class) && params[1].equals(HttpServletResponse.class)) {
                     // We're in business
                     logger.info("Found action method [" + methods[i] + "]");
-                    methodHash.put(methods[i].getName(), methods[i]);
+                    HandlerMethod handlerMethod = new HandlerMethod(methods[i]);
+                    methodHash.put(methods[i].getName(), handlerMethod);
+                    if (handlerMethod.commandClass != null) {
+                        addCommandConstructor(handlerMethod.commandClass);
+                    }
 
                     // Look for corresponding LastModified method
                     try {
                         Method lastModifiedMethod = delegate.getClass().getMethod(methods[i].getName() + LAST_MODIFIED_METHOD_SUFFIX, new Class[]{HttpServletRequest.class});
+                        makeAccessible(lastModifiedMethod);
                         // Put in cache, keyed by handler method name
                         lastModifiedMethodHash.put(methods[i].getName(), lastModifiedMethod);
                         logger.info("Found last modified method for action method [" + methods[i] + "]");
@@ -234,6 +273,7 @@ public class MultiActionController extends WebContentGenerator implements Contro
 
         // Now look for exception handlers
         exceptionHandlerHash = new HashMap();
+        resolvedExceptionHandlers = new ConcurrentHashMap();
         for (int i = 0; i < methods.length; i++) {
             if (methods[i].getReturnType().equals(ModelAndView.class) &&
                     methods[i].getParameterTypes().length == 3) {
@@ -243,6 +283,7 @@ public class MultiActionController extends WebContentGenerator implements Contro
                         Throwable.class.isAssignableFrom(params[2])
                         ) {
                     // Have an exception handler
+                    makeAccessible(methods[i]);
                     exceptionHandlerHash.put(params[2], methods[i]);
                     logger.info("Found exception handler method [" + methods[i] + "]");
                 }
@@ -250,6 +291,31 @@ public class MultiActionController extends WebContentGenerator implements Contro
         }
     }    // setDelegate
 
+    private void addCommandConstructor(Class commandClass) {
+        if (this.commandConstructors == null) {
+            this.commandConstructors = new HashMap();
+        }
+        try {
+            Constructor constructor = commandClass.getConstructor(new Class[0]);
+            makeAccessible(constructor);
+            this.commandConstructors.put(commandClass, constructor);
+        } catch (NoSuchMethodException ex) {
+            // reported when a command is needed
+        }
+    }
+
+    /**
+     * Suppress access checks on invocation: handler methods are public,
+     * but their classes might not be.
+     */
+    private static void makeAccessible(java.lang.reflect.AccessibleObject object) {
+        try {
+            object.setAccessible(true);
+        } catch (RuntimeException ex) {
+            // not permitted: leave the checks in place
+        }
+    }
+
 
     //---------------------------------------------------------------------
     // Implementation of LastModified
@@ -312,38 +378,40 @@ public class MultiActionController extends WebContentGenerator implements Contro
      */
     protected final ModelAndView invokeNamedMethod(String method, HttpServletRequest request, HttpServletResponse response)
             throws NoSuchRequestHandlingMethodException, ServletException, IOException {
-        Method m = null;
+        HandlerMethod handlerMethod = (HandlerMethod) methodHash.get(method);
+        if (handlerMethod == null)
+            throw new NoSuchRequestHandlingMethodException(method, this);
 
         try {
-            m = (Method) methodHash.get(method);
-            if (m == null)
-                throw new NoSuchRequestHandlingMethodException(method, this);
-
-            // A real generic Collection! Parameters to method
-            List params = new LinkedList();
-            params.add(request);
-            params.add(response);
-
-            if (m.getParameterTypes().length >= 3 && m.getParameterTypes()[2].equals(HttpSession.class)) {
-                // Require a session
-                HttpSession session = request.getSession(false);
-                if (session == null)
-                    //throw new SessionRequiredException("Session was required for method '" + method + "'");
-                    return handleException(request, response, new SessionRequiredException("Session was required for method '" + method + "'"));
-                params.add(session);
-            }
-
-            // If last parameter isn't of HttpSession type it's a command
-            if (m.getParameterTypes().length >= 3 && !m.getParameterTypes()[m.getParameterTypes().length - 1].equals(HttpSession.class)) {
-                Object command = newCommandObject(m.getParameterTypes()[m.getParameterTypes().length - 1]);
-                params.add(command);
-                bind(request, command);
+            int[] argumentKinds = handlerMethod.argumentKinds;
+            Object[] args = new Object[argumentKinds.length];
+            for (int i = 0; i < argumentKinds.length; i++) {
+                switch (argumentKinds[i]) {
+                    case REQUEST_ARGUMENT:
+                        args[i] = request;
+                        break;
+                    case RESPONSE_ARGUMENT:
+                        args[i] = response;
+                        break;
+                    case SESSION_ARGUMENT:
+                        // Require a session
+                        HttpSession session = request.getSession(false);
+                        if (session == null)
+                            return handleException(request, response, new SessionRequiredException("Session was required for method '" + method + "'"));
+                        args[i] = session;
+                        break;
+                    case COMMAND_ARGUMENT:
+                        Object command = newCommandObject(handlerMethod.commandClass);
+                        bind(request, command);
+                        args[i] = command;
+                        break;
+                    default:
+                        throw new ServletException("Unsupported argument " + i + " of request handler method [" + handlerMethod.method + "]");
+                }
             }
-
-            Object[] parray = params.toArray(new Object[params.size()]);
-            return (ModelAndView) m.invoke(this.delegate, parray);
+            return (ModelAndView) handlerMethod.method.invoke(this.delegate, args);
         } catch (IllegalAccessException ex) {
-            throw new ServletException("Cannot invoke request handler method [" + m + "]: not accessible", ex);
+            throw new ServletException("Cannot invoke request handler method [" + handlerMethod.method + "]: not accessible", ex);
         } catch (InvocationTargetException ex) {
             // This is what we're looking for: the handler method threw an exception
             Throwable t = ex.getTargetException();
@@ -392,8 +460,14 @@ public class MultiActionController extends WebContentGenerator implements Contro
      * public no arg constructors.
      */
     protected Object newCommandObject(Class clazz) throws ServletException {
-        logger.info("Must create new command of " + clazz);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Must create new command of " + clazz);
+        }
         try {
+            Constructor constructor = (this.commandConstructors != null ? (Constructor) this.commandConstructors.get(clazz) : null);
+            if (constructor != null) {
+                return constructor.newInstance(new Object[0]);
+            }
             Object command = clazz.newInstance();
             return command;
         } catch (Exception ex) {
@@ -408,7 +482,7 @@ public class MultiActionController extends WebContentGenerator implements Contro
      * @param command command object, that must be a JavaBean
      */
     protected void bind(ServletRequest request, Object command) throws ServletException {
-        logger.info("Binding request parameters onto command");
+        logger.debug("Binding request parameters onto command");
         ServletRequestDataBinder binder = new ServletRequestDataBinder(command, "command");
         binder.bind(request);
         binder.closeNoCatch();
@@ -416,12 +490,25 @@ public class MultiActionController extends WebContentGenerator implements Contro
 
     /**
      * Can return null if not found.
+     * The handler is resolved once per exception class.
      *
      * @param exception Won't be a ServletException or IOException
      * @return a handler for the given exception type
      */
     protected Method getExceptionHandler(Throwable exception) {
         Class exceptionClass = exception.getClass();
+        Object handler = this.resolvedExceptionHandlers.get(exceptionClass);
+        if (handler == null) {
+            handler = findExceptionHandler(exceptionClass);
+            this.resolvedExceptionHandlers.put(exceptionClass, (handler != null ? handler : NO_EXCEPTION_HANDLER));
+        }
+        return (handler != NO_EXCEPTION_HANDLER ? (Method) handler : null);
+    }
+
+    /**
+     * Find the handler for the given exception class or its closest superclass.
+     */
+    private Method findExceptionHandler(Class exceptionClass) {
         logger.info("Trying to find handler for exception of " + exceptionClass);
         Method handler = (Method) exceptionHandlerHash.get(exceptionClass);
         while (handler == null && !exceptionClass.equals(Throwable.class)) {
@@ -443,7 +530,9 @@ public class MultiActionController extends WebContentGenerator implements Contro
             throw new ServletException("No handler for exception", exception);
 
         // If we get here, we have a handler
-        logger.info("Invoking exception handler [" + handler + "] for exception [" + exception + "]");
+        if (logger.isDebugEnabled()) {
+            logger.debug("Invoking exception handler [" + handler + "] for exception [" + exception + "]");
+        }
         try {
             ModelAndView mv = (ModelAndView) handler.invoke(this.delegate, new Object[]{request, response, exception});
             return mv;
@@ -462,4 +551,43 @@ public class MultiActionController extends WebContentGenerator implements Contro
         }
     }
 
+
+    /**
+     * Request handler method, with the kinds of its arguments
+     * determined once from its signature.
+     */
+    private static class HandlerMethod {
+
+        private final Method method;
+
+        private final int[] argumentKinds;
+
+        /**
+         * Class of the command argument, or null if none
+         */
+        private final Class commandClass;
+
+        private HandlerMethod(Method method) {
+            this.method = method;
+            makeAccessible(method);
+            Class[] params = method.getParameterTypes();
+            this.argumentKinds = new int[params.length];
+            this.argumentKinds[0] = REQUEST_ARGUMENT;
+            this.argumentKinds[1] = RESPONSE_ARGUMENT;
+            Class commandClass = null;
+            for (int i = 2; i < params.length; i++) {
+                if (params[i].equals(HttpSession.class)) {
+                    this.argumentKinds[i] = SESSION_ARGUMENT;
+                } else if (i == params.length - 1) {
+                    // If last parameter isn't of HttpSession type it's a command
+                    this.argumentKinds[i] = COMMAND_ARGUMENT;
+                    commandClass = params[i];
+                } else {
+                    this.argumentKinds[i] = UNSUPPORTED_ARGUMENT;
+                }
+            }
+            this.commandClass = commandClass;
+        }
+    }
+
 }
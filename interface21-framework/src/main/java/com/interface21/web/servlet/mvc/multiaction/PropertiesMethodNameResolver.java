@@ -20,6 +20,7 @@ import java.util.Iterator;
 
 import javax.servlet.http.HttpServletRequest;
 
+import com.interface21.util.CompiledPathPattern;
 import com.interface21.util.PathMatcher;
 import com.interface21.web.util.WebUtils;
 import org.apache.commons.logging.Log;
@@ -47,6 +48,7 @@ import com.interface21.beans.factory.InitializingBean;
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @see PathMatcher
+ * @see CompiledPathPattern
  */
 public class PropertiesMethodNameResolver implements MethodNameResolver, InitializingBean {
 
@@ -56,6 +58,11 @@ public class PropertiesMethodNameResolver implements MethodNameResolver, Initial
 
     private Properties mappings;
 
+    /**
+     * Mapping keys compiled once, in the order they're checked for pattern matches
+     */
+    private CompiledPathPattern[] patterns;
+
     /**
      * Set if URL lookup should always use full path within current servlet
      * context. Else, the path within the current servlet mapping is used
@@ -71,6 +78,11 @@ public class PropertiesMethodNameResolver implements MethodNameResolver, Initial
      */
     public final void setMappings(Properties mappings) {
         this.mappings = mappings;
+        this.patterns = new CompiledPathPattern[mappings.size()];
+        int i = 0;
+        for (Iterator it = mappings.keySet().iterator(); it.hasNext(); ) {
+            this.patterns[i++] = new CompiledPathPattern((String) it.next());
+        }
     }
 
     public void afterPropertiesSet() {
@@ -83,11 +95,9 @@ public class PropertiesMethodNameResolver implements MethodNameResolver, Initial
         String urlPath = WebUtils.getLookupPathForRequest(request, this.alwaysUseFullPath);
         String name = this.mappings.getProperty(urlPath);
         if (name == null) {
-            for (Iterator it = this.mappings.keySet().iterator(); it.hasNext(); ) {
-                String registeredPath = (String) it.next();
-                if (PathMatcher.match(registeredPath, urlPath)) {
-                    return (String) this.mappings.get(registeredPath);
-                }
+            int index = PathMatcher.matchFirst(this.patterns, urlPath);
+            if (index != -1) {
+                return this.mappings.getProperty(this.patterns[index].getPattern());
             }
             throw new NoSuchRequestHandlingMethodException(request);
         }
@@ -15,9 +15,20 @@
 
 package com.interface21.web.servlet.view;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.ServletException;
 
@@ -32,21 +43,66 @@ import com.interface21.web.servlet.View;
  * This means that view resolution won't be a performance problem,
  * no matter how costly initial view retrieval is.
  * View retrieval is deferred to subclasses.
+ * <p>
+ * <p>The cache is threadsafe and keyed by locale and view name, in concurrent
+ * maps, so cache hits don't lock. Concurrent requests for a view that isn't
+ * cached yet trigger only one load. View names that can't be resolved are
+ * cached too, unless cacheUnresolved is switched off. The number of cached
+ * entries is bounded by the cache limit: If exceeded, the least recently used
+ * entries are evicted. Recency is approximate: Each access stamps the entry,
+ * and one thread at a time sweeps the cache for the oldest stamps, so the
+ * cache may briefly exceed its limit while views are loaded concurrently.
  *
  * @author Rod Johnson
+ * @see #setCacheLimit
+ * @see #setCacheUnresolved
  */
 public abstract class AbstractCachingViewResolver extends ApplicationObjectSupport implements ViewResolver {
 
     /**
-     * View name --> View instance
+     * Default maximum number of cached views
      */
-    private Map viewHash = new HashMap();
+    public static final int DEFAULT_CACHE_LIMIT = 1024;
+
+    /**
+     * Marker for view names that couldn't be resolved
+     */
+    private static final Object UNRESOLVED_VIEW = new Object();
+
+    /**
+     * Key for views resolved without locale, as concurrent maps don't allow null
+     */
+    private static final Object NULL_LOCALE_KEY = new Object();
+
+    /**
+     * Locale (or NULL_LOCALE_KEY) --> Map from view name to CacheEntry
+     */
+    private final ConcurrentHashMap viewCache = new ConcurrentHashMap();
+
+    /**
+     * Number of cached entries, adjusted whenever an entry is added or removed
+     */
+    private final AtomicInteger cacheSize = new AtomicInteger();
+
+    /**
+     * Source of access stamps, for approximate least recently used eviction
+     */
+    private final AtomicLong accessClock = new AtomicLong();
+
+    /**
+     * Whether a thread is currently sweeping the cache for eviction
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
 
     /**
      * Whether we should cache views, once resolved
      */
     private boolean cache = true;
 
+    private boolean cacheUnresolved = true;
+
+    private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
     /**
      * Enable caching. Disable this only for debugging and development.
      * Default is for caching to be enabled.
@@ -66,33 +122,198 @@ public abstract class AbstractCachingViewResolver extends ApplicationObjectSuppo
         return cache;
     }
 
+    /**
+     * Set whether to cache view names that couldn't be resolved, so that
+     * further requests for them fail without asking the subclass again.
+     * Default is true. Only applies if caching is enabled.
+     */
+    public void setCacheUnresolved(boolean cacheUnresolved) {
+        this.cacheUnresolved = cacheUnresolved;
+    }
+
+    /**
+     * Return whether view names that couldn't be resolved are cached.
+     */
+    public boolean isCacheUnresolved() {
+        return cacheUnresolved;
+    }
+
+    /**
+     * Set the maximum number of cached views, including unresolved view names.
+     * Default is DEFAULT_CACHE_LIMIT. Guards against view names that are
+     * derived from user input filling the cache.
+     */
+    public void setCacheLimit(int cacheLimit) {
+        this.cacheLimit = cacheLimit;
+    }
+
+    /**
+     * Return the maximum number of cached views.
+     */
+    public int getCacheLimit() {
+        return cacheLimit;
+    }
+
+    /**
+     * Return the number of currently cached views, including
+     * unresolved view names.
+     */
+    public int getCacheSize() {
+        return this.cacheSize.get();
+    }
+
+    /**
+     * Remove all cached views, e.g. after changing view definitions.
+     */
+    public void clearCache() {
+        for (Iterator it = this.viewCache.values().iterator(); it.hasNext(); ) {
+            Map viewMap = (Map) it.next();
+            for (Iterator entries = viewMap.values().iterator(); entries.hasNext(); ) {
+                removeEntry((CacheEntry) entries.next());
+            }
+        }
+    }
+
+    /**
+     * Remove the cached view for the given name and locale, if any.
+     */
+    public void removeFromCache(String viewName, Locale locale) {
+        CacheEntry entry = (CacheEntry) getViewMap(locale).get(viewName);
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
     public final View resolveViewName(String viewName, Locale locale) throws ServletException {
-        View v = null;
-        if (!cache) {
+        if (!this.cache) {
             logger.warn("View caching is SWITCHED OFF -- DEVELOPMENT SETTING ONLY: this will severely impair performance");
-            v = loadAndConfigureView(viewName, locale);
-        } else {
-            // We're caching - don't really need synchronization
-            v = (View) this.viewHash.get(getCacheKey(viewName, locale));
+            View v = loadAndConfigureView(viewName, locale);
             if (v == null) {
-                // Ask the subclass to load the View
-                v = loadAndConfigureView(viewName, locale);
+                throw new ServletException("Cannot resolve view name '" + viewName + "'");
+            }
+            return v;
+        }
+
+        ConcurrentHashMap viewMap = getViewMap(locale);
+        CacheEntry entry = (CacheEntry) viewMap.get(viewName);
+        if (entry == null) {
+            CacheEntry newEntry = new CacheEntry(viewName, locale);
+            newEntry.accessStamp = this.accessClock.incrementAndGet();
+            // count before adding, so that a concurrent removal can't make the size negative
+            this.cacheSize.incrementAndGet();
+            entry = (CacheEntry) viewMap.putIfAbsent(viewName, newEntry);
+            if (entry != null) {
+                this.cacheSize.decrementAndGet();
+                entry.accessStamp = this.accessClock.incrementAndGet();
+            } else {
+                entry = newEntry;
+                evictIfNecessary();
+                // Ask the subclass to load the View, once for all concurrent requests
+                entry.future.run();
+            }
+        } else {
+            entry.accessStamp = this.accessClock.incrementAndGet();
+        }
+
+        Object result;
+        try {
+            result = entry.future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServletException("Interrupted while waiting for view '" + viewName + "' to be loaded", ex);
+        } catch (ExecutionException ex) {
+            // don't cache failures: a later request may succeed
+            removeEntry(entry);
+            Throwable cause = ex.getCause();
+            if (cause instanceof ServletException) {
+                throw (ServletException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ServletException("Could not load view '" + viewName + "'", cause);
+        }
+
+        if (result == UNRESOLVED_VIEW) {
+            if (!this.cacheUnresolved) {
+                removeEntry(entry);
+            }
+            throw new ServletException("Cannot resolve view name '" + viewName + "'");
+        }
+        return (View) result;
+    }
+
+    /**
+     * Return the map from view name to CacheEntry for the given locale.
+     */
+    private ConcurrentHashMap getViewMap(Locale locale) {
+        Object localeKey = (locale != null ? (Object) locale : NULL_LOCALE_KEY);
+        ConcurrentHashMap viewMap = (ConcurrentHashMap) this.viewCache.get(localeKey);
+        if (viewMap == null) {
+            ConcurrentHashMap newViewMap = new ConcurrentHashMap();
+            viewMap = (ConcurrentHashMap) this.viewCache.putIfAbsent(localeKey, newViewMap);
+            if (viewMap == null) {
+                viewMap = newViewMap;
+            }
+        }
+        return viewMap;
+    }
+
+    /**
+     * Remove the given entry, unless it has already been removed or replaced.
+     */
+    private void removeEntry(CacheEntry entry) {
+        if (getViewMap(entry.locale).remove(entry.viewName, entry)) {
+            this.cacheSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * Evict the entries with the oldest access stamps if the cache has grown
+     * beyond its limit. Only one thread sweeps at a time: Others don't wait,
+     * leaving their surplus to the sweeping thread, which checks the size
+     * again before it finishes.
+     */
+    private void evictIfNecessary() {
+        int limit;
+        while (this.cacheSize.get() > (limit = this.cacheLimit) && this.evicting.compareAndSet(false, true)) {
+            try {
+                List entries = new ArrayList();
+                for (Iterator it = this.viewCache.values().iterator(); it.hasNext(); ) {
+                    entries.addAll(((Map) it.next()).values());
+                }
+                Collections.sort(entries, new Comparator() {
+                    public int compare(Object o1, Object o2) {
+                        long stamp1 = ((CacheEntry) o1).accessStamp;
+                        long stamp2 = ((CacheEntry) o2).accessStamp;
+                        return (stamp1 < stamp2 ? -1 : (stamp1 == stamp2 ? 0 : 1));
+                    }
+                });
+                for (Iterator it = entries.iterator(); it.hasNext() && this.cacheSize.get() > limit; ) {
+                    removeEntry((CacheEntry) it.next());
+                }
+            } finally {
+                this.evicting.set(false);
             }
         }
-        return v;
     }
 
     /**
      * Configure the given View. Only invoked once per View.
      * Configuration means giving the View its name, and
      * setting the ApplicationContext on the View if necessary
+     *
+     * @return the View, or null if the subclass couldn't resolve the name
      */
     private View loadAndConfigureView(String viewname, Locale locale) throws ServletException {
 
         // Ask the subclass to load the view
         View v = loadView(viewname, locale);
         if (v == null)
-            throw new ServletException("Cannot resolve view name '" + viewname + "'");
+            return null;
 
         // Configure view
         v.setName(viewname);
@@ -105,23 +326,11 @@ public abstract class AbstractCachingViewResolver extends ApplicationObjectSuppo
             } catch (ApplicationContextException ex) {
                 throw new ServletException("Error initializing View [" + v + "]: " + ex.getMessage(), ex);
             }
-
-            String cacheKey = getCacheKey(viewname, locale);
-            logger.info("Cached view '" + cacheKey + "'");
-            this.viewHash.put(cacheKey, v);
         }
 
         return v;
     }
 
-    /**
-     * Returns the cache key for the given viewname and the given locale.
-     * Needs to regard the locale, as a different locale can lead to a different view!
-     */
-    private String getCacheKey(String viewname, Locale locale) {
-        return viewname + "_" + locale;
-    }
-
     /**
      * Subclasses must implement this method. There need be no concern for efficiency,
      * as this class will cache views. Not all subclasses may support internationalization:
@@ -134,4 +343,39 @@ public abstract class AbstractCachingViewResolver extends ApplicationObjectSuppo
      */
     protected abstract View loadView(String viewName, Locale locale) throws ServletException;
 
+
+    /**
+     * Cached view, or the pending load of it.
+     */
+    private class CacheEntry {
+
+        private final String viewName;
+
+        private final Locale locale;
+
+        private final FutureTask future;
+
+        /**
+         * Stamp of the last access, for approximate least recently used eviction
+         */
+        private volatile long accessStamp;
+
+        public CacheEntry(final String viewName, final Locale locale) {
+            this.viewName = viewName;
+            this.locale = locale;
+            this.future = new FutureTask(new Callable() {
+                public Object call() throws ServletException {
+                    View v = loadAndConfigureView(viewName, locale);
+                    if (v == null) {
+                        return UNRESOLVED_VIEW;
+                    }
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Cached view '" + viewName + "' for locale " + locale);
+                    }
+                    return v;
+                }
+            });
+        }
+    }
+
 }
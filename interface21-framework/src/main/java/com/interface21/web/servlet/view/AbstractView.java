@@ -10,12 +10,14 @@
 package com.interface21.web.servlet.view;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -24,6 +26,7 @@ import javax.servlet.http.HttpServletResponse;
 import com.interface21.beans.propertyeditors.PropertiesEditor;
 import com.interface21.web.servlet.View;
 import com.interface21.web.servlet.support.RequestContext;
+import com.interface21.web.util.WebUtils;
 import com.interface21.context.support.ApplicationObjectSupport;
 
 /**
@@ -65,6 +68,13 @@ public abstract class AbstractView extends ApplicationObjectSupport implements V
      */
     private String name;
 
+    private boolean bufferedRendering = false;
+
+    /**
+     * Minimum body size for gzip compression, or -1 for none
+     */
+    private int gzipThreshold = -1;
+
 
     /**
      * Set static attributes as a CSV string.
@@ -194,6 +204,46 @@ public abstract class AbstractView extends ApplicationObjectSupport implements V
         return name;
     }
 
+    /**
+     * Set whether to render into a buffer before writing to the response.
+     * Default is false: The view writes straight to the response.
+     * <p>Buffering allows for setting the Content-Length header and an
+     * entity tag computed from the body: GET and HEAD requests with a
+     * matching If-None-Match header get answered with status 304
+     * (not modified), without a body. Not applicable to views that
+     * forward or include, like JSPs.
+     *
+     * @see #setGzipThreshold
+     */
+    public final void setBufferedRendering(boolean bufferedRendering) {
+        this.bufferedRendering = bufferedRendering;
+    }
+
+    /**
+     * Return whether this view renders into a buffer first.
+     */
+    public final boolean isBufferedRendering() {
+        return bufferedRendering;
+    }
+
+    /**
+     * Set the minimum body size in bytes for compressing buffered output
+     * with gzip, if the client accepts it. Default is -1: no compression.
+     * Only applies in case of buffered rendering.
+     *
+     * @see #setBufferedRendering
+     */
+    public final void setGzipThreshold(int gzipThreshold) {
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    /**
+     * Return the minimum body size for gzip compression, or -1 for none.
+     */
+    public final int getGzipThreshold() {
+        return gzipThreshold;
+    }
+
 
     /**
      * Prepares the view given the specified model.
@@ -216,7 +266,104 @@ public abstract class AbstractView extends ApplicationObjectSupport implements V
             mergedModel.put(this.requestContextAttribute, new RequestContext(request, mergedModel));
         }
 
-        renderMergedOutputModel(mergedModel, request, response);
+        if (!this.bufferedRendering) {
+            renderMergedOutputModel(mergedModel, request, response);
+            return;
+        }
+
+        BufferedResponseWrapper wrapper = new BufferedResponseWrapper(response);
+        try {
+            renderMergedOutputModel(mergedModel, request, wrapper);
+            ResponseBuffer buffer = wrapper.getBuffer();
+            if (wrapper.isCommitted()) {
+                // error or redirect sent by the view
+                return;
+            }
+            if (wrapper.getStatus() != HttpServletResponse.SC_OK) {
+                writeBuffer(buffer, false, response);
+                return;
+            }
+            boolean compressible = this.gzipThreshold >= 0 && buffer.size() >= this.gzipThreshold &&
+                    !wrapper.isContentEncodingSet();
+            boolean gzip = compressible && acceptsGzip(request);
+            String etag = "\"" + Integer.toHexString(buffer.size()) + "-" + Long.toHexString(buffer.checksum()) +
+                    (gzip ? "-gz" : "") + "\"";
+            response.setHeader("ETag", etag);
+            if (compressible) {
+                // the body depends on Accept-Encoding, whether compressed this time or not
+                response.setHeader("Vary", WebUtils.HEADER_ACCEPT_ENCODING);
+            }
+            String method = request.getMethod();
+            if (("GET".equals(method) || "HEAD".equals(method)) &&
+                    matchesEntityTag(request.getHeader("If-None-Match"), etag)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("View with name '" + this.name + "' not modified: entity tag " + etag);
+                }
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            writeBuffer(buffer, gzip, response);
+        } finally {
+            wrapper.release();
+        }
+    }
+
+    /**
+     * Write the buffered body to the response, setting the Content-Length header.
+     */
+    private void writeBuffer(ResponseBuffer buffer, boolean gzip, HttpServletResponse response)
+            throws IOException {
+        if (gzip) {
+            ResponseBuffer compressed = ResponseBuffer.acquire();
+            try {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(compressed);
+                buffer.writeTo(gzipStream);
+                gzipStream.finish();
+                response.setHeader(WebUtils.HEADER_CONTENT_ENCODING, WebUtils.ENCODING_GZIP);
+                writeBody(compressed, response);
+            } finally {
+                compressed.release();
+            }
+        } else {
+            writeBody(buffer, response);
+        }
+    }
+
+    private void writeBody(ResponseBuffer buffer, HttpServletResponse response) throws IOException {
+        response.setContentLength(buffer.size());
+        OutputStream out = response.getOutputStream();
+        buffer.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Return whether the client accepts gzip encoded responses,
+     * honoring quality values: "gzip;q=0" means not acceptable.
+     */
+    private boolean acceptsGzip(HttpServletRequest request) {
+        return WebUtils.ENCODING_GZIP.equals(
+                WebUtils.negotiateEncoding(request.getHeader(WebUtils.HEADER_ACCEPT_ENCODING)));
+    }
+
+    /**
+     * Return whether the given If-None-Match header value matches the given
+     * entity tag. Considers lists, "*" and weak tags.
+     */
+    private boolean matchesEntityTag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        StringTokenizer st = new StringTokenizer(ifNoneMatch, ",");
+        while (st.hasMoreTokens()) {
+            String tag = st.nextToken().trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet.view;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response wrapper that captures the body in a ResponseBuffer instead of
+ * sending it, so that it can be inspected before being written to the
+ * wrapped response. Headers are passed through. Errors and redirects
+ * are passed through as well, and mark the response as committed.
+ * Package-visible; used by AbstractView for buffered rendering.
+ *
+ * @see AbstractView#setBufferedRendering
+ */
+class BufferedResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ResponseBuffer buffer = ResponseBuffer.acquire();
+
+    private ServletOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    private int status = SC_OK;
+
+    private boolean committed;
+
+    private boolean contentEncodingSet;
+
+    public BufferedResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Return the buffer holding the body written so far.
+     * Flushes the writer, if one has been obtained.
+     */
+    public ResponseBuffer getBuffer() {
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+        return buffer;
+    }
+
+    /**
+     * Return the status set by the view: SC_OK unless changed.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Return whether an error or redirect has been sent to the wrapped response.
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * Return whether the view has set a Content-Encoding header itself.
+     */
+    public boolean isContentEncodingSet() {
+        return contentEncodingSet;
+    }
+
+    /**
+     * Return the buffer to the pool. The wrapper must not be used anymore.
+     */
+    public void release() {
+        this.buffer.release();
+    }
+
+    public ServletOutputStream getOutputStream() {
+        if (this.writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+        if (this.outputStream == null) {
+            this.outputStream = new ServletOutputStream() {
+                public void write(int b) {
+                    buffer.write(b);
+                }
+
+                public void write(byte[] b, int off, int len) {
+                    buffer.write(b, off, len);
+                }
+            };
+        }
+        return this.outputStream;
+    }
+
+    public PrintWriter getWriter() throws IOException {
+        if (this.outputStream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called on this response");
+        }
+        if (this.writer == null) {
+            String encoding = getCharacterEncoding();
+            this.writer = new PrintWriter(new OutputStreamWriter(this.buffer, (encoding != null ? encoding : "ISO-8859-1")));
+        }
+        return this.writer;
+    }
+
+    public void setContentLength(int len) {
+        // computed from the buffer
+    }
+
+    public void setStatus(int sc) {
+        this.status = sc;
+        super.setStatus(sc);
+    }
+
+    public void setStatus(int sc, String sm) {
+        this.status = sc;
+        super.setStatus(sc, sm);
+    }
+
+    public void sendError(int sc) throws IOException {
+        this.committed = true;
+        super.sendError(sc);
+    }
+
+    public void sendError(int sc, String msg) throws IOException {
+        this.committed = true;
+        super.sendError(sc, msg);
+    }
+
+    public void sendRedirect(String location) throws IOException {
+        this.committed = true;
+        super.sendRedirect(location);
+    }
+
+    public void setHeader(String name, String value) {
+        checkContentEncoding(name);
+        super.setHeader(name, value);
+    }
+
+    public void addHeader(String name, String value) {
+        checkContentEncoding(name);
+        super.addHeader(name, value);
+    }
+
+    private void checkContentEncoding(String name) {
+        if ("Content-Encoding".equalsIgnoreCase(name)) {
+            this.contentEncodingSet = true;
+        }
+    }
+
+    public int getBufferSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    public void flushBuffer() {
+        // keep buffering: the view's output is sent as a whole
+    }
+
+    public void resetBuffer() {
+        getBuffer().reset();
+    }
+
+    public void reset() {
+        super.reset();
+        getBuffer().reset();
+        this.status = SC_OK;
+        this.contentEncodingSet = false;
+    }
+
+}
@@ -15,16 +15,20 @@
 
 package com.interface21.web.servlet.view;
 
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.servlet.ServletException;
 
 import com.interface21.beans.factory.BeanFactory;
 import com.interface21.beans.BeansException;
+import com.interface21.context.ApplicationContextException;
 import com.interface21.beans.factory.NoSuchBeanDefinitionException;
 import com.interface21.web.servlet.View;
 import com.interface21.beans.factory.support.ListableBeanFactoryImpl;
@@ -38,6 +42,10 @@ import com.interface21.beans.factory.support.ListableBeanFactoryImpl;
  * using the default support of java.util.PropertyResourceBundle.
  * <p>
  * <p>Extends AbstractCachingViewResolver for decent performance.
+ * The BeanFactory parsed from a bundle is cached as well, without locking:
+ * Concurrent requests for the same locale share one parse, and locales
+ * that fall back to the same bundle share its BeanFactory. Factories for
+ * the most used locales can be built at startup via localesToInitialize.
  *
  * @author Rod Johnson
  * @author Juergen Hoeller
@@ -55,10 +63,18 @@ public class ResourceBundleViewResolver extends AbstractCachingViewResolver {
 
     private String defaultParentView;
 
+    private Locale[] localesToInitialize;
+
+    /**
+     * Locale -> FutureTask for the BeanFactory
+     */
+    private final ConcurrentMap localeFactories = new ConcurrentHashMap();
+
     /**
-     * Locale -> BeanFactory
+     * ResourceBundle -> FutureTask for the BeanFactory, shared by
+     * all locales that resolve to the same bundle
      */
-    private Map cachedFactories = new HashMap();
+    private final ConcurrentMap bundleFactories = new ConcurrentHashMap();
 
     /**
      * Set the basename, as defined in the java.util.ResourceBundle documentation.
@@ -87,6 +103,36 @@ public class ResourceBundleViewResolver extends AbstractCachingViewResolver {
         this.defaultParentView = defaultParentView;
     }
 
+    /**
+     * Specify locales to initialize eagerly, rather than lazily when actually
+     * accessed. Avoids parsing bundles on first requests after startup.
+     * Only applies if caching is enabled.
+     *
+     * @param localesToInitialize the locales to build BeanFactories for
+     */
+    public void setLocalesToInitialize(Locale[] localesToInitialize) {
+        this.localesToInitialize = localesToInitialize;
+    }
+
+    /**
+     * Eagerly initialize the configured locales, if any.
+     */
+    protected void initApplicationContext() throws ApplicationContextException {
+        if (this.localesToInitialize != null && isCache()) {
+            for (int i = 0; i < this.localesToInitialize.length; i++) {
+                try {
+                    initFactory(this.localesToInitialize[i]);
+                } catch (MissingResourceException ex) {
+                    throw new ApplicationContextException("Cannot load resource bundle with basename '" +
+                            this.basename + "' for locale " + this.localesToInitialize[i], ex);
+                } catch (BeansException ex) {
+                    throw new ApplicationContextException("Error parsing resource bundle with basename '" +
+                            this.basename + "' for locale " + this.localesToInitialize[i], ex);
+                }
+            }
+        }
+    }
+
     protected View loadView(String viewName, Locale locale) throws ServletException {
         try {
             Object o = initFactory(locale).getBean(viewName);
@@ -123,21 +169,63 @@ public class ResourceBundleViewResolver extends AbstractCachingViewResolver {
 
     /**
      * Initialize the BeanFactory from the ResourceBundle, for the given locale.
-     * Synchronized because of access by parallel threads.
+     * Each bundle gets parsed only once if caching is enabled, even with
+     * parallel threads requesting it.
      */
-    protected synchronized BeanFactory initFactory(Locale locale) throws MissingResourceException, BeansException {
-        BeanFactory parsedBundle = isCache() ? (BeanFactory) this.cachedFactories.get(locale) : null;
-        if (parsedBundle != null) {
-            return parsedBundle;
+    protected BeanFactory initFactory(Locale locale) throws MissingResourceException, BeansException {
+        if (!isCache()) {
+            return createFactory(getBundle(locale));
+        }
+        FutureTask localeFactory = (FutureTask) this.localeFactories.get(locale);
+        if (localeFactory == null) {
+            // share the factory of the bundle the locale falls back to
+            final ResourceBundle bundle = getBundle(locale);
+            FutureTask bundleFactory = new FutureTask(new Callable() {
+                public Object call() {
+                    return createFactory(bundle);
+                }
+            });
+            FutureTask existing = (FutureTask) this.bundleFactories.putIfAbsent(bundle, bundleFactory);
+            if (existing == null) {
+                bundleFactory.run();
+            } else {
+                bundleFactory = existing;
+            }
+            existing = (FutureTask) this.localeFactories.putIfAbsent(locale, bundleFactory);
+            localeFactory = (existing != null ? existing : bundleFactory);
+        }
+        try {
+            return (BeanFactory) localeFactory.get();
+        } catch (InterruptedException ex) {
+            // keep the interrupt visible to callers, which only see the MissingResourceException
+            Thread.currentThread().interrupt();
+            MissingResourceException mrex = new MissingResourceException(
+                    "Interrupted while waiting for resource bundle to be parsed", this.basename, "");
+            mrex.initCause(ex);
+            throw mrex;
+        } catch (ExecutionException ex) {
+            // don't keep failures: a later attempt may succeed
+            this.localeFactories.remove(locale, localeFactory);
+            this.bundleFactories.values().remove(localeFactory);
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw (Error) ex.getCause();
         }
+    }
+
+    private ResourceBundle getBundle(Locale locale) throws MissingResourceException {
+        return ResourceBundle.getBundle(this.basename, locale, Thread.currentThread().getContextClassLoader());
+    }
 
-        ResourceBundle bundle = ResourceBundle.getBundle(this.basename, locale, Thread.currentThread().getContextClassLoader());
+    private BeanFactory createFactory(ResourceBundle bundle) throws BeansException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Parsing view definitions from resource bundle with basename '" + this.basename +
+                    "' and locale " + bundle.getLocale());
+        }
         ListableBeanFactoryImpl lbf = new ListableBeanFactoryImpl();
         lbf.setDefaultParentBean(this.defaultParentView);
         lbf.registerBeanDefinitions(bundle, null);
-        if (isCache()) {
-            this.cachedFactories.put(locale, lbf);
-        }
         return lbf;
     }
 
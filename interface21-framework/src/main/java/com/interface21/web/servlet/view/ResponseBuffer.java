@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet.view;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Growable in-memory buffer for response bodies, with a pool of backing
+ * arrays shared by all views: Rendering pages of similar size doesn't
+ * allocate new arrays once the pool is warm. Package-visible; used
+ * by AbstractView for buffered rendering.
+ * <p>
+ * <p>Not threadsafe: A buffer belongs to one request between acquire
+ * and release.
+ *
+ * @see AbstractView#setBufferedRendering
+ */
+final class ResponseBuffer extends OutputStream {
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    /**
+     * Larger arrays aren't returned to the pool, to not pin their memory
+     */
+    private static final int MAX_POOLED_CAPACITY = 256 * 1024;
+
+    private static final BlockingQueue pool = new ArrayBlockingQueue(32);
+
+    private byte[] bytes;
+
+    private int count;
+
+    private ResponseBuffer(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Return an empty buffer, reusing a pooled array if available.
+     */
+    public static ResponseBuffer acquire() {
+        byte[] bytes = (byte[]) pool.poll();
+        return new ResponseBuffer(bytes != null ? bytes : new byte[INITIAL_CAPACITY]);
+    }
+
+    /**
+     * Return the backing array to the pool. The buffer must not be used anymore.
+     */
+    public void release() {
+        if (this.bytes != null && this.bytes.length <= MAX_POOLED_CAPACITY) {
+            pool.offer(this.bytes);
+        }
+        this.bytes = null;
+    }
+
+    public void write(int b) {
+        ensureCapacity(this.count + 1);
+        this.bytes[this.count++] = (byte) b;
+    }
+
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(this.count + len);
+        System.arraycopy(b, off, this.bytes, this.count, len);
+        this.count += len;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.bytes.length) {
+            byte[] newBytes = new byte[Math.max(capacity, this.bytes.length * 2)];
+            System.arraycopy(this.bytes, 0, newBytes, 0, this.count);
+            this.bytes = newBytes;
+        }
+    }
+
+    /**
+     * Discard the content.
+     */
+    public void reset() {
+        this.count = 0;
+    }
+
+    /**
+     * Return the number of bytes written.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Compute a checksum over the content, suitable for an entity tag.
+     */
+    public long checksum() {
+        CRC32 crc = new CRC32();
+        crc.update(this.bytes, 0, this.count);
+        return crc.getValue();
+    }
+
+    /**
+     * Write the content to the given stream.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(this.bytes, 0, this.count);
+    }
+
+}
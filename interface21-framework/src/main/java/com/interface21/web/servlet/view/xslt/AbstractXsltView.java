@@ -18,7 +18,10 @@ package com.interface21.web.servlet.view.xslt;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -32,6 +35,7 @@ import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.URIResolver;
 import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -39,11 +43,14 @@ import com.interface21.context.ApplicationContextException;
 import com.interface21.web.context.WebApplicationContext;
 import com.interface21.web.servlet.view.AbstractView;
 import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
 
 /**
  * Convenient superclass for views rendered using an XSLT stylesheet.
- * Subclasses must provide the XML W3C document to transform.
- * They do not need to concern themselves with XSLT.
+ * Subclasses can provide the XML W3C document to transform. By default,
+ * the model gets streamed to the XSLT engine as SAX events, without
+ * building a document first. Subclasses do not need to concern
+ * themselves with XSLT.
  * <p>
  * <p>Properties:
  * <ul>
@@ -51,6 +58,9 @@ import org.w3c.dom.Node;
  * <li>root: name of the root element
  * <li>uriResolver: URIResolver used in the transform
  * <li>cache (optional, default=true): debug setting only
+ * <li>transformerPoolSize (optional, default=8): number of Transformers
+ * kept for reuse
+ * <li>outputBufferSize (optional, default=8192): size of the output buffer
  * </ul>
  * <p>
  * <p>Setting cache to false will cause the templates object to be reloaded
@@ -62,6 +72,16 @@ import org.w3c.dom.Node;
  */
 public abstract class AbstractXsltView extends AbstractView {
 
+    /**
+     * Default number of Transformers kept for reuse
+     */
+    public static final int DEFAULT_TRANSFORMER_POOL_SIZE = 8;
+
+    /**
+     * Default size of the output buffer in bytes
+     */
+    public static final int DEFAULT_OUTPUT_BUFFER_SIZE = 8192;
+
     /**
      * URL of stylesheet
      */
@@ -79,6 +99,10 @@ public abstract class AbstractXsltView extends AbstractView {
 
     private boolean cache = true;
 
+    private int transformerPoolSize = DEFAULT_TRANSFORMER_POOL_SIZE;
+
+    private int outputBufferSize = DEFAULT_OUTPUT_BUFFER_SIZE;
+
     private TransformerFactory transformerFactory;
 
     /**
@@ -86,6 +110,11 @@ public abstract class AbstractXsltView extends AbstractView {
      */
     private Templates templates;
 
+    /**
+     * Idle Transformers for the current templates
+     */
+    private volatile BlockingQueue transformerPool;
+
     public AbstractXsltView() {
     }
 
@@ -129,6 +158,27 @@ public abstract class AbstractXsltView extends AbstractView {
         this.cache = cache;
     }
 
+    /**
+     * Set the maximum number of Transformers kept for reuse. Transformers
+     * aren't threadsafe, so each rendering takes one out of the pool and
+     * returns it afterwards. A rendering that finds the pool empty creates
+     * a new Transformer. Set to 0 to create a Transformer per rendering.
+     *
+     * @param transformerPoolSize the maximum number of idle Transformers
+     */
+    public final void setTransformerPoolSize(int transformerPoolSize) {
+        this.transformerPoolSize = transformerPoolSize;
+    }
+
+    /**
+     * Set the size of the buffer between the XSLT engine and the response.
+     *
+     * @param outputBufferSize the buffer size in bytes
+     */
+    public final void setOutputBufferSize(int outputBufferSize) {
+        this.outputBufferSize = outputBufferSize;
+    }
+
     /**
      * Here we load our template, as we need the ApplicationContext to do it.
      */
@@ -148,6 +198,8 @@ public abstract class AbstractXsltView extends AbstractView {
             Source s = getStylesheetSource(stylesheet);
             try {
                 this.templates = transformerFactory.newTemplates(s);
+                // Transformers of previous templates must not be reused
+                this.transformerPool = null;
                 logger.info("Loaded templates " + templates + " in XsltView with name '" + getName() + "'");
             } catch (TransformerConfigurationException ex) {
                 throw new ApplicationContextException(
@@ -199,7 +251,7 @@ public abstract class AbstractXsltView extends AbstractView {
         if (model == null)
             throw new ServletException("Cannot do XSLT transform on null model");
 
-        Node dom = null;
+        Source source = null;
         String docRoot = null;
 
         // Value of a single element in the map, if there is one
@@ -216,7 +268,7 @@ public abstract class AbstractXsltView extends AbstractView {
             // We don't need to worry about model name, either:
             // we leave the Node alone
             logger.debug("No need to domify: was passed an XML node");
-            dom = (Node) singleModel;
+            source = new DOMSource((Node) singleModel);
         } else {
             if (this.root == null && docRoot == null)
                 throw new ServletException(
@@ -224,18 +276,43 @@ public abstract class AbstractXsltView extends AbstractView {
 
             // docRoot local variable takes precedence
             try {
-                dom = createDomNode(model, (docRoot == null) ? this.root : docRoot, request, response);
+                source = createXsltSource(model, (docRoot == null) ? this.root : docRoot, request, response);
             } catch (Exception rex) {
                 throw new ServletException("Error creating XML node from model in XSLT view with name='" + getName() + "'", rex);
             }
         }
 
-        doTransform(response, dom);
+        doTransform(response, source);
+    }
+
+    /**
+     * Return the XML source to transform.
+     * <p>This implementation uses the node returned by createDomNode, if any.
+     * Else it streams the model via a ModelXmlReader, so that the XSLT engine
+     * consumes the model without an intermediate document.
+     *
+     * @param model    the model Map
+     * @param root     name for root element
+     * @param request  HTTP request
+     * @param response HTTP response
+     * @throws Exception we let this method throw any exception; the
+     *                   AbstractXlstView superclass will catch exceptions
+     * @see #createDomNode
+     * @see ModelXmlReader
+     */
+    protected Source createXsltSource(Map model, String root, HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+        Node dom = createDomNode(model, root, request, response);
+        if (dom != null) {
+            return new DOMSource(dom);
+        }
+        return new SAXSource(new ModelXmlReader(root, model), new InputSource());
     }
 
     /**
      * Return the XML node to transform.
-     * Subclasses must implement this method.
+     * <p>This implementation returns null, to stream the model instead:
+     * Subclasses can override it to build a document themselves.
      *
      * @param model    the model Map
      * @param root     name for root element
@@ -247,22 +324,33 @@ public abstract class AbstractXsltView extends AbstractView {
      * @throws Exception we let this method throw any exception; the
      *                   AbstractXlstView superclass will catch exceptions
      */
-    protected abstract Node createDomNode(Map model, String root, HttpServletRequest request, HttpServletResponse response) throws Exception;
+    protected Node createDomNode(Map model, String root, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        return null;
+    }
 
     /**
      * Use TrAX to perform the transform.
      */
     protected void doTransform(HttpServletResponse response, Node dom) throws IllegalArgumentException, IOException, ServletException {
-        try {
-            Transformer trans = (this.templates != null) ? this.templates.newTransformer() : // we have a stylesheet
-                    transformerFactory.newTransformer(); // just a copy
+        doTransform(response, new DOMSource(dom));
+    }
 
-            trans.setOutputProperty(OutputKeys.INDENT, "yes");
-            // Xalan-specific, but won't do any harm in other XSLT engines
-            trans.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            trans.transform(new DOMSource(dom), new StreamResult(new BufferedOutputStream(response.getOutputStream())));
+    /**
+     * Use TrAX to perform the transform, with a pooled Transformer.
+     */
+    protected void doTransform(HttpServletResponse response, Source source) throws IllegalArgumentException, IOException, ServletException {
+        try {
+            Transformer trans = obtainTransformer();
+            try {
+                OutputStream out = new BufferedOutputStream(response.getOutputStream(), this.outputBufferSize);
+                trans.transform(source, new StreamResult(out));
+                out.flush();
+            } finally {
+                releaseTransformer(trans);
+            }
 
-            logger.debug("XSLT transformed OK with stylesheet '" + stylesheet + "'");
+            if (logger.isDebugEnabled())
+                logger.debug("XSLT transformed OK with stylesheet '" + stylesheet + "'");
         } catch (TransformerConfigurationException ex) {
             throw new ServletException(
                     "Couldn't create XSLT transformer for stylesheet '" + stylesheet + "' in XSLT view with name='" + getName() + "'",
@@ -274,4 +362,46 @@ public abstract class AbstractXsltView extends AbstractView {
         }
     }
 
+    /**
+     * Create a new Transformer for the current templates, or a copying
+     * Transformer if there is no stylesheet. Called whenever the pool is empty.
+     * Subclasses can override this to customize Transformers.
+     */
+    protected Transformer createTransformer() throws TransformerConfigurationException {
+        return (this.templates != null) ? this.templates.newTransformer() : // we have a stylesheet
+                this.transformerFactory.newTransformer(); // just a copy
+    }
+
+    private Transformer obtainTransformer() throws TransformerConfigurationException {
+        BlockingQueue pool = this.transformerPool;
+        Transformer trans = (pool != null) ? (Transformer) pool.poll() : null;
+        if (trans == null) {
+            trans = createTransformer();
+            configureTransformer(trans);
+        }
+        return trans;
+    }
+
+    private void releaseTransformer(Transformer trans) {
+        if (this.transformerPoolSize <= 0 || !this.cache) {
+            return;
+        }
+        // reset parameters, error listener and output properties for the next rendering
+        trans.reset();
+        configureTransformer(trans);
+        BlockingQueue pool = this.transformerPool;
+        if (pool == null) {
+            // may get created twice concurrently: no harm, just one pool lost
+            pool = new ArrayBlockingQueue(this.transformerPoolSize);
+            this.transformerPool = pool;
+        }
+        pool.offer(trans);
+    }
+
+    private void configureTransformer(Transformer trans) {
+        trans.setOutputProperty(OutputKeys.INDENT, "yes");
+        // Xalan-specific, but won't do any harm in other XSLT engines
+        trans.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+    }
+
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet.view.xslt;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * XMLReader that walks a model object and reports it as SAX events, without
+ * building a document tree. Used with a SAXSource, an XSLT engine consumes
+ * the model while it is being walked: Rows from an Iterator are only
+ * touched when the transformation gets to them.
+ * <p>
+ * <p>Mapping rules:
+ * <ul>
+ * <li>Map: one child element per entry, named after the key if that is a
+ * valid XML name, else an "entry" element with the key as "key" attribute
+ * <li>Collection, array (including primitive arrays) or Iterator: one child
+ * element per item, named "item"
+ * <li>String, Number, Boolean, Character or Date: text content
+ * <li>Any other object: one child element per readable bean property
+ * <li>null: an empty element
+ * </ul>
+ * <p>
+ * <p>An instance can be parsed only once if the model contains Iterators.
+ * <p>
+ * <p>Parsing fails with a SAXException if the model refers back to an object
+ * that is still being written, or if it is nested deeper than maxDepth.
+ *
+ * @see AbstractXsltView#createXsltSource
+ * @see javax.xml.transform.sax.SAXSource
+ */
+public class ModelXmlReader implements XMLReader {
+
+    /**
+     * Element name for items of collections, arrays and iterators
+     */
+    public static final String ITEM_ELEMENT_NAME = "item";
+
+    /**
+     * Element name for Map entries whose key isn't a valid XML name
+     */
+    public static final String ENTRY_ELEMENT_NAME = "entry";
+
+    /**
+     * Attribute holding the key of an entry element
+     */
+    public static final String KEY_ATTRIBUTE_NAME = "key";
+
+    /**
+     * Default maximum nesting depth of elements below the root
+     */
+    public static final int DEFAULT_MAX_DEPTH = 64;
+
+    private static final AttributesImpl NO_ATTRIBUTES = new AttributesImpl();
+
+    private final String root;
+
+    private final Object model;
+
+    private ContentHandler contentHandler;
+
+    private DTDHandler dtdHandler;
+
+    private EntityResolver entityResolver;
+
+    private ErrorHandler errorHandler;
+
+    /**
+     * Feature name --> Boolean
+     */
+    private final Map features = new HashMap();
+
+    /**
+     * Class --> List of readable PropertyDescriptors
+     */
+    private final Map beanProperties = new HashMap();
+
+    /**
+     * Objects currently being written, to detect cycles (identity set)
+     */
+    private final Map objectsBeingWritten = new IdentityHashMap();
+
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+    private int depth;
+
+    /**
+     * Create a new ModelXmlReader.
+     *
+     * @param root  name of the root element
+     * @param model the model object to report under the root element,
+     *              typically the model Map
+     */
+    public ModelXmlReader(String root, Object model) {
+        this.root = root;
+        this.model = model;
+        this.features.put("http://xml.org/sax/features/namespaces", Boolean.TRUE);
+        this.features.put("http://xml.org/sax/features/namespace-prefixes", Boolean.FALSE);
+    }
+
+    /**
+     * Set the maximum nesting depth of elements below the root element.
+     * Default is DEFAULT_MAX_DEPTH.
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Return the maximum nesting depth of elements below the root element.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean getFeature(String name) throws SAXNotRecognizedException {
+        Boolean value = (Boolean) this.features.get(name);
+        if (value == null) {
+            throw new SAXNotRecognizedException(name);
+        }
+        return value.booleanValue();
+    }
+
+    public void setFeature(String name, boolean value) {
+        this.features.put(name, value ? Boolean.TRUE : Boolean.FALSE);
+    }
+
+    public Object getProperty(String name) throws SAXNotRecognizedException {
+        throw new SAXNotRecognizedException(name);
+    }
+
+    public void setProperty(String name, Object value) throws SAXNotRecognizedException {
+        throw new SAXNotRecognizedException(name);
+    }
+
+    public void setEntityResolver(EntityResolver entityResolver) {
+        this.entityResolver = entityResolver;
+    }
+
+    public EntityResolver getEntityResolver() {
+        return entityResolver;
+    }
+
+    public void setDTDHandler(DTDHandler dtdHandler) {
+        this.dtdHandler = dtdHandler;
+    }
+
+    public DTDHandler getDTDHandler() {
+        return dtdHandler;
+    }
+
+    public void setContentHandler(ContentHandler contentHandler) {
+        this.contentHandler = contentHandler;
+    }
+
+    public ContentHandler getContentHandler() {
+        return contentHandler;
+    }
+
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    /**
+     * Report the model to the ContentHandler. The InputSource is ignored.
+     */
+    public void parse(InputSource input) throws SAXException {
+        if (this.contentHandler == null) {
+            throw new SAXException("No ContentHandler set on ModelXmlReader");
+        }
+        this.contentHandler.startDocument();
+        writeElement(this.root, this.model);
+        this.contentHandler.endDocument();
+    }
+
+    /**
+     * Report the model to the ContentHandler. The system ID is ignored.
+     */
+    public void parse(String systemId) throws SAXException {
+        parse((InputSource) null);
+    }
+
+    private void writeElement(String name, Object value) throws SAXException {
+        writeElement(name, NO_ATTRIBUTES, value);
+    }
+
+    private void writeElement(String name, AttributesImpl attributes, Object value) throws SAXException {
+        if (this.depth > this.maxDepth) {
+            throw new SAXException("Model nested deeper than " + this.maxDepth + " levels at element '" + name + "'");
+        }
+        this.depth++;
+        try {
+            this.contentHandler.startElement("", name, name, attributes);
+            writeContent(value);
+            this.contentHandler.endElement("", name, name);
+        } finally {
+            this.depth--;
+        }
+    }
+
+    private void writeContent(Object value) throws SAXException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof String || value instanceof Number || value instanceof Boolean ||
+                value instanceof Character || value instanceof Date) {
+            String text = value.toString();
+            this.contentHandler.characters(text.toCharArray(), 0, text.length());
+            return;
+        }
+        if (this.objectsBeingWritten.put(value, Boolean.TRUE) != null) {
+            throw new SAXException("Cycle in model: object of class [" + value.getClass().getName() +
+                    "] contains itself");
+        }
+        try {
+            if (value instanceof Map) {
+                for (Iterator it = ((Map) value).entrySet().iterator(); it.hasNext();) {
+                    Map.Entry entry = (Map.Entry) it.next();
+                    writeEntry(entry.getKey(), entry.getValue());
+                }
+            } else if (value instanceof Collection) {
+                writeItems(((Collection) value).iterator());
+            } else if (value instanceof Iterator) {
+                writeItems((Iterator) value);
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                for (int i = 0; i < length; i++) {
+                    writeElement(ITEM_ELEMENT_NAME, Array.get(value, i));
+                }
+            } else {
+                writeBean(value);
+            }
+        } finally {
+            this.objectsBeingWritten.remove(value);
+        }
+    }
+
+    /**
+     * Write a Map entry as element named after the key, or as "entry"
+     * element with "key" attribute if the key isn't a valid XML name.
+     */
+    private void writeEntry(Object key, Object value) throws SAXException {
+        String name = (key != null ? key.toString() : null);
+        if (isXmlName(name)) {
+            writeElement(name, value);
+        } else {
+            AttributesImpl attributes = new AttributesImpl();
+            if (name != null) {
+                attributes.addAttribute("", KEY_ATTRIBUTE_NAME, KEY_ATTRIBUTE_NAME, "CDATA", name);
+            }
+            writeElement(ENTRY_ELEMENT_NAME, attributes, value);
+        }
+    }
+
+    /**
+     * Return whether the given String is a valid XML element name
+     * without namespace prefix.
+     */
+    static boolean isXmlName(String name) {
+        if (name == null || name.length() == 0) {
+            return false;
+        }
+        char first = name.charAt(0);
+        if (!Character.isLetter(first) && first != '_') {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeItems(Iterator it) throws SAXException {
+        while (it.hasNext()) {
+            writeElement(ITEM_ELEMENT_NAME, it.next());
+        }
+    }
+
+    private void writeBean(Object bean) throws SAXException {
+        List properties = getBeanProperties(bean.getClass());
+        for (int i = 0; i < properties.size(); i++) {
+            PropertyDescriptor pd = (PropertyDescriptor) properties.get(i);
+            Object value;
+            try {
+                value = pd.getReadMethod().invoke(bean, (Object[]) null);
+            } catch (InvocationTargetException ex) {
+                throw new SAXException("Could not read property '" + pd.getName() + "' of model object [" + bean + "]",
+                        ex.getTargetException() instanceof Exception ? (Exception) ex.getTargetException() : null);
+            } catch (IllegalAccessException ex) {
+                throw new SAXException("Could not access property '" + pd.getName() + "' of model object [" + bean + "]", ex);
+            }
+            writeElement(pd.getName(), value);
+        }
+    }
+
+    private List getBeanProperties(Class clazz) throws SAXException {
+        List properties = (List) this.beanProperties.get(clazz);
+        if (properties == null) {
+            PropertyDescriptor[] pds;
+            try {
+                pds = Introspector.getBeanInfo(clazz, Object.class).getPropertyDescriptors();
+            } catch (IntrospectionException ex) {
+                throw new SAXException("Could not introspect model class [" + clazz.getName() + "]", ex);
+            }
+            properties = new ArrayList(pds.length);
+            for (int i = 0; i < pds.length; i++) {
+                Method readMethod = pds[i].getReadMethod();
+                if (readMethod != null && readMethod.getParameterTypes().length == 0) {
+                    properties.add(pds[i]);
+                }
+            }
+            this.beanProperties.put(clazz, properties);
+        }
+        return properties;
+    }
+
+}
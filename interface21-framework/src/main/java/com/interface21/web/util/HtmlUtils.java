@@ -4,6 +4,8 @@
 
 package com.interface21.web.util;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -15,6 +17,11 @@ import java.util.HashMap;
  * <a href="http://hotwired.lycos.com/webmonkey/reference/special_characters/">
  * http://hotwired.lycos.com/webmonkey/reference/special_characters/
  * </a>
+ * <p>
+ * <p>Escaping looks up replacements for characters below 256 in a table,
+ * and returns the source string itself if nothing needs to be escaped.
+ * The Writer and Appendable variants write straight to the target,
+ * e.g. a JspWriter, without building an intermediate string.
  *
  * @author Juergen Hoeller
  * @since 01.03.2003
@@ -95,13 +102,30 @@ public abstract class HtmlUtils {
             {"euro", 8364}, // Euro symbol
     };
 
+    /**
+     * Entity name (String) --> character (Integer)
+     */
     private static Map<Object, Object> e2i = new HashMap<>();
-    private static Map<Object, Object> i2e = new HashMap<>();
+
+    /**
+     * Replacements for characters below 256, null if none
+     */
+    private static final String[] ESCAPES = new String[256];
+
+    private static final String EURO_ESCAPE = "&euro;";
 
     static {
         for (Object[] entity : entities) {
             e2i.put(entity[0], entity[1]);
-            i2e.put(entity[1], entity[0]);
+            int ch = ((Integer) entity[1]).intValue();
+            if (ch < ESCAPES.length) {
+                ESCAPES[ch] = "&" + entity[0] + ";";
+            }
+        }
+        for (int ch = 129; ch < ESCAPES.length; ch++) {
+            if (ESCAPES[ch] == null) {
+                ESCAPES[ch] = "&#" + ch + ";";
+            }
         }
     }
 
@@ -109,57 +133,170 @@ public abstract class HtmlUtils {
      * Turns funky characters into HTML entity equivalents.<p>
      * E.g. <tt>"bread" & "butter"</tt> => <tt>&amp;quot;bread&amp;quot; &amp;amp; &amp;quot;butter&amp;quot;</tt>
      * <p>Update: supports nearly all HTML entities, including funky accents. See the source code for more detail.
+     *
+     * @return the escaped string, the source itself if nothing needs to be
+     * escaped, or an empty string if the source is null
      **/
     public static String htmlEscape(String source) {
-        StringBuilder buf = new StringBuilder();
-        if (source != null) {
-            for (int i = 0; i < source.length(); ++i) {
-                char ch = source.charAt(i);
-                String entity = (String) i2e.get((int) ch);
-                if (entity == null) {
-                    if (((int) ch) > 128)
-                        buf.append("&#").append((int) ch).append(";");
-                    else
-                        buf.append(ch);
-                } else {
-                    buf.append("&").append(entity).append(";");
-                }
+        if (source == null) {
+            return "";
+        }
+        int first = indexOfEscape(source);
+        if (first == -1) {
+            return source;
+        }
+        int length = source.length();
+        StringBuilder buf = new StringBuilder(length + (length >> 3) + 16);
+        buf.append(source, 0, first);
+        for (int i = first; i < length; i++) {
+            char ch = source.charAt(i);
+            String escape = getEscape(ch);
+            if (escape != null) {
+                buf.append(escape);
+            } else {
+                buf.append(ch);
             }
         }
         return buf.toString();
     }
 
     /**
-     * Reverses htmlEscape.
+     * Escape the given source like htmlEscape(String), writing the result to the
+     * given Writer. Unescaped runs are written as a whole. Does nothing for null.
+     *
+     * @see #htmlEscape(String)
+     */
+    public static void htmlEscape(String source, Writer out) throws IOException {
+        if (source == null) {
+            return;
+        }
+        int length = source.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            String escape = getEscape(source.charAt(i));
+            if (escape != null) {
+                if (i > start) {
+                    out.write(source, start, i - start);
+                }
+                out.write(escape);
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            out.write(source, start, length - start);
+        }
+    }
+
+    /**
+     * Escape the given source like htmlEscape(String), appending the result to
+     * the given Appendable, e.g. a StringBuilder. Does nothing for null.
+     *
+     * @see #htmlEscape(String)
+     */
+    public static void htmlEscape(CharSequence source, Appendable out) throws IOException {
+        if (source == null) {
+            return;
+        }
+        int length = source.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            String escape = getEscape(source.charAt(i));
+            if (escape != null) {
+                if (i > start) {
+                    out.append(source, start, i);
+                }
+                out.append(escape);
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            out.append(source, start, length);
+        }
+    }
+
+    /**
+     * Return the index of the first character that needs to be escaped, or -1.
+     */
+    private static int indexOfEscape(String source) {
+        int length = source.length();
+        for (int i = 0; i < length; i++) {
+            char ch = source.charAt(i);
+            if (ch >= ESCAPES.length || ESCAPES[ch] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the replacement for the given character, or null if none.
+     */
+    private static String getEscape(char ch) {
+        if (ch < ESCAPES.length) {
+            return ESCAPES[ch];
+        }
+        if (ch == 8364) {
+            return EURO_ESCAPE;
+        }
+        return "&#" + ((int) ch) + ";";
+    }
+
+    /**
+     * Reverses htmlEscape. Unknown or malformed entities are left as they are.
      **/
     public static String htmlUnescape(String source) {
-        StringBuilder buf = new StringBuilder();
-        if (source != null) {
-            for (int i = 0; i < source.length(); ++i) {
-                char ch = source.charAt(i);
-                if (ch == '&') {
-                    int semi = source.indexOf(';', i + 1);
-                    if (semi == -1) {
-                        buf.append(ch);
-                        continue;
-                    }
-                    String entity = source.substring(i + 1, semi); //semi-1);
-                    Integer iso;
-                    if (entity.charAt(0) == '#')
-                        iso = new Integer(entity.substring(1));
-                    else
-                        iso = (Integer) e2i.get(entity);
-                    if (iso == null) {
-                        buf.append("&").append(entity).append(";");
-                    } else {
-                        buf.append((char) (iso.intValue()));
-                        i = semi;
-                    }
-                } else {
-                    buf.append(ch);
+        if (source == null) {
+            return "";
+        }
+        int first = source.indexOf('&');
+        if (first == -1) {
+            return source;
+        }
+        int length = source.length();
+        StringBuilder buf = new StringBuilder(length);
+        buf.append(source, 0, first);
+        for (int i = first; i < length; ++i) {
+            char ch = source.charAt(i);
+            if (ch == '&') {
+                int semi = source.indexOf(';', i + 1);
+                int iso = (semi != -1 ? parseEntity(source, i + 1, semi) : -1);
+                if (iso != -1) {
+                    buf.append((char) iso);
+                    i = semi;
+                    continue;
                 }
             }
+            buf.append(ch);
         }
         return buf.toString();
     }
+
+    /**
+     * Parse the entity between the given indexes: a name or a decimal
+     * character reference.
+     *
+     * @return the character, or -1 if not a known entity
+     */
+    private static int parseEntity(String source, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        if (source.charAt(start) == '#') {
+            if (end - start < 2 || end - start > 6) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = start + 1; i < end; i++) {
+                char digit = source.charAt(i);
+                if (digit < '0' || digit > '9') {
+                    return -1;
+                }
+                value = value * 10 + (digit - '0');
+            }
+            return (value <= Character.MAX_VALUE ? value : -1);
+        }
+        Integer iso = (Integer) e2i.get(source.substring(start, end));
+        return (iso != null ? iso.intValue() : -1);
+    }
+
 }
@@ -12,6 +12,7 @@ import javax.servlet.http.HttpSession;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.StringTokenizer;
 
 /**
  * Miscellaneous utilities for web applications.
@@ -43,6 +44,26 @@ public abstract class WebUtils {
      */
     public static final String HEADER_LAST_MODIFIED = "Last-Modified";
 
+    /**
+     * HTTP header value
+     */
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+    /**
+     * HTTP header value
+     */
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    /**
+     * Content encoding value
+     */
+    public static final String ENCODING_GZIP = "gzip";
+
+    /**
+     * Content encoding value
+     */
+    public static final String ENCODING_DEFLATE = "deflate";
+
     /**
      * Name suffix in case of image buttons
      */
@@ -260,4 +281,47 @@ public abstract class WebUtils {
         return (request.getParameter(name) != null || request.getParameter(name + SUBMIT_IMAGE_SUFFIX) != null);
     }
 
+    /**
+     * Choose the content encoding for a response,
+     * according to the given Accept-Encoding header.
+     * Prefers gzip over deflate, ignoring codings with a quality of 0.
+     *
+     * @param acceptEncoding the Accept-Encoding header value, or null
+     * @return "gzip", "deflate", or null if neither is accepted
+     * @see #HEADER_ACCEPT_ENCODING
+     */
+    public static String negotiateEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        StringTokenizer st = new StringTokenizer(acceptEncoding, ",");
+        while (st.hasMoreTokens()) {
+            String coding = st.nextToken().trim();
+            int paramIndex = coding.indexOf(';');
+            if (paramIndex != -1) {
+                String param = coding.substring(paramIndex + 1).trim();
+                coding = coding.substring(0, paramIndex).trim();
+                if (param.startsWith("q=") && isZeroQuality(param.substring(2).trim())) {
+                    continue;
+                }
+            }
+            if (ENCODING_GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                return ENCODING_GZIP;
+            }
+            if (ENCODING_DEFLATE.equalsIgnoreCase(coding)) {
+                deflate = true;
+            }
+        }
+        return (deflate ? ENCODING_DEFLATE : null);
+    }
+
+    private static boolean isZeroQuality(String quality) {
+        try {
+            return Float.parseFloat(quality) == 0;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.beans;
+
+import java.beans.PropertyDescriptor;
+import java.beans.SimpleBeanInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for validating saved bean metadata against the current classes.
+ */
+public class BeanMetadataSnapshotTests extends TestCase {
+
+    public void testChangedClassIsNotRestored() throws IOException {
+        long fingerprint = BeanMetadataSnapshot.fingerprint(UnchangedBean.class);
+        assertEquals(0, BeanMetadataSnapshot.restore(metadata(UnchangedBean.class, fingerprint + 1)));
+        assertNull(CachedIntrospectionResults.getCachedResults(UnchangedBean.class));
+        assertEquals(1, BeanMetadataSnapshot.restore(metadata(UnchangedBean.class, fingerprint)));
+        assertNotNull(CachedIntrospectionResults.getCachedResults(UnchangedBean.class));
+    }
+
+    public void testFingerprintCoversInheritedMethods() {
+        assertTrue(BeanMetadataSnapshot.fingerprint(UnchangedBean.class) !=
+                BeanMetadataSnapshot.fingerprint(ExtendedBean.class));
+    }
+
+    public void testClassWithBeanInfoIsNotSaved() throws IOException {
+        new BeanWrapperImpl(new InfoBean());
+        new BeanWrapperImpl(new TestBean());
+        assertTrue(BeanMetadataSnapshot.hasExplicitBeanInfo(InfoBean.class));
+        assertFalse(BeanMetadataSnapshot.hasExplicitBeanInfo(TestBean.class));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BeanMetadataSnapshot.write(new DataOutputStream(bos), Arrays.asList(new Class[]{InfoBean.class}));
+        assertEquals(0, ByteBuffer.wrap(bos.toByteArray()).getInt());
+
+        bos = new ByteArrayOutputStream();
+        BeanMetadataSnapshot.write(new DataOutputStream(bos), Collections.singleton(TestBean.class));
+        assertEquals(1, ByteBuffer.wrap(bos.toByteArray()).getInt());
+    }
+
+    /**
+     * Build metadata for the given class without property descriptors.
+     */
+    private ByteBuffer metadata(Class clazz, long fingerprint) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(1);
+        byte[] name = clazz.getName().getBytes("UTF-8");
+        out.writeInt(name.length);
+        out.write(name);
+        out.writeLong(fingerprint);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.close();
+        return ByteBuffer.wrap(bos.toByteArray());
+    }
+
+
+    public static class UnchangedBean {
+    }
+
+
+    public static class ExtendedBean extends UnchangedBean {
+
+        public String getName() {
+            return null;
+        }
+    }
+
+
+    public static class InfoBean {
+    }
+
+
+    public static class InfoBeanBeanInfo extends SimpleBeanInfo {
+
+        public PropertyDescriptor[] getPropertyDescriptors() {
+            return new PropertyDescriptor[0];
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.beans.factory.support;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import com.interface21.beans.factory.DummyFactory;
+import com.interface21.beans.factory.xml.XmlBeanFactory;
+
+/**
+ * Tests for profiling bean creation.
+ */
+public class BeanCreationProfilerTests extends TestCase {
+
+    private BeanCreationProfiler profiler;
+
+    private ListableBeanFactoryImpl lbf;
+
+    protected void setUp() {
+        this.profiler = new BeanCreationProfiler();
+        this.lbf = new ListableBeanFactoryImpl();
+        Properties p = new Properties();
+        p.setProperty("rod.class", "com.interface21.beans.TestBean");
+        p.setProperty("rod.name", "Rod");
+        p.setProperty("rod.spouse(ref)", "kerry");
+        p.setProperty("kerry.class", "com.interface21.beans.TestBean");
+        p.setProperty("kerry.name", "Kerry");
+        p.setProperty("factory.class", DummyFactory.class.getName());
+        this.lbf.registerBeanDefinitions(p, null);
+    }
+
+    public void testNoStepsWithoutProfiler() {
+        this.lbf.getBean("rod");
+        this.lbf.setProfiler(this.profiler);
+        assertEquals(0, this.profiler.getSteps().size());
+    }
+
+    public void testNestedCreationIsRecorded() {
+        this.lbf.setProfiler(this.profiler);
+        this.lbf.getBean("rod");
+
+        BeanCreationProfiler.Step kerry = findStep(BeanCreationProfiler.CREATE, "kerry");
+        BeanCreationProfiler.Step rod = findStep(BeanCreationProfiler.CREATE, "rod");
+        assertNotNull(kerry);
+        assertNotNull(rod);
+        assertEquals("create rod;create kerry", kerry.getPath(";"));
+        assertEquals("create rod", rod.getPath(";"));
+        assertTrue(rod.getTime() >= kerry.getTime());
+        assertTrue(rod.getSelfTime() <= rod.getTime() - kerry.getTime());
+        assertNotNull(findStep(BeanCreationProfiler.INIT, "rod"));
+        if (this.profiler.isAllocationMeasured()) {
+            assertTrue(rod.getAllocatedBytes() >= kerry.getAllocatedBytes());
+        } else {
+            assertEquals(-1, rod.getAllocatedBytes());
+        }
+    }
+
+    public void testFactoryBeanObjectIsRecorded() {
+        this.lbf.setProfiler(this.profiler);
+        this.lbf.getBean("factory");
+        BeanCreationProfiler.Step step = findStep(BeanCreationProfiler.GET_OBJECT, "factory");
+        assertNotNull(step);
+        assertEquals("getObject factory", step.getLabel());
+    }
+
+    public void testParsingIsRecorded() {
+        XmlBeanFactory xbf = new XmlBeanFactory();
+        xbf.setProfiler(this.profiler);
+        InputStream is = getClass().getResourceAsStream("/com/interface21/beans/factory/xml/test.xml");
+        xbf.loadBeanDefinitions(is);
+        BeanCreationProfiler.Step step = findStep(BeanCreationProfiler.PARSE, "XML InputStream");
+        assertNotNull(step);
+        assertEquals(1, this.profiler.getSteps().size());
+    }
+
+    public void testFlameGraphAndReport() throws Exception {
+        this.lbf.setProfiler(this.profiler);
+        this.lbf.getBean("rod");
+        StringWriter sw = new StringWriter();
+        this.profiler.writeFlameGraph(sw);
+        String[] lines = sw.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].matches("create rod \\d+"));
+        assertTrue(lines[1].matches("create rod;create kerry \\d+"));
+        assertTrue(lines[2].matches("create rod;create kerry;init kerry \\d+"));
+        assertTrue(lines[3].matches("create rod;init rod \\d+"));
+
+        String report = this.profiler.getTopReport(2);
+        assertTrue(report.startsWith("Top 2 of 4 steps by wall time:"));
+        assertTrue(report.indexOf("create rod") != -1);
+
+        this.profiler.reset();
+        assertEquals(0, this.profiler.getSteps().size());
+    }
+
+    private BeanCreationProfiler.Step findStep(String kind, String name) {
+        List steps = this.profiler.getSteps();
+        for (Iterator it = steps.iterator(); it.hasNext(); ) {
+            BeanCreationProfiler.Step step = (BeanCreationProfiler.Step) it.next();
+            if (step.getKind().equals(kind) && step.getName().equals(name)) {
+                return step;
+            }
+        }
+        return null;
+    }
+
+}
@@ -9,10 +9,16 @@
 
 package com.interface21.beans.factory.xml;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
 
 import javax.servlet.ServletException;
 
@@ -471,6 +477,141 @@ public class XmlBeanFactoryTestSuite extends AbstractListableBeanFactoryTests {
         }
     }
 
+    public void testDefinitionCacheIsWrittenAndUsed() throws Exception {
+        File xmlFile = copyToTempFile("collections.xml");
+        File cacheFile = new File(xmlFile.getPath() + BeanDefinitionCache.CACHE_FILE_SUFFIX);
+        try {
+            XmlBeanFactory xbf = new XmlBeanFactory();
+            xbf.setDefinitionCacheEnabled(true);
+            xbf.loadBeanDefinitions(xmlFile.getPath());
+            assertTrue("Cache file written", cacheFile.isFile());
+            int beanCount = xbf.getBeanDefinitionCount();
+
+            // Second factory must be populated from the cache file
+            XmlBeanFactory cached = new XmlBeanFactory();
+            cached.setDefinitionCacheEnabled(true);
+            cached.loadBeanDefinitions(xmlFile.getPath());
+            assertEquals(beanCount, cached.getBeanDefinitionCount());
+            assertCollectionsLoaded(cached);
+        } finally {
+            xmlFile.delete();
+            cacheFile.delete();
+        }
+    }
+
+    public void testCorruptDefinitionCacheIsRewritten() throws Exception {
+        File xmlFile = copyToTempFile("collections.xml");
+        File cacheFile = new File(xmlFile.getPath() + BeanDefinitionCache.CACHE_FILE_SUFFIX);
+        try {
+            OutputStream os = new FileOutputStream(cacheFile);
+            os.write(new byte[]{0x49, 0x32, 0x42, 0x44, 0, 0, 0, 1, 0});
+            os.close();
+
+            XmlBeanFactory xbf = new XmlBeanFactory();
+            xbf.setDefinitionCacheEnabled(true);
+            xbf.loadBeanDefinitions(xmlFile.getPath());
+            assertCollectionsLoaded(xbf);
+            assertTrue("Cache file rewritten", cacheFile.length() > 9);
+        } finally {
+            xmlFile.delete();
+            cacheFile.delete();
+        }
+    }
+
+    public void testDefinitionCacheWithInvalidLengthsIsRewritten() throws Exception {
+        assertTruncatedCacheRewritten(Integer.MAX_VALUE, 0);
+        assertTruncatedCacheRewritten(-2, 0);
+        assertTruncatedCacheRewritten(1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Write a cache file for the current XML content that declares the given
+     * number of definitions, with a first bean name of the given length,
+     * but ends right after that.
+     */
+    private void assertTruncatedCacheRewritten(int count, int nameLength) throws Exception {
+        File xmlFile = copyToTempFile("collections.xml");
+        File cacheFile = new File(xmlFile.getPath() + BeanDefinitionCache.CACHE_FILE_SUFFIX);
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(BeanDefinitionCache.readFile(xmlFile).array());
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(cacheFile));
+            out.writeInt(0x49324244);
+            out.writeInt(1);
+            out.writeLong(crc.getValue());
+            out.writeInt(count);
+            out.writeInt(nameLength);
+            out.write(new byte[32]);
+            out.close();
+
+            XmlBeanFactory xbf = new XmlBeanFactory();
+            xbf.setDefinitionCacheEnabled(true);
+            xbf.loadBeanDefinitions(xmlFile.getPath());
+            assertCollectionsLoaded(xbf);
+            assertTrue("Cache file rewritten", cacheFile.length() > 56);
+        } finally {
+            xmlFile.delete();
+            cacheFile.delete();
+        }
+    }
+
+    public void testStaleDefinitionCacheIsIgnored() throws Exception {
+        File xmlFile = copyToTempFile("collections.xml");
+        File cacheFile = new File(xmlFile.getPath() + BeanDefinitionCache.CACHE_FILE_SUFFIX);
+        File otherXmlFile = copyToTempFile("reftypes.xml");
+        try {
+            XmlBeanFactory xbf = new XmlBeanFactory();
+            xbf.setDefinitionCacheEnabled(true);
+            xbf.loadBeanDefinitions(xmlFile.getPath());
+
+            // Replace XML content: the cache file must not be used anymore
+            otherXmlFile.renameTo(xmlFile);
+            XmlBeanFactory changed = new XmlBeanFactory();
+            changed.setDefinitionCacheEnabled(true);
+            changed.loadBeanDefinitions(xmlFile.getPath());
+            assertEquals(6, changed.getBeanDefinitionCount());
+            assertNotNull(changed.getBean("emma"));
+        } finally {
+            xmlFile.delete();
+            otherXmlFile.delete();
+            cacheFile.delete();
+        }
+    }
+
+    private void assertCollectionsLoaded(XmlBeanFactory xbf) {
+        TestBean rod = (TestBean) xbf.getBean("rod");
+        List friends = (List) rod.getFriends();
+        assertEquals(2, friends.size());
+        assertTrue(friends.get(0) == xbf.getBean("jenny"));
+        assertTrue(xbf.getBean("aliased") == xbf.getBean("I have an alias"));
+
+        HasMap hasMap = (HasMap) xbf.getBean("mixedMapWithList");
+        assertEquals(3, hasMap.getMap().size());
+        assertEquals("bar", hasMap.getMap().get("foo"));
+        assertTrue(hasMap.getMap().get("jenny") == xbf.getBean("jenny"));
+        assertTrue(hasMap.getMap().get("list") instanceof List);
+
+        hasMap = (HasMap) xbf.getBean("props");
+        assertEquals("TWO", hasMap.getMap().get("2"));
+    }
+
+    private File copyToTempFile(String resource) throws IOException {
+        File file = File.createTempFile("xbf", ".xml");
+        InputStream is = getClass().getResourceAsStream(resource);
+        OutputStream os = new FileOutputStream(file);
+        try {
+            byte[] buf = new byte[4096];
+            int read;
+            while ((read = is.read(buf)) != -1) {
+                os.write(buf, 0, read);
+            }
+        } finally {
+            is.close();
+            os.close();
+        }
+        return file;
+    }
+
 
     public static class BadInitializer {
 
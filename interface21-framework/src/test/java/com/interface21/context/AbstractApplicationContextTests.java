@@ -142,6 +142,22 @@ public abstract class AbstractApplicationContextTests extends AbstractListableBe
         assertTrue("no longer there for remove", applicationContext.removeSharedObject("bar") == null);
     }
 
+    public void testSharedObjectFactoryIsInvokedOnce() {
+        final int[] count = new int[1];
+        SharedObjectFactory factory = new SharedObjectFactory() {
+            public Object createSharedObject(String key) {
+                count[0]++;
+                return new TestBean(key, 0);
+            }
+        };
+        Object o = applicationContext.sharedObject("created", factory, 0);
+        assertEquals("created", ((TestBean) o).getName());
+        assertSame(o, applicationContext.sharedObject("created", factory, 0));
+        assertSame(o, applicationContext.sharedObject("created"));
+        assertEquals(1, count[0]);
+        assertSame(o, applicationContext.removeSharedObject("created"));
+    }
+
     public void testEvents() throws Exception {
         listener.zeroCounter();
         parentListener.zeroCounter();
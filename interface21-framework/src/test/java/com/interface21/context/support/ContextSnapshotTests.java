@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.context.support;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import com.interface21.beans.TestBean;
+import com.interface21.beans.factory.xml.XmlBeanFactory;
+
+/**
+ * Tests for starting XML application contexts from a snapshot.
+ */
+public class ContextSnapshotTests extends TestCase {
+
+    private static final String CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!DOCTYPE beans PUBLIC \"-//SPRING//DTD BEAN//EN\" \"spring-beans.dtd\">\n<beans>\n" +
+            "<bean id=\"rod\" name=\"rodney\" class=\"com.interface21.beans.TestBean\">\n" +
+            "<property name=\"name\"><value>Rod</value></property>\n" +
+            "<property name=\"age\"><value>31</value></property>\n" +
+            "<property name=\"spouse\"><ref bean=\"kerry\"/></property>\n" +
+            "</bean>\n" +
+            "<bean id=\"kerry\" class=\"com.interface21.beans.TestBean\">\n" +
+            "<property name=\"name\"><value>Kerry</value></property>\n" +
+            "</bean>\n</beans>\n";
+
+    private File configFile;
+
+    private File snapshotFile;
+
+    protected void setUp() throws IOException {
+        this.configFile = File.createTempFile("snapshot", ".xml");
+        this.snapshotFile = new File(this.configFile.getPath() + ".snapshot");
+        writeConfig(CONFIG);
+    }
+
+    protected void tearDown() {
+        this.configFile.delete();
+        this.snapshotFile.delete();
+    }
+
+    public void testSnapshotIsWrittenAndRestored() throws Exception {
+        assertFalse(this.snapshotFile.exists());
+        FileSystemXmlApplicationContext ac = createContext();
+        assertTrue("Snapshot written on first start", this.snapshotFile.exists());
+        assertEquals("Kerry", ((TestBean) ac.getBean("rod")).getSpouse().getName());
+
+        XmlBeanFactory xbf = new XmlBeanFactory();
+        ContextSnapshot snapshot = new ContextSnapshot(this.snapshotFile);
+        assertTrue(snapshot.restore(ContextSnapshot.checksum(CONFIG.getBytes("UTF-8")), xbf));
+        assertEquals(2, xbf.getBeanDefinitionCount());
+        TestBean rod = (TestBean) xbf.getBean("rodney");
+        assertEquals("Rod", rod.getName());
+        assertEquals(31, rod.getAge());
+        assertEquals("Kerry", rod.getSpouse().getName());
+
+        long lastModified = this.snapshotFile.lastModified();
+        ac = createContext();
+        assertEquals("Snapshot not rewritten", lastModified, this.snapshotFile.lastModified());
+        assertEquals("Kerry", ((TestBean) ac.getBean("rod")).getSpouse().getName());
+    }
+
+    public void testOutdatedSnapshotIsIgnoredAndRewritten() throws Exception {
+        createContext();
+        XmlBeanFactory xbf = new XmlBeanFactory();
+        assertFalse(new ContextSnapshot(this.snapshotFile).restore(0, xbf));
+        assertEquals(0, xbf.getBeanDefinitionCount());
+
+        String changed = CONFIG.replaceAll("Kerry", "Kerry Anne");
+        writeConfig(changed);
+        FileSystemXmlApplicationContext ac = createContext();
+        assertEquals("Kerry Anne", ((TestBean) ac.getBean("rod")).getSpouse().getName());
+        assertTrue("Snapshot rewritten", new ContextSnapshot(this.snapshotFile).restore(
+                ContextSnapshot.checksum(changed.getBytes("UTF-8")), new XmlBeanFactory()));
+    }
+
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        createContext();
+        byte[] content = new byte[(int) this.snapshotFile.length() / 2];
+        java.io.FileInputStream is = new java.io.FileInputStream(this.snapshotFile);
+        is.read(content);
+        is.close();
+        OutputStream os = new FileOutputStream(this.snapshotFile);
+        os.write(content);
+        os.close();
+
+        try {
+            new ContextSnapshot(this.snapshotFile).restore(
+                    ContextSnapshot.checksum(CONFIG.getBytes("UTF-8")), new XmlBeanFactory());
+            fail("Should have thrown IOException");
+        } catch (IOException ex) {
+            // expected
+        }
+        FileSystemXmlApplicationContext ac = createContext();
+        assertEquals("Rod", ((TestBean) ac.getBean("rod")).getName());
+        assertTrue("Snapshot rewritten", this.snapshotFile.length() > content.length);
+    }
+
+    private FileSystemXmlApplicationContext createContext() throws IOException {
+        return new FileSystemXmlApplicationContext(new String[]{this.configFile.getPath()}, this.snapshotFile);
+    }
+
+    private void writeConfig(String content) throws IOException {
+        Writer writer = new FileWriter(this.configFile);
+        writer.write(content);
+        writer.close();
+    }
+
+}
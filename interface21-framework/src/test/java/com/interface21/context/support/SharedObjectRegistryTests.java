@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.context.support;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import com.interface21.beans.MutablePropertyValues;
+import com.interface21.beans.PropertyValue;
+import com.interface21.context.ApplicationContextException;
+import com.interface21.context.ApplicationEvent;
+import com.interface21.context.ApplicationListener;
+import com.interface21.context.ContextOptions;
+import com.interface21.context.SharedObjectFactory;
+
+/**
+ * Tests for the concurrent shared object store of application contexts.
+ */
+public class SharedObjectRegistryTests extends TestCase {
+
+    private StaticApplicationContext ac;
+
+    private List events;
+
+    protected void setUp() throws Exception {
+        this.ac = new StaticApplicationContext();
+        this.events = new LinkedList();
+        this.ac.addListener(new ApplicationListener() {
+            public void onApplicationEvent(ApplicationEvent e) {
+                if (e instanceof SharedObjectEvent) {
+                    synchronized (events) {
+                        events.add(e);
+                    }
+                }
+            }
+        });
+    }
+
+    public void testExpiredObjectIsDiscarded() throws Exception {
+        this.ac.shareObject("short", "value", 50);
+        this.ac.shareObject("long", "value", 60000);
+        assertEquals("value", this.ac.sharedObject("short"));
+        Thread.sleep(100);
+        assertNull(this.ac.sharedObject("short"));
+        assertEquals("value", this.ac.sharedObject("long"));
+        assertEquals(3, this.events.size());
+        assertEquals(SharedObjectEvent.EXPIRED, ((SharedObjectEvent) this.events.get(2)).getAction());
+    }
+
+    public void testExpiredObjectIsRecreated() throws Exception {
+        SharedObjectFactory factory = new SharedObjectFactory() {
+            public Object createSharedObject(String key) {
+                return new Object();
+            }
+        };
+        Object o = this.ac.sharedObject("key", factory, 50);
+        assertSame(o, this.ac.sharedObject("key", factory, 50));
+        Thread.sleep(100);
+        assertNotSame(o, this.ac.sharedObject("key", factory, 50));
+    }
+
+    public void testLeastRecentlyUsedObjectIsEvicted() {
+        SharedObjectRegistry registry = this.ac.getSharedObjectRegistry();
+        registry.setMaxSize(2);
+        this.ac.shareObject("a", "A");
+        this.ac.shareObject("b", "B");
+        this.ac.sharedObject("a");
+        this.ac.shareObject("c", "C");
+        assertEquals(2, registry.size());
+        assertEquals("A", this.ac.sharedObject("a"));
+        assertNull(this.ac.sharedObject("b"));
+        assertEquals("C", this.ac.sharedObject("c"));
+
+        SharedObjectEvent last = (SharedObjectEvent) this.events.get(this.events.size() - 1);
+        assertEquals(SharedObjectEvent.EVICTED, last.getAction());
+        assertEquals("b", last.getKey());
+        assertEquals("B", last.getObject());
+
+        registry.setMaxSize(1);
+        assertEquals(1, registry.size());
+        assertEquals("C", this.ac.sharedObject("c"));
+    }
+
+    public void testMaxSizeFromContextOptions() {
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue(new PropertyValue("maxSharedObjects", "3"));
+        this.ac.registerSingleton(AbstractApplicationContext.OPTIONS_BEAN_NAME, ContextOptions.class, pvs);
+        this.ac.rebuild();
+        assertEquals(3, this.ac.getSharedObjectRegistry().getMaxSize());
+    }
+
+    public void testFactoryFailureIsNotShared() {
+        SharedObjectFactory failing = new SharedObjectFactory() {
+            public Object createSharedObject(String key) throws IOException {
+                throw new IOException("unavailable");
+            }
+        };
+        try {
+            this.ac.sharedObject("key", failing, 0);
+            fail("Should have thrown ApplicationContextException");
+        } catch (ApplicationContextException ex) {
+            assertTrue(ex.getRootCause() instanceof IOException);
+        }
+        assertNull(this.ac.sharedObject("key"));
+        assertEquals(0, this.events.size());
+    }
+
+    public void testFactoryRequestingItsOwnObjectFails() {
+        SharedObjectFactory reentrant = new SharedObjectFactory() {
+            public Object createSharedObject(String key) {
+                return ac.sharedObject(key);
+            }
+        };
+        try {
+            this.ac.sharedObject("key", reentrant, 0);
+            fail("Should have thrown ApplicationContextException");
+        } catch (ApplicationContextException ex) {
+            assertTrue(ex.getMessage().indexOf("'key'") != -1);
+        }
+        assertNull(this.ac.sharedObject("key"));
+
+        reentrant = new SharedObjectFactory() {
+            public Object createSharedObject(String key) {
+                return ac.sharedObject(key, this, 0);
+            }
+        };
+        try {
+            this.ac.sharedObject("key", reentrant, 0);
+            fail("Should have thrown ApplicationContextException");
+        } catch (ApplicationContextException ex) {
+            // expected
+        }
+    }
+
+    public void testConcurrentCallsInvokeFactoryOnce() throws Exception {
+        final int[] count = new int[1];
+        final SharedObjectFactory slowFactory = new SharedObjectFactory() {
+            public Object createSharedObject(String key) throws InterruptedException {
+                synchronized (count) {
+                    count[0]++;
+                }
+                Thread.sleep(50);
+                return new Object();
+            }
+        };
+        final Object[] results = new Object[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    results[index] = ac.sharedObject("key", slowFactory, 0);
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertEquals(1, count[0]);
+        for (int i = 1; i < results.length; i++) {
+            assertSame(results[0], results[i]);
+        }
+        assertEquals(1, this.events.size());
+    }
+
+    public void testObjectBeingCreatedIsNotEvictedAndDoesNotBlockOtherKeys() throws Exception {
+        SharedObjectRegistry registry = this.ac.getSharedObjectRegistry();
+        registry.setMaxSize(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final SharedObjectFactory blockingFactory = new SharedObjectFactory() {
+            public Object createSharedObject(String key) throws InterruptedException {
+                started.countDown();
+                release.await();
+                return "S";
+            }
+        };
+        Thread creator = new Thread() {
+            public void run() {
+                ac.sharedObject("slow", blockingFactory, 0);
+            }
+        };
+        creator.start();
+        started.await();
+
+        this.ac.shareObject("a", "A");
+        assertEquals(1, registry.size());
+        assertNull(this.ac.sharedObject("a"));
+
+        release.countDown();
+        creator.join();
+        assertEquals("S", this.ac.sharedObject("slow"));
+        assertEquals(1, registry.size());
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.context.support;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.interface21.beans.ITestBean;
+import com.interface21.beans.TestBean;
+import com.interface21.beans.factory.BeanFactory;
+import com.interface21.beans.factory.BeanFactoryAware;
+import com.interface21.context.ApplicationEvent;
+import com.interface21.context.ApplicationListener;
+
+/**
+ * Tests for reloading changed beans in an XML application context
+ * without a full refresh.
+ */
+public class XmlApplicationContextReloadTests extends TestCase {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!DOCTYPE beans PUBLIC \"-//SPRING//DTD BEAN//EN\" \"spring-beans.dtd\">\n<beans>\n";
+
+    private static final String LISTENER =
+            "<bean id=\"listener\" class=\"" + ReloadListener.class.getName() + "\"/>\n";
+
+    private File file;
+
+    protected void setUp() throws IOException {
+        this.file = File.createTempFile("reload", ".xml");
+    }
+
+    protected void tearDown() {
+        this.file.delete();
+    }
+
+    public void testUnchangedDefinitionsAreNotReloaded() throws Exception {
+        writeConfig(person("rod", "Rod", "jenny") + person("jenny", "Jenny", null) + LISTENER);
+        FileSystemXmlApplicationContext ac = new FileSystemXmlApplicationContext(this.file.getPath());
+        Object rod = ac.getBean("rod");
+
+        String[] reloaded = ac.reload();
+        assertEquals(0, reloaded.length);
+        assertSame(rod, ac.getBean("rod"));
+        assertEquals(0, ((ReloadListener) ac.getBean("listener")).events.size());
+    }
+
+    public void testChangedBeanAndDependentsAreReloaded() throws Exception {
+        writeConfig(person("rod", "Rod", "jenny") + person("jenny", "Jenny", null) +
+                person("david", "David", null) + LISTENER);
+        FileSystemXmlApplicationContext ac = new FileSystemXmlApplicationContext(this.file.getPath());
+        TestBean rod = (TestBean) ac.getBean("rod");
+        TestBean david = (TestBean) ac.getBean("david");
+        ReloadListener listener = (ReloadListener) ac.getBean("listener");
+
+        writeConfig(person("rod", "Rod", "jenny") + person("jenny", "Jennifer", null) +
+                person("david", "David", null) + LISTENER);
+        String[] reloaded = ac.reload();
+        List names = Arrays.asList(reloaded);
+        assertEquals(2, names.size());
+        assertTrue(names.contains("jenny"));
+        assertTrue("Dependent bean reloaded", names.contains("rod"));
+
+        TestBean newRod = (TestBean) ac.getBean("rod");
+        assertNotSame(rod, newRod);
+        assertEquals("Jennifer", newRod.getSpouse().getName());
+        assertSame("Unrelated bean kept", david, ac.getBean("david"));
+
+        assertEquals(1, listener.events.size());
+        BeansReloadedEvent event = (BeansReloadedEvent) listener.events.get(0);
+        assertTrue(event.isReloaded("jenny"));
+        assertFalse(event.isReloaded("david"));
+    }
+
+    public void testAddedAndRemovedBeans() throws Exception {
+        writeConfig(person("rod", "Rod", null) + person("jenny", "Jenny", null));
+        FileSystemXmlApplicationContext ac = new FileSystemXmlApplicationContext(this.file.getPath());
+
+        writeConfig(person("rod", "Rod", null) + person("david", "David", null));
+        List names = Arrays.asList(ac.reload());
+        assertEquals(2, names.size());
+        assertTrue(names.contains("jenny") && names.contains("david"));
+        assertEquals(2, ac.getBeanDefinitionCount());
+        assertEquals("David", ((TestBean) ac.getBean("david")).getName());
+    }
+
+    public void testProxyTargetIsSwapped() throws Exception {
+        String proxy = "<bean id=\"proxy\" class=\"com.interface21.aop.framework.ProxyFactoryBean\">\n" +
+                "<property name=\"proxyInterfaces\"><value>com.interface21.beans.ITestBean</value></property>\n" +
+                "<property name=\"interceptorNames\"><value>rod</value></property>\n</bean>\n";
+        writeConfig(person("rod", "Rod", null) + proxy);
+        FileSystemXmlApplicationContext ac = new FileSystemXmlApplicationContext(this.file.getPath());
+        ITestBean rodProxy = (ITestBean) ac.getBean("proxy");
+        assertEquals("Rod", rodProxy.getName());
+
+        writeConfig(person("rod", "Roderick", null) + proxy);
+        List names = Arrays.asList(ac.reload());
+        assertEquals(1, names.size());
+        assertSame("Proxy kept", rodProxy, ac.getBean("proxy"));
+        assertEquals("Roderick", rodProxy.getName());
+    }
+
+    public void testLookupWhileDestroyingSeesNewDefinition() throws Exception {
+        String bean = "<bean id=\"lookup\" class=\"" + LookupOnDestroyBean.class.getName() + "\" " +
+                "destroy-method=\"close\">\n<property name=\"name\"><value>%s</value></property>\n</bean>\n";
+        writeConfig(bean.replaceAll("%s", "old"));
+        FileSystemXmlApplicationContext ac = new FileSystemXmlApplicationContext(this.file.getPath());
+        LookupOnDestroyBean oldBean = (LookupOnDestroyBean) ac.getBean("lookup");
+
+        writeConfig(bean.replaceAll("%s", "new"));
+        ac.reload();
+        assertTrue("Old instance destroyed", oldBean.closed);
+        assertEquals("Lookup during destruction used new definition", "new", oldBean.lookedUpName);
+        assertEquals("new", ((LookupOnDestroyBean) ac.getBean("lookup")).getName());
+    }
+
+    public void testReloadIfModified() throws Exception {
+        writeConfig(person("rod", "Rod", null));
+        this.file.setLastModified(System.currentTimeMillis() - 10000);
+        FileSystemXmlApplicationContext ac = new FileSystemXmlApplicationContext(this.file.getPath());
+        assertFalse(ac.reloadIfModified());
+
+        writeConfig(person("rod", "Roderick", null));
+        this.file.setLastModified(System.currentTimeMillis());
+        assertTrue(ac.reloadIfModified());
+        assertEquals("Roderick", ((TestBean) ac.getBean("rod")).getName());
+        assertFalse(ac.reloadIfModified());
+    }
+
+    private String person(String id, String name, String spouse) {
+        StringBuffer sb = new StringBuffer("<bean id=\"" + id + "\" class=\"com.interface21.beans.TestBean\">\n");
+        sb.append("<property name=\"name\"><value>" + name + "</value></property>\n");
+        if (spouse != null) {
+            sb.append("<property name=\"spouse\"><ref bean=\"" + spouse + "\"/></property>\n");
+        }
+        sb.append("</bean>\n");
+        return sb.toString();
+    }
+
+    private void writeConfig(String beans) throws IOException {
+        Writer writer = new FileWriter(this.file);
+        try {
+            writer.write(HEADER + beans + "</beans>\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+
+    /**
+     * Looks itself up when destroyed, like a concurrent request would.
+     */
+    public static class LookupOnDestroyBean implements BeanFactoryAware {
+
+        private String name;
+
+        private BeanFactory beanFactory;
+
+        public boolean closed;
+
+        public String lookedUpName;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setBeanFactory(BeanFactory beanFactory) {
+            this.beanFactory = beanFactory;
+        }
+
+        public void close() {
+            this.closed = true;
+            this.lookedUpName = ((LookupOnDestroyBean) this.beanFactory.getBean("lookup")).getName();
+        }
+    }
+
+
+    public static class ReloadListener implements ApplicationListener {
+
+        public final List events = new LinkedList();
+
+        public void onApplicationEvent(ApplicationEvent e) {
+            if (e instanceof BeansReloadedEvent) {
+                this.events.add(e);
+            }
+        }
+    }
+
+}
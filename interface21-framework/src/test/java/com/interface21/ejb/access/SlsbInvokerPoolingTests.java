@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.ejb.access;
+
+import java.rmi.ConnectException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+
+import javax.ejb.CreateException;
+import javax.ejb.EJBException;
+import javax.ejb.EJBHome;
+import javax.ejb.EJBLocalHome;
+import javax.ejb.EJBLocalObject;
+import javax.ejb.EJBObject;
+import javax.ejb.RemoveException;
+
+import junit.framework.TestCase;
+import org.aopalliance.intercept.AspectException;
+
+import com.interface21.aop.framework.ProxyFactory;
+import com.interface21.jndi.support.SimpleNamingContextBuilder;
+
+/**
+ * Tests for reuse of created EJB objects and home refresh in the SLSB invoker interceptors,
+ * with fake homes bound in an in-memory JNDI context.
+ */
+public class SlsbInvokerPoolingTests extends TestCase {
+
+    private SimpleNamingContextBuilder builder;
+
+    protected void setUp() throws Exception {
+        this.builder = SimpleNamingContextBuilder.emptyActivatedContextBuilder();
+    }
+
+    protected void tearDown() {
+        this.builder.clear();
+    }
+
+    private RemoteBusiness remoteProxy(FakeRemoteHome home, int poolSize) throws Exception {
+        this.builder.bind("ejb/remote", home);
+        SimpleRemoteSlsbInvokerInterceptor si = new SimpleRemoteSlsbInvokerInterceptor();
+        si.setJndiName("ejb/remote");
+        si.setInContainer(false);
+        si.setSessionBeanPoolSize(poolSize);
+        si.afterPropertiesSet();
+        ProxyFactory pf = new ProxyFactory(new Class[]{RemoteBusiness.class});
+        pf.addInterceptor(si);
+        return (RemoteBusiness) pf.getProxy();
+    }
+
+    private LocalBusiness localProxy(FakeLocalHome home, int poolSize) throws Exception {
+        this.builder.bind("ejb/local", home);
+        LocalSlsbInvokerInterceptor si = new LocalSlsbInvokerInterceptor();
+        si.setJndiName("ejb/local");
+        si.setInContainer(false);
+        si.setSessionBeanPoolSize(poolSize);
+        si.afterPropertiesSet();
+        ProxyFactory pf = new ProxyFactory(new Class[]{LocalBusiness.class});
+        pf.addInterceptor(si);
+        return (LocalBusiness) pf.getProxy();
+    }
+
+    public void testCreatesEjbPerInvocationByDefault() throws Exception {
+        FakeRemoteHome home = new FakeRemoteHome();
+        RemoteBusiness proxy = remoteProxy(home, 0);
+        assertEquals("value1", proxy.getValue());
+        assertEquals("value2", proxy.getValue());
+        assertEquals(2, home.createCount);
+    }
+
+    public void testReusesPooledRemoteEjb() throws Exception {
+        FakeRemoteHome home = new FakeRemoteHome();
+        RemoteBusiness proxy = remoteProxy(home, 2);
+        assertEquals("value1", proxy.getValue());
+        assertEquals("value1", proxy.getValue());
+        assertEquals("value1", proxy.getValue());
+        assertEquals(1, home.createCount);
+    }
+
+    public void testApplicationExceptionKeepsRemoteEjb() throws Exception {
+        FakeRemoteHome home = new FakeRemoteHome();
+        RemoteBusiness proxy = remoteProxy(home, 2);
+        home.nextFailure = new ApplicationException();
+        try {
+            proxy.getValue();
+            fail("Should have thrown ApplicationException");
+        } catch (ApplicationException ex) {
+            // expected
+        }
+        assertEquals("value1", proxy.getValue());
+        assertEquals(1, home.createCount);
+    }
+
+    public void testRemoteExceptionDiscardsRemoteEjb() throws Exception {
+        FakeRemoteHome home = new FakeRemoteHome();
+        RemoteBusiness proxy = remoteProxy(home, 2);
+        assertEquals("value1", proxy.getValue());
+        home.nextFailure = new RemoteException("connection lost");
+        try {
+            proxy.getValue();
+            fail("Should have thrown RemoteException");
+        } catch (RemoteException ex) {
+            // expected
+        }
+        assertEquals("value2", proxy.getValue());
+        assertEquals(2, home.createCount);
+    }
+
+    public void testNoSuchObjectExceptionRetriesWithNewEjb() throws Exception {
+        FakeRemoteHome home = new FakeRemoteHome();
+        RemoteBusiness proxy = remoteProxy(home, 2);
+        assertEquals("value1", proxy.getValue());
+        home.nextFailure = new NoSuchObjectException("stale");
+        assertEquals("value2", proxy.getValue());
+        assertEquals("value2", proxy.getValue());
+        assertEquals(2, home.createCount);
+    }
+
+    public void testLooksUpHomeOnFirstUse() throws Exception {
+        SimpleRemoteSlsbInvokerInterceptor si = new SimpleRemoteSlsbInvokerInterceptor();
+        si.setJndiName("ejb/lazy");
+        si.setInContainer(false);
+        si.setLookupOnStartup(false);
+        si.afterPropertiesSet();
+        ProxyFactory pf = new ProxyFactory(new Class[]{RemoteBusiness.class});
+        pf.addInterceptor(si);
+        RemoteBusiness proxy = (RemoteBusiness) pf.getProxy();
+
+        FakeRemoteHome home = new FakeRemoteHome();
+        this.builder.bind("ejb/lazy", home);
+        assertEquals("value1", proxy.getValue());
+        assertEquals(1, home.createCount);
+    }
+
+    public void testRefreshesHomeOnConnectFailure() throws Exception {
+        FakeRemoteHome oldHome = new FakeRemoteHome();
+        RemoteBusiness proxy = remoteProxyWithRefresh(oldHome, true);
+        oldHome.createFailure = new ConnectException("server restarted");
+        FakeRemoteHome newHome = new FakeRemoteHome();
+        this.builder.bind("ejb/remote", newHome);
+        assertEquals("value1", proxy.getValue());
+        assertEquals(1, oldHome.createCount);
+        assertEquals(1, newHome.createCount);
+    }
+
+    public void testNoRefreshOnConnectFailureByDefault() throws Exception {
+        FakeRemoteHome oldHome = new FakeRemoteHome();
+        RemoteBusiness proxy = remoteProxyWithRefresh(oldHome, false);
+        oldHome.createFailure = new ConnectException("server restarted");
+        this.builder.bind("ejb/remote", new FakeRemoteHome());
+        try {
+            proxy.getValue();
+            fail("Should have thrown AspectException");
+        } catch (AspectException ex) {
+            assertTrue(ex.getCause() instanceof ConnectException);
+        }
+    }
+
+    private RemoteBusiness remoteProxyWithRefresh(FakeRemoteHome home, boolean refresh) throws Exception {
+        this.builder.bind("ejb/remote", home);
+        SimpleRemoteSlsbInvokerInterceptor si = new SimpleRemoteSlsbInvokerInterceptor();
+        si.setJndiName("ejb/remote");
+        si.setInContainer(false);
+        si.setRefreshHomeOnConnectFailure(refresh);
+        si.afterPropertiesSet();
+        ProxyFactory pf = new ProxyFactory(new Class[]{RemoteBusiness.class});
+        pf.addInterceptor(si);
+        return (RemoteBusiness) pf.getProxy();
+    }
+
+    public void testReusesPooledLocalEjb() throws Exception {
+        FakeLocalHome home = new FakeLocalHome();
+        LocalBusiness proxy = localProxy(home, 1);
+        assertEquals("local1", proxy.getValue());
+        assertEquals("local1", proxy.getValue());
+        assertEquals(1, home.createCount);
+
+        home.nextFailure = new EJBException("system failure");
+        try {
+            proxy.getValue();
+            fail("Should have thrown EJBException");
+        } catch (EJBException ex) {
+            // expected
+        }
+        assertEquals("local2", proxy.getValue());
+        assertEquals(2, home.createCount);
+    }
+
+    public void testHomeWithoutCreateMethodRejected() throws Exception {
+        this.builder.bind("ejb/nocreate", new Object());
+        LocalSlsbInvokerInterceptor si = new LocalSlsbInvokerInterceptor();
+        si.setJndiName("ejb/nocreate");
+        si.setInContainer(false);
+        try {
+            si.afterPropertiesSet();
+            fail("Should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+
+    public interface RemoteBusiness {
+
+        String getValue() throws RemoteException, ApplicationException;
+    }
+
+
+    public interface RemoteSlsb extends EJBObject, RemoteBusiness {
+    }
+
+
+    public interface RemoteSlsbHome extends EJBHome {
+
+        RemoteSlsb create() throws RemoteException, CreateException;
+    }
+
+
+    public interface LocalBusiness {
+
+        String getValue();
+    }
+
+
+    public interface LocalSlsb extends EJBLocalObject, LocalBusiness {
+    }
+
+
+    public interface LocalSlsbHome extends EJBLocalHome {
+
+        LocalSlsb create() throws CreateException;
+    }
+
+
+    public static class ApplicationException extends Exception {
+    }
+
+
+    public static class FakeRemoteHome implements RemoteSlsbHome {
+
+        private int createCount;
+
+        private Exception nextFailure;
+
+        private RemoteException createFailure;
+
+        public RemoteSlsb create() throws RemoteException {
+            final int id = ++this.createCount;
+            if (this.createFailure != null) {
+                throw this.createFailure;
+            }
+            return new RemoteSlsb() {
+                public String getValue() throws RemoteException, ApplicationException {
+                    Exception failure = nextFailure;
+                    nextFailure = null;
+                    if (failure instanceof RemoteException) {
+                        throw (RemoteException) failure;
+                    }
+                    if (failure instanceof ApplicationException) {
+                        throw (ApplicationException) failure;
+                    }
+                    return "value" + id;
+                }
+
+                public EJBHome getEJBHome() {
+                    return FakeRemoteHome.this;
+                }
+
+                public Object getPrimaryKey() {
+                    return null;
+                }
+
+                public void remove() {
+                }
+
+                public boolean isIdentical(EJBObject obj) {
+                    return obj == this;
+                }
+            };
+        }
+
+        public void remove(Object primaryKey) throws RemoveException {
+            throw new RemoveException();
+        }
+    }
+
+
+    public static class FakeLocalHome implements LocalSlsbHome {
+
+        private int createCount;
+
+        private RuntimeException nextFailure;
+
+        public LocalSlsb create() {
+            final int id = ++this.createCount;
+            return new LocalSlsb() {
+                public String getValue() {
+                    RuntimeException failure = nextFailure;
+                    nextFailure = null;
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    return "local" + id;
+                }
+
+                public EJBLocalHome getEJBLocalHome() {
+                    return FakeLocalHome.this;
+                }
+
+                public Object getPrimaryKey() {
+                    return null;
+                }
+
+                public void remove() {
+                }
+
+                public boolean isIdentical(EJBLocalObject obj) {
+                    return obj == this;
+                }
+            };
+        }
+
+        public void remove(Object primaryKey) throws RemoveException {
+            throw new RemoveException();
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jdbc.mock;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * In-memory JDBC stub built from dynamic proxies, for tests and benchmarks
+ * where mock expectations would dominate. Each query returns a configurable
+ * number of rows; getInt and getObject return the row number, starting at 1,
+ * and getString returns "row" plus the row number. Each update affects one row.
+ * Calls of PreparedStatement setters are recorded.
+ *
+ * <p>Unlike the SpringMock fixtures, which verify preset expectations
+ * for a single statement, this stub records which setter was called,
+ * counts queries and closed result sets, and produces rows lazily,
+ * so that large result sets can be streamed without holding them.
+ */
+public class StubJdbc implements InvocationHandler {
+
+    private final List bindings = Collections.synchronizedList(new ArrayList());
+
+    private volatile boolean recording = true;
+
+    private volatile int rowCount = 1;
+
+    private volatile long queryDelay = 0;
+
+    private final AtomicInteger queryCount = new AtomicInteger();
+
+    private final AtomicInteger closedResultSetCount = new AtomicInteger();
+
+    private final AtomicInteger closedStatementCount = new AtomicInteger();
+
+    private final AtomicInteger openConnectionCount = new AtomicInteger();
+
+    private volatile SQLException resultSetCloseFailure;
+
+    private volatile RuntimeException prepareFailure;
+
+    private final Object preparedStatement = createProxy(PreparedStatement.class, this);
+
+    private final Object connection = createProxy(Connection.class, this);
+
+    private final DataSource dataSource = (DataSource) createProxy(DataSource.class, this);
+
+    private static Object createProxy(Class intf, InvocationHandler handler) {
+        return Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class[]{intf}, handler);
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Return the recorded setter calls, like "setInt(1,5)".
+     */
+    public List getBindings() {
+        return bindings;
+    }
+
+    /**
+     * Set whether to record setter calls. Default is true.
+     */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Set the number of rows each query returns. Default is 1.
+     */
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Set the time in milliseconds each query takes. Default is 0.
+     */
+    public void setQueryDelay(long queryDelay) {
+        this.queryDelay = queryDelay;
+    }
+
+    /**
+     * Return the number of queries executed.
+     */
+    public int getQueryCount() {
+        return queryCount.get();
+    }
+
+    /**
+     * Return the number of result sets closed.
+     */
+    public int getClosedResultSetCount() {
+        return closedResultSetCount.get();
+    }
+
+    /**
+     * Return the number of prepared statements closed.
+     */
+    public int getClosedStatementCount() {
+        return closedStatementCount.get();
+    }
+
+    /**
+     * Set an exception to throw when closing a result set.
+     * Default is null, closing result sets successfully.
+     */
+    public void setResultSetCloseFailure(SQLException resultSetCloseFailure) {
+        this.resultSetCloseFailure = resultSetCloseFailure;
+    }
+
+    /**
+     * Return the number of connections obtained but not closed yet.
+     */
+    public int getOpenConnectionCount() {
+        return openConnectionCount.get();
+    }
+
+    /**
+     * Set an exception to throw when preparing a statement.
+     * Default is null, preparing statements successfully.
+     */
+    public void setPrepareFailure(RuntimeException prepareFailure) {
+        this.prepareFailure = prepareFailure;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws InterruptedException {
+        String name = method.getName();
+        if (name.equals("getConnection")) {
+            this.openConnectionCount.incrementAndGet();
+            return this.connection;
+        }
+        if (name.equals("prepareStatement")) {
+            if (this.prepareFailure != null) {
+                throw this.prepareFailure;
+            }
+            return this.preparedStatement;
+        }
+        if (name.equals("close") && proxy == this.preparedStatement) {
+            this.closedStatementCount.incrementAndGet();
+            return null;
+        }
+        if (name.equals("close") && proxy == this.connection) {
+            this.openConnectionCount.decrementAndGet();
+            return null;
+        }
+        if (name.equals("executeQuery")) {
+            this.queryCount.incrementAndGet();
+            if (this.queryDelay > 0) {
+                Thread.sleep(this.queryDelay);
+            }
+            return createProxy(ResultSet.class, new ResultSetHandler(this.rowCount));
+        }
+        if (name.equals("executeUpdate")) {
+            return new Integer(1);
+        }
+        if (name.startsWith("set") && proxy == this.preparedStatement) {
+            if (this.recording) {
+                StringBuffer binding = new StringBuffer(name).append('(');
+                for (int i = 0; i < args.length; i++) {
+                    binding.append(i > 0 ? "," : "").append(args[i]);
+                }
+                this.bindings.add(binding.append(')').toString());
+            }
+            return null;
+        }
+        return defaultValue(proxy, method, args);
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("hashCode")) {
+            return new Integer(System.identityHashCode(proxy));
+        }
+        if (name.equals("equals")) {
+            return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+        }
+        if (name.equals("toString")) {
+            return "Stub " + method.getDeclaringClass().getName();
+        }
+        Class returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (returnType == int.class) {
+            return new Integer(0);
+        }
+        return null;
+    }
+
+
+    /**
+     * Handler for one ResultSet, keeping its own cursor.
+     */
+    private class ResultSetHandler implements InvocationHandler {
+
+        private final int rows;
+
+        private int row = 0;
+
+        private ResultSetHandler(int rows) {
+            this.rows = rows;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            String name = method.getName();
+            if (name.equals("next")) {
+                return (++this.row <= this.rows ? Boolean.TRUE : Boolean.FALSE);
+            }
+            if (name.equals("getInt") || name.equals("getObject")) {
+                return new Integer(this.row);
+            }
+            if (name.equals("getString")) {
+                return "row" + this.row;
+            }
+            if (name.equals("close")) {
+                closedResultSetCount.incrementAndGet();
+                if (resultSetCloseFailure != null) {
+                    throw resultSetCloseFailure;
+                }
+                return null;
+            }
+            return defaultValue(proxy, method, args);
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jdbc.object;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+
+import com.interface21.jdbc.core.SqlParameter;
+import com.interface21.jdbc.mock.StubJdbc;
+
+/**
+ * Tests for CachingSqlQuery, against an in-memory JDBC stub.
+ */
+public class CachingSqlQueryTests extends TestCase {
+
+    private StubJdbc jdbc;
+
+    private CachingSqlQuery cachingQuery;
+
+    protected void setUp() {
+        this.jdbc = new StubJdbc();
+        this.jdbc.setRowCount(3);
+        this.cachingQuery = new CachingSqlQuery(new NameQuery(this.jdbc.getDataSource()));
+        this.cachingQuery.afterPropertiesSet();
+    }
+
+    public void testResultsCachedPerParameters() {
+        List first = this.cachingQuery.execute(1);
+        assertEquals(3, first.size());
+        assertEquals("row1", first.get(0));
+        assertSame(first, this.cachingQuery.execute(1));
+        assertNotSame(first, this.cachingQuery.execute(2));
+        assertSame(first, this.cachingQuery.execute(new Object[]{new Integer(1)}));
+        assertEquals(2, this.jdbc.getQueryCount());
+        assertEquals(2, this.cachingQuery.getHitCount());
+        assertEquals(2, this.cachingQuery.getMissCount());
+        assertEquals(2, this.cachingQuery.getCacheSize());
+    }
+
+    public void testReusedParameterArrayDoesNotCorruptCache() {
+        Object[] parameters = new Object[]{new Integer(1)};
+        List first = this.cachingQuery.execute(parameters);
+        parameters[0] = new Integer(2);
+        List second = this.cachingQuery.execute(parameters);
+        assertNotSame(first, second);
+        assertSame(first, this.cachingQuery.execute(1));
+        assertSame(second, this.cachingQuery.execute(2));
+        assertEquals(2, this.jdbc.getQueryCount());
+        assertEquals(2, this.cachingQuery.getCacheSize());
+    }
+
+    public void testResultsAreUnmodifiable() {
+        List result = this.cachingQuery.execute(1);
+        try {
+            result.add("other");
+            fail("Should have thrown UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    public void testLeastRecentlyUsedEvicted() {
+        this.cachingQuery.setMaxSize(2);
+        this.cachingQuery.execute(1);
+        this.cachingQuery.execute(2);
+        this.cachingQuery.execute(1);
+        this.cachingQuery.execute(3);
+        assertEquals(2, this.cachingQuery.getCacheSize());
+        this.cachingQuery.execute(1);
+        assertEquals(3, this.jdbc.getQueryCount());
+        this.cachingQuery.execute(2);
+        assertEquals(4, this.jdbc.getQueryCount());
+    }
+
+    public void testTimeToLive() throws InterruptedException {
+        this.cachingQuery.setTimeToLive(50);
+        this.cachingQuery.execute(1);
+        this.cachingQuery.execute(1);
+        assertEquals(1, this.jdbc.getQueryCount());
+        Thread.sleep(100);
+        this.cachingQuery.execute(1);
+        assertEquals(2, this.jdbc.getQueryCount());
+    }
+
+    public void testExplicitInvalidation() {
+        this.cachingQuery.execute(1);
+        this.cachingQuery.invalidate();
+        assertEquals(0, this.cachingQuery.getCacheSize());
+        this.cachingQuery.execute(1);
+        assertEquals(2, this.jdbc.getQueryCount());
+    }
+
+    public void testInvalidationByUpdateInSameRegion() {
+        QueryCacheRegion region = new QueryCacheRegion("names");
+        this.cachingQuery.setCacheRegion(region);
+        SqlUpdate update = new SqlUpdate(this.jdbc.getDataSource(), "update names set name = ? where id = ?",
+                new int[]{Types.VARCHAR, Types.INTEGER});
+        update.setCacheRegion(region);
+        update.compile();
+        SqlUpdate otherUpdate = new SqlUpdate(this.jdbc.getDataSource(), "update other set name = ?",
+                new int[]{Types.VARCHAR});
+        otherUpdate.compile();
+
+        this.cachingQuery.execute(1);
+        otherUpdate.update("name");
+        this.cachingQuery.execute(1);
+        assertEquals(1, this.jdbc.getQueryCount());
+        update.update(new Object[]{"name", new Integer(1)});
+        this.cachingQuery.execute(1);
+        assertEquals(2, this.jdbc.getQueryCount());
+        this.cachingQuery.execute(1);
+        assertEquals(2, this.jdbc.getQueryCount());
+    }
+
+    public void testFindObject() {
+        this.jdbc.setRowCount(1);
+        assertEquals("row1", this.cachingQuery.findObject(1));
+        assertEquals("row1", this.cachingQuery.findObject(1));
+        assertEquals(1, this.jdbc.getQueryCount());
+    }
+
+    public void testFailedExecutionNotCached() {
+        NameQuery query = new NameQuery(this.jdbc.getDataSource()) {
+            protected Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+                if (this.failNext) {
+                    this.failNext = false;
+                    throw new IllegalStateException("boom");
+                }
+                return super.mapRow(rs, rowNum);
+            }
+        };
+        query.failNext = true;
+        CachingSqlQuery failingQuery = new CachingSqlQuery(query);
+        try {
+            failingQuery.execute(1);
+            fail("Should have thrown IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertEquals(0, failingQuery.getCacheSize());
+        assertEquals(3, failingQuery.execute(1).size());
+    }
+
+    public void testConcurrentMissesExecuteOnce() throws InterruptedException {
+        this.jdbc.setQueryDelay(200);
+        final int threads = 10;
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(threads);
+        final List[] results = new List[threads];
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            new Thread() {
+                public void run() {
+                    try {
+                        startSignal.await();
+                        results[index] = cachingQuery.execute(1);
+                    } catch (InterruptedException ex) {
+                        // leave result null
+                    } finally {
+                        doneSignal.countDown();
+                    }
+                }
+            }.start();
+        }
+        startSignal.countDown();
+        doneSignal.await();
+        assertEquals(1, this.jdbc.getQueryCount());
+        for (int i = 0; i < threads; i++) {
+            assertSame(results[0], results[i]);
+        }
+        assertEquals(1, this.cachingQuery.getMissCount());
+        assertEquals(threads - 1, this.cachingQuery.getHitCount());
+    }
+
+
+    private static class NameQuery extends MappingSqlQuery {
+
+        protected boolean failNext;
+
+        public NameQuery(DataSource ds) {
+            super(ds, "select name from names where id = ?");
+            declareParameter(new SqlParameter(Types.INTEGER));
+            compile();
+        }
+
+        protected Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return rs.getString(1);
+        }
+    }
+
+}
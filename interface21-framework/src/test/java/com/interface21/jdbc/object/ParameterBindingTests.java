@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jdbc.object;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+
+import com.interface21.dao.InvalidDataAccessApiUsageException;
+import com.interface21.jdbc.core.SqlParameter;
+import com.interface21.jdbc.mock.StubJdbc;
+
+/**
+ * Tests for parameter binding of query and update objects,
+ * against an in-memory JDBC stub that records the setter calls.
+ */
+public class ParameterBindingTests extends TestCase {
+
+    private StubJdbc jdbc;
+
+    protected void setUp() {
+        this.jdbc = new StubJdbc();
+    }
+
+    public void testFindObjectBindsIntWithoutBoxing() {
+        IdQuery query = new IdQuery(this.jdbc.getDataSource(), "select id from custmr where id = ?", Types.INTEGER);
+        assertEquals(new Integer(1), query.findObject(5));
+        assertEquals("[setInt(1,5)]", this.jdbc.getBindings().toString());
+    }
+
+    public void testExecuteBindsTwoIntsWithoutBoxing() {
+        IdQuery query = new IdQuery(this.jdbc.getDataSource(), "select id from custmr where id = ? or id = ?",
+                Types.INTEGER, Types.SMALLINT);
+        assertEquals(1, query.execute(5, 6).size());
+        assertEquals("[setInt(1,5), setInt(2,6)]", this.jdbc.getBindings().toString());
+    }
+
+    public void testFindObjectBindsLongWithoutBoxing() {
+        IdQuery query = new IdQuery(this.jdbc.getDataSource(), "select id from custmr where id = ?", Types.BIGINT);
+        assertEquals(new Integer(1), query.findObject(5L));
+        assertEquals("[setLong(1,5)]", this.jdbc.getBindings().toString());
+    }
+
+    public void testPrimitiveBoundAsObjectForOtherTypes() {
+        IdQuery query = new IdQuery(this.jdbc.getDataSource(), "select id from custmr where id = ?", Types.NUMERIC);
+        query.findObject(5);
+        assertEquals("[setObject(1,5," + Types.NUMERIC + ")]", this.jdbc.getBindings().toString());
+    }
+
+    public void testObjectParametersUseSpecializedSetters() {
+        IdQuery query = new IdQuery(this.jdbc.getDataSource(),
+                "select id from custmr where forename = ? and id = ? and version = ? and created = ?",
+                Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.TIMESTAMP);
+        query.findObject(new Object[]{"rod", new Integer(1), null, "now"});
+        assertEquals("[setString(1,rod), setInt(2,1), setNull(3," + Types.BIGINT + "), setObject(4,now," +
+                Types.TIMESTAMP + ")]", this.jdbc.getBindings().toString());
+    }
+
+    public void testQueryWithParametersStillGetsParameterArray() {
+        final List seenParams = new ArrayList();
+        MappingSqlQueryWithParameters query = new MappingSqlQueryWithParameters() {
+            protected Object mapRow(ResultSet rs, int rowNum, Object[] parameters, Map context) {
+                seenParams.add(parameters[0]);
+                return parameters[0];
+            }
+        };
+        query.setDataSource(this.jdbc.getDataSource());
+        query.setSql("select id from custmr where id = ?");
+        query.declareParameter(new SqlParameter(Types.INTEGER));
+        query.compile();
+        assertEquals(new Integer(7), query.findObject(7));
+        assertEquals(new Integer(7), seenParams.get(0));
+        assertEquals("[setInt(1,7)]", this.jdbc.getBindings().toString());
+    }
+
+    public void testParameterCountValidated() {
+        IdQuery query = new IdQuery(this.jdbc.getDataSource(), "select id from custmr where id = ?", Types.INTEGER);
+        try {
+            query.execute(1, 2);
+            fail("Should have thrown InvalidDataAccessApiUsageException");
+        } catch (InvalidDataAccessApiUsageException ex) {
+            // expected
+        }
+        try {
+            query.execute();
+            fail("Should have thrown InvalidDataAccessApiUsageException");
+        } catch (InvalidDataAccessApiUsageException ex) {
+            // expected
+        }
+        assertEquals(0, this.jdbc.getBindings().size());
+    }
+
+    public void testDeclaredParametersIndexedAfterCompile() {
+        IdQuery query = new IdQuery(this.jdbc.getDataSource(), "select id from custmr where id = ?", Types.INTEGER);
+        assertTrue(query.getDeclaredParameters() instanceof ArrayList);
+        try {
+            query.declareParameter(new SqlParameter(Types.INTEGER));
+            fail("Should have thrown InvalidDataAccessApiUsageException");
+        } catch (InvalidDataAccessApiUsageException ex) {
+            // expected
+        }
+    }
+
+    public void testUpdateBindsIntsWithoutBoxing() {
+        SqlUpdate update = new SqlUpdate(this.jdbc.getDataSource(), "update custmr set age = ? where id = ?",
+                new int[]{Types.INTEGER, Types.INTEGER});
+        update.compile();
+        assertEquals(1, update.update(40, 5));
+        assertEquals("[setInt(1,40), setInt(2,5)]", this.jdbc.getBindings().toString());
+    }
+
+
+    private static class IdQuery extends MappingSqlQuery {
+
+        public IdQuery(DataSource ds, String sql, int type) {
+            this(ds, sql, new int[]{type});
+        }
+
+        public IdQuery(DataSource ds, String sql, int type1, int type2) {
+            this(ds, sql, new int[]{type1, type2});
+        }
+
+        public IdQuery(DataSource ds, String sql, int type1, int type2, int type3, int type4) {
+            this(ds, sql, new int[]{type1, type2, type3, type4});
+        }
+
+        private IdQuery(DataSource ds, String sql, int[] types) {
+            super(ds, sql);
+            setTypes(types);
+            compile();
+        }
+
+        protected Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new Integer(rs.getInt(1));
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jdbc.object;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.interface21.dao.DataAccessException;
+import com.interface21.dao.InvalidDataAccessApiUsageException;
+import com.interface21.jdbc.core.ResultReader;
+import com.interface21.jdbc.core.RowCallbackHandler;
+import com.interface21.jdbc.core.SqlParameter;
+import com.interface21.jdbc.mock.StubJdbc;
+
+/**
+ * Tests for streaming query results via RowCallback and QueryResultIterator,
+ * against an in-memory JDBC stub.
+ */
+public class StreamingSqlQueryTests extends TestCase {
+
+    private static final int LARGE_ROW_COUNT = 1000000;
+
+    /**
+     * Size of each mapped object: all of them together would take 1 GB.
+     */
+    private static final int ROW_SIZE = 1024;
+
+    private static final long MAX_MEMORY_GROWTH = 64 * 1024 * 1024;
+
+    private static final Log logger = LogFactory.getLog(StreamingSqlQueryTests.class);
+
+    private StubJdbc jdbc;
+
+    private RowQuery query;
+
+    protected void setUp() {
+        this.jdbc = new StubJdbc();
+        this.query = new RowQuery(this.jdbc.getDataSource());
+    }
+
+    public void testCallbackReceivesRowsInOrder() {
+        this.jdbc.setRowCount(3);
+        final StringBuffer rows = new StringBuffer();
+        this.query.execute(new Object[]{new Integer(1)}, null, new RowCallback() {
+            public void processRow(Object rowObject) {
+                rows.append(((byte[]) rowObject)[0]);
+            }
+        });
+        assertEquals("123", rows.toString());
+        assertEquals("[setInt(1,1)]", this.jdbc.getBindings().toString());
+        assertEquals(1, this.jdbc.getClosedResultSetCount());
+    }
+
+    public void testFetchSizeAndMaxRowsApplied() {
+        this.query.setFetchSize(500);
+        this.query.setMaxRows(10);
+        this.query.execute(new Object[]{new Integer(1)}, null, new RowCallback() {
+            public void processRow(Object rowObject) {
+            }
+        });
+        this.query.execute(1);
+        assertEquals("[setInt(1,1), setFetchSize(500), setMaxRows(10), " +
+                "setInt(1,1), setFetchSize(500), setMaxRows(10)]", this.jdbc.getBindings().toString());
+    }
+
+    public void testIteratorClosesWhenExhausted() {
+        this.jdbc.setRowCount(2);
+        QueryResultIterator it = this.query.iterate(new Object[]{new Integer(1)});
+        assertTrue(it.hasNext());
+        assertTrue(it.hasNext());
+        assertEquals(1, ((byte[]) it.next())[0]);
+        assertEquals(2, ((byte[]) it.next())[0]);
+        assertFalse(it.hasNext());
+        assertTrue(it.isClosed());
+        assertEquals(1, this.jdbc.getClosedResultSetCount());
+        assertEquals(0, this.jdbc.getOpenConnectionCount());
+        try {
+            it.next();
+            fail("Should have thrown NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            // expected
+        }
+    }
+
+    public void testIteratorClosedEarly() {
+        this.jdbc.setRowCount(100);
+        QueryResultIterator it = this.query.iterate(new Object[]{new Integer(1)});
+        try {
+            it.next();
+        } finally {
+            it.close();
+        }
+        it.close();
+        assertFalse(it.hasNext());
+        assertEquals(1, this.jdbc.getClosedResultSetCount());
+    }
+
+    public void testIteratorClosesConnectionWhenPreparingFails() {
+        IllegalStateException failure = new IllegalStateException("prepare failed");
+        this.jdbc.setPrepareFailure(failure);
+        try {
+            this.query.iterate(new Object[]{new Integer(1)});
+            fail("Should have thrown IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertSame(failure, ex);
+        }
+        assertEquals(0, this.jdbc.getOpenConnectionCount());
+    }
+
+    public void testIteratorClosesStatementWhenClosingResultSetFails() {
+        this.jdbc.setResultSetCloseFailure(new SQLException("close failed"));
+        QueryResultIterator it = this.query.iterate(new Object[]{new Integer(1)});
+        try {
+            it.close();
+            fail("Should have thrown DataAccessException");
+        } catch (DataAccessException ex) {
+            // expected
+        }
+        assertTrue(it.isClosed());
+        assertEquals(1, this.jdbc.getClosedStatementCount());
+        assertEquals(0, this.jdbc.getOpenConnectionCount());
+    }
+
+    public void testIteratorSkipsRowsWithoutObject() {
+        this.jdbc.setRowCount(5);
+        SqlQuery evenRowQuery = new SqlQuery(this.jdbc.getDataSource(), "select id from rows") {
+            protected ResultReader newResultReader(int rowsExpected, Object[] parameters, Map context) {
+                throw new UnsupportedOperationException();
+            }
+
+            protected RowCallbackHandler newRowCallbackHandler(Object[] parameters, Map context,
+                                                               final RowCallback callback) {
+                return new RowCallbackHandler() {
+                    public void processRow(ResultSet rs) throws SQLException {
+                        int id = rs.getInt(1);
+                        if (id % 2 == 0) {
+                            callback.processRow(new Integer(id));
+                        }
+                    }
+                };
+            }
+        };
+        evenRowQuery.compile();
+        QueryResultIterator it = evenRowQuery.iterate();
+        assertEquals(new Integer(2), it.next());
+        assertEquals(new Integer(4), it.next());
+        assertFalse(it.hasNext());
+        assertTrue(it.isClosed());
+        assertEquals(0, this.jdbc.getOpenConnectionCount());
+    }
+
+    public void testStreamingNotSupported() {
+        SqlQuery listOnlyQuery = new SqlQuery(this.jdbc.getDataSource(), "select name from names") {
+            protected ResultReader newResultReader(int rowsExpected, Object[] parameters, Map context) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        listOnlyQuery.compile();
+        try {
+            listOnlyQuery.iterate();
+            fail("Should have thrown InvalidDataAccessApiUsageException");
+        } catch (InvalidDataAccessApiUsageException ex) {
+            // expected
+        }
+        assertEquals(0, this.jdbc.getQueryCount());
+    }
+
+    public void testCallbackMemoryIsFlat() {
+        this.jdbc.setRowCount(LARGE_ROW_COUNT);
+        this.jdbc.setRecording(false);
+        final long[] usedMemory = new long[2];
+        final int[] count = new int[1];
+        this.query.execute(new Object[]{new Integer(1)}, null, new RowCallback() {
+            public void processRow(Object rowObject) {
+                count[0]++;
+                if (count[0] == LARGE_ROW_COUNT / 10) {
+                    usedMemory[0] = getUsedMemory();
+                } else if (count[0] == LARGE_ROW_COUNT) {
+                    usedMemory[1] = getUsedMemory();
+                }
+            }
+        });
+        assertEquals(LARGE_ROW_COUNT, count[0]);
+        assertMemoryFlat(usedMemory);
+    }
+
+    public void testIteratorMemoryIsFlat() {
+        this.jdbc.setRowCount(LARGE_ROW_COUNT);
+        this.jdbc.setRecording(false);
+        long[] usedMemory = new long[2];
+        int count = 0;
+        QueryResultIterator it = this.query.iterate(new Object[]{new Integer(1)});
+        try {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+                if (count == LARGE_ROW_COUNT / 10) {
+                    usedMemory[0] = getUsedMemory();
+                }
+            }
+            usedMemory[1] = getUsedMemory();
+        } finally {
+            it.close();
+        }
+        assertEquals(LARGE_ROW_COUNT, count);
+        assertMemoryFlat(usedMemory);
+    }
+
+
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void assertMemoryFlat(long[] usedMemory) {
+        long growth = usedMemory[1] - usedMemory[0];
+        if (logger.isDebugEnabled()) {
+            logger.debug("Streaming " + LARGE_ROW_COUNT + " rows of " + ROW_SIZE + " bytes: heap grew by " +
+                    (growth / 1024) + " KB between 10% and 100% of the rows");
+        }
+        assertTrue("Heap grew by " + growth + " bytes", growth < MAX_MEMORY_GROWTH);
+    }
+
+
+    private static class RowQuery extends MappingSqlQuery {
+
+        public RowQuery(DataSource ds) {
+            super(ds, "select id from rows where batch = ?");
+            declareParameter(new SqlParameter(Types.INTEGER));
+            compile();
+        }
+
+        protected Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+            byte[] row = new byte[ROW_SIZE];
+            row[0] = (byte) rs.getInt(1);
+            return row;
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jndi;
+
+import java.util.Hashtable;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.spi.InitialContextFactory;
+
+import junit.framework.TestCase;
+
+import com.interface21.jndi.support.SimpleNamingContext;
+
+/**
+ * Tests for context reuse and lookup caching in CachingJndiTemplate,
+ * with a fake InitialContextFactory counting contexts and lookups.
+ */
+public class CachingJndiTemplateTests extends TestCase {
+
+    private CountingInitialContextFactory factory;
+
+    private CachingJndiTemplate template;
+
+    protected void setUp() {
+        this.factory = new CountingInitialContextFactory();
+        this.template = new CachingJndiTemplate() {
+            protected Context createInitialContext() {
+                // bypass any InitialContextFactoryBuilder activated by other tests
+                return factory.getInitialContext(getEnvironment());
+            }
+        };
+    }
+
+    public void testReusesContext() throws Exception {
+        this.template.setCachedNamePrefixes(new String[]{"java:comp/env/"});
+        this.template.bind("foo", "bar");
+        for (int i = 0; i < 10; i++) {
+            assertEquals("bar", this.template.lookup("foo"));
+        }
+        assertEquals(1, this.factory.contextCount);
+        assertEquals(10, this.factory.lookupCount);
+        this.template.destroy();
+        assertEquals(1, this.factory.closeCount);
+    }
+
+    public void testCachesLookups() throws Exception {
+        this.template.setCachedNamePrefixes(new String[]{"java:comp/env/"});
+        this.template.bind("java:comp/env/foo", "bar");
+        assertEquals("bar", this.template.lookup("java:comp/env/foo"));
+        assertEquals("bar", this.template.lookup("java:comp/env/foo"));
+        assertEquals(1, this.factory.lookupCount);
+        assertEquals(1, this.template.getCacheSize());
+
+        this.template.evict("java:comp/env/foo");
+        assertEquals("bar", this.template.lookup("java:comp/env/foo"));
+        assertEquals(2, this.factory.lookupCount);
+
+        this.template.clear();
+        assertEquals(0, this.template.getCacheSize());
+    }
+
+    public void testCachesNothingByDefault() throws Exception {
+        this.template.bind("java:comp/env/foo", "bar");
+        assertEquals("bar", this.template.lookup("java:comp/env/foo"));
+        assertEquals("bar", this.template.lookup("java:comp/env/foo"));
+        assertEquals(2, this.factory.lookupCount);
+        assertEquals(0, this.template.getCacheSize());
+    }
+
+    public void testCacheBounded() throws Exception {
+        this.template.setCachedNamePrefixes(new String[]{""});
+        this.template.setMaxCacheSize(2);
+        this.template.bind("a", "1");
+        this.template.bind("b", "2");
+        this.template.bind("c", "3");
+        this.template.lookup("a");
+        this.template.lookup("b");
+        this.template.lookup("a");
+        this.template.lookup("c");
+        assertEquals(2, this.template.getCacheSize());
+        this.template.lookup("a");
+        assertEquals(3, this.factory.lookupCount);
+        this.template.lookup("b");
+        assertEquals(4, this.factory.lookupCount);
+    }
+
+    public void testRebindEvicts() throws Exception {
+        this.template.setCachedNamePrefixes(new String[]{""});
+        this.template.bind("foo", "bar");
+        assertEquals("bar", this.template.lookup("foo"));
+        this.template.rebind("foo", "baz");
+        assertEquals("baz", this.template.lookup("foo"));
+    }
+
+    public void testLookupRacingWithRebindNotCached() throws Exception {
+        this.template.setCachedNamePrefixes(new String[]{""});
+        this.template.bind("foo", "old");
+        // rebind right after the lookup read the old object
+        this.factory.afterLookup = new Runnable() {
+            public void run() {
+                factory.afterLookup = null;
+                try {
+                    template.rebind("foo", "new");
+                } catch (NamingException ex) {
+                    throw new IllegalStateException(ex.toString());
+                }
+            }
+        };
+        assertEquals("old", this.template.lookup("foo"));
+        assertEquals(0, this.template.getCacheSize());
+        assertEquals("new", this.template.lookup("foo"));
+    }
+
+    public void testBindAndUnbindEvict() throws Exception {
+        this.template.setCachedNamePrefixes(new String[]{""});
+        this.template.bind("foo", "bar");
+        assertEquals("bar", this.template.lookup("foo"));
+        this.template.unbind("foo");
+        this.template.bind("foo", "baz");
+        assertEquals("baz", this.template.lookup("foo"));
+        this.template.unbind("foo");
+        try {
+            this.template.lookup("foo");
+            fail("Should have thrown NameNotFoundException");
+        } catch (NameNotFoundException ex) {
+            // expected
+        }
+        assertEquals(1, this.factory.contextCount);
+    }
+
+    public void testClosesFailedContext() throws Exception {
+        try {
+            this.template.execute(new ContextCallback() {
+                public Object doInContext(Context ctx) throws NamingException {
+                    throw new NamingException("broken");
+                }
+            });
+            fail("Should have thrown NamingException");
+        } catch (NamingException ex) {
+            assertEquals("broken", ex.getMessage());
+        }
+        assertEquals(1, this.factory.closeCount);
+        this.template.bind("foo", "bar");
+        assertEquals(2, this.factory.contextCount);
+    }
+
+    public void testWithoutContextPool() throws Exception {
+        this.template.setContextPoolSize(0);
+        this.template.bind("foo", "bar");
+        assertEquals("bar", this.template.lookup("foo"));
+        assertEquals(2, this.factory.contextCount);
+        assertEquals(2, this.factory.closeCount);
+    }
+
+    public void testLocatorRefreshBypassesCache() throws Exception {
+        this.template.bind("foo", "bar");
+        JndiObjectFactoryBean jof = new JndiObjectFactoryBean();
+        jof.setJndiTemplate(this.template);
+        jof.setJndiName("foo");
+        jof.setInContainer(false);
+        jof.afterPropertiesSet();
+        assertEquals("bar", jof.getObject());
+
+        this.factory.bindings.put("foo", "baz");
+        jof.refresh();
+        assertEquals("baz", jof.getObject());
+    }
+
+
+    /**
+     * InitialContextFactory that creates contexts sharing one set of
+     * bindings, counting created and closed contexts and lookups.
+     */
+    private static class CountingInitialContextFactory implements InitialContextFactory {
+
+        private final Hashtable bindings = new Hashtable();
+
+        private int contextCount;
+
+        private int closeCount;
+
+        private int lookupCount;
+
+        /**
+         * Invoked after each lookup, if set
+         */
+        private Runnable afterLookup;
+
+        public Context getInitialContext(Hashtable environment) {
+            this.contextCount++;
+            return new SimpleNamingContext("", this.bindings, environment) {
+                public Object lookup(String name) throws NameNotFoundException {
+                    lookupCount++;
+                    Object value = super.lookup(name);
+                    if (afterLookup != null) {
+                        afterLookup.run();
+                    }
+                    return value;
+                }
+
+                public void close() {
+                    closeCount++;
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.jndi;
+
+import java.util.Hashtable;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.spi.InitialContextFactory;
+
+import junit.framework.TestCase;
+
+import com.interface21.beans.FatalBeanException;
+import com.interface21.jndi.support.SimpleNamingContext;
+
+/**
+ * Tests for lazy lookup, time-to-live and refresh in AbstractJndiLocator,
+ * with JNDI contexts created by a stub InitialContextFactory.
+ */
+public class JndiLocatorRefreshTests extends TestCase {
+
+    protected void setUp() {
+        StubInitialContextFactory.reset();
+    }
+
+    private JndiObjectFactoryBean createFactoryBean() {
+        Properties env = new Properties();
+        env.setProperty(Context.INITIAL_CONTEXT_FACTORY, StubInitialContextFactory.class.getName());
+        JndiObjectFactoryBean jof = new JndiObjectFactoryBean();
+        jof.setJndiTemplate(new JndiTemplate(env) {
+            protected Context createInitialContext() throws NamingException {
+                // bypass any InitialContextFactoryBuilder activated by other tests
+                return new StubInitialContextFactory().getInitialContext(getEnvironment());
+            }
+        });
+        jof.setJndiName("foo");
+        jof.setInContainer(false);
+        return jof;
+    }
+
+    public void testLookupOnStartupByDefault() throws Exception {
+        StubInitialContextFactory.bind("foo", "bar");
+        JndiObjectFactoryBean jof = createFactoryBean();
+        jof.afterPropertiesSet();
+        assertEquals(1, StubInitialContextFactory.lookupCount);
+        assertEquals("bar", jof.getObject());
+        assertEquals("bar", jof.getObject());
+        assertEquals(1, StubInitialContextFactory.lookupCount);
+    }
+
+    public void testLookupOnFirstUse() throws Exception {
+        JndiObjectFactoryBean jof = createFactoryBean();
+        jof.setLookupOnStartup(false);
+        jof.afterPropertiesSet();
+        assertEquals(0, StubInitialContextFactory.lookupCount);
+
+        try {
+            jof.getObject();
+            fail("Should have thrown FatalBeanException");
+        } catch (FatalBeanException ex) {
+            assertTrue(ex.getRootCause() instanceof NameNotFoundException);
+        }
+
+        StubInitialContextFactory.bind("foo", "bar");
+        assertEquals("bar", jof.getObject());
+        assertEquals("bar", jof.getObject());
+        assertEquals(2, StubInitialContextFactory.lookupCount);
+    }
+
+    public void testLookupAgainAfterTimeToLive() throws Exception {
+        StubInitialContextFactory.bind("foo", "bar");
+        JndiObjectFactoryBean jof = createFactoryBean();
+        jof.setTimeToLive(50);
+        jof.afterPropertiesSet();
+        assertEquals("bar", jof.getObject());
+        StubInitialContextFactory.bind("foo", "baz");
+        assertEquals("bar", jof.getObject());
+        assertEquals(1, StubInitialContextFactory.lookupCount);
+
+        Thread.sleep(80);
+        assertEquals("baz", jof.getObject());
+        assertEquals("baz", jof.getObject());
+        assertEquals(2, StubInitialContextFactory.lookupCount);
+    }
+
+    public void testRefresh() throws Exception {
+        StubInitialContextFactory.bind("foo", "bar");
+        JndiObjectFactoryBean jof = createFactoryBean();
+        jof.afterPropertiesSet();
+        StubInitialContextFactory.bind("foo", "baz");
+        jof.refresh();
+        assertEquals("baz", jof.getObject());
+        assertEquals(2, StubInitialContextFactory.lookupCount);
+    }
+
+    public void testConcurrentCallersShareLookup() throws Exception {
+        StubInitialContextFactory.bind("foo", "bar");
+        final JndiObjectFactoryBean jof = createFactoryBean();
+        jof.setLookupOnStartup(false);
+        jof.afterPropertiesSet();
+        StubInitialContextFactory.lookupLatch = new CountDownLatch(1);
+
+        int threadCount = 8;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final Object[] results = new Object[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+            new Thread() {
+                public void run() {
+                    try {
+                        results[index] = jof.getObject();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        // let all threads reach the lookup before it completes
+        Thread.sleep(100);
+        StubInitialContextFactory.lookupLatch.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < threadCount; i++) {
+            assertEquals("bar", results[i]);
+        }
+        assertEquals(1, StubInitialContextFactory.lookupCount);
+    }
+
+
+    /**
+     * InitialContextFactory that creates contexts over a static map of
+     * bindings, counting lookups. Lookups can be held up via lookupLatch.
+     */
+    public static class StubInitialContextFactory implements InitialContextFactory {
+
+        private static Hashtable bindings;
+
+        private static volatile int lookupCount;
+
+        private static volatile CountDownLatch lookupLatch;
+
+        public static synchronized void reset() {
+            bindings = new Hashtable();
+            lookupCount = 0;
+            lookupLatch = null;
+        }
+
+        public static synchronized void bind(String name, Object obj) {
+            bindings.put(name, obj);
+        }
+
+        public Context getInitialContext(Hashtable environment) {
+            Hashtable boundObjects;
+            synchronized (StubInitialContextFactory.class) {
+                boundObjects = new Hashtable(bindings);
+            }
+            return new SimpleNamingContext("", boundObjects, environment) {
+                public Object lookup(String name) throws NameNotFoundException {
+                    synchronized (StubInitialContextFactory.class) {
+                        lookupCount++;
+                    }
+                    CountDownLatch latch = lookupLatch;
+                    if (latch != null) {
+                        try {
+                            latch.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return super.lookup(name);
+                }
+            };
+        }
+    }
+
+}
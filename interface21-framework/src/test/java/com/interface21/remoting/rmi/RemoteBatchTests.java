@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.rmi.ConnectException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.interface21.beans.ITestBean;
+import com.interface21.beans.TestBean;
+import com.interface21.remoting.RemoteAccessException;
+
+/**
+ * Tests for RemoteBatch, against fake stubs and against
+ * a service exported to an in-process RMI registry.
+ */
+public class RemoteBatchTests extends TestCase {
+
+    private static final int BATCH_SIZE = 20;
+
+    private static final int BENCHMARK_RUNS = 200;
+
+    private RmiTestServer server;
+
+    private ITestBean proxy;
+
+    protected void setUp() throws Exception {
+        TestBean target = new TestBean();
+        target.setName("remote");
+        target.setAge(42);
+        this.server = new RmiTestServer(target, "testBean");
+        RmiProxyFactoryBean factory = this.server.createProxyFactory(ITestBean.class);
+        factory.afterPropertiesSet();
+        this.proxy = (ITestBean) factory.getObject();
+    }
+
+    protected void tearDown() throws Exception {
+        this.server.destroy();
+    }
+
+    public void testBatchReturnsResultsInOrder() {
+        List results = RemoteBatch.execute(new RemoteBatchCallback() {
+            public void doInBatch() {
+                assertNull(proxy.getName());
+                proxy.setName("batched");
+                assertEquals(0, proxy.getAge());
+                proxy.setAge(43);
+                proxy.getName();
+                proxy.getAge();
+            }
+        });
+        assertEquals(6, results.size());
+        assertEquals("remote", ((RemoteInvocationResult) results.get(0)).getValue());
+        assertNull(((RemoteInvocationResult) results.get(1)).getValue());
+        assertEquals(new Integer(42), ((RemoteInvocationResult) results.get(2)).getValue());
+        assertEquals("batched", ((RemoteInvocationResult) results.get(4)).getValue());
+        assertEquals(new Integer(43), ((RemoteInvocationResult) results.get(5)).getValue());
+        assertEquals("batched", this.proxy.getName());
+    }
+
+    public void testFailedInvocationDoesNotStopBatch() throws Throwable {
+        List results = RemoteBatch.execute(new RemoteBatchCallback() {
+            public void doInBatch() {
+                try {
+                    proxy.exceptional(new IllegalStateException("unchecked"));
+                    proxy.exceptional(new IOException("checked"));
+                } catch (Throwable ex) {
+                    fail("Should not have thrown " + ex);
+                }
+                proxy.getName();
+            }
+        });
+        RemoteInvocationResult result = (RemoteInvocationResult) results.get(0);
+        assertTrue(result.hasException());
+        try {
+            result.getValue();
+            fail("Should have thrown IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertEquals("unchecked", ex.getMessage());
+        }
+        result = (RemoteInvocationResult) results.get(1);
+        assertTrue(result.getException() instanceof IOException);
+        try {
+            result.getValue();
+            fail("Should have thrown RemoteAccessException");
+        } catch (RemoteAccessException ex) {
+            // expected
+        }
+        assertEquals("remote", ((RemoteInvocationResult) results.get(2)).getValue());
+    }
+
+    public void testNestedBatchNotAllowed() {
+        RemoteBatch.execute(new RemoteBatchCallback() {
+            public void doInBatch() {
+                try {
+                    RemoteBatch.execute(this);
+                    fail("Should have thrown IllegalStateException");
+                } catch (IllegalStateException ex) {
+                    // expected
+                }
+            }
+        });
+    }
+
+    public void testAbortedBatchPerformsNothing() {
+        try {
+            RemoteBatch.execute(new RemoteBatchCallback() {
+                public void doInBatch() {
+                    proxy.setName("aborted");
+                    throw new UnsupportedOperationException();
+                }
+            });
+            fail("Should have thrown UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        assertEquals("remote", this.proxy.getName());
+    }
+
+    public void testBatchIsOneRoundTrip() {
+        CountingBatchHandler server = new CountingBatchHandler();
+        final ITestBean batchProxy = createProxy(server);
+        List results = RemoteBatch.execute(new RemoteBatchCallback() {
+            public void doInBatch() {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    batchProxy.getName();
+                }
+            }
+        });
+        assertEquals(1, server.batchCalls);
+        assertEquals(0, server.singleCalls);
+        assertEquals(BATCH_SIZE, results.size());
+        assertEquals("fake", ((RemoteInvocationResult) results.get(BATCH_SIZE - 1)).getValue());
+    }
+
+    public void testNoSuchMethodExceptionOfTargetNotResent() {
+        CountingBatchHandler server = new CountingBatchHandler();
+        server.resultException = new NoSuchMethodException("thrown by the target method");
+        final ITestBean batchProxy = createProxy(server);
+        List results = RemoteBatch.execute(new RemoteBatchCallback() {
+            public void doInBatch() {
+                batchProxy.getName();
+            }
+        });
+        assertEquals(0, server.singleCalls);
+        assertSame(server.resultException, ((RemoteInvocationResult) results.get(0)).getException());
+
+        server.resultException = new UnknownMethodHashException("collision");
+        results = RemoteBatch.execute(new RemoteBatchCallback() {
+            public void doInBatch() {
+                batchProxy.getName();
+            }
+        });
+        assertEquals(1, server.singleCalls);
+        assertEquals("fake", ((RemoteInvocationResult) results.get(0)).getValue());
+    }
+
+    public void testCommunicationFailureIsResultOfEachInvocation() {
+        CountingBatchHandler server = new CountingBatchHandler();
+        server.failure = new ConnectException("down");
+        final ITestBean batchProxy = createProxy(server);
+        List results = RemoteBatch.execute(new RemoteBatchCallback() {
+            public void doInBatch() {
+                batchProxy.getName();
+                batchProxy.getAge();
+            }
+        });
+        assertTrue(((RemoteInvocationResult) results.get(0)).getException() instanceof ConnectException);
+        assertTrue(((RemoteInvocationResult) results.get(1)).getException() instanceof ConnectException);
+    }
+
+    public void testFallsBackToSingleInvocationsForOlderServers() {
+        // a server without batch support, as seen by its stub
+        final ITestBean batchProxy = createProxy(new RemoteInvocationHandler() {
+            public Object invokeRemote(String methodName, Class[] paramTypes, Object[] params) {
+                if (params != null) {
+                    throw new IllegalArgumentException("no setters");
+                }
+                return "old";
+            }
+        });
+        List results = RemoteBatch.execute(new RemoteBatchCallback() {
+            public void doInBatch() {
+                batchProxy.getName();
+                batchProxy.setName("new");
+                batchProxy.getName();
+            }
+        });
+        assertEquals("old", ((RemoteInvocationResult) results.get(0)).getValue());
+        assertTrue(((RemoteInvocationResult) results.get(1)).getException() instanceof IllegalArgumentException);
+        assertEquals("old", ((RemoteInvocationResult) results.get(2)).getValue());
+    }
+
+    /**
+     * Compares a batch of calls in one round trip with
+     * the same calls made one by one, over a loopback connection.
+     */
+    public void testLoopbackBenchmark() {
+        RemoteBatchCallback calls = new RemoteBatchCallback() {
+            public void doInBatch() {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    proxy.getName();
+                }
+            }
+        };
+        // warm up both paths
+        for (int i = 0; i < 50; i++) {
+            calls.doInBatch();
+            RemoteBatch.execute(calls);
+        }
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < BENCHMARK_RUNS; i++) {
+            calls.doInBatch();
+        }
+        long sequentialTime = Math.max(System.currentTimeMillis() - start, 1);
+
+        start = System.currentTimeMillis();
+        for (int i = 0; i < BENCHMARK_RUNS; i++) {
+            RemoteBatch.execute(calls);
+        }
+        long batchTime = Math.max(System.currentTimeMillis() - start, 1);
+
+        System.out.println("RMI loopback, " + BENCHMARK_RUNS + " x " + BATCH_SIZE + " calls: " + sequentialTime +
+                " ms one by one, " + batchTime + " ms batched");
+    }
+
+
+    private ITestBean createProxy(RemoteInvocationHandler server) {
+        return (ITestBean) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ITestBean.class}, new StubInvocationHandler(server));
+    }
+
+
+    private static class CountingBatchHandler implements RemoteBatchInvocationHandler {
+
+        private int batchCalls;
+
+        private int singleCalls;
+
+        private RemoteException failure;
+
+        /**
+         * Exception to return as result of each invocation, if any
+         */
+        private Throwable resultException;
+
+        public Object invokeRemote(String methodName, Class[] paramTypes, Object[] params) {
+            this.singleCalls++;
+            return "fake";
+        }
+
+        public Object invokeRemote(long methodHash, Object[] params) {
+            this.singleCalls++;
+            return "fake";
+        }
+
+        public List invokeRemoteBatch(List invocations) throws RemoteException {
+            this.batchCalls++;
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            List results = new ArrayList();
+            for (int i = 0; i < invocations.size(); i++) {
+                results.add(this.resultException != null ? new RemoteInvocationResult(this.resultException) :
+                        new RemoteInvocationResult("fake"));
+            }
+            return results;
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.interface21.beans.MutablePropertyValues;
+import com.interface21.beans.factory.support.ListableBeanFactoryImpl;
+import com.interface21.beans.factory.support.RootBeanDefinition;
+import com.interface21.remoting.RemoteAccessException;
+import com.interface21.remoting.support.RemoteInvocationFuture;
+import com.interface21.remoting.support.RemoteProxyFactoryBean;
+
+/**
+ * Tests for async proxies of RemoteProxyFactoryBean,
+ * against a service exported to an in-process RMI registry.
+ */
+public class RmiAsyncProxyTests extends TestCase {
+
+    private static final long DELAY = 200;
+
+    private static final int FAN_OUT = 5;
+
+    private RmiTestServer server;
+
+    private RmiProxyFactoryBean factory;
+
+
+    protected void setUp() throws Exception {
+        this.server = new RmiTestServer(new SlowServiceImpl(), "slowService");
+        this.factory = this.server.createProxyFactory(SlowService.class);
+    }
+
+    protected void tearDown() throws Exception {
+        this.factory.destroy();
+        this.server.destroy();
+    }
+
+    public void testFanOutCallsAreInFlightTogether() throws Exception {
+        this.factory.setAsyncInterface(SlowServiceAsync.class);
+        this.factory.afterPropertiesSet();
+        SlowServiceAsync asyncService = (SlowServiceAsync) this.factory.getAsyncObject();
+        SlowServiceImpl.barrier = new CyclicBarrier(FAN_OUT);
+        // each call only returns once all FAN_OUT calls have reached the server
+        RemoteInvocationFuture[] futures = new RemoteInvocationFuture[FAN_OUT];
+        for (int i = 0; i < FAN_OUT; i++) {
+            futures[i] = asyncService.rendezvous("async" + i);
+        }
+        for (int i = 0; i < FAN_OUT; i++) {
+            assertEquals("async" + i, futures[i].getResult());
+        }
+    }
+
+    public void testAsyncObjectViaFactoryBeanReference() throws Exception {
+        Map pvs = new HashMap();
+        pvs.put("serviceInterface", SlowService.class);
+        pvs.put("asyncInterface", SlowServiceAsync.class);
+        pvs.put("serviceUrl", this.server.getServiceUrl());
+        ListableBeanFactoryImpl beanFactory = new ListableBeanFactoryImpl();
+        beanFactory.registerBeanDefinition("slowService",
+                new RootBeanDefinition(RmiProxyFactoryBean.class, new MutablePropertyValues(pvs), true));
+        assertEquals("plain", ((SlowService) beanFactory.getBean("slowService")).echo("plain", 0));
+        RemoteProxyFactoryBean proxyFactory = (RemoteProxyFactoryBean) beanFactory.getBean("&slowService");
+        try {
+            SlowServiceAsync asyncService = (SlowServiceAsync) proxyFactory.getAsyncObject();
+            assertEquals("async", asyncService.echo("async", 0).getResult());
+        } finally {
+            proxyFactory.destroy();
+        }
+    }
+
+    public void testResultTimeout() throws Exception {
+        this.factory.setAsyncInterface(SlowServiceAsync.class);
+        this.factory.setAsyncTimeout(50);
+        this.factory.afterPropertiesSet();
+        SlowServiceAsync asyncService = (SlowServiceAsync) this.factory.getAsyncObject();
+        RemoteInvocationFuture future = asyncService.echo("late", 1000);
+        try {
+            future.getResult();
+            fail("Should have thrown RemoteAccessException");
+        } catch (RemoteAccessException ex) {
+            // expected
+        }
+        assertTrue(future.isCancelled());
+        assertEquals("quick", asyncService.echo("quick", 0).getResult(5000));
+    }
+
+    public void testFailureTranslatedToRemoteAccessException() throws Exception {
+        this.factory.setAsyncInterface(SlowServiceAsync.class);
+        this.factory.afterPropertiesSet();
+        SlowServiceAsync asyncService = (SlowServiceAsync) this.factory.getAsyncObject();
+        Future future = asyncService.fail("boom");
+        try {
+            future.get();
+            fail("Should have thrown ExecutionException");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RemoteAccessException);
+        }
+        try {
+            ((RemoteInvocationFuture) future).getResult();
+            fail("Should have thrown RemoteAccessException");
+        } catch (RemoteAccessException ex) {
+            // expected
+        }
+    }
+
+    public void testBoundedQueueRejectsInvocations() throws Exception {
+        this.factory.setAsyncInterface(SlowServiceAsync.class);
+        this.factory.setAsyncPoolSize(1);
+        this.factory.setAsyncQueueCapacity(1);
+        this.factory.afterPropertiesSet();
+        SlowServiceAsync asyncService = (SlowServiceAsync) this.factory.getAsyncObject();
+        asyncService.echo("running", DELAY);
+        asyncService.echo("queued", DELAY);
+        try {
+            asyncService.echo("rejected", DELAY);
+            fail("Should have thrown RemoteAccessException");
+        } catch (RemoteAccessException ex) {
+            // expected
+        }
+    }
+
+    public void testAsyncInterfaceMustMatchService() throws Exception {
+        this.factory.setAsyncInterface(MismatchedAsync.class);
+        try {
+            this.factory.afterPropertiesSet();
+            fail("Should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    public void testAsyncInvokerWithoutCompanionInterface() throws Exception {
+        this.factory.afterPropertiesSet();
+        assertNull(this.factory.getAsyncObject());
+        Future future = this.factory.getAsyncInvoker().invoke(
+                SlowService.class.getMethod("echo", new Class[]{String.class, long.class}),
+                new Object[]{"generic", new Long(0)});
+        assertEquals("generic", future.get());
+    }
+
+
+    public interface SlowService {
+
+        String echo(String value, long delay);
+
+        String rendezvous(String value);
+
+        String fail(String message);
+    }
+
+
+    public interface SlowServiceAsync {
+
+        RemoteInvocationFuture echo(String value, long delay);
+
+        RemoteInvocationFuture rendezvous(String value);
+
+        Future fail(String message);
+    }
+
+
+    public interface MismatchedAsync {
+
+        Future echo(String value);
+    }
+
+
+    public static class SlowServiceImpl implements SlowService {
+
+        /**
+         * Barrier that rendezvous calls wait on
+         */
+        private static volatile CyclicBarrier barrier;
+
+        public String echo(String value, long delay) {
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return value;
+        }
+
+        public String rendezvous(String value) {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Calls not in flight together: " + ex);
+            }
+            return value;
+        }
+
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+}
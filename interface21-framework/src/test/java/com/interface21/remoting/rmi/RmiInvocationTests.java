@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.Naming;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.interface21.beans.ITestBean;
+import com.interface21.beans.TestBean;
+
+/**
+ * Tests for RMI invocations via method hashes, against an in-process registry.
+ */
+public class RmiInvocationTests extends TestCase {
+
+    private static final int BENCHMARK_CALLS = 5000;
+
+    private RmiTestServer server;
+
+    private String serviceUrl;
+
+    public RmiInvocationTests(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        TestBean target = new TestBean();
+        target.setName("remote");
+        target.setAge(42);
+        this.server = new RmiTestServer(target, "testBean");
+        this.serviceUrl = this.server.getServiceUrl();
+    }
+
+    protected void tearDown() throws Exception {
+        this.server.destroy();
+    }
+
+    public void testRmiProxyInvokesViaMethodHashes() throws Exception {
+        RmiProxyFactoryBean factory = this.server.createProxyFactory(ITestBean.class);
+        factory.afterPropertiesSet();
+        ITestBean proxy = (ITestBean) factory.getObject();
+        assertEquals("remote", proxy.getName());
+        proxy.setName("changed");
+        assertEquals("changed", proxy.getName());
+        assertEquals(42, proxy.getAge());
+    }
+
+    public void testMethodHashesDistinguishOverloads() throws Exception {
+        Method[] methods = StringBuffer.class.getMethods();
+        RemoteMethodTable table = new RemoteMethodTable(StringBuffer.class);
+        for (int i = 0; i < methods.length; i++) {
+            long hash = RemoteMethodTable.getMethodHash(methods[i]);
+            Method resolved = table.getMethod(hash);
+            assertNotNull(resolved);
+            assertEquals(methods[i].getName(), resolved.getName());
+            assertTrue(Arrays.equals(methods[i].getParameterTypes(), resolved.getParameterTypes()));
+        }
+        assertEquals(RemoteMethodTable.getMethodHash(ITestBean.class.getMethod("getName", new Class[0])),
+                RemoteMethodTable.getMethodHash(TestBean.class.getMethod("getName", new Class[0])));
+    }
+
+    public void testFallsBackToSignatureIfHashUnknown() throws Exception {
+        final List hashCalls = new ArrayList();
+        final List signatureCalls = new ArrayList();
+        RemoteInvocationHandler server = new RemoteHashInvocationHandler() {
+            public Object invokeRemote(String methodName, Class[] paramTypes, Object[] params) {
+                signatureCalls.add(methodName);
+                return "byName";
+            }
+
+            public Object invokeRemote(long methodHash, Object[] params) throws Exception {
+                hashCalls.add(new Long(methodHash));
+                throw new UnknownMethodHashException("collision");
+            }
+        };
+        ITestBean proxy = (ITestBean) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ITestBean.class}, new StubInvocationHandler(server));
+        assertEquals("byName", proxy.getName());
+        assertEquals("byName", proxy.getName());
+        assertEquals(1, hashCalls.size());
+        assertEquals(2, signatureCalls.size());
+    }
+
+    public void testOlderServerCalledWithSignature() throws Exception {
+        final List signatureCalls = new ArrayList();
+        // a server without hash support, as seen by its stub
+        RemoteInvocationHandler server = new RemoteInvocationHandler() {
+            public Object invokeRemote(String methodName, Class[] paramTypes, Object[] params) {
+                signatureCalls.add(methodName);
+                return "byName";
+            }
+        };
+        ITestBean proxy = (ITestBean) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ITestBean.class}, new StubInvocationHandler(server));
+        assertEquals("byName", proxy.getName());
+        assertEquals(1, signatureCalls.size());
+    }
+
+    /**
+     * Compares calls per second sending the full method signature
+     * with sending the method hash, over a loopback connection.
+     */
+    public void testLoopbackBenchmark() throws Exception {
+        RemoteHashInvocationHandler stub = (RemoteHashInvocationHandler) Naming.lookup(this.serviceUrl);
+        Method getName = ITestBean.class.getMethod("getName", new Class[0]);
+        long methodHash = RemoteMethodTable.getMethodHash(getName);
+        // warm up both paths
+        for (int i = 0; i < 500; i++) {
+            stub.invokeRemote("getName", getName.getParameterTypes(), null);
+            stub.invokeRemote(methodHash, null);
+        }
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < BENCHMARK_CALLS; i++) {
+            stub.invokeRemote("getName", getName.getParameterTypes(), null);
+        }
+        long signatureTime = Math.max(System.currentTimeMillis() - start, 1);
+
+        start = System.currentTimeMillis();
+        for (int i = 0; i < BENCHMARK_CALLS; i++) {
+            stub.invokeRemote(methodHash, null);
+        }
+        long hashTime = Math.max(System.currentTimeMillis() - start, 1);
+
+        System.out.println("RMI loopback: " + (BENCHMARK_CALLS * 1000L / signatureTime) + " calls/s with signature, " +
+                (BENCHMARK_CALLS * 1000L / hashTime) + " calls/s with method hash");
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.rmi;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * Service exported to an in-process RMI registry on a free port,
+ * shared by the RMI tests.
+ */
+class RmiTestServer {
+
+    private final RmiServiceExporter exporter;
+
+    private final String serviceUrl;
+
+    /**
+     * Export the given service under the given name.
+     */
+    public RmiTestServer(Object service, String name) throws Exception {
+        int port = findFreePort();
+        this.exporter = new RmiServiceExporter();
+        this.exporter.setService(service);
+        this.exporter.setName(name);
+        this.exporter.setPort(port);
+        this.exporter.afterPropertiesSet();
+        this.serviceUrl = "rmi://localhost:" + port + "/" + name;
+    }
+
+    /**
+     * Return the URL to look up the exported service with.
+     */
+    public String getServiceUrl() {
+        return serviceUrl;
+    }
+
+    /**
+     * Create a proxy for the exported service.
+     */
+    public RmiProxyFactoryBean createProxyFactory(Class serviceInterface) {
+        RmiProxyFactoryBean factory = new RmiProxyFactoryBean();
+        factory.setServiceInterface(serviceInterface);
+        factory.setServiceUrl(this.serviceUrl);
+        return factory;
+    }
+
+    /**
+     * Unexport the service.
+     */
+    public void destroy() throws Exception {
+        this.exporter.destroy();
+    }
+
+    private static int findFreePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.remoting.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+
+import com.interface21.web.mock.MockHttpServletRequest;
+import com.interface21.web.mock.MockHttpServletResponse;
+
+/**
+ * Tests for buffered and compressed remoting streams, using servlet mocks
+ * for the exporter side and a loopback HTTP server for the proxy side.
+ */
+public class RemoteStreamTests extends TestCase {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    public void testSmallResponseGetsContentLength() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] data = createData(1000);
+        writeResponse(createRequest("gzip"), response, data, 4096);
+        assertEquals(1000, response.getContentLength());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertTrue(Arrays.equals(data, response.getContentAsByteArray()));
+    }
+
+    public void testCompressedResponse() throws Exception {
+        byte[] data = createData(20000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writeResponse(createRequest("deflate, gzip"), response, data, 4096);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        byte[] body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLength());
+        assertTrue(body.length < data.length);
+        assertTrue(Arrays.equals(data, decode(body, "gzip")));
+
+        response = new MockHttpServletResponse();
+        writeResponse(createRequest("deflate"), response, data, 4096);
+        assertEquals("deflate", response.getHeader("Content-Encoding"));
+        assertTrue(Arrays.equals(data, decode(response.getContentAsByteArray(), "deflate")));
+    }
+
+    public void testNoCompressionUnlessAccepted() throws Exception {
+        byte[] data = createData(20000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writeResponse(createRequest(null), response, data, 4096);
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(data.length, response.getContentLength());
+
+        response = new MockHttpServletResponse();
+        writeResponse(createRequest("gzip"), response, data, -1);
+        assertNull(response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("Vary"));
+    }
+
+    public void testLargeResponseIsStreamed() throws Exception {
+        byte[] data = createData(3 * BUFFER_SIZE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writeResponse(createRequest(null), response, data, -1);
+        assertEquals(-1, response.getContentLength());
+        assertTrue(Arrays.equals(data, response.getContentAsByteArray()));
+
+        response = new MockHttpServletResponse();
+        writeResponse(createRequest("gzip"), response, data, 4096);
+        assertEquals(-1, response.getContentLength());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertTrue(Arrays.equals(data, decode(response.getContentAsByteArray(), "gzip")));
+    }
+
+    public void testOverflowBelowThresholdNotCompressed() throws Exception {
+        byte[] data = createData(BUFFER_SIZE + 5000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writeResponse(createRequest("gzip"), response, data, 4 * BUFFER_SIZE);
+        assertNull(response.getHeader("Content-Encoding"));
+        assertTrue(Arrays.equals(data, response.getContentAsByteArray()));
+    }
+
+    public void testDiscardedResponseSendsNothing() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        BufferedContentOutputStream out =
+                RemoteStreamUtils.getResponseOutputStream(createRequest(null), response, BUFFER_SIZE, -1);
+        out.write(createData(100));
+        out.discard();
+        assertEquals(0, response.getContentAsByteArray().length);
+        try {
+            out.write(1);
+            fail("Should have thrown IOException");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    public void testCompressedRequest() throws Exception {
+        byte[] data = createData(10000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream encoder = RemoteStreamUtils.getEncodingOutputStream(compressed, "gzip");
+        encoder.write(data);
+        encoder.close();
+        MockHttpServletRequest request = createRequest(null);
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(compressed.toByteArray());
+        assertTrue(Arrays.equals(data, readFully(RemoteStreamUtils.getRequestInputStream(request, BUFFER_SIZE))));
+
+        request = createRequest(null);
+        request.addHeader("Content-Encoding", "compress");
+        request.setContent(data);
+        try {
+            RemoteStreamUtils.getRequestInputStream(request, BUFFER_SIZE);
+            fail("Should have thrown IOException");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    public void testBufferedHttpURLConnection() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        final List requests = new ArrayList();
+        server.createContext("/echo", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.add(exchange.getRequestHeaders());
+                byte[] body = readFully(RemoteStreamUtils.getDecodingInputStream(exchange.getRequestBody(),
+                        exchange.getRequestHeaders().getFirst("Content-Encoding"), BUFFER_SIZE));
+                String encoding = RemoteStreamUtils.negotiateEncoding(
+                        exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                OutputStream encoder = RemoteStreamUtils.getEncodingOutputStream(compressed, encoding);
+                encoder.write(body);
+                encoder.close();
+                exchange.getResponseHeaders().set("Content-Encoding", encoding);
+                exchange.sendResponseHeaders(200, compressed.size());
+                compressed.writeTo(exchange.getResponseBody());
+                exchange.close();
+            }
+        });
+        server.start();
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/echo");
+            byte[] small = createData(1000);
+            assertTrue(Arrays.equals(small, post(url, small, 4096)));
+            byte[] large = createData(3 * BUFFER_SIZE);
+            assertTrue(Arrays.equals(large, post(url, large, 4096)));
+            assertTrue(Arrays.equals(large, post(url, large, -1)));
+
+            Headers headers = (Headers) requests.get(0);
+            assertEquals("1000", headers.getFirst("Content-Length"));
+            assertNull(headers.getFirst("Content-Encoding"));
+            headers = (Headers) requests.get(1);
+            assertEquals("gzip", headers.getFirst("Content-Encoding"));
+            assertEquals("chunked", headers.getFirst("Transfer-Encoding"));
+            headers = (Headers) requests.get(2);
+            assertNull(headers.getFirst("Content-Encoding"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Measures bytes on the wire and throughput for a multi-MB serialized
+     * object graph, uncompressed versus gzip compressed.
+     */
+    public void testBulkTransferBenchmark() throws Exception {
+        List graph = new ArrayList();
+        for (int i = 0; i < 40000; i++) {
+            Map bean = new HashMap();
+            bean.put("name", "bean" + i);
+            bean.put("age", new Integer(i % 100));
+            bean.put("touchy", (i % 3 == 0 ? "touchy" : null));
+            graph.add(bean);
+        }
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(serialized);
+        oos.writeObject(graph);
+        oos.close();
+        byte[] data = serialized.toByteArray();
+
+        // warm up both paths
+        for (int i = 0; i < 3; i++) {
+            writeResponse(createRequest(null), new MockHttpServletResponse(), data, -1);
+            writeResponse(createRequest("gzip"), new MockHttpServletResponse(), data, 4096);
+        }
+
+        int runs = 5;
+        MockHttpServletResponse plain = null;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < runs; i++) {
+            plain = new MockHttpServletResponse();
+            writeResponse(createRequest(null), plain, data, -1);
+        }
+        long plainTime = Math.max(System.currentTimeMillis() - start, 1);
+
+        MockHttpServletResponse gzipped = null;
+        start = System.currentTimeMillis();
+        for (int i = 0; i < runs; i++) {
+            gzipped = new MockHttpServletResponse();
+            writeResponse(createRequest("gzip"), gzipped, data, 4096);
+        }
+        long gzipTime = Math.max(System.currentTimeMillis() - start, 1);
+
+        int plainBytes = plain.getContentAsByteArray().length;
+        int gzipBytes = gzipped.getContentAsByteArray().length;
+        assertEquals(data.length, plainBytes);
+        assertTrue(gzipBytes < plainBytes / 2);
+        assertTrue(Arrays.equals(data, decode(gzipped.getContentAsByteArray(), "gzip")));
+
+        System.out.println("Bulk transfer of " + data.length + " bytes: " + plainBytes + " bytes on the wire at " +
+                (data.length * runs / 1024 * 1000L / plainTime / 1024) + " MB/s uncompressed, " + gzipBytes +
+                " bytes at " + (data.length * runs / 1024 * 1000L / gzipTime / 1024) + " MB/s with gzip");
+    }
+
+
+    private MockHttpServletRequest createRequest(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest(null, "POST", "/service");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        return request;
+    }
+
+    private void writeResponse(MockHttpServletRequest request, MockHttpServletResponse response,
+                               byte[] data, int compressionThreshold) throws IOException {
+        BufferedContentOutputStream out =
+                RemoteStreamUtils.getResponseOutputStream(request, response, BUFFER_SIZE, compressionThreshold);
+        try {
+            // write in chunks like a serializer would
+            for (int i = 0; i < data.length; i += 1000) {
+                out.write(data, i, Math.min(1000, data.length - i));
+            }
+            out.close();
+        } finally {
+            out.discard();
+        }
+    }
+
+    private byte[] post(URL url, byte[] data, int compressionThreshold) throws IOException {
+        HttpURLConnection con = new BufferedHttpURLConnection(
+                (HttpURLConnection) url.openConnection(), BUFFER_SIZE, compressionThreshold);
+        con.setDoOutput(true);
+        con.setRequestMethod("POST");
+        OutputStream out = con.getOutputStream();
+        out.write(data);
+        out.flush();
+        assertEquals(200, con.getResponseCode());
+        return readFully(con.getInputStream());
+    }
+
+    private static byte[] createData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ("remoting ".charAt(i % 9) + (i / 1000) % 7);
+        }
+        return data;
+    }
+
+    private static byte[] decode(byte[] body, String encoding) throws IOException {
+        return readFully(RemoteStreamUtils.getDecodingInputStream(
+                new ByteArrayInputStream(body), encoding, BUFFER_SIZE));
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for compiled path patterns and URI template variables.
+ */
+public class CompiledPathPatternTests extends TestCase {
+
+    public void testSegmentTypes() {
+        assertTrue(new CompiledPathPattern("/test/page.html").matches("/test/page.html"));
+        assertFalse(new CompiledPathPattern("/test/page.html").matches("/test/page.htm"));
+        assertTrue(new CompiledPathPattern("/test/*").matches("/test/anything"));
+        assertFalse(new CompiledPathPattern("/test/*").matches("/test/a/b"));
+        assertTrue(new CompiledPathPattern("/t?st/p??e").matches("/test/page"));
+        assertFalse(new CompiledPathPattern("/t?st").matches("/tst"));
+        assertTrue(new CompiledPathPattern("/test/*.h*l").matches("/test/page.html"));
+        assertFalse(new CompiledPathPattern("/test/*.h*l").matches("/test/page.jsp"));
+        assertTrue(new CompiledPathPattern("/**/page.html").matches("/page.html"));
+        assertTrue(new CompiledPathPattern("/**/page.html").matches("/a/b/c/page.html"));
+        assertTrue(new CompiledPathPattern("/a/**/b/**/c").matches("/a/x/b/y/z/c"));
+        assertFalse(new CompiledPathPattern("/a/**/b/**/c").matches("/a/x/c"));
+        assertFalse(new CompiledPathPattern("relative").matches("/relative"));
+        assertFalse(new CompiledPathPattern("/absolute").matches("absolute"));
+    }
+
+    public void testSameResultsAsSegmentMatching() {
+        String[] patterns = {"*", "a*", "*a", "a*b", "*a*", "a?c", "?*?", "**a", "a*b*c"};
+        String[] segments = {"a", "b", "ab", "abc", "aXbYc", "ba", "aac", "abab"};
+        for (int i = 0; i < patterns.length; i++) {
+            for (int j = 0; j < segments.length; j++) {
+                String path = "/x/" + segments[j];
+                assertEquals("Pattern '" + patterns[i] + "' against '" + segments[j] + "'",
+                        PathMatcher.matchSegment(patterns[i], segments[j], 0, segments[j].length()),
+                        new CompiledPathPattern("/x/" + patterns[i]).matches(path));
+            }
+        }
+    }
+
+    public void testVariables() {
+        CompiledPathPattern pattern = new CompiledPathPattern("/users/{id}/orders/{order}", true);
+        assertEquals(2, pattern.getVariableNames().length);
+        assertEquals("id", pattern.getVariableNames()[0]);
+        assertEquals("order", pattern.getVariableNames()[1]);
+        assertTrue(pattern.matches("/users/42/orders/7"));
+        assertFalse(pattern.matches("/users/42/orders"));
+
+        Map variables = pattern.extractVariables("/users/42/orders/7");
+        assertEquals(2, variables.size());
+        assertEquals("42", variables.get("id"));
+        assertEquals("7", variables.get("order"));
+        assertNull(pattern.extractVariables("/users/42/items/7"));
+
+        variables = new CompiledPathPattern("/**/users/{id}", true).extractVariables("/app/v1/users/rod");
+        assertEquals("rod", variables.get("id"));
+        assertTrue(new CompiledPathPattern("/users/*").extractVariables("/users/42").isEmpty());
+    }
+
+    public void testBracesAreLiteralUnlessVariablesEnabled() {
+        CompiledPathPattern pattern = new CompiledPathPattern("/users/{id}");
+        assertEquals(0, pattern.getVariableNames().length);
+        assertTrue(pattern.matches("/users/{id}"));
+        assertFalse(pattern.matches("/users/42"));
+        assertFalse(pattern.equals(new CompiledPathPattern("/users/{id}", true)));
+    }
+
+    public void testManyDoubleStarsOnNonMatchingPath() {
+        StringBuffer pattern = new StringBuffer();
+        StringBuffer path = new StringBuffer();
+        for (int i = 0; i < 20; i++) {
+            pattern.append("/**/a");
+        }
+        pattern.append("/**/b");
+        for (int i = 0; i < 200; i++) {
+            path.append("/a");
+        }
+        long start = System.currentTimeMillis();
+        assertFalse(new CompiledPathPattern(pattern.toString()).matches(path.toString()));
+        assertTrue(new CompiledPathPattern(pattern.toString()).matches(path + "/b"));
+        assertTrue("Took " + (System.currentTimeMillis() - start) + " ms",
+                System.currentTimeMillis() - start < 1000);
+    }
+
+    public void testDoubleStarRuns() {
+        assertTrue(new CompiledPathPattern("/a/**/b/c/**/d").matches("/a/b/x/b/c/d"));
+        assertFalse(new CompiledPathPattern("/a/**/b/c/**/d").matches("/a/b/x/c/d"));
+        assertTrue(new CompiledPathPattern("/**/**/a").matches("/a"));
+        assertFalse(new CompiledPathPattern("/a/**/a").matches("/a"));
+        assertTrue(new CompiledPathPattern("/a/**/a").matches("/a//a/"));
+        assertTrue(new CompiledPathPattern("/**/b/**").matches("/b"));
+        assertFalse(new CompiledPathPattern("/**/b/**").matches("/a/c"));
+    }
+
+    public void testMatchFirst() {
+        CompiledPathPattern[] patterns = {
+                new CompiledPathPattern("/app/page.html"),
+                new CompiledPathPattern("/app/*.html"),
+                new CompiledPathPattern("/app/**"),
+        };
+        assertEquals(0, PathMatcher.matchFirst(patterns, "/app/page.html"));
+        assertEquals(1, PathMatcher.matchFirst(patterns, "/app/index.html"));
+        assertEquals(2, PathMatcher.matchFirst(patterns, "/app/a/b.jsp"));
+        assertEquals(-1, PathMatcher.matchFirst(patterns, "/other"));
+    }
+
+    public void testEqualsAndHashCode() {
+        assertEquals(new CompiledPathPattern("/a/*"), new CompiledPathPattern("/a/*"));
+        assertEquals(new CompiledPathPattern("/a/*").hashCode(), new CompiledPathPattern("/a/*").hashCode());
+        assertFalse(new CompiledPathPattern("/a/*").equals(new CompiledPathPattern("/a/**")));
+    }
+
+    /**
+     * Matching must not allocate: checked via the allocation counter of
+     * the HotSpot ThreadMXBean, if available on this JVM.
+     */
+    public void testMatchingDoesNotAllocate() throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Method getAllocatedBytes;
+        try {
+            Class hotSpotBean = Class.forName("com.sun.management.ThreadMXBean");
+            if (!hotSpotBean.isInstance(threadBean)) {
+                return;
+            }
+            getAllocatedBytes = hotSpotBean.getMethod("getThreadAllocatedBytes", new Class[]{long.class});
+        } catch (Exception ex) {
+            return;
+        }
+        Long threadId = new Long(Thread.currentThread().getId());
+
+        CompiledPathPattern[] patterns = {
+                new CompiledPathPattern("/app/page.html"),
+                new CompiledPathPattern("/app/t?st/*.jsp"),
+                new CompiledPathPattern("/app/**/x*y*z/{id}", true),
+        };
+        String[] paths = {"/app/page.html", "/app/test/index.jsp", "/app/a/b/xAyBz/42", "/app/a/b/c/d"};
+        int matches = 0;
+        for (int i = 0; i < 10000; i++) {
+            matches += countMatches(patterns, paths);
+        }
+
+        long before = ((Long) getAllocatedBytes.invoke(threadBean, new Object[]{threadId})).longValue();
+        for (int i = 0; i < 10000; i++) {
+            matches += countMatches(patterns, paths);
+        }
+        long allocated = ((Long) getAllocatedBytes.invoke(threadBean, new Object[]{threadId})).longValue() - before;
+        assertEquals(60000, matches);
+        // allow for the reflective calls themselves
+        assertTrue("Allocated " + allocated + " bytes for 40000 lookups", allocated < 4096);
+    }
+
+    private int countMatches(CompiledPathPattern[] patterns, String[] paths) {
+        int count = 0;
+        for (int j = 0; j < paths.length; j++) {
+            if (PathMatcher.matchFirst(patterns, paths[j]) != -1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
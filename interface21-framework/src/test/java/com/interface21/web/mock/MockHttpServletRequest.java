@@ -33,6 +33,7 @@ public class MockHttpServletRequest implements HttpServletRequest, Serializable
     private String servletPath;
     private int port = 80;
     private String contentType;
+    private byte[] content;
     private Principal userPrincipal;
     private String pathInfo;
     private String method;
@@ -132,7 +133,7 @@ public class MockHttpServletRequest implements HttpServletRequest, Serializable
     }
 
     public java.lang.String getHeader(String p1) {
-        return null;
+        return (String) headers.get(p1);
     }
 
     public String getRemoteUser() {
@@ -189,7 +190,23 @@ public class MockHttpServletRequest implements HttpServletRequest, Serializable
     }
 
     public ServletInputStream getInputStream() throws java.io.IOException {
-        return null;
+        if (content == null) {
+            return null;
+        }
+        final ByteArrayInputStream in = new ByteArrayInputStream(content);
+        return new ServletInputStream() {
+            public int read() {
+                return in.read();
+            }
+
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+        };
+    }
+
+    public void setContent(byte[] content) {
+        this.content = content;
     }
 
     public Enumeration getAttributeNames() {
@@ -4,9 +4,11 @@
 
 package com.interface21.web.mock;
 
+import java.io.ByteArrayOutputStream;
 import java.util.HashMap;
 import java.util.Locale;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
 /**
@@ -23,6 +25,10 @@ public class MockHttpServletResponse implements HttpServletResponse {
 
     private int status = HttpServletResponse.SC_OK;
 
+    private int contentLength = -1;
+
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
     public String forwarded;
     public String included;
     public String redirected;
@@ -83,7 +89,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
     }
 
     public java.io.PrintWriter getWriter() throws java.io.IOException {
-        return new java.io.PrintWriter(System.out);
+        return new java.io.PrintWriter(new java.io.OutputStreamWriter(content, getCharacterEncoding()));
     }
 
     public boolean isCommitted() {
@@ -91,7 +97,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
     }
 
     public String getCharacterEncoding() {
-        throw new UnsupportedOperationException("getCharacterEncoding");
+        return "ISO-8859-1";
     }
 
     public void setDateHeader(String str, long param) {
@@ -99,7 +105,15 @@ public class MockHttpServletResponse implements HttpServletResponse {
     }
 
     public javax.servlet.ServletOutputStream getOutputStream() throws java.io.IOException {
-        throw new UnsupportedOperationException("getOutputStream");
+        return new ServletOutputStream() {
+            public void write(int b) {
+                content.write(b);
+            }
+
+            public void write(byte[] b, int off, int len) {
+                content.write(b, off, len);
+            }
+        };
     }
 
     public void addIntHeader(String str, int param) {
@@ -116,6 +130,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
     }
 
     public void setContentLength(int param) {
+        this.contentLength = param;
     }
 
     public String encodeURL(String str) {
@@ -154,4 +169,12 @@ public class MockHttpServletResponse implements HttpServletResponse {
         return status;
     }
 
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    public byte[] getContentAsByteArray() {
+        return content.toByteArray();
+    }
+
 }
@@ -20,6 +20,7 @@ import com.interface21.web.context.support.StaticWebApplicationContext;
 import com.interface21.web.mock.MockHttpServletRequest;
 import com.interface21.web.mock.MockServletConfig;
 import com.interface21.web.mock.MockServletContext;
+import com.interface21.web.servlet.handler.AbstractHandlerMapping;
 import com.interface21.web.servlet.mvc.BaseCommandController;
 import com.interface21.web.servlet.support.RequestContext;
 import com.interface21.web.servlet.support.RequestContextUtils;
@@ -278,4 +279,128 @@ public class DispatcherServletTestSuite extends TestCase {
         }
     }
 
+    public void testHandlerCache() throws Exception {
+        HandlerResolutionCache cache = simpleControllerServlet.getHandlerCache();
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest(servletConfig.getServletContext(), "GET", "/locale.do");
+            request.addPreferredLocale(Locale.CANADA);
+            simpleControllerServlet.doGet(request, new MockHttpServletResponse());
+        }
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        MockHttpServletRequest request = new MockHttpServletRequest(servletConfig.getServletContext(), "GET", "/invalid.do");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        simpleControllerServlet.doGet(request, response);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, response.getStatusCode());
+        assertEquals("Unmapped paths not cached", 1, cache.size());
+        assertEquals(0.5, cache.getHitRate(), 0.001);
+    }
+
+    public void testHandlerCacheBypassedForNonCacheableMapping() throws Exception {
+        AbstractHandlerMapping hm = (AbstractHandlerMapping) complexControllerServlet.getWebApplicationContext().getBean("myUrlMapping3");
+        hm.setCacheable(false);
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest(servletConfig.getServletContext(), "GET", "/locale.do");
+            request.addPreferredLocale(Locale.CANADA);
+            request.addRole("role1");
+            complexControllerServlet.doGet(request, new MockHttpServletResponse());
+        }
+        assertEquals("Resolution after non-cacheable mapping not cached", 0, complexControllerServlet.getHandlerCache().size());
+        assertEquals(0, complexControllerServlet.getHandlerCache().getHitCount());
+    }
+
+    public void testHandlerCacheInvalidatedOnContextRefresh() {
+        HandlerResolutionCache cache = new HandlerResolutionCache(2);
+        HandlerResolutionCache.Resolution resolution = new HandlerResolutionCache.Resolution(new HandlerExecutionChain("handler"), null);
+        assertNull(cache.get("GET /a", 1));
+        cache.put("GET /a", resolution);
+        assertSame(resolution, cache.get("GET /a", 1));
+        assertNull("Context refreshed", cache.get("GET /a", 2));
+        assertEquals(0, cache.size());
+
+        cache.put("GET /a", resolution);
+        cache.put("GET /b", new HandlerResolutionCache.Resolution(new HandlerExecutionChain("handler"), null));
+        cache.get("GET /a", 2);
+        cache.put("GET /c", new HandlerResolutionCache.Resolution(new HandlerExecutionChain("handler"), null));
+        assertEquals(2, cache.size());
+        assertNull("Least recently used evicted", cache.get("GET /b", 2));
+        assertSame(resolution, cache.get("GET /a", 2));
+    }
+
+    public void testHandlerCacheBoundedAndKeepsRecentlyUsed() {
+        HandlerResolutionCache cache = new HandlerResolutionCache(4);
+        HandlerResolutionCache.Resolution hot = new HandlerResolutionCache.Resolution(new HandlerExecutionChain("handler"), null);
+        assertNull(cache.get("GET /hot", 1));
+        cache.put("GET /hot", hot);
+        for (int i = 0; i < 100; i++) {
+            assertSame(hot, cache.get("GET /hot", 1));
+            cache.put("GET /cold" + i, new HandlerResolutionCache.Resolution(new HandlerExecutionChain("handler"), null));
+            assertTrue(cache.size() <= 4);
+        }
+        assertSame(hot, cache.get("GET /hot", 1));
+    }
+
+    public void testHandlerCacheDisabled() throws Exception {
+        DispatcherServlet servlet = new DispatcherServlet();
+        servlet.setContextClass("com.interface21.web.servlet.SimpleWebApplicationContext");
+        servlet.setHandlerCacheSize(0);
+        servlet.init(new MockServletConfig(new MockServletContext(), "simple"));
+        assertNull(servlet.getHandlerCache());
+        MockHttpServletRequest request = new MockHttpServletRequest(servletConfig.getServletContext(), "GET", "/locale.do");
+        request.addPreferredLocale(Locale.CANADA);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.doGet(request, response);
+        assertTrue("Not forwarded", response.forwarded == null);
+    }
+
+    public void testDeferredRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletConfig.getServletContext(), "GET", "/deferred.do");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        simpleControllerServlet.doGet(request, response);
+        assertEquals("Forwarded to deferred view", "form", response.forwarded);
+        assertNull(request.getAttribute(FrameworkServlet.ASYNC_STARTED_ATTRIBUTE));
+    }
+
+    public void testDeferredRequestFailure() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletConfig.getServletContext(), "GET", "/deferredFailure.do");
+        try {
+            simpleControllerServlet.doGet(request, new MockHttpServletResponse());
+            fail("Should have thrown ServletException");
+        } catch (ServletException ex) {
+            assertEquals("Deferred failure", ex.getMessage());
+        }
+    }
+
+    public void testDeferredRequestTimeout() throws Exception {
+        DispatcherServlet servlet = new DispatcherServlet();
+        servlet.setContextClass("com.interface21.web.servlet.SimpleWebApplicationContext");
+        servlet.setAsyncTimeout(50);
+        servlet.init(new MockServletConfig(new MockServletContext(), "simple"));
+        MockHttpServletRequest request = new MockHttpServletRequest(servletConfig.getServletContext(), "GET", "/deferredTimeout.do");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.doGet(request, response);
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatusCode());
+        servlet.destroy();
+    }
+
+    public void testDeferredResultAcceptsFirstResultOnly() {
+        DeferredModelAndView deferred = new DeferredModelAndView();
+        final boolean[] completed = new boolean[1];
+        deferred.setCompletionCallback(new Runnable() {
+            public void run() {
+                completed[0] = true;
+            }
+        });
+        assertFalse(deferred.isDone());
+        ModelAndView mv = new ModelAndView("view");
+        assertTrue(deferred.setResult(mv));
+        assertTrue(completed[0]);
+        assertFalse(deferred.setErrorResult(new ServletException("too late")));
+        assertFalse(deferred.setTimedOut());
+        assertSame(mv, deferred.getResult());
+        assertNull(deferred.getErrorResult());
+    }
+
 }
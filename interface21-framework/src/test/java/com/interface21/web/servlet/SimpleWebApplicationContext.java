@@ -6,6 +6,7 @@ package com.interface21.web.servlet;
 
 import java.io.IOException;
 import java.util.Locale;
+import java.util.concurrent.Callable;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -47,6 +48,16 @@ public class SimpleWebApplicationContext extends StaticWebApplicationContext {
 
         registerSingleton("/locale.do", LocaleChecker.class, null);
 
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue(new PropertyValue("outcome", "form"));
+        registerSingleton("/deferred.do", DeferredController.class, pvs);
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue(new PropertyValue("outcome", "failure"));
+        registerSingleton("/deferredFailure.do", DeferredController.class, pvs);
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue(new PropertyValue("outcome", "none"));
+        registerSingleton("/deferredTimeout.do", DeferredController.class, pvs);
+
         addMessage("test", Locale.ENGLISH, "test message");
         addMessage("test", Locale.CANADA, "Canadian & test message");
 
@@ -71,6 +82,33 @@ public class SimpleWebApplicationContext extends StaticWebApplicationContext {
         }
     }
 
+    /**
+     * Returns a deferred result: the view named by the outcome,
+     * a failure, or none at all for outcome "none".
+     */
+    public static class DeferredController implements Controller {
+
+        private String outcome;
+
+        public void setOutcome(String outcome) {
+            this.outcome = outcome;
+        }
+
+        public ModelAndView handleRequest(HttpServletRequest request, HttpServletResponse response) {
+            if ("none".equals(this.outcome)) {
+                return new DeferredModelAndView();
+            }
+            return new DeferredModelAndView(new Callable() {
+                public Object call() throws Exception {
+                    if ("failure".equals(outcome)) {
+                        throw new ServletException("Deferred failure");
+                    }
+                    return new ModelAndView(outcome);
+                }
+            });
+        }
+    }
+
     public static class DummyThemeSource implements ThemeSource {
 
         private StaticMessageSource messageSource;
@@ -5,6 +5,7 @@
 package com.interface21.web.servlet.handler;
 
 import java.io.IOException;
+import java.util.Properties;
 
 import junit.framework.TestCase;
 
@@ -206,4 +207,23 @@ public class PathMatchingUrlHandlerMappingTestSuite extends TestCase {
         assertTrue("Handler is correct bean", hec != null && hec.getHandler() == bean);
     }
 
+    public void testTemplateVariablesOnlyWhenEnabled() throws Exception {
+        Object bean = ac.getBean("mainController");
+        Properties mappings = new Properties();
+        mappings.setProperty("/users/{id}", "mainController");
+        MockHttpServletRequest req = new MockHttpServletRequest(null, "GET", "/users/42");
+
+        SimpleUrlHandlerMapping literal = new SimpleUrlHandlerMapping();
+        literal.setMappings(mappings);
+        literal.setApplicationContext(ac);
+        assertNull(literal.getHandler(req));
+
+        SimpleUrlHandlerMapping templated = new SimpleUrlHandlerMapping();
+        templated.setMappings(mappings);
+        templated.setUseTemplateVariables(true);
+        templated.setApplicationContext(ac);
+        HandlerExecutionChain hec = templated.getHandler(req);
+        assertTrue("Handler is correct bean", hec != null && hec.getHandler() == bean);
+    }
+
 }
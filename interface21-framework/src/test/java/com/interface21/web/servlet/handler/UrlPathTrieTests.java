@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet.handler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.interface21.util.PathMatcher;
+
+/**
+ * Tests for the URL pattern trie of AbstractUrlHandlerMapping.
+ */
+public class UrlPathTrieTests extends TestCase {
+
+    private static final String[] PATHS = {
+            "/", "/test", "/test/", "//test", "/test.html", "/team", "/t", "test",
+            "/app/page5.html", "/app/page50.html", "/app/sub/page5.html", "/app/sub/deep/page5.jsp",
+            "/app/x/y/z", "/docs/index.html", "/docs/a/b/index.html", "/other/app/page5.html",
+    };
+
+    public void testMostSpecificPatternWins() {
+        UrlPathTrie trie = new UrlPathTrie();
+        trie.add("/**", "all");
+        trie.add("/app/**", "app");
+        trie.add("/app/*.html", "html");
+        trie.add("/app/page*.html", "page");
+        trie.add("/app/page5.html", "page5");
+        trie.add("/app/**/*.jsp", "jsp");
+
+        assertEquals("page5", trie.match("/app/page5.html"));
+        assertEquals("page", trie.match("/app/page50.html"));
+        assertEquals("html", trie.match("/app/index.html"));
+        assertEquals("jsp", trie.match("/app/a/b/c.jsp"));
+        assertEquals("app", trie.match("/app/a/b/c.txt"));
+        assertEquals("app", trie.match("/app"));
+        assertEquals("all", trie.match("/other"));
+        assertNull(trie.match("relative"));
+    }
+
+    public void testBracesAreLiteralByDefault() {
+        UrlPathTrie trie = new UrlPathTrie();
+        trie.add("/users/**", "all");
+        trie.add("/users/{id}", "user");
+
+        assertEquals("user", trie.match("/users/{id}"));
+        assertEquals("all", trie.match("/users/42"));
+        assertFalse(PathMatcher.match("/users/{id}", "/users/42"));
+        assertTrue(PathMatcher.match("/users/{id}", "/users/{id}"));
+    }
+
+    public void testVariableSegmentRanksLikeStar() {
+        UrlPathTrie trie = new UrlPathTrie(true);
+        trie.add("/users/**", "all");
+        trie.add("/users/{id}", "user");
+        trie.add("/users/{id}/orders", "orders");
+        trie.add("/users/admin", "admin");
+
+        assertEquals("admin", trie.match("/users/admin"));
+        assertEquals("user", trie.match("/users/42"));
+        assertEquals("orders", trie.match("/users/42/orders"));
+        assertEquals("all", trie.match("/users/42/friends"));
+    }
+
+    public void testLiteralSiblingsAreFound() {
+        UrlPathTrie trie = new UrlPathTrie();
+        for (int i = 0; i < 100; i++) {
+            trie.add("/app/page" + i, new Integer(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(new Integer(i), trie.match("/app/page" + i));
+        }
+        assertNull(trie.match("/app/page100"));
+        assertNull(trie.match("/app/page"));
+    }
+
+    public void testSameResultsAsPathMatcherWith10Mappings() {
+        assertSameResultsAsPathMatcher(10);
+    }
+
+    public void testSameResultsAsPathMatcherWith100Mappings() {
+        assertSameResultsAsPathMatcher(100);
+    }
+
+    public void testSameResultsAsPathMatcherWith1000Mappings() {
+        assertSameResultsAsPathMatcher(1000);
+    }
+
+    /**
+     * Check each pattern on its own, so there's no ambiguity
+     * about which pattern should win.
+     */
+    private void assertSameResultsAsPathMatcher(int count) {
+        List patterns = createPatterns(count);
+        for (Iterator it = patterns.iterator(); it.hasNext(); ) {
+            String pattern = (String) it.next();
+            UrlPathTrie trie = new UrlPathTrie();
+            trie.add(pattern, pattern);
+            for (int i = 0; i < PATHS.length; i++) {
+                boolean expected = PathMatcher.match(pattern, PATHS[i]);
+                assertEquals("Pattern '" + pattern + "' against '" + PATHS[i] + "'",
+                        expected, trie.match(PATHS[i]) != null);
+            }
+        }
+
+        // all at once: a path matches something if any pattern matches it
+        UrlPathTrie trie = new UrlPathTrie();
+        for (Iterator it = patterns.iterator(); it.hasNext(); ) {
+            String pattern = (String) it.next();
+            trie.add(pattern, pattern);
+        }
+        for (int i = 0; i < PATHS.length; i++) {
+            String match = (String) trie.match(PATHS[i]);
+            if (match != null) {
+                assertTrue(PathMatcher.match(match, PATHS[i]));
+            } else {
+                for (Iterator it = patterns.iterator(); it.hasNext(); ) {
+                    assertFalse(PathMatcher.match((String) it.next(), PATHS[i]));
+                }
+            }
+        }
+    }
+
+    private List createPatterns(int count) {
+        String[] templates = {
+                "/app/page#.html", "/app/page#*.html", "/app/*#.html", "/app/**/page#.html",
+                "/app/**/page#.jsp", "/app/sub/page?.html", "/**/page#.html", "/docs/**/index.html",
+                "/app/*/page#.*", "/t*", "/test", "test", "/app/x/**", "/app/**/y/*", "/",
+        };
+        List patterns = new ArrayList(count);
+        for (int i = 0; patterns.size() < count; i++) {
+            String template = templates[i % templates.length];
+            patterns.add(template.replaceAll("#", String.valueOf(i / templates.length % 60)));
+        }
+        return patterns;
+    }
+
+}
@@ -4,6 +4,7 @@
 
 package com.interface21.web.servlet.mvc;
 
+import java.lang.reflect.Method;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
@@ -313,6 +314,35 @@ public class MultiActionControllerTestSuite extends TestCase {
         testExceptionNoHandler(mc, new Exception());
     }
 
+    public void testExceptionHandlerResolvedPerExceptionClass() throws Exception {
+        TestRTEHandler mc = new TestRTEHandler();
+        Method handler = mc.exposeExceptionHandler(new FatalBeanException(null, null));
+        assertEquals("handleRuntimeProblem", handler.getName());
+        assertSame(handler, mc.exposeExceptionHandler(new FatalBeanException("other", null)));
+        assertNull(mc.exposeExceptionHandler(new SQLException()));
+        assertNull(mc.exposeExceptionHandler(new SQLException()));
+    }
+
+    public void testInvokesMethodOnNonPublicDelegate() throws Exception {
+        NonPublicDelegate delegate = new NonPublicDelegate();
+        MultiActionController mc = new MultiActionController(delegate);
+        MockHttpServletRequest request = new MockHttpServletRequest(null, "GET", "/command.html");
+        request.addParameter("name", "Rod");
+        ModelAndView mv = mc.handleRequest(request, new MockHttpServletResponse());
+        assertEquals("command", mv.getViewName());
+        assertEquals("Rod", delegate.command.getName());
+    }
+
+    private static class NonPublicDelegate {
+
+        private TestBean command;
+
+        public ModelAndView command(HttpServletRequest request, HttpServletResponse response, TestBean command) {
+            this.command = command;
+            return new ModelAndView("command");
+        }
+    }
+
     /**
      * No error handlers
      */
@@ -378,6 +408,10 @@ public class MultiActionControllerTestSuite extends TestCase {
                 return new ModelAndView("no throwable");
         }
 
+        public Method exposeExceptionHandler(Throwable ex) {
+            return getExceptionHandler(ex);
+        }
+
         public boolean wasInvoked(String method) {
             return invoked.get(method) != null;
         }
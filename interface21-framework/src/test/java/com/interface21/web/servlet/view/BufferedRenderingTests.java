@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet.view;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import com.interface21.web.mock.MockHttpServletRequest;
+import com.interface21.web.mock.MockHttpServletResponse;
+
+/**
+ * Tests for buffered rendering in AbstractView.
+ */
+public class BufferedRenderingTests extends TestCase {
+
+    private static final String BODY = "<html><body>Hello buffered world</body></html>";
+
+    public BufferedRenderingTests(String name) {
+        super(name);
+    }
+
+    private TextView createView() {
+        TextView view = new TextView();
+        view.setName("text");
+        view.setBufferedRendering(true);
+        return view;
+    }
+
+    private MockHttpServletResponse render(AbstractView view, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Map model = new HashMap();
+        model.put("body", BODY);
+        view.render(model, request, response);
+        return response;
+    }
+
+    public void testUnbufferedRenderingWritesStraightThrough() throws Exception {
+        TextView view = createView();
+        view.setBufferedRendering(false);
+        MockHttpServletResponse response = render(view, new MockHttpServletRequest(null, "GET", "/page.html"));
+        assertEquals(BODY, new String(response.getContentAsByteArray(), "ISO-8859-1"));
+        assertNull(response.getHeader("ETag"));
+        assertEquals(-1, response.getContentLength());
+    }
+
+    public void testBufferedRenderingSetsContentLengthAndETag() throws Exception {
+        MockHttpServletResponse response = render(createView(), new MockHttpServletRequest(null, "GET", "/page.html"));
+        assertEquals(BODY, new String(response.getContentAsByteArray(), "ISO-8859-1"));
+        assertEquals(BODY.length(), response.getContentLength());
+        String etag = response.getHeader("ETag");
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, render(createView(), new MockHttpServletRequest(null, "GET", "/page.html")).getHeader("ETag"));
+    }
+
+    public void testMatchingIfNoneMatchAnsweredWithNotModified() throws Exception {
+        String etag = render(createView(), new MockHttpServletRequest(null, "GET", "/page.html")).getHeader("ETag");
+
+        MockHttpServletRequest request = new MockHttpServletRequest(null, "GET", "/page.html");
+        request.addHeader("If-None-Match", "\"other\", W/" + etag);
+        MockHttpServletResponse response = render(createView(), request);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatusCode());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(etag, response.getHeader("ETag"));
+
+        request = new MockHttpServletRequest(null, "GET", "/page.html");
+        request.addHeader("If-None-Match", "\"other\"");
+        response = render(createView(), request);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+        assertEquals(BODY.length(), response.getContentAsByteArray().length);
+    }
+
+    public void testIfNoneMatchIgnoredForPost() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(null, "POST", "/page.html");
+        request.addHeader("If-None-Match", "*");
+        MockHttpServletResponse response = render(createView(), request);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+        assertEquals(BODY.length(), response.getContentAsByteArray().length);
+    }
+
+    public void testGzipAboveThreshold() throws Exception {
+        TextView view = createView();
+        view.setGzipThreshold(10);
+        MockHttpServletRequest request = new MockHttpServletRequest(null, "GET", "/page.html");
+        request.addHeader("Accept-Encoding", "deflate, gzip");
+        MockHttpServletResponse response = render(view, request);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertTrue(response.getHeader("ETag").endsWith("-gz\""));
+        byte[] compressed = response.getContentAsByteArray();
+        assertEquals(compressed.length, response.getContentLength());
+        assertEquals(BODY, new String(gunzip(compressed), "ISO-8859-1"));
+    }
+
+    public void testNoGzipBelowThresholdOrWithoutAcceptEncoding() throws Exception {
+        TextView view = createView();
+        view.setGzipThreshold(BODY.length() + 1);
+        MockHttpServletRequest request = new MockHttpServletRequest(null, "GET", "/page.html");
+        request.addHeader("Accept-Encoding", "gzip");
+        assertNull(render(view, request).getHeader("Content-Encoding"));
+
+        view.setGzipThreshold(0);
+        MockHttpServletResponse response = render(view, new MockHttpServletRequest(null, "GET", "/page.html"));
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(BODY, new String(response.getContentAsByteArray(), "ISO-8859-1"));
+    }
+
+    public void testNoGzipWhenRefusedByQualityValue() throws Exception {
+        TextView view = createView();
+        view.setGzipThreshold(0);
+        String[] refusals = {"gzip;q=0", "identity, gzip; q=0.0", "x-gzipped", "nogzip"};
+        for (int i = 0; i < refusals.length; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest(null, "GET", "/page.html");
+            request.addHeader("Accept-Encoding", refusals[i]);
+            MockHttpServletResponse response = render(view, request);
+            assertNull(refusals[i], response.getHeader("Content-Encoding"));
+            assertEquals(refusals[i], "Accept-Encoding", response.getHeader("Vary"));
+        }
+
+        MockHttpServletRequest request = new MockHttpServletRequest(null, "GET", "/page.html");
+        request.addHeader("Accept-Encoding", "gzip;q=0.5");
+        assertEquals("gzip", render(view, request).getHeader("Content-Encoding"));
+    }
+
+    public void testErrorSentByViewPassedThrough() throws Exception {
+        TextView view = createView();
+        view.error = true;
+        MockHttpServletResponse response = render(view, new MockHttpServletRequest(null, "GET", "/page.html"));
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, response.getStatusCode());
+        assertNull(response.getHeader("ETag"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    public void testResponseBufferGrowsAndIsReused() throws Exception {
+        ResponseBuffer buffer = ResponseBuffer.acquire();
+        byte[] chunk = new byte[5000];
+        for (int i = 0; i < 10; i++) {
+            buffer.write(chunk, 0, chunk.length);
+        }
+        buffer.write('x');
+        assertEquals(50001, buffer.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        assertEquals(50001, out.size());
+        buffer.reset();
+        assertEquals(0, buffer.size());
+        buffer.release();
+    }
+
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+
+
+    private static class TextView extends AbstractView {
+
+        private boolean error;
+
+        protected void renderMergedOutputModel(Map model, HttpServletRequest request, HttpServletResponse response)
+                throws ServletException, IOException {
+            if (this.error) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            PrintWriter writer = response.getWriter();
+            writer.write((String) model.get("body"));
+            writer.flush();
+        }
+    }
+
+}
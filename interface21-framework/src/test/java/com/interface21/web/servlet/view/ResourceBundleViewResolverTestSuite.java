@@ -16,6 +16,8 @@ import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
+import com.interface21.beans.factory.BeanFactory;
+import com.interface21.context.ApplicationContextException;
 import com.interface21.web.context.WebApplicationContext;
 import com.interface21.web.context.support.StaticWebApplicationContext;
 import com.interface21.web.servlet.View;
@@ -171,6 +173,40 @@ public class ResourceBundleViewResolverTestSuite extends TestCase {
         }
     }
 
+    public void testFactorySharedByFallbackLocales() throws Exception {
+        BeanFactory english = rb.initFactory(Locale.ENGLISH);
+        BeanFactory british = rb.initFactory(Locale.UK);
+        assertTrue("Locales resolving to the same bundle share the factory: " + getCache(),
+                getCache() == (english == british));
+        assertTrue("Factory cached per locale: " + getCache(), getCache() == (english == rb.initFactory(Locale.ENGLISH)));
+        if (!Locale.FRENCH.getLanguage().equals(Locale.getDefault().getLanguage())) {
+            assertNotSame(english, rb.initFactory(Locale.FRENCH));
+        }
+    }
+
+    public void testLocalesToInitialize() throws Exception {
+        ResourceBundleViewResolver rb2 = new ResourceBundleViewResolver();
+        rb2.setBasename(PROPS_FILE);
+        rb2.setLocalesToInitialize(new Locale[]{Locale.ENGLISH, Locale.FRENCH});
+        rb2.setApplicationContext(wac);
+        BeanFactory englishFactory = rb2.initFactory(Locale.ENGLISH);
+        BeanFactory frenchFactory = rb2.initFactory(Locale.FRENCH);
+        assertNotSame("French locale has its own bundle", englishFactory, frenchFactory);
+        assertSame("Eagerly initialized factory reused", frenchFactory, rb2.initFactory(Locale.FRENCH));
+        InternalResourceView frenchView = (InternalResourceView) rb2.resolveViewName("debugView", Locale.FRENCH);
+        assertEquals("jsp/debug/deboug.jsp", frenchView.getUrl());
+
+        ResourceBundleViewResolver rb3 = new ResourceBundleViewResolver();
+        rb3.setBasename("weoriwoierqupowiuer");
+        rb3.setLocalesToInitialize(new Locale[]{Locale.ENGLISH});
+        try {
+            rb3.setApplicationContext(wac);
+            fail("No such basename: eager initialization should fail with ApplicationContextException");
+        } catch (ApplicationContextException ex) {
+            // OK
+        }
+    }
+
     public static void main(String[] args) {
         junit.textui.TestRunner.run(suite());
         //	junit.swingui.TestRunner.main(new String[] {PrototypeFactoryTests.class.getName() } );
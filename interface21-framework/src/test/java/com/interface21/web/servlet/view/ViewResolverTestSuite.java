@@ -217,4 +217,167 @@ public class ViewResolverTestSuite extends TestCase {
         }
     }
 
+    public void testCachingViewResolverCachesAllViews() throws ServletException {
+        CountingViewResolver vr = new CountingViewResolver();
+        View view = vr.resolveViewName("example1", Locale.ENGLISH);
+        assertEquals("example1", view.getName());
+        assertSame(view, vr.resolveViewName("example1", Locale.ENGLISH));
+        assertEquals(1, vr.loadCount);
+        assertNotSame(view, vr.resolveViewName("example1", Locale.GERMAN));
+        assertNotSame(view, vr.resolveViewName("example1", null));
+        assertEquals(3, vr.loadCount);
+        assertEquals(3, vr.getCacheSize());
+
+        vr.removeFromCache("example1", Locale.ENGLISH);
+        assertNotSame(view, vr.resolveViewName("example1", Locale.ENGLISH));
+        assertEquals(4, vr.loadCount);
+        vr.clearCache();
+        assertEquals(0, vr.getCacheSize());
+    }
+
+    public void testCachingViewResolverCachesUnresolvedViewNames() throws ServletException {
+        CountingViewResolver vr = new CountingViewResolver();
+        for (int i = 0; i < 3; i++) {
+            try {
+                vr.resolveViewName("missing", Locale.ENGLISH);
+                fail("Should have thrown ServletException");
+            } catch (ServletException ex) {
+                // expected
+            }
+        }
+        assertEquals(1, vr.loadCount);
+
+        vr.setCacheUnresolved(false);
+        vr.clearCache();
+        for (int i = 0; i < 3; i++) {
+            try {
+                vr.resolveViewName("missing", Locale.ENGLISH);
+                fail("Should have thrown ServletException");
+            } catch (ServletException ex) {
+                // expected
+            }
+        }
+        assertEquals(4, vr.loadCount);
+        assertEquals(0, vr.getCacheSize());
+    }
+
+    public void testCachingViewResolverEvictsLeastRecentlyUsed() throws ServletException {
+        CountingViewResolver vr = new CountingViewResolver();
+        vr.setCacheLimit(2);
+        View view1 = vr.resolveViewName("view1", Locale.ENGLISH);
+        vr.resolveViewName("view2", Locale.ENGLISH);
+        vr.resolveViewName("view1", Locale.ENGLISH);
+        vr.resolveViewName("view3", Locale.ENGLISH);
+        assertEquals(2, vr.getCacheSize());
+        assertEquals(3, vr.loadCount);
+        assertSame(view1, vr.resolveViewName("view1", Locale.ENGLISH));
+        assertEquals(3, vr.loadCount);
+        vr.resolveViewName("view2", Locale.ENGLISH);
+        assertEquals(4, vr.loadCount);
+    }
+
+    public void testCachingViewResolverLoadsViewOnceUnderConcurrentRequests() throws Exception {
+        final CountingViewResolver vr = new CountingViewResolver();
+        vr.loadDelay = 100;
+        final View[] views = new View[8];
+        Thread[] threads = new Thread[views.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        views[index] = vr.resolveViewName("slow", Locale.ENGLISH);
+                    } catch (ServletException ex) {
+                        // leaves null
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertEquals(1, vr.loadCount);
+        for (int i = 0; i < views.length; i++) {
+            assertNotNull(views[i]);
+            assertSame(views[0], views[i]);
+        }
+    }
+
+    public void testCachingViewResolverSizeConsistentWhenClearedConcurrently() throws Exception {
+        final CountingViewResolver vr = new CountingViewResolver();
+        vr.setCacheLimit(50);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 500; j++) {
+                            vr.resolveViewName("view" + index + "_" + j, Locale.ENGLISH);
+                        }
+                    } catch (ServletException ex) {
+                        // size checked below
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < 100; i++) {
+            vr.clearCache();
+            // eviction is swept after insertion, so the limit only holds once loads settle
+            assertTrue(vr.getCacheSize() >= 0);
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertTrue(vr.getCacheSize() <= 50);
+        vr.clearCache();
+        assertEquals(0, vr.getCacheSize());
+        vr.resolveViewName("example1", Locale.ENGLISH);
+        assertEquals(1, vr.getCacheSize());
+    }
+
+    public void testCachingViewResolverDoesNotCacheFailures() throws ServletException {
+        CountingViewResolver vr = new CountingViewResolver();
+        vr.failure = true;
+        try {
+            vr.resolveViewName("example1", Locale.ENGLISH);
+            fail("Should have thrown ServletException");
+        } catch (ServletException ex) {
+            // expected
+        }
+        vr.failure = false;
+        assertNotNull(vr.resolveViewName("example1", Locale.ENGLISH));
+        assertEquals(2, vr.loadCount);
+    }
+
+
+    private static class CountingViewResolver extends AbstractCachingViewResolver {
+
+        private int loadCount;
+
+        private long loadDelay;
+
+        private boolean failure;
+
+        protected synchronized View loadView(String viewName, Locale locale) throws ServletException {
+            this.loadCount++;
+            if (this.loadDelay > 0) {
+                try {
+                    Thread.sleep(this.loadDelay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (this.failure) {
+                throw new ServletException("Failure loading view '" + viewName + "'");
+            }
+            if ("missing".equals(viewName)) {
+                return null;
+            }
+            return new InternalResourceView(viewName);
+        }
+    }
+
 }
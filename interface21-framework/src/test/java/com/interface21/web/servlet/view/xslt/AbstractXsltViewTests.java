@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet.view.xslt;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.stream.StreamSource;
+
+import junit.framework.TestCase;
+
+import com.interface21.web.context.support.StaticWebApplicationContext;
+import com.interface21.web.mock.MockHttpServletRequest;
+import com.interface21.web.mock.MockHttpServletResponse;
+import com.interface21.web.mock.MockServletContext;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Tests for AbstractXsltView: Transformer pooling and streaming of the model.
+ */
+public class AbstractXsltViewTests extends TestCase {
+
+    private static final String STYLESHEET =
+            "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+            "<xsl:output method=\"text\"/>" +
+            "<xsl:template match=\"/report\">" +
+            "<xsl:value-of select=\"title\"/>:" +
+            "<xsl:for-each select=\"rows/item\">[<xsl:value-of select=\"name\"/>=<xsl:value-of select=\"amount\"/>]</xsl:for-each>" +
+            "</xsl:template>" +
+            "</xsl:stylesheet>";
+
+    private static final int BENCHMARK_ROWS = 50000;
+
+    public AbstractXsltViewTests(String name) {
+        super(name);
+    }
+
+    private TestXsltView createView(String stylesheet) {
+        TestXsltView view = new TestXsltView(stylesheet);
+        view.setName("report");
+        view.setRoot("report");
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(new MockServletContext());
+        view.setApplicationContext(wac);
+        return view;
+    }
+
+    private Map createModel(int rowCount) {
+        List rows = new ArrayList(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Row("row" + i, i));
+        }
+        Map model = new HashMap();
+        model.put("title", "Report");
+        model.put("rows", rows);
+        return model;
+    }
+
+    private String render(AbstractXsltView view, Map model) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        view.render(model, new MockHttpServletRequest(null, "GET", "/report"), response);
+        return new String(response.getContentAsByteArray(), "UTF-8").trim();
+    }
+
+    public void testStreamsModelThroughStylesheet() throws Exception {
+        TestXsltView view = createView(STYLESHEET);
+        assertEquals("Report:[row0=0][row1=1][row2=2]", render(view, createModel(3)));
+    }
+
+    public void testStreamsIteratorLazily() throws Exception {
+        TestXsltView view = createView(STYLESHEET);
+        final List touched = new ArrayList();
+        Map model = new HashMap();
+        model.put("title", "Lazy");
+        model.put("rows", new Iterator() {
+            private final Iterator delegate = ((List) createModel(2).get("rows")).iterator();
+
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            public Object next() {
+                Object row = delegate.next();
+                touched.add(row);
+                return row;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+        assertTrue(touched.isEmpty());
+        assertEquals("Lazy:[row0=0][row1=1]", render(view, model));
+        assertEquals(2, touched.size());
+    }
+
+    public void testUsesDomNodeIfProvided() throws Exception {
+        TestXsltView view = createView(STYLESHEET);
+        view.domify = true;
+        assertEquals("Report:[row0=0][row1=1]", render(view, createModel(2)));
+    }
+
+    public void testReusesPooledTransformers() throws Exception {
+        TestXsltView view = createView(STYLESHEET);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Report:[row0=0]", render(view, createModel(1)));
+        }
+        assertEquals(1, view.transformerCount);
+    }
+
+    public void testNoPooling() throws Exception {
+        TestXsltView view = createView(STYLESHEET);
+        view.setTransformerPoolSize(0);
+        render(view, createModel(1));
+        render(view, createModel(1));
+        assertEquals(2, view.transformerCount);
+    }
+
+    public void testCopiesModelWithoutStylesheet() throws Exception {
+        TestXsltView view = createView(null);
+        String xml = render(view, createModel(1));
+        assertTrue(xml, xml.indexOf("<title>Report</title>") != -1);
+        assertTrue(xml, xml.indexOf("<name>row0</name>") != -1);
+    }
+
+    /**
+     * Compares the memory allocated for rendering a large model
+     * via a DOM node with streaming the model.
+     */
+    public void testStreamingAllocatesLessThanDom() throws Exception {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Class sunThreadBeanClass;
+        try {
+            sunThreadBeanClass = Class.forName("com.sun.management.ThreadMXBean");
+        } catch (ClassNotFoundException ex) {
+            return;
+        }
+        if (!sunThreadBeanClass.isInstance(threadBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+
+        TestXsltView view = createView(STYLESHEET);
+        Map model = createModel(BENCHMARK_ROWS);
+        // warm up both paths
+        view.domify = true;
+        render(view, createModel(100));
+        view.domify = false;
+        render(view, createModel(100));
+
+        long threadId = Thread.currentThread().getId();
+        view.domify = true;
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        render(view, model);
+        long domBytes = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        view.domify = false;
+        before = allocationBean.getThreadAllocatedBytes(threadId);
+        render(view, model);
+        long streamingBytes = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("Streaming allocated " + streamingBytes + " bytes, DOM " + domBytes, streamingBytes < domBytes);
+    }
+
+
+    public static class Row {
+
+        private final String name;
+
+        private final int amount;
+
+        public Row(String name, int amount) {
+            this.name = name;
+            this.amount = amount;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+    }
+
+
+    private static class TestXsltView extends AbstractXsltView {
+
+        private final String stylesheetContent;
+
+        private boolean domify;
+
+        private int transformerCount;
+
+        public TestXsltView(String stylesheetContent) {
+            this.stylesheetContent = stylesheetContent;
+            if (stylesheetContent != null) {
+                setStylesheet("report.xsl");
+            }
+        }
+
+        protected Source getStylesheetSource(String url) {
+            return new StreamSource(new StringReader(this.stylesheetContent));
+        }
+
+        protected Transformer createTransformer() throws TransformerConfigurationException {
+            this.transformerCount++;
+            return super.createTransformer();
+        }
+
+        protected Node createDomNode(Map model, String root, HttpServletRequest request, HttpServletResponse response)
+                throws Exception {
+            if (!this.domify) {
+                return null;
+            }
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            Element rootElement = doc.createElement(root);
+            doc.appendChild(rootElement);
+            Element title = doc.createElement("title");
+            title.appendChild(doc.createTextNode((String) model.get("title")));
+            rootElement.appendChild(title);
+            Element rows = doc.createElement("rows");
+            rootElement.appendChild(rows);
+            for (Iterator it = ((List) model.get("rows")).iterator(); it.hasNext();) {
+                Row row = (Row) it.next();
+                Element item = doc.createElement("item");
+                Element name = doc.createElement("name");
+                name.appendChild(doc.createTextNode(row.getName()));
+                item.appendChild(name);
+                Element amount = doc.createElement("amount");
+                amount.appendChild(doc.createTextNode(String.valueOf(row.getAmount())));
+                item.appendChild(amount);
+                rows.appendChild(item);
+            }
+            return doc;
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.servlet.view.xslt;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamResult;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for reporting model objects as SAX events via ModelXmlReader.
+ */
+public class ModelXmlReaderTests extends TestCase {
+
+    public void testInvalidKeysWrittenAsEntries() throws Exception {
+        Map model = new LinkedHashMap();
+        model.put("name", "rod");
+        model.put("1st", "a");
+        model.put("a b", "c");
+        assertEquals("<m><name>rod</name><entry key=\"1st\">a</entry><entry key=\"a b\">c</entry></m>",
+                write(new ModelXmlReader("m", model)));
+    }
+
+    public void testPrimitiveArrays() throws Exception {
+        Map model = new LinkedHashMap();
+        model.put("ints", new int[]{1, 2});
+        model.put("flags", new boolean[]{true});
+        assertEquals("<m><ints><item>1</item><item>2</item></ints><flags><item>true</item></flags></m>",
+                write(new ModelXmlReader("m", model)));
+    }
+
+    public void testSharedObjectIsNotACycle() throws Exception {
+        List shared = new ArrayList();
+        shared.add("x");
+        Map model = new LinkedHashMap();
+        model.put("first", shared);
+        model.put("second", shared);
+        assertEquals("<m><first><item>x</item></first><second><item>x</item></second></m>",
+                write(new ModelXmlReader("m", model)));
+    }
+
+    public void testCycleRejected() {
+        List list = new ArrayList();
+        list.add(list);
+        try {
+            write(new ModelXmlReader("m", list));
+            fail("Should have failed on cycle");
+        } catch (TransformerException ex) {
+            // expected
+        }
+    }
+
+    public void testMaxDepth() throws Exception {
+        List nested = new ArrayList();
+        List current = nested;
+        for (int i = 0; i < 3; i++) {
+            List child = new ArrayList();
+            current.add(child);
+            current = child;
+        }
+        ModelXmlReader reader = new ModelXmlReader("m", nested);
+        reader.setMaxDepth(3);
+        assertEquals("<m><item><item><item/></item></item></m>", write(reader));
+
+        reader = new ModelXmlReader("m", nested);
+        reader.setMaxDepth(2);
+        try {
+            write(reader);
+            fail("Should have failed on depth");
+        } catch (TransformerException ex) {
+            // expected
+        }
+    }
+
+    private String write(ModelXmlReader reader) throws TransformerException {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        StringWriter out = new StringWriter();
+        transformer.transform(new SAXSource(reader, null), new StreamResult(out));
+        return out.toString();
+    }
+
+}
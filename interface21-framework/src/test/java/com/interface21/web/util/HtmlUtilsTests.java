@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.util;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for HtmlUtils escaping and unescaping.
+ */
+public class HtmlUtilsTests extends TestCase {
+
+    public void testHtmlEscape() {
+        String unescaped = "\"This is a quote'";
+        String escaped = HtmlUtils.htmlEscape(unescaped);
+        assertEquals("&quot;This is a quote&#39;", escaped);
+        assertEquals("&lt;b&gt;bread &amp; butter&lt;/b&gt;", HtmlUtils.htmlEscape("<b>bread & butter</b>"));
+        assertEquals("caf&eacute; &euro;5 &#8482;", HtmlUtils.htmlEscape("café €5 ™"));
+        assertEquals("&#129;&nbsp;", HtmlUtils.htmlEscape("\u0081 "));
+        assertEquals("", HtmlUtils.htmlEscape(null));
+    }
+
+    public void testHtmlEscapeReturnsSourceIfNothingToEscape() {
+        String source = "Nothing to escape here: 1 + 1 = 2";
+        assertSame(source, HtmlUtils.htmlEscape(source));
+        assertSame("", HtmlUtils.htmlEscape(""));
+    }
+
+    public void testHtmlEscapeToWriter() throws Exception {
+        StringWriter out = new StringWriter();
+        HtmlUtils.htmlEscape("a < b & ü", out);
+        HtmlUtils.htmlEscape((String) null, out);
+        HtmlUtils.htmlEscape(" plain", out);
+        assertEquals("a &lt; b &amp; &uuml; plain", out.toString());
+    }
+
+    public void testHtmlEscapeToAppendable() throws Exception {
+        StringBuilder out = new StringBuilder("x=");
+        HtmlUtils.htmlEscape(new StringBuffer("\"<>\""), out);
+        assertEquals("x=&quot;&lt;&gt;&quot;", out.toString());
+    }
+
+    public void testHtmlUnescape() {
+        String escaped = "&quot;This is a quote&#39;";
+        String unescaped = HtmlUtils.htmlUnescape(escaped);
+        assertEquals("\"This is a quote'", unescaped);
+        assertEquals("café €5 ™", HtmlUtils.htmlUnescape("caf&eacute; &euro;5 &#8482;"));
+        String source = "no entities";
+        assertSame(source, HtmlUtils.htmlUnescape(source));
+        assertEquals("", HtmlUtils.htmlUnescape(null));
+    }
+
+    public void testHtmlUnescapeLeavesUnknownEntities() {
+        assertEquals("&foo; & &; &#x41; &#abc; &#99999999;", HtmlUtils.htmlUnescape("&foo; & &; &#x41; &#abc; &#99999999;"));
+        assertEquals("a & b", HtmlUtils.htmlUnescape("a &amp; b"));
+    }
+
+    public void testRoundTrip() {
+        StringBuffer source = new StringBuffer();
+        for (char ch = 0; ch < 300; ch++) {
+            source.append(ch);
+        }
+        source.append('€');
+        assertEquals(source.toString(), HtmlUtils.htmlUnescape(HtmlUtils.htmlEscape(source.toString())));
+    }
+
+}
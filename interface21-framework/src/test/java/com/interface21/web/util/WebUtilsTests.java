@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2011-2025 PiChen
+ */
+
+package com.interface21.web.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for WebUtils content encoding negotiation.
+ */
+public class WebUtilsTests extends TestCase {
+
+    public void testNegotiateEncoding() {
+        assertNull(WebUtils.negotiateEncoding(null));
+        assertNull(WebUtils.negotiateEncoding("identity"));
+        assertEquals("gzip", WebUtils.negotiateEncoding("deflate, gzip"));
+        assertEquals("gzip", WebUtils.negotiateEncoding("x-gzip;q=0.5"));
+        assertEquals("deflate", WebUtils.negotiateEncoding("gzip;q=0, deflate"));
+        assertEquals("deflate", WebUtils.negotiateEncoding("gzip; q=0.0, deflate;q=0.1"));
+        assertNull(WebUtils.negotiateEncoding("gzip;q=0"));
+    }
+
+}